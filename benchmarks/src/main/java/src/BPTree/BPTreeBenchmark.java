@@ -0,0 +1,97 @@
+package src.BPTree;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import src.DBGeneralEngine.BenchmarkData;
+import src.DBGeneralEngine.DBAppException;
+import src.Ref.Ref;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * BPTreeBenchmark measures building a B+ Tree one key at a time and the point and range searches on a built tree,
+ * for several node sizes and key distributions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BPTreeBenchmark {
+
+    /**
+     * Attributes
+     * <p>
+     * INSERTS          ->  The number of keys inserted by one invocation of insert.
+     * PROBES           ->  The number of searches of one invocation of the search benchmarks.
+     * nodeSize         ->  The order of the tree, NodeSize.
+     * size             ->  The number of keys of the searched tree.
+     * distribution     ->  The distribution of the keys.
+     * tree             ->  The tree the searches run on.
+     * keys             ->  The keys of the tree, in insertion order.
+     * probes           ->  The keys searched for.
+     */
+    private static final int INSERTS = 1000;
+    private static final int PROBES = 100;
+
+    @Param({"5", "32", "128"})
+    public int nodeSize;
+
+    @Param({"10000"})
+    public int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "SKEWED"})
+    public BenchmarkData.Distribution distribution;
+
+    private BPTree<Integer> tree;
+    private int[] keys;
+    private int[] probes;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, DBAppException {
+        BenchmarkData.prepare(new Vector<>());
+        keys = BenchmarkData.keys(distribution, size);
+        probes = BenchmarkData.probes(keys, PROBES);
+        tree = new BPTree<>(nodeSize);
+        for (int i = 0; i < keys.length; i++)
+            tree.insert(keys[i], new Ref("bench" + (i / 200)));
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.clean();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(INSERTS)
+    public BPTree<Integer> insert() throws DBAppException {
+        BPTree<Integer> fresh = new BPTree<>(nodeSize);
+        for (int i = 0; i < INSERTS; i++)
+            fresh.insert(keys[i], new Ref("bench" + (i / 200)));
+        return fresh;
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void search(Blackhole blackhole) throws DBAppException {
+        for (int probe : probes)
+            blackhole.consume(tree.search(probe));
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void searchMTE(Blackhole blackhole) throws DBAppException {
+        for (int probe : probes)
+            blackhole.consume(tree.searchMTE(probe));
+    }
+
+}
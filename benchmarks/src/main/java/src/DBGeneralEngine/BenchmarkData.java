@@ -0,0 +1,172 @@
+package src.DBGeneralEngine;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+import java.util.Vector;
+
+
+/**
+ * BenchmarkData builds the data sets and the on-disk layout shared by the benchmarks.
+ * The engine keeps its pages and nodes in the working directory, the benchmarks are meant to run from a scratch
+ * directory such as benchmarks/target, which the data files are written into and removed from.
+ */
+public final class BenchmarkData {
+
+    /**
+     * The distributions of the keys of a data set.
+     * <p>
+     * UNIFORM      ->  Distinct keys in random order.
+     * SEQUENTIAL   ->  Distinct keys in ascending order, the best case of every tree and of the clustered insert.
+     * SKEWED       ->  Keys concentrated on a few small values with many duplicates, a power law shape.
+     */
+    public enum Distribution {
+        UNIFORM, SEQUENTIAL, SKEWED
+    }
+
+
+    /**
+     * Attributes
+     * <p>
+     * SEED         ->  The seed of every generator, so the runs of a benchmark see the same data.
+     * CARDINALITY  ->  The number of distinct names of the name column.
+     */
+    public static final long SEED = 42;
+    public static final int CARDINALITY = 64;
+
+
+    /**
+     * Constructor
+     * The helper is stateless, its methods are static.
+     */
+    private BenchmarkData() {
+    }
+
+
+    /**
+     * Generates the keys of a data set.
+     *
+     * @param distribution the distribution of the keys
+     * @param count the number of keys
+     * @return the keys in insertion order
+     */
+    public static int[] keys(Distribution distribution, int count) {
+        Random random = new Random(SEED);
+        int[] keys = new int[count];
+        switch (distribution) {
+            case SEQUENTIAL -> {
+                for (int i = 0; i < count; i++)
+                    keys[i] = i;
+            }
+            case UNIFORM -> {
+                for (int i = 0; i < count; i++)
+                    keys[i] = i;
+                for (int i = count - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = swap;
+                }
+            }
+            case SKEWED -> {
+                for (int i = 0; i < count; i++) {
+                    double u = random.nextDouble();
+                    keys[i] = (int) (count * u * u * u);
+                }
+            }
+        }
+        return keys;
+    }
+
+
+    /**
+     * Generates the probes of the searches of a benchmark, keys drawn from the same range as the data.
+     *
+     * @param keys the keys of the data set
+     * @param count the number of probes
+     * @return the probes
+     */
+    public static int[] probes(int[] keys, int count) {
+        Random random = new Random(SEED + 1);
+        int[] probes = new int[count];
+        for (int i = 0; i < count; i++)
+            probes[i] = keys[random.nextInt(keys.length)];
+        return probes;
+    }
+
+
+    /**
+     * Gets the name stored with a key.
+     *
+     * @param key the key of the row
+     * @return one of CARDINALITY names
+     */
+    public static String name(int key) {
+        return "name" + Math.floorMod(key, CARDINALITY);
+    }
+
+
+    /**
+     * Builds a small square polygon placed by a key, so neighbouring keys have neighbouring polygons.
+     *
+     * @param key the key of the row
+     * @return a square of side 4 on a grid of 1000 columns
+     */
+    public static CustomPolygon polygon(int key) {
+        int x = Math.floorMod(key, 1000) * 2, y = Math.floorDiv(key, 1000) * 2;
+        return new CustomPolygon(new Polygon(new int[]{x, x + 4, x + 4, x}, new int[]{y, y, y + 4, y + 4}, 4));
+    }
+
+
+    /**
+     * Builds the metadata rows of a table, in the layout of data/metadata.csv.
+     *
+     * @param tableName the name of the table
+     * @param clusteringKey the name of the clustering key column
+     * @param columns the column names and types, alternating
+     * @return one String array per column: table name, column name, column type, clustering key, indexed
+     */
+    public static Vector<String[]> metadata(String tableName, String clusteringKey, String... columns) {
+        Vector<String[]> meta = new Vector<>();
+        for (int i = 0; i < columns.length; i += 2)
+            meta.add(new String[]{tableName, columns[i], columns[i + 1],
+                    columns[i].equals(clusteringKey) ? "True" : "False", "False"});
+        return meta;
+    }
+
+
+    /**
+     * Creates the data directory, the counter of node names and the metadata file holding the given tables.
+     *
+     * @param tables the metadata rows of the tables to register
+     * @throws IOException if the files cannot be written
+     */
+    @SafeVarargs
+    public static void prepare(Vector<String[]>... tables) throws IOException {
+        clean();
+        new File("data").mkdir();
+        try (FileWriter writer = new FileWriter("data/metaBPtree.csv")) {
+            writer.write("0");
+        }
+        try (FileWriter writer = new FileWriter("data/metadata.csv")) {
+            writer.write("TableName,ColumnName,ColumnType,ClusteringKey,Indexed\n");
+            for (Vector<String[]> table : tables)
+                for (String[] column : table)
+                    writer.write(String.join(",", column) + "\n");
+        }
+    }
+
+
+    /**
+     * Removes the pages and nodes written by a benchmark from the working directory.
+     */
+    public static void clean() {
+        File[] files = new File(".").listFiles((dir, name) -> name.startsWith("data: "));
+        if (files != null)
+            for (File file : files)
+                file.delete();
+    }
+
+}
@@ -0,0 +1,94 @@
+package src.DBGeneralEngine;
+
+import java.util.Random;
+
+
+/**
+ * KeyChooser draws the clustering keys of the operations of a workload among the loaded rows.
+ * Popular keys follow the Zipfian generator of Gray et al. used by the Yahoo! Cloud Serving Benchmark, the rank drawn
+ * being hashed over the key space so the popular rows do not all sit in the first pages.
+ */
+public final class KeyChooser {
+
+    /**
+     * Attributes
+     * <p>
+     * THETA        ->  The skew of the Zipfian distribution, the one of the benchmark.
+     * keys         ->  How the keys are drawn.
+     * items        ->  The number of keys the Zipfian distribution is computed over, the rows loaded at first.
+     * zetan        ->  The sum of 1 / i^THETA over the items.
+     * alpha        ->  1 / (1 - THETA).
+     * eta          ->  The correction of the tail of the distribution.
+     */
+    private static final double THETA = 0.99;
+
+    private final WorkloadMix.Keys keys;
+    private final long items;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+
+
+    /**
+     * Constructor
+     *
+     * @param keys how the keys are drawn
+     * @param items the number of keys loaded before the run
+     */
+    public KeyChooser(WorkloadMix.Keys keys, long items) {
+        this.keys = keys;
+        this.items = Math.max(1, items);
+        double zeta = 0;
+        for (long i = 1; i <= this.items; i++)
+            zeta += 1 / Math.pow(i, THETA);
+        this.zetan = zeta;
+        this.alpha = 1 / (1 - THETA);
+        double zeta2 = 1 + 1 / Math.pow(2, THETA);
+        this.eta = (1 - Math.pow(2.0 / this.items, 1 - THETA)) / (1 - zeta2 / zetan);
+    }
+
+
+    /**
+     * Draws the key of the next operation.
+     *
+     * @param random the generator of the calling thread
+     * @param latest the largest key inserted so far
+     * @return a key between 0 and latest
+     */
+    public int next(Random random, int latest) {
+        return switch (keys) {
+            case UNIFORM -> random.nextInt(latest + 1);
+            case ZIPFIAN -> (int) Long.remainderUnsigned(fnv(zipfian(random)), items);
+            case LATEST -> (int) Math.max(0, latest - zipfian(random));
+        };
+    }
+
+
+    /**
+     * Draws a rank, 0 being the most popular.
+     */
+    private long zipfian(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        if (uz < 1)
+            return 0;
+        if (uz < 1 + Math.pow(0.5, THETA))
+            return 1;
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+
+    /**
+     * Hashes a rank with 64 bit FNV-1a, spreading the popular ranks over the key space.
+     */
+    private static long fnv(long value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < 8; i++) {
+            hash ^= value & 0xFF;
+            hash *= 0x100000001B3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+}
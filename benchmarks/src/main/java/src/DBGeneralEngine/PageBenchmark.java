@@ -0,0 +1,97 @@
+package src.DBGeneralEngine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * PageBenchmark measures writing a full page to disk and reading it back, for every page layout and compression.
+ * The page holds MaximumRowsCountInPage rows of an Integer, a String, a Double and a Date column.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageBenchmark {
+
+    /**
+     * Attributes
+     * <p>
+     * maxRows          ->  The number of rows of the page, MaximumRowsCountInPage.
+     * columnar         ->  Whether the page is written column by column.
+     * compression      ->  How the page is compressed.
+     * distribution     ->  The distribution of the keys of the page.
+     * page             ->  The page written by serialize.
+     */
+    @Param({"20", "200", "1000"})
+    public int maxRows;
+
+    @Param({"false", "true"})
+    public boolean columnar;
+
+    @Param({"NONE", "BLOCK", "FRAME_OF_REFERENCE"})
+    public PageCompression compression;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "SKEWED"})
+    public BenchmarkData.Distribution distribution;
+
+    private Page page;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, DBAppException {
+        Vector<String[]> meta = BenchmarkData.metadata("pagebench", "id",
+                "id", "java.lang.Integer", "name", "java.lang.String",
+                "score", "java.lang.Double", "TouchDate", "java.util.Date");
+        BenchmarkData.prepare(meta);
+
+        Table table = new Table();
+        table.setTableName("pagebench");
+        table.setColumnar(columnar);
+        table.setCompression(compression);
+        page = table.newPage();
+
+        RowSchema schema = table.rowSchema(meta);
+        int[] keys = BenchmarkData.keys(distribution, maxRows);
+        java.util.Arrays.sort(keys);
+        Date touchDate = new Date();
+        Vector<Tuple> tuples = new Vector<>();
+        for (int i = 0; i < keys.length; i++) {
+            Vector<Object> attributes = new Vector<>();
+            attributes.add(keys[i]);
+            attributes.add(BenchmarkData.name(keys[i]));
+            attributes.add(keys[i] / 7.0);
+            attributes.add(touchDate);
+            attributes.add(i);
+            tuples.add(new Tuple(schema, attributes));
+        }
+        page.setTuples(tuples);
+        Table.serializePage(page);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.clean();
+    }
+
+
+    @Benchmark
+    public Page serialize() throws DBAppException {
+        Table.serializePage(page);
+        return page;
+    }
+
+
+    @Benchmark
+    public Page deserialize() throws DBAppException {
+        return Table.deserialize(page.getPageName());
+    }
+
+}
@@ -0,0 +1,193 @@
+package src.DBGeneralEngine;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import src.BPTree.BPTree;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * SelectBenchmark measures every access path a condition of a select can take through getArrayOfTuples, the lookup
+ * of the page of a clustering key and the evaluation of a chain of conditions on a tuple.
+ * The table has a clustering key, a String column with a B+ Tree, an unindexed Double column, a polygon column with an
+ * R-Tree and an unindexed polygon column, so every path is reached by one of its columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBenchmark {
+
+    /**
+     * Attributes
+     * <p>
+     * TABLE            ->  The name of the benchmarked table.
+     * PROBES           ->  The number of distinct values the searches cycle through.
+     * nodeSize         ->  The order of the B+ Tree and the R-Tree, NodeSize.
+     * maxRows          ->  The number of rows of a page, MaximumRowsCountInPage.
+     * rows             ->  The number of rows of the table.
+     * distribution     ->  The distribution of the clustering keys.
+     * table            ->  The benchmarked table.
+     * probes           ->  The clustering keys searched for.
+     * rangeFrom        ->  The clustering key the range conditions start from, leaving about one percent of the rows.
+     * sample           ->  The tuples the chains of conditions are evaluated on.
+     * conditions       ->  A conjunction of a condition on the clustering key and one on the Double column.
+     * next             ->  The index of the next probe.
+     */
+    private static final String TABLE = "bench";
+    private static final int PROBES = 64;
+
+    @Param({"5", "32", "128"})
+    public int nodeSize;
+
+    @Param({"20", "200", "1000"})
+    public int maxRows;
+
+    @Param({"5000"})
+    public int rows;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "SKEWED"})
+    public BenchmarkData.Distribution distribution;
+
+    private Table table;
+    private int[] probes;
+    private int rangeFrom;
+    private Vector<Tuple> sample;
+    private SQLTerm[] conditions;
+    private int next;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, DBAppException {
+        Vector<String[]> meta = BenchmarkData.metadata(TABLE, "id",
+                "id", "java.lang.Integer", "name", "java.lang.String", "score", "java.lang.Double",
+                "shape", "java.awt.Polygon", "outline", "java.awt.Polygon", "TouchDate", "java.util.Date");
+        BenchmarkData.prepare(meta);
+
+        DBApp app = new DBApp();
+        app.setMaximumRowsCountInPage(maxRows);
+        app.setNodeSize(nodeSize);
+        table = new Table();
+        table.setTableName(TABLE);
+        table.getTreeIndexColumnName().put("name", new BPTree<String>(nodeSize));
+        app.getTables().add(table);
+
+        int[] keys = BenchmarkData.keys(distribution, rows);
+        List<Hashtable<String, Object>> batch = new ArrayList<>();
+        for (int key : keys) {
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", key);
+            row.put("name", BenchmarkData.name(key));
+            row.put("score", key / 7.0);
+            row.put("shape", BenchmarkData.polygon(key));
+            row.put("outline", BenchmarkData.polygon(key));
+            batch.add(row);
+            if (batch.size() == 500) {
+                app.insertIntoTable(TABLE, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            app.insertIntoTable(TABLE, batch);
+        app.createRTreeIndex(TABLE, "shape");
+
+        probes = BenchmarkData.probes(keys, PROBES);
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        rangeFrom = sorted[sorted.length * 99 / 100];
+        sample = Table.deserialize(table.getPages().get(0)).getTuples();
+        conditions = new SQLTerm[]{
+                new SQLTerm(TABLE, "id", ">=", sorted[0]),
+                new SQLTerm(TABLE, "score", "<", rangeFrom / 7.0)};
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.clean();
+    }
+
+
+    /**
+     * Gets the next clustering key to search for.
+     */
+    private int probe() {
+        next = (next + 1) % PROBES;
+        return probes[next];
+    }
+
+
+    @Benchmark
+    public String searchInTable() throws DBAppException {
+        return table.SearchInTable(probe());
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> binaryEquals() throws DBAppException {
+        return table.getArrayOfTuples("id", probe(), "=", 0);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> binaryRange() throws DBAppException {
+        return table.getArrayOfTuples("id", rangeFrom, ">=", 0);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> indexEquals() throws DBAppException {
+        return table.getArrayOfTuples("name", BenchmarkData.name(probe()), "=", 1);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> indexRange() throws DBAppException {
+        return table.getArrayOfTuples("name", BenchmarkData.name(BenchmarkData.CARDINALITY - 2), ">", 1);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> fullScan() throws DBAppException {
+        return table.getArrayOfTuples("score", rangeFrom / 7.0, ">=", 2);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> linearNotEquals() throws DBAppException {
+        return table.getArrayOfTuples("name", BenchmarkData.name(probe()), "!=", 1);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> rtreeIntersects() throws DBAppException {
+        return table.getArrayOfTuples("shape", BenchmarkData.polygon(probe()), SQLTerm.INTERSECTS, 3);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> rtreeEquals() throws DBAppException {
+        return table.getArrayOfTuples("shape", BenchmarkData.polygon(probe()), SQLTerm.EQUALS, 3);
+    }
+
+
+    @Benchmark
+    public ArrayList<Tuple> spatialFullScan() throws DBAppException {
+        return table.getArrayOfTuples("outline", BenchmarkData.polygon(probe()), SQLTerm.INTERSECTS, 4);
+    }
+
+
+    @Benchmark
+    public void tupleMetConditions(Blackhole blackhole) throws DBAppException {
+        ArrayList<Integer> positions = new ArrayList<>(List.of(0, 2));
+        String[] operators = {"AND"};
+        for (Tuple tuple : sample)
+            blackhole.consume(table.tupleMetConditions(conditions, operators, positions, 1, tuple));
+    }
+
+}
@@ -0,0 +1,349 @@
+package src.DBGeneralEngine;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * WorkloadDriver runs a whole workload against DBApp and reports its throughput and latencies as JSON.
+ * It creates a table through DBApp.createTable, loads the rows in batches, then runs a mix of operations from many
+ * threads, timing every operation into a latency histogram of its kind.
+ * Every thread draws its operations and keys from its own generator seeded from the seed of the run, so two runs
+ * with the same settings issue the same operations.
+ * <p>
+ * The settings are given as --name=value arguments:
+ * <p>
+ * --workload       ->  The mix of operations, one of WorkloadMix, A by default.
+ * --rows           ->  The number of rows loaded before the run, 10000 by default.
+ * --operations     ->  The number of measured operations of all threads together, 10000 by default.
+ * --warmup         ->  The number of operations run before the measured ones and left out of the report, 1000 by default.
+ * --threads        ->  The number of threads issuing operations, 4 by default.
+ * --scanLength     ->  The number of keys a scan covers, 100 by default.
+ * --batchSize      ->  The number of rows of one insert while loading, 1000 by default.
+ * --maxRows        ->  MaximumRowsCountInPage, 200 by default.
+ * --nodeSize       ->  NodeSize of the R-Tree of the polygon workload, 32 by default.
+ * --seed           ->  The seed of the generators, 42 by default.
+ * --output         ->  The file the report is written to, the standard output by default.
+ * <p>
+ * The engine writes its pages to the working directory, the driver is meant to run from a scratch directory.
+ */
+public final class WorkloadDriver {
+
+    /**
+     * Attributes
+     * <p>
+     * TABLE            ->  The name of the table of the workload.
+     * settings         ->  The settings of the run by name.
+     * mix              ->  The mix of operations.
+     * app              ->  The database the workload runs against.
+     * chooser          ->  Draws the keys of the operations.
+     * nextKey          ->  The key of the next inserted row.
+     * histograms       ->  The latencies of every kind of operation.
+     * errors           ->  The number of operations that failed.
+     * firstError       ->  The message of the first failure.
+     */
+    private static final String TABLE = "usertable";
+
+    private final Map<String, String> settings;
+    private final WorkloadMix mix;
+    private final DBApp app = new DBApp();
+    private KeyChooser chooser;
+    private final AtomicInteger nextKey = new AtomicInteger();
+    private final EnumMap<WorkloadMix.Operation, LatencyHistogram> histograms = new EnumMap<>(WorkloadMix.Operation.class);
+    private final AtomicLong errors = new AtomicLong();
+    private volatile String firstError;
+
+
+    /**
+     * Constructor
+     *
+     * @param settings the settings of the run by name, the missing ones taking their default
+     */
+    public WorkloadDriver(Map<String, String> settings) {
+        this.settings = settings;
+        this.mix = WorkloadMix.valueOf(setting("workload", "A").toUpperCase());
+        for (WorkloadMix.Operation operation : mix.getOperations())
+            histograms.put(operation, new LatencyHistogram());
+        // The replace half of a read-modify-write is also reported on its own
+        if (histograms.containsKey(WorkloadMix.Operation.READ_MODIFY_WRITE))
+            histograms.putIfAbsent(WorkloadMix.Operation.REPLACE, new LatencyHistogram());
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals == -1)
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            settings.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        String report = new WorkloadDriver(settings).run();
+        String output = settings.get("output");
+        if (output == null) {
+            System.out.println(report);
+        } else {
+            try (FileWriter writer = new FileWriter(output)) {
+                writer.write(report);
+                writer.write("\n");
+            }
+        }
+    }
+
+
+    /**
+     * Loads the table, runs the warmup and the measured operations, and reports them.
+     *
+     * @return the report as a JSON object
+     * @throws IOException if the data directory cannot be prepared
+     * @throws DBAppException if the table cannot be created or loaded
+     * @throws InterruptedException if the driver is interrupted while the threads run
+     */
+    public String run() throws IOException, DBAppException, InterruptedException {
+        int rows = intSetting("rows", 10000);
+        int operations = intSetting("operations", 10000);
+        int warmup = intSetting("warmup", 1000);
+        int threads = intSetting("threads", 4);
+        long seed = Long.parseLong(setting("seed", "42"));
+
+        BenchmarkData.prepare(new Vector<>());
+        app.setMaximumRowsCountInPage(intSetting("maxRows", 200));
+        app.setNodeSize(intSetting("nodeSize", 32));
+        Hashtable<String, Object> columns = new Hashtable<>();
+        columns.put("id", "java.lang.Integer");
+        columns.put("field0", "java.lang.String");
+        columns.put("field1", "java.lang.Double");
+        columns.put("shape", "java.awt.Polygon");
+        app.createTable(TABLE, "id", columns);
+
+        // Load phase, one batch at a time in key order
+        long loadStart = System.nanoTime();
+        Random loadRandom = new Random(seed);
+        int batchSize = intSetting("batchSize", 1000);
+        List<Hashtable<String, Object>> batch = new ArrayList<>(batchSize);
+        for (int key = 0; key < rows; key++) {
+            batch.add(row(key, loadRandom));
+            if (batch.size() == batchSize || key == rows - 1) {
+                app.insertIntoTable(TABLE, batch);
+                batch.clear();
+            }
+        }
+        if (mix == WorkloadMix.POLYGON)
+            app.createRTreeIndex(TABLE, "shape");
+        long loadNanos = System.nanoTime() - loadStart;
+        nextKey.set(rows);
+        chooser = new KeyChooser(mix.getKeys(), rows);
+
+        // Run phase, the warmup operations are left out of the histograms
+        runThreads(threads, warmup, seed, false);
+        errors.set(0);
+        firstError = null;
+        long runStart = System.nanoTime();
+        runThreads(threads, operations, seed + threads, true);
+        long runNanos = System.nanoTime() - runStart;
+        app.getCompactor().drain();
+        app.getCompactor().shutdown();
+        BenchmarkData.clean();
+
+        return report(rows, loadNanos, operations, threads, runNanos);
+    }
+
+
+    /**
+     * Runs a number of operations split evenly over the threads, all of them starting together.
+     */
+    private void runThreads(int threads, int operations, long seed, boolean measured) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int share = operations / threads + ((t < operations % threads) ? 1 : 0);
+            Random random = new Random(seed + t);
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < share; i++)
+                    execute(mix.next(random), random, measured);
+            }, "workload-" + t);
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+    }
+
+
+    /**
+     * Runs one operation and records its latency, counting it as an error if the engine throws.
+     */
+    private void execute(WorkloadMix.Operation operation, Random random, boolean measured) {
+        int key = chooser.next(random, nextKey.get() - 1);
+        long start = System.nanoTime();
+        try {
+            switch (operation) {
+                case READ -> read(key);
+                case REPLACE -> replace(key, random);
+                case INSERT -> insert(nextKey.getAndIncrement(), random);
+                case SCAN -> scan(key, intSetting("scanLength", 100));
+                case READ_MODIFY_WRITE -> {
+                    read(key);
+                    long replaceStart = System.nanoTime();
+                    replace(key, random);
+                    if (measured)
+                        histograms.get(WorkloadMix.Operation.REPLACE).record(System.nanoTime() - replaceStart);
+                }
+                case DELETE -> delete(key);
+                case INTERSECTS -> intersects(key);
+            }
+        } catch (DBAppException | IOException | RuntimeException e) {
+            if (errors.incrementAndGet() == 1)
+                firstError = operation + ": " + e;
+            return;
+        }
+        if (measured)
+            histograms.get(operation).record(System.nanoTime() - start);
+    }
+
+
+    /**
+     * Builds a row of the table with fresh field values.
+     */
+    private static Hashtable<String, Object> row(int key, Random random) {
+        Hashtable<String, Object> row = new Hashtable<>();
+        row.put("id", key);
+        row.put("field0", "value" + random.nextInt(1000));
+        row.put("field1", random.nextDouble());
+        row.put("shape", BenchmarkData.polygon(key));
+        return row;
+    }
+
+
+    private int read(int key) throws DBAppException {
+        return count(app.selectFromTable(new SQLTerm[]{new SQLTerm(TABLE, "id", "=", key)}, new String[0]));
+    }
+
+
+    /**
+     * Replaces a row: deletes it and inserts it again with new values, DBApp.updateTable not rewriting tuples yet.
+     */
+    private void replace(int key, Random random) throws DBAppException, IOException {
+        delete(key);
+        insert(key, random);
+    }
+
+
+    private void insert(int key, Random random) throws DBAppException {
+        app.insertIntoTable(TABLE, List.of(row(key, random)));
+    }
+
+
+    private int scan(int key, int length) throws DBAppException {
+        return count(app.selectFromTable(new SQLTerm[]{
+                new SQLTerm(TABLE, "id", ">=", key),
+                new SQLTerm(TABLE, "id", "<", key + length)}, new String[]{"AND"}));
+    }
+
+
+    private void delete(int key) throws DBAppException, IOException {
+        Hashtable<String, Object> condition = new Hashtable<>();
+        condition.put("id", key);
+        app.deleteFromTable(TABLE, condition);
+    }
+
+
+    private int intersects(int key) throws DBAppException {
+        return count(app.selectFromTable(new SQLTerm[]{
+                new SQLTerm(TABLE, "shape", SQLTerm.INTERSECTS, BenchmarkData.polygon(key))}, new String[0]));
+    }
+
+
+    private static int count(Iterator<Tuple> tuples) {
+        int count = 0;
+        for (; tuples.hasNext(); tuples.next())
+            count++;
+        return count;
+    }
+
+
+    /**
+     * Builds the report: the settings, the load phase, the run phase and a latency summary per operation in microseconds.
+     */
+    private String report(int rows, long loadNanos, int operations, int threads, long runNanos) {
+        // Only the operations of the mix add up to the throughput, not the replace half of a read-modify-write
+        LatencyHistogram all = new LatencyHistogram();
+        for (WorkloadMix.Operation operation : mix.getOperations())
+            all.add(histograms.get(operation));
+        StringBuilder latencies = new StringBuilder();
+        for (Map.Entry<WorkloadMix.Operation, LatencyHistogram> entry : histograms.entrySet()) {
+            latencies.append(latencies.isEmpty() ? "" : ",\n")
+                    .append("    \"").append(entry.getKey()).append("\": ").append(summary(entry.getValue()));
+        }
+        double runSeconds = runNanos / 1e9, loadSeconds = loadNanos / 1e9;
+
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"workload\": \"").append(mix).append("\",\n");
+        json.append("  \"settings\": {");
+        TreeMap<String, String> sorted = new TreeMap<>(settings);
+        int i = 0;
+        for (Map.Entry<String, String> entry : sorted.entrySet())
+            json.append(i++ == 0 ? "" : ", ").append('"').append(escape(entry.getKey())).append("\": \"")
+                    .append(escape(entry.getValue())).append('"');
+        json.append("},\n");
+        json.append("  \"load\": {\"rows\": ").append(rows)
+                .append(", \"seconds\": ").append(format(loadSeconds))
+                .append(", \"rowsPerSecond\": ").append(format(rows / loadSeconds)).append("},\n");
+        json.append("  \"run\": {\"operations\": ").append(operations)
+                .append(", \"threads\": ").append(threads)
+                .append(", \"seconds\": ").append(format(runSeconds))
+                .append(", \"throughput\": ").append(format(all.getCount() / runSeconds))
+                .append(", \"errors\": ").append(errors.get());
+        if (firstError != null)
+            json.append(", \"firstError\": \"").append(escape(firstError)).append('"');
+        json.append("},\n");
+        json.append("  \"latencyMicros\": {\n");
+        json.append("    \"ALL\": ").append(summary(all)).append(latencies.isEmpty() ? "" : ",\n").append(latencies);
+        json.append("\n  }\n}");
+        return json.toString();
+    }
+
+
+    /**
+     * Summarises a histogram as a JSON object, the latencies in microseconds.
+     */
+    private static String summary(LatencyHistogram histogram) {
+        return "{\"count\": " + histogram.getCount()
+                + ", \"mean\": " + format(histogram.getMean() / 1e3)
+                + ", \"p50\": " + format(histogram.getPercentile(50) / 1e3)
+                + ", \"p99\": " + format(histogram.getPercentile(99) / 1e3)
+                + ", \"p999\": " + format(histogram.getPercentile(99.9) / 1e3)
+                + ", \"max\": " + format(histogram.getMax() / 1e3) + "}";
+    }
+
+
+    private static String format(double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.3f", value) : "0";
+    }
+
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+
+    private String setting(String name, String defaultValue) {
+        return settings.getOrDefault(name, defaultValue);
+    }
+
+
+    private int intSetting(String name, int defaultValue) {
+        return Integer.parseInt(setting(name, Integer.toString(defaultValue)));
+    }
+
+}
@@ -0,0 +1,148 @@
+package src.DBGeneralEngine;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the workload driver.
+ * Every mix must draw its operations in their proportions, popular keys must be skewed and scattered over the key space,
+ * the latency histogram must know every value to within its precision, and a short run of every kind of mix must
+ * report each of its operations without errors, the same operations again for the same seed.
+ */
+public class WorkloadDriverTest {
+
+    public static void main(String[] args) throws Exception {
+
+        // The operations are drawn in the proportions of their mix
+        checkMix(WorkloadMix.A, 0.5, 0.5);
+        checkMix(WorkloadMix.C, 1.0);
+        checkMix(WorkloadMix.E, 0.95, 0.05);
+        checkMix(WorkloadMix.RANGE, 0.7, 0.1, 0.1, 0.1);
+        checkMix(WorkloadMix.POLYGON, 0.8, 0.1, 0.1);
+
+        // Popular keys take a large share and are not all in the first pages, the latest keys are the popular ones
+        Random random = new Random(42);
+        int[] zipfian = draw(new KeyChooser(WorkloadMix.Keys.ZIPFIAN, 1000), random, 999);
+        int[] byCount = popular(zipfian);
+        check(zipfian[byCount[0]] > 0.1 * 100_000, "the most popular key was drawn " + zipfian[byCount[0]] + " times");
+        check(Arrays.stream(byCount, 0, 10).anyMatch(key -> key >= 500), "the popular keys sit in the first half of the keys");
+        int[] uniform = draw(new KeyChooser(WorkloadMix.Keys.UNIFORM, 1000), random, 999);
+        check(uniform[popular(uniform)[0]] < 3 * 100, "a uniform key was drawn " + uniform[popular(uniform)[0]] + " times");
+        int[] latest = draw(new KeyChooser(WorkloadMix.Keys.LATEST, 1000), random, 1499);
+        check(popular(latest)[0] == 1499, "the latest key is not the most popular, " + popular(latest)[0] + " is");
+
+        // Every latency is known to within about 1.5 percent
+        LatencyHistogram histogram = new LatencyHistogram(), other = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++)
+            (nanos % 2 == 0 ? histogram : other).record(nanos * 1000);
+        histogram.add(other);
+        check(histogram.getCount() == 100_000 && histogram.getMax() == 100_000_000, "the merged histogram lost values");
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            double expected = percentile * 1_000_000;
+            check(Math.abs(histogram.getPercentile(percentile) - expected) <= 0.016 * expected,
+                    "p" + percentile + " is " + histogram.getPercentile(percentile) + ", expected " + expected);
+        }
+
+        // A short run of every kind of mix reports all of its operations
+        for (WorkloadMix mix : new WorkloadMix[]{WorkloadMix.A, WorkloadMix.D, WorkloadMix.F, WorkloadMix.RANGE, WorkloadMix.POLYGON})
+            checkRun(mix, run(mix, 3));
+
+        // One thread and the same seed issue the same operations
+        check(counts(run(WorkloadMix.RANGE, 1)).equals(counts(run(WorkloadMix.RANGE, 1))),
+                "two runs with the same seed issued other operations");
+
+        System.out.println("WorkloadDriverTest passed");
+    }
+
+
+    private static void checkMix(WorkloadMix mix, double... proportions) {
+        WorkloadMix.Operation[] operations = mix.getOperations();
+        check(operations.length == proportions.length, mix + " has " + operations.length + " operations");
+        EnumMap<WorkloadMix.Operation, Integer> drawn = new EnumMap<>(WorkloadMix.Operation.class);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++)
+            drawn.merge(mix.next(random), 1, Integer::sum);
+        for (int i = 0; i < operations.length; i++) {
+            double share = drawn.getOrDefault(operations[i], 0) / 100_000.0;
+            check(Math.abs(share - proportions[i]) < 0.01, mix + " drew " + operations[i] + " " + share + " of the time");
+        }
+    }
+
+
+    /**
+     * Draws 100000 keys and counts every key.
+     */
+    private static int[] draw(KeyChooser chooser, Random random, int latest) {
+        int[] counts = new int[latest + 1];
+        for (int i = 0; i < 100_000; i++) {
+            int key = chooser.next(random, latest);
+            check(key >= 0 && key <= latest, "the key " + key + " is outside the rows");
+            counts[key]++;
+        }
+        return counts;
+    }
+
+
+    /**
+     * Sorts the keys, the most often drawn first.
+     */
+    private static int[] popular(int[] counts) {
+        return IntStream.range(0, counts.length).boxed()
+                .sorted((a, b) -> counts[b] - counts[a]).mapToInt(Integer::intValue).toArray();
+    }
+
+
+    private static String run(WorkloadMix mix, int threads) throws Exception {
+        Map<String, String> settings = new HashMap<>();
+        settings.put("workload", mix.name());
+        settings.put("rows", "400");
+        settings.put("operations", "300");
+        settings.put("warmup", "30");
+        settings.put("threads", Integer.toString(threads));
+        settings.put("maxRows", "50");
+        settings.put("nodeSize", "8");
+        return new WorkloadDriver(settings).run();
+    }
+
+
+    /**
+     * Checks the run had no errors, measured every operation of the mix and reports ordered percentiles.
+     */
+    private static void checkRun(WorkloadMix mix, String report) {
+        check(report.contains("\"workload\": \"" + mix + "\"") && report.contains("\"errors\": 0}"),
+                mix + " reported\n" + report);
+        Map<String, Long> counts = counts(report);
+        check(counts.get("ALL") == 300, mix + " measured " + counts.get("ALL") + " operations");
+        long measured = 0;
+        for (WorkloadMix.Operation operation : mix.getOperations())
+            measured += counts.get(operation.name());
+        check(measured == 300, "the operations of " + mix + " add up to " + measured);
+        if (mix == WorkloadMix.F)
+            check(counts.get("REPLACE").equals(counts.get("READ_MODIFY_WRITE")),
+                    "not every read-modify-write of F reported its replace");
+        Matcher summary = Pattern.compile("\"ALL\": \\{\"count\": \\d+, \"mean\": [\\d.]+, \"p50\": ([\\d.]+), "
+                + "\"p99\": ([\\d.]+), \"p999\": ([\\d.]+), \"max\": ([\\d.]+)}").matcher(report);
+        check(summary.find(), mix + " reported no latency summary");
+        for (int group = 1; group < 4; group++)
+            check(Double.parseDouble(summary.group(group)) <= Double.parseDouble(summary.group(group + 1)),
+                    "the percentiles of " + mix + " are out of order: " + summary.group());
+    }
+
+
+    /**
+     * Reads the count of every latency summary of a report, by operation.
+     */
+    private static Map<String, Long> counts(String report) {
+        Map<String, Long> counts = new TreeMap<>();
+        Matcher matcher = Pattern.compile("\"(\\w+)\": \\{\"count\": (\\d+)").matcher(report);
+        while (matcher.find())
+            counts.put(matcher.group(1), Long.parseLong(matcher.group(2)));
+        return counts;
+    }
+
+}
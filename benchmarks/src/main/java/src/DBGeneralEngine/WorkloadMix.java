@@ -0,0 +1,111 @@
+package src.DBGeneralEngine;
+
+import java.util.Random;
+
+
+/**
+ * WorkloadMix holds the operation mixes the workload driver runs, the six core workloads of the Yahoo! Cloud Serving
+ * Benchmark and two mixes of this engine: one dominated by range conditions on the clustering key and one dominated
+ * by spatial conditions on a polygon column.
+ * DBApp.updateTable does not rewrite tuples yet, so where YCSB updates a row these mixes replace it:
+ * the row is deleted and inserted again with new values, and reported as REPLACE.
+ * <p>
+ * A        ->  Update heavy: half reads, half replacements, popular keys.
+ * B        ->  Read mostly: 95 percent reads, 5 percent replacements, popular keys.
+ * C        ->  Read only, popular keys.
+ * D        ->  Read latest: 95 percent reads of the most recently inserted keys, 5 percent inserts.
+ * E        ->  Short ranges: 95 percent scans from popular keys, 5 percent inserts.
+ * F        ->  Read-modify-write: half reads, half reads followed by a replacement of the same row.
+ * RANGE    ->  Range heavy: 70 percent scans, 10 percent each of reads, inserts and deletes, uniform keys.
+ * POLYGON  ->  Spatial: 80 percent intersection searches on an R-Tree indexed column, 10 percent each of reads and inserts.
+ */
+public enum WorkloadMix {
+
+    A(Keys.ZIPFIAN, Operation.READ, 0.5, Operation.REPLACE, 0.5),
+    B(Keys.ZIPFIAN, Operation.READ, 0.95, Operation.REPLACE, 0.05),
+    C(Keys.ZIPFIAN, Operation.READ, 1.0),
+    D(Keys.LATEST, Operation.READ, 0.95, Operation.INSERT, 0.05),
+    E(Keys.ZIPFIAN, Operation.SCAN, 0.95, Operation.INSERT, 0.05),
+    F(Keys.ZIPFIAN, Operation.READ, 0.5, Operation.READ_MODIFY_WRITE, 0.5),
+    RANGE(Keys.UNIFORM, Operation.SCAN, 0.7, Operation.READ, 0.1, Operation.INSERT, 0.1, Operation.DELETE, 0.1),
+    POLYGON(Keys.UNIFORM, Operation.INTERSECTS, 0.8, Operation.READ, 0.1, Operation.INSERT, 0.1);
+
+
+    /**
+     * The operations of a workload.
+     */
+    public enum Operation {
+        READ, REPLACE, INSERT, SCAN, READ_MODIFY_WRITE, DELETE, INTERSECTS
+    }
+
+
+    /**
+     * How the keys of the operations are drawn among the rows.
+     * <p>
+     * UNIFORM  ->  Every row equally likely.
+     * ZIPFIAN  ->  A few popular rows, scattered over the key space.
+     * LATEST   ->  The most recently inserted rows most likely.
+     */
+    public enum Keys {
+        UNIFORM, ZIPFIAN, LATEST
+    }
+
+
+    /**
+     * Attributes
+     * <p>
+     * keys         ->  How the keys of the operations are drawn.
+     * operations   ->  The operations of the mix.
+     * cumulative   ->  The running total of the proportions of the operations, ending at 1.
+     */
+    private final Keys keys;
+    private final Operation[] operations;
+    private final double[] cumulative;
+
+
+    /**
+     * Constructor
+     *
+     * @param keys how the keys of the operations are drawn
+     * @param proportions the operations and their proportions, alternating
+     */
+    WorkloadMix(Keys keys, Object... proportions) {
+        this.keys = keys;
+        this.operations = new Operation[proportions.length / 2];
+        this.cumulative = new double[proportions.length / 2];
+        double running = 0;
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = (Operation) proportions[2 * i];
+            running += (Double) proportions[2 * i + 1];
+            cumulative[i] = running;
+        }
+    }
+
+
+    /**
+     * Getters
+     */
+    public Keys getKeys() {
+        return keys;
+    }
+
+    public Operation[] getOperations() {
+        return operations.clone();
+    }
+
+
+    /**
+     * Draws the next operation of the mix.
+     *
+     * @param random the generator of the calling thread
+     * @return an operation, each one as often as its proportion
+     */
+    public Operation next(Random random) {
+        double draw = random.nextDouble();
+        for (int i = 0; i < operations.length - 1; i++)
+            if (draw < cumulative[i])
+                return operations[i];
+        return operations[operations.length - 1];
+    }
+
+}
@@ -0,0 +1,105 @@
+package src.RTree;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import src.DBGeneralEngine.BenchmarkData;
+import src.DBGeneralEngine.CustomPolygon;
+import src.DBGeneralEngine.DBAppException;
+import src.Ref.Ref;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * RTreeBenchmark measures building an R-Tree one polygon at a time and the intersection and equality searches on a
+ * built tree, for several node sizes and placements of the polygons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RTreeBenchmark {
+
+    /**
+     * Attributes
+     * <p>
+     * INSERTS          ->  The number of polygons inserted by one invocation of insert.
+     * PROBES           ->  The number of searches of one invocation of the search benchmarks.
+     * nodeSize         ->  The order of the tree, NodeSize.
+     * size             ->  The number of polygons of the searched tree.
+     * distribution     ->  The distribution of the keys the polygons are placed by.
+     * tree             ->  The tree the searches run on.
+     * polygons         ->  The polygons of the tree, in insertion order.
+     * probes           ->  The polygons searched for.
+     */
+    private static final int INSERTS = 1000;
+    private static final int PROBES = 100;
+
+    @Param({"5", "32", "128"})
+    public int nodeSize;
+
+    @Param({"10000"})
+    public int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "SKEWED"})
+    public BenchmarkData.Distribution distribution;
+
+    private RTree tree;
+    private CustomPolygon[] polygons;
+    private CustomPolygon[] probes;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, DBAppException {
+        BenchmarkData.prepare(new Vector<>());
+        int[] keys = BenchmarkData.keys(distribution, size);
+        polygons = new CustomPolygon[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            polygons[i] = BenchmarkData.polygon(keys[i]);
+        int[] probeKeys = BenchmarkData.probes(keys, PROBES);
+        probes = new CustomPolygon[probeKeys.length];
+        for (int i = 0; i < probeKeys.length; i++)
+            probes[i] = BenchmarkData.polygon(probeKeys[i]);
+
+        tree = new RTree(nodeSize);
+        for (int i = 0; i < polygons.length; i++)
+            tree.insert(polygons[i], new Ref("bench" + (i / 200)));
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.clean();
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(INSERTS)
+    public RTree insert() throws DBAppException {
+        RTree fresh = new RTree(nodeSize);
+        for (int i = 0; i < INSERTS; i++)
+            fresh.insert(polygons[i], new Ref("bench" + (i / 200)));
+        return fresh;
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void searchIntersects(Blackhole blackhole) throws DBAppException {
+        for (CustomPolygon probe : probes)
+            blackhole.consume(tree.searchIntersects(probe));
+    }
+
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void searchEquals(Blackhole blackhole) throws DBAppException {
+        for (CustomPolygon probe : probes)
+            blackhole.consume(tree.searchEquals(probe));
+    }
+
+}
@@ -1,5 +1,6 @@
 package src.BPTree;
 
+import src.DBGeneralEngine.OverflowPage;
 import src.DBGeneralEngine.TreeIndex;
 import src.DBGeneralEngine.DBAppException;
 import src.Ref.GeneralRef;
@@ -11,6 +12,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.concurrent.locks.StampedLock;
 
 
 /**
@@ -27,10 +29,12 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * order -> The order of the B+ Tree, determining the maximum number of children each node can have.
      * root -> The root node of the B+ Tree.
      * nextId -> An identifier for the next node or leaf to be created, used to maintain unique IDs.
+     * lock -> Guards the root and the node files, writers lock it while readers validate an optimistic stamp.
      */
     private final int order;
-    private BPTreeNode<T> root;
+    private volatile BPTreeNode<T> root;
     private int nextId;
+    private final StampedLock lock = new StampedLock();
 
 
     /**
@@ -76,6 +80,46 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
     }
 
 
+    /**
+     * A read over the tree that may observe a concurrent writer and therefore may have to be retried.
+     *
+     * @param <R> The type of the result produced by the read.
+     */
+    private interface OptimisticRead<R> {
+        R read() throws DBAppException;
+    }
+
+    /**
+     * Runs the given read without blocking writers.
+     * The read first runs on an optimistic stamp and is accepted if no writer locked the tree meanwhile,
+     * otherwise it runs once more under the read lock, so a reader overlapping writers retries at most once.
+     *
+     * @param read The read to run.
+     * @return The result of the read.
+     * @throws DBAppException If the read fails while no writer was active.
+     */
+    private <R> R readOptimistically(OptimisticRead<R> read) throws DBAppException {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = read.read();
+                if (lock.validate(stamp))
+                    return result;
+            } catch (DBAppException | RuntimeException e) {
+                // A torn node file or a half shifted key array is expected while a writer is active
+                if (lock.validate(stamp))
+                    throw e;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read.read();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
     /**
      * Retrieves the leftmost leaf node in the B+ tree.
      *
@@ -83,12 +127,14 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException if an error occurs during the retrieval process.
      */
     public BPTreeLeafNode getLeftmostLeaf() throws DBAppException {
-        BPTreeNode currentNode = root;
-        while (!(currentNode instanceof BPTreeLeafNode)) {
-            BPTreeInnerNode innerNode = (BPTreeInnerNode) currentNode;
-            currentNode = innerNode.getFirstChild();
-        }
-        return (BPTreeLeafNode) currentNode;
+        return readOptimistically(() -> {
+            BPTreeNode currentNode = root;
+            while (!(currentNode instanceof BPTreeLeafNode)) {
+                BPTreeInnerNode innerNode = (BPTreeInnerNode) currentNode;
+                currentNode = innerNode.getFirstChild();
+            }
+            return (BPTreeLeafNode) currentNode;
+        });
     }
 
     /**
@@ -99,8 +145,13 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @param newRef The new reference to associate with the key.
      */
     public void updateRef(T key, Ref newRef) throws IOException, DBAppException {
-        delete(key);
-        insert(key, newRef);
+        long stamp = lock.writeLock();
+        try {
+            deleteKey(key);
+            insertKey(key, newRef);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
@@ -112,10 +163,14 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException If an error occurs during the update process.
      */
     public void updateRef(String oldPage, String newPage, T key) throws DBAppException {
-
-        BPTreeLeafNode bpTreeLeafNode = searchForUpdateRef(key);
-        bpTreeLeafNode.updateRef(oldPage, newPage, key);
-        bpTreeLeafNode.serializeNode();
+        long stamp = lock.writeLock();
+        try {
+            BPTreeLeafNode bpTreeLeafNode = root.searchForUpdateRef(key);
+            bpTreeLeafNode.updateRef(oldPage, newPage, key);
+            bpTreeLeafNode.serializeNode();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
@@ -126,7 +181,7 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException If an error occurs during the search process.
      */
     public BPTreeLeafNode searchForUpdateRef(T key) throws DBAppException {
-        return root.searchForUpdateRef(key);
+        return readOptimistically(() -> root.searchForUpdateRef(key));
     }
 
     /**
@@ -138,6 +193,149 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException If an error occurs during the insertion process.
      */
     public void insert(T key, Ref ref) throws DBAppException {
+        long stamp = lock.writeLock();
+        try {
+            insertKey(key, ref);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts a batch of keys sorted in ascending order under a single hold of the write lock.
+     * Consecutive keys land in the same or the next leaf, so the nodes on the right spine stay hot in the page cache.
+     *
+     * @param keys The keys to be inserted, sorted in ascending order.
+     * @param refs The references associated with the keys.
+     * @throws DBAppException If an error occurs during the insertion process.
+     */
+    public void insertBatch(ArrayList<T> keys, ArrayList<Ref> refs) throws DBAppException {
+        if (keys.isEmpty())
+            return;
+        long stamp = lock.writeLock();
+        try {
+            if (root instanceof BPTreeLeafNode && root.getNumberOfKeys() == 0) {
+                bulkLoad(keys, refs);
+                return;
+            }
+            for (int i = 0; i < keys.size(); i++)
+                insertKey(keys.get(i), refs.get(i));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Builds the tree bottom-up from keys sorted in ascending order, replacing the current (empty) root.
+     * Leaves are packed full and linked left to right, then every inner level is packed on top of the previous one.
+     * Each node is written exactly once, instead of once per key that passes through it.
+     *
+     * @param keys The keys to be loaded, sorted in ascending order.
+     * @param refs The references associated with the keys.
+     * @throws DBAppException If an error occurs while writing the nodes.
+     */
+    private void bulkLoad(ArrayList<T> keys, ArrayList<Ref> refs) throws DBAppException {
+        // Build the leaf level, duplicate keys share one overflow reference
+        ArrayList<BPTreeNode<T>> level = new ArrayList<>();
+        ArrayList<Comparable<T>> levelMinKeys = new ArrayList<>();
+        BPTreeLeafNode<T> leaf = null;
+        for (int i = 0; i < keys.size(); ) {
+            int j = i + 1;
+            while (j < keys.size() && keys.get(j).compareTo(keys.get(i)) == 0)
+                j++;
+            GeneralRef record = (j - i == 1) ? refs.get(i) : bulkOverflowRef(refs, i, j);
+
+            if (leaf == null || leaf.isFull()) {
+                leaf = new BPTreeLeafNode<T>(order);
+                level.add(leaf);
+                levelMinKeys.add(keys.get(i));
+            }
+            leaf.insertAt(leaf.getNumberOfKeys(), keys.get(i), record);
+            i = j;
+        }
+        rebalanceLastLeaves(level, levelMinKeys);
+        for (int i = 0; i < level.size(); i++) {
+            BPTreeLeafNode<T> current = (BPTreeLeafNode<T>) level.get(i);
+            current.setNextNodeName(i + 1 < level.size() ? level.get(i + 1).getNodeName() : null);
+            current.serializeNode();
+        }
+
+        // Stack inner levels until a single node is left
+        while (level.size() > 1) {
+            ArrayList<BPTreeNode<T>> parents = new ArrayList<>();
+            ArrayList<Comparable<T>> parentMinKeys = new ArrayList<>();
+            int fanOut = order + 1;
+            int groups = (level.size() + fanOut - 1) / fanOut;
+            for (int group = 0; group < groups; group++) {
+                // Spread the children evenly so the last inner node never underflows
+                int from = group * level.size() / groups;
+                int to = (group + 1) * level.size() / groups;
+                BPTreeInnerNode<T> inner = new BPTreeInnerNode<T>(order);
+                inner.setChild(0, level.get(from));
+                for (int k = from + 1; k < to; k++) {
+                    inner.setKey(k - from - 1, levelMinKeys.get(k));
+                    inner.setChild(k - from, level.get(k));
+                }
+                inner.setNumberOfKeys(to - from - 1);
+                inner.serializeNode();
+                parents.add(inner);
+                parentMinKeys.add(levelMinKeys.get(from));
+            }
+            level = parents;
+            levelMinKeys = parentMinKeys;
+        }
+
+        root.setRoot(false);
+        root = level.get(0);
+        root.setRoot(true);
+        root.serializeNode();
+    }
+
+    /**
+     * Moves keys from the second to last leaf into the last one when the last leaf is below its minimum occupancy.
+     *
+     * @param leaves       The leaf level being built.
+     * @param leafMinKeys  The first key of every leaf, kept in sync with the moved keys.
+     */
+    private void rebalanceLastLeaves(ArrayList<BPTreeNode<T>> leaves, ArrayList<Comparable<T>> leafMinKeys) {
+        if (leaves.size() < 2)
+            return;
+        BPTreeLeafNode<T> last = (BPTreeLeafNode<T>) leaves.get(leaves.size() - 1);
+        BPTreeLeafNode<T> previous = (BPTreeLeafNode<T>) leaves.get(leaves.size() - 2);
+        int minKeys = (order + 1) / 2;
+        while (last.getNumberOfKeys() < minKeys && previous.getNumberOfKeys() > minKeys) {
+            last.insertAt(0, previous.getLastKey(), previous.getLastRecord());
+            previous.deleteAt(previous.getNumberOfKeys() - 1);
+        }
+        leafMinKeys.set(leaves.size() - 1, last.getFirstKey());
+    }
+
+    /**
+     * Creates an overflow reference holding the references of a run of equal keys.
+     *
+     * @param refs The references of the loaded keys.
+     * @param from The index of the first reference of the run.
+     * @param to   The index after the last reference of the run.
+     * @return The overflow reference pointing at the newly written overflow pages.
+     * @throws DBAppException If an error occurs while writing the overflow pages.
+     */
+    private OverflowRef bulkOverflowRef(ArrayList<Ref> refs, int from, int to) throws DBAppException {
+        OverflowPage overflowPage = new OverflowPage(order);
+        for (int i = from; i < to; i++)
+            overflowPage.addRecord(refs.get(i));
+        OverflowRef overflowRef = new OverflowRef();
+        overflowRef.setFirstPage(overflowPage);
+        return overflowRef;
+    }
+
+    /**
+     * Inserts a key and its reference, the caller holds the write lock.
+     *
+     * @param key The key to be inserted.
+     * @param ref The reference associated with the key.
+     * @throws DBAppException If an error occurs during the insertion process.
+     */
+    private void insertKey(T key, Ref ref) throws DBAppException {
         PushUpBPTree<T> pushUp = root.insert(key, ref, null, -1);
 
         if (pushUp != null) {
@@ -159,7 +357,7 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException If an error occurs during the search process.
      */
     public GeneralRef search(T key) throws DBAppException {
-        return root.search(key);
+        return readOptimistically(() -> root.search(key));
     }
 
     /**
@@ -170,7 +368,7 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException if an error occurs during the search process.
      */
     public ArrayList<GeneralRef> searchMTE(T key) throws DBAppException {
-        return root.searchMTE(key);
+        return readOptimistically(() -> root.searchMTE(key));
     }
 
     /**
@@ -181,7 +379,7 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException if an error occurs during the search process.
      */
     public ArrayList<GeneralRef> searchMT(T key) throws DBAppException {
-        return root.searchMT(key);
+        return readOptimistically(() -> root.searchMT(key));
     }
 
     /**
@@ -193,6 +391,22 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      */
     @Override
     public boolean delete(T key) throws DBAppException {
+        long stamp = lock.writeLock();
+        try {
+            return deleteKey(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes the entry with the given key, the caller holds the write lock.
+     *
+     * @param key The key to be deleted.
+     * @return true if the entry was successfully deleted, false otherwise.
+     * @throws DBAppException If an error occurs during the deletion process.
+     */
+    private boolean deleteKey(T key) throws DBAppException {
         boolean isDeleted = root.delete(key, null, -1);
 
         // If the root node is an inner node and is not the root of the tree, traverse to the first child to update the root.
@@ -211,6 +425,23 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException If an error occurs during the deletion process.
      */
     public boolean delete(T key, String PageName) throws DBAppException {
+        long stamp = lock.writeLock();
+        try {
+            return deleteKey(key, PageName);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes the entry of the given key for the given page, the caller holds the write lock.
+     *
+     * @param key      The key to be deleted.
+     * @param PageName The name of the page where the entry should be updated.
+     * @return true if the entry was successfully deleted, false otherwise.
+     * @throws DBAppException If an error occurs during the deletion process.
+     */
+    private boolean deleteKey(T key, String PageName) throws DBAppException {
         boolean done = root.delete(key, null, -1, PageName);
 
         // If the root node is an inner node and is not the root of the tree, traverse to the first child to update the root.
@@ -220,6 +451,25 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
         return done;
     }
 
+    /**
+     * Deletes a batch of entries sorted in ascending key order under a single hold of the write lock.
+     *
+     * @param keys      The keys to be deleted, sorted in ascending order.
+     * @param pageNames The pages the deleted records lived in, aligned with the keys.
+     * @throws DBAppException If an error occurs during the deletion process.
+     */
+    public void deleteBatch(ArrayList<T> keys, ArrayList<String> pageNames) throws DBAppException {
+        if (keys.isEmpty())
+            return;
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < keys.size(); i++)
+                deleteKey(keys.get(i), pageNames.get(i));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
     /**
      * Searches for the appropriate location to insert the given key and returns the corresponding reference.
      *
@@ -229,7 +479,7 @@ public class BPTree<T extends Comparable<T>> implements Serializable, TreeIndex<
      * @throws DBAppException if an error occurs during the search operation.
      */
     public Ref searchForInsertion(T key, int tableLength) throws DBAppException {
-        return root.searchForInsertion(key, tableLength);
+        return readOptimistically(() -> root.searchForInsertion(key, tableLength));
     }
 
 
@@ -102,13 +102,13 @@ public class BPTreeLeafNode<T extends Comparable<T>> extends BPTreeNode<T> imple
      * Sets the next BPTreeLeafNode in the linked list.
      * <p>
      * This method sets the `nextNodeName` field to the name of the provided BPTreeLeafNode.
-     * If the `nextNodeName` is already null, it sets the `nextNodeName` to null.
+     * If the provided node is null, it sets the `nextNodeName` to null.
      * Indicating that this is the last node in the linked list.
      *
      * @param node The next BPTreeLeafNode in the linked list, or null if this is the last node.
      */
     public void setNextNodeName(BPTreeLeafNode<T> node) {
-        this.nextNodeName = (nextNodeName != null) ? node.getNodeName() : null;
+        this.nextNodeName = (node != null) ? node.getNodeName() : null;
     }
 
     /**
@@ -205,14 +205,8 @@ public class BPTreeLeafNode<T extends Comparable<T>> extends BPTreeNode<T> imple
         while (index < getNumberOfKeys() && getKey(index).compareTo(key) < 0)
             ++index;
 
-        // If the node is full, it splits the node into two,
-        // and Returns a new PushUpBPTree object with the new middle key and the two child nodes.
-        if (this.isFull()) {
-            BPTreeNode<T> newNode = this.split(key, recordReference);
-            Comparable<T> newKey = newNode.getFirstKey();
-            newNode.serializeNode();
-            return new PushUpBPTree<T>(newNode, newKey);
-        } else if (index < getNumberOfKeys() && getKey(index).compareTo(key) == 0) {
+        // A key already in the node joins the overflow pages of its records, even when the node is full
+        if (index < getNumberOfKeys() && getKey(index).compareTo(key) == 0) {
             GeneralRef ref = records[index];
             if (ref.isOverflow()) {
 
@@ -228,6 +222,13 @@ public class BPTreeLeafNode<T extends Comparable<T>> extends BPTreeNode<T> imple
                 records[index] = overflowRef;
             }
             return null;
+        } else if (this.isFull()) {
+            // If the node is full, it splits the node into two,
+            // and Returns a new PushUpBPTree object with the new middle key and the two child nodes.
+            BPTreeNode<T> newNode = this.split(key, recordReference);
+            Comparable<T> newKey = newNode.getFirstKey();
+            newNode.serializeNode();
+            return new PushUpBPTree<T>(newNode, newKey);
         } else {
             this.insertAt(index, key, recordReference);
             return null;
@@ -284,9 +285,9 @@ public class BPTreeLeafNode<T extends Comparable<T>> extends BPTreeNode<T> imple
         else
             newNode.insertAt(keyIndex - midIndex, key, generalRef);
 
-        // Update the next node pointers
-        newNode.setNextNodeName(this.getNextNode());
-        this.setNextNodeName(newNode.getNextNodeName());
+        // Update the next node pointers, the new node goes right after this one
+        newNode.setNextNodeName(this.nextNodeName);
+        this.setNextNodeName(newNode);
 
         return newNode;
     }
@@ -1,6 +1,8 @@
 package src.BPTree;
 
 import src.DBGeneralEngine.DBAppException;
+import src.DBGeneralEngine.EngineEvents;
+import src.DBGeneralEngine.EngineMetrics;
 import src.Ref.GeneralRef;
 import src.Ref.Ref;
 
@@ -181,7 +183,7 @@ public abstract class BPTreeNode<T extends Comparable<T>> implements Serializabl
         try {
 
             String lastIn = "";
-            Vector meta = readFile("data/metadata.csv");
+            Vector meta = readFile("data/metaBPtree.csv");
             int newLastIn = 0;
             for (Object obj : meta) {
                 String[] currentIn = (String[]) obj;
@@ -190,7 +192,7 @@ public abstract class BPTreeNode<T extends Comparable<T>> implements Serializabl
                 currentIn[0] = newLastIn + "";
                 break;
             }
-            FileWriter fileWriter = new FileWriter("data/metadata.csv");
+            FileWriter fileWriter = new FileWriter("data/metaBPtree.csv");
             for (Object obj : meta) {
                 String[] currentIn = (String[]) obj;
                 fileWriter.append(currentIn[0]);
@@ -201,7 +203,7 @@ public abstract class BPTreeNode<T extends Comparable<T>> implements Serializabl
             return lastIn;
         } catch (IOException e) {
             e.printStackTrace();
-            throw new DBAppException("IOException reading from metadata.csv ");
+            throw new DBAppException("IOException reading from metaBPtree.csv ");
         }
     }
 
@@ -213,12 +215,18 @@ public abstract class BPTreeNode<T extends Comparable<T>> implements Serializabl
      * @throws DBAppException if an IOException occurs during the file operations
      */
     public void serializeNode() throws DBAppException {
+        EngineEvents.Flush event = new EngineEvents.Flush();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + this.nodeName + ".class";
         try {
-            FileOutputStream fileOutputStream = new FileOutputStream("data: " + this.nodeName + ".class");
+            FileOutputStream fileOutputStream = new FileOutputStream(fileName);
             ObjectOutputStream out = new ObjectOutputStream(fileOutputStream);
             out.writeObject(this);
             out.close();
             fileOutputStream.close();
+            EngineMetrics.record(EngineMetrics.Operation.BPTREE_NODE_WRITE, start, fileName);
+            event.emit("B+ Tree node", fileName);
         } catch (IOException e) {
             e.printStackTrace();
             throw new DBAppException("IO Exception writing to disk: " + this.nodeName);
@@ -234,19 +242,24 @@ public abstract class BPTreeNode<T extends Comparable<T>> implements Serializabl
      * @throws DBAppException if an IOException or ClassNotFoundException occurs during the file operations
      */
     public BPTreeNode<T> deserializeNode(String name) throws DBAppException {
+        EngineEvents.IndexNodeRead event = new EngineEvents.IndexNodeRead();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + name + ".class";
         try {
-            FileInputStream fileInputStream = new FileInputStream("data: " + name + ".class");
+            FileInputStream fileInputStream = new FileInputStream(fileName);
             ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
             BPTreeNode<T> BPTreeNode = (BPTreeNode<T>) objectInputStream.readObject();
             objectInputStream.close();
             fileInputStream.close();
+            EngineMetrics.record(EngineMetrics.Operation.BPTREE_NODE_READ, start, fileName);
+            event.emit("B+ Tree", name, fileName);
             return BPTreeNode;
         } catch (IOException e) {
-            e.printStackTrace();
+            // Expected on an optimistic read racing a writer, the tree decides whether to report it
             throw new DBAppException("IO Exception reading from disk: " + name);
         } catch (ClassNotFoundException e) {
-            e.printStackTrace();
-            throw new DBAppException("Class Not Found Exception above");
+            throw new DBAppException("Class Not Found Exception reading: " + name);
         }
     }
 
@@ -1,6 +1,19 @@
 package src.BPTree;
 
 import src.DBGeneralEngine.DBAppException;
+import src.DBGeneralEngine.DBAppTest;
+import src.Ref.GeneralRef;
+import src.Ref.Ref;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static src.DBGeneralEngine.DBAppTest.check;
 
 /**
  * This class is used to test the functionality of the BPTree data structure.
@@ -8,12 +21,74 @@ import src.DBGeneralEngine.DBAppException;
  */
 public class BPTreeTest {
 
-    public static void main(String[] args) throws DBAppException {
+    public static void main(String[] args) throws DBAppException, IOException, InterruptedException {
 
+        DBAppTest.prepare();
         BPTree<Integer> bpTree = new BPTree<Integer>(4);
 
-        // test and manipulate here
+        // Readers look up keys already inserted while a writer keeps splitting nodes under them
+        AtomicInteger inserted = new AtomicInteger(-1);
+        AtomicLong wrong = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2000; i++) {
+                    bpTree.insert(i, new Ref("Page" + i / 20));
+                    inserted.set(i);
+                }
+            } catch (DBAppException e) {
+                wrong.incrementAndGet();
+            }
+        });
+        ArrayList<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Random random = new Random(t);
+            readers.add(new Thread(() -> {
+                while (writer.isAlive() || inserted.get() < 1999) {
+                    int last = inserted.get();
+                    if (last < 0)
+                        continue;
+                    int key = random.nextInt(last + 1);
+                    try {
+                        GeneralRef ref = bpTree.search(key);
+                        if (ref == null || !ref.getAllRef().get(0).getPage().equals("Page" + key / 20))
+                            wrong.incrementAndGet();
+                    } catch (DBAppException e) {
+                        wrong.incrementAndGet();
+                    }
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        writer.start();
+        for (Thread reader : readers)
+            reader.start();
+        writer.join();
+        for (Thread reader : readers)
+            reader.join();
+
+        check(wrong.get() == 0, wrong.get() + " of " + reads.get() + " concurrent lookups failed");
+        for (int i = 0; i < 2000; i++)
+            check(bpTree.search(i) != null, "key " + i + " is missing");
+
+        // Skewed keys repeat many times, also when the leaf they land in is full: every repeat must join the one entry
+        // of its key rather than split the leaf and add a second entry the searches miss
+        BPTree<Integer> skewed = new BPTree<>(4);
+        Random random = new Random(41);
+        TreeMap<Integer, Integer> repeats = new TreeMap<>();
+        for (int i = 0; i < 1500; i++) {
+            double u = random.nextDouble();
+            int key = (int) (300 * u * u * u);
+            skewed.insert(key, new Ref("Page" + i));
+            repeats.merge(key, 1, Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> entry : repeats.entrySet()) {
+            GeneralRef ref = skewed.search(entry.getKey());
+            check(ref != null && ref.getAllRef().size() == entry.getValue(), "key " + entry.getKey() + " was inserted "
+                    + entry.getValue() + " times, the search found " + (ref == null ? 0 : ref.getAllRef().size()));
+        }
 
+        System.out.println("BPTreeTest passed");
     }
 
 }
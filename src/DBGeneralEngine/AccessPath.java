@@ -0,0 +1,16 @@
+package src.DBGeneralEngine;
+
+
+/**
+ * AccessPath names the ways a single condition of a select can be answered, the choice getArrayOfTuples makes
+ * from the column, the operator and the indexes of the table.
+ * <p>
+ * BINARY       ->  A binary search over the pages ordered by the clustering key.
+ * INDEX        ->  A B+ Tree on the column, the pages it points at are read.
+ * RTREE        ->  An R-Tree on the polygon column filters the candidates, their pages are refined with the exact polygons.
+ * LINEAR       ->  Every page is read in clustering key order, for "!=" on a column that is not a polygon.
+ * FULL_SCAN    ->  Every page is read and every tuple checked, for columns without an index or an order.
+ */
+public enum AccessPath {
+    BINARY, INDEX, RTREE, LINEAR, FULL_SCAN
+}
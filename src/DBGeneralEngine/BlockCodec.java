@@ -0,0 +1,181 @@
+package src.DBGeneralEngine;
+
+import java.util.Arrays;
+
+
+/**
+ * BlockCodec is a fast byte oriented compressor in the style of the LZ4 block format, written in plain Java.
+ * The input is cut into sequences of literal bytes followed by a match, a copy of at least four earlier bytes
+ * found through a hash table of the last position of every four byte prefix.
+ * Every sequence starts with a token byte holding the literal length in its high nibble and the match length minus
+ * four in its low nibble, longer lengths continuing in extra bytes of 255, and the match is located by a two byte
+ * little endian offset back from the current position. The last sequence holds literals only.
+ */
+public final class BlockCodec {
+
+    /**
+     * Attributes
+     * <p>
+     * HASH_BITS        ->  The number of bits of the hash of a four byte prefix, the size of the match table.
+     * MIN_MATCH        ->  The shortest copy worth a sequence.
+     * MAX_OFFSET       ->  The furthest back a match can be, the range of the two byte offset.
+     * LAST_LITERALS    ->  The bytes at the end of the input that are always written as literals.
+     */
+    private static final int HASH_BITS = 12;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int LAST_LITERALS = 12;
+
+
+    /**
+     * Constructor
+     * The codec is stateless, its methods are static.
+     */
+    private BlockCodec() {
+    }
+
+
+    /**
+     * Compresses a run of bytes.
+     *
+     * @param source the bytes to compress
+     * @param length the number of bytes to compress from the start of source
+     * @return the compressed bytes, as long as the input plus a small overhead at worst
+     */
+    public static byte[] compress(byte[] source, int length) {
+        byte[] target = new byte[length + length / 255 + 16];
+        int[] table = new int[1 << HASH_BITS];
+        int position = 0, anchor = 0, written = 0;
+        int limit = length - LAST_LITERALS;
+
+        while (position < limit) {
+            int prefix = readInt(source, position);
+            int hash = (prefix * -1640531535) >>> (32 - HASH_BITS);
+            int candidate = table[hash] - 1;
+            table[hash] = position + 1;
+            if (candidate < 0 || position - candidate > MAX_OFFSET || readInt(source, candidate) != prefix) {
+                // Skip faster through bytes that do not compress
+                position += 1 + ((position - anchor) >>> 6);
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while (position + matchLength < limit && source[candidate + matchLength] == source[position + matchLength])
+                matchLength++;
+            written = writeSequence(target, written, source, anchor, position - anchor, position - candidate, matchLength);
+            position += matchLength;
+            anchor = position;
+        }
+        written = writeSequence(target, written, source, anchor, length - anchor, 0, 0);
+        return Arrays.copyOf(target, written);
+    }
+
+
+    /**
+     * Decompresses bytes written by compress into a target buffer.
+     *
+     * @param source the compressed bytes
+     * @param offset the start of the compressed bytes in source
+     * @param length the number of compressed bytes
+     * @param target the buffer receiving the original bytes, at least rawLength long
+     * @param rawLength the number of original bytes
+     * @throws DBAppException if the compressed bytes are corrupt
+     */
+    public static void decompress(byte[] source, int offset, int length, byte[] target, int rawLength) throws DBAppException {
+        int position = offset, end = offset + length, written = 0;
+        try {
+            while (position < end) {
+                int token = source[position++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int extra;
+                    do {
+                        extra = source[position++] & 0xFF;
+                        literals += extra;
+                    } while (extra == 255);
+                }
+                System.arraycopy(source, position, target, written, literals);
+                position += literals;
+                written += literals;
+                if (position >= end)
+                    break;
+
+                int distance = (source[position] & 0xFF) | (source[position + 1] & 0xFF) << 8;
+                position += 2;
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int extra;
+                    do {
+                        extra = source[position++] & 0xFF;
+                        matchLength += extra;
+                    } while (extra == 255);
+                }
+                matchLength += MIN_MATCH;
+                int from = written - distance;
+                if (distance == 0 || from < 0)
+                    throw new DBAppException("Corrupt compressed block");
+                if (distance >= matchLength)
+                    System.arraycopy(target, from, target, written, matchLength);
+                else
+                    // The match overlaps the bytes it produces, it is copied byte by byte
+                    for (int i = 0; i < matchLength; i++)
+                        target[written + i] = target[from + i];
+                written += matchLength;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new DBAppException("Corrupt compressed block");
+        }
+        if (written != rawLength)
+            throw new DBAppException("Corrupt compressed block, expected " + rawLength + " bytes, got " + written);
+    }
+
+
+    /**
+     * Writes one sequence, literals then a match, a match length of 0 marking the last sequence.
+     *
+     * @return the position after the sequence in the target
+     */
+    private static int writeSequence(byte[] target, int written, byte[] source, int literalStart, int literals,
+                                     int distance, int matchLength) {
+        int tokenPosition = written++;
+        int token = Math.min(literals, 15) << 4;
+        if (literals >= 15)
+            written = writeLength(target, written, literals - 15);
+        System.arraycopy(source, literalStart, target, written, literals);
+        written += literals;
+
+        if (matchLength > 0) {
+            target[written++] = (byte) distance;
+            target[written++] = (byte) (distance >>> 8);
+            int extra = matchLength - MIN_MATCH;
+            token |= Math.min(extra, 15);
+            if (extra >= 15)
+                written = writeLength(target, written, extra - 15);
+        }
+        target[tokenPosition] = (byte) token;
+        return written;
+    }
+
+
+    /**
+     * Writes the rest of a length that did not fit its nibble, as bytes of 255 and a last smaller byte.
+     */
+    private static int writeLength(byte[] target, int written, int length) {
+        while (length >= 255) {
+            target[written++] = (byte) 255;
+            length -= 255;
+        }
+        target[written++] = (byte) length;
+        return written;
+    }
+
+
+    /**
+     * Reads four bytes as a little endian int.
+     */
+    private static int readInt(byte[] source, int position) {
+        return (source[position] & 0xFF) | (source[position + 1] & 0xFF) << 8
+                | (source[position + 2] & 0xFF) << 16 | (source[position + 3] & 0xFF) << 24;
+    }
+
+}
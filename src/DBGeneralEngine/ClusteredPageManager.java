@@ -0,0 +1,353 @@
+package src.DBGeneralEngine;
+
+import src.Ref.Ref;
+
+import java.util.*;
+
+
+/**
+ * ClusteredPageManager class keeps the pages of a table ordered by the clustering key.
+ * A page that overflows is split in place into itself and new pages inserted right after it, filled up to the table fill factor,
+ * and a page that becomes underfull after deletes is merged into a neighbour.
+ * Only the touched page and the pages created or removed next to it are read and written, and only the tuples that
+ * changed pages get their index references updated, so an insert costs the same number of pages anywhere in the table.
+ */
+public class ClusteredPageManager {
+
+    /**
+     * Attributes
+     * <p>
+     *
+     * table            ->  The table whose pages are managed.
+     * metaOfTable      ->  The metadata of the table, one row per column.
+     * keyPosition      ->  The position of the clustering key in the tuples.
+     */
+    private final Table table;
+    private final Vector<String[]> metaOfTable;
+    private final int keyPosition;
+
+
+    /**
+     * Constructor
+     *
+     * @param table the table whose pages are managed, its primary position must point at the clustering key
+     * @param metaOfTable the metadata of the table, one row per column
+     */
+    public ClusteredPageManager(Table table, Vector<String[]> metaOfTable) {
+        this.table = table;
+        this.metaOfTable = metaOfTable;
+        this.keyPosition = table.getPrimaryPosition();
+    }
+
+
+    /**
+     * Compares two attribute values of the same column.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object first, Object second) {
+        return ((Comparable) first).compareTo(second);
+    }
+
+
+    /**
+     * Finds the page a key belongs to with a binary search over the cached minimum key of every page.
+     *
+     * @param key the clustering key value
+     * @return the index of the last page whose minimum key is not greater than the key, or 0 if the key precedes every page
+     * @throws DBAppException if the minimum keys have to be rebuilt and a page cannot be read
+     */
+    public int locatePage(Object key) throws DBAppException {
+        Vector<Comparable> minKeys = table.getPageMinKeys();
+        int low = 0;
+        int high = minKeys.size() - 1;
+        int result = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compareKeys(minKeys.get(mid), key) <= 0) {
+                result = mid;
+                low = mid + 1;
+            } else
+                high = mid - 1;
+        }
+        return result;
+    }
+
+
+    /**
+     * Inserts a single tuple into the page its key belongs to, splitting that page if it overflows.
+     *
+     * @param tuple the tuple to insert
+     * @throws DBAppException if a page or an index cannot be read or written
+     */
+    public void insert(Tuple tuple) throws DBAppException {
+        ArrayList<Tuple> tuples = new ArrayList<>();
+        tuples.add(tuple);
+        insert(tuples);
+    }
+
+
+    /**
+     * Inserts a batch of tuples.
+     * The batch is sorted and grouped by target page, every target page is read and written once, and the groups are
+     * applied from the last page backwards so pages created by a split never shift the targets still to be processed.
+     *
+     * @param tuples the tuples to insert, their attributes ordered as the table metadata
+     * @throws DBAppException if a page or an index cannot be read or written
+     */
+    public void insert(ArrayList<Tuple> tuples) throws DBAppException {
+        if (tuples.isEmpty())
+            return;
+        tuples.sort((first, second) -> compareKeys(first.get(keyPosition), second.get(keyPosition)));
+
+        IdentityHashMap<Tuple, String> originPage = new IdentityHashMap<>();
+        Hashtable<String, ArrayList<Tuple>> placed = new Hashtable<>();
+
+        if (table.getPages().isEmpty()) {
+            Vector<Comparable> minKeys = table.getPageMinKeys();
+            Page page = table.newPage();
+            table.getPages().add(page.getPageName());
+            minKeys.add((Comparable) tuples.get(0).get(keyPosition));
+            writeSplit(0, page, new ArrayList<>(tuples), true, placed);
+            updateIndexes(placed, originPage);
+            return;
+        }
+
+        // Group the sorted batch by target page, targets never decrease along the batch
+        ArrayList<Integer> targets = new ArrayList<>();
+        ArrayList<Integer> groupStarts = new ArrayList<>();
+        for (int i = 0; i < tuples.size(); i++) {
+            int target = locatePage(tuples.get(i).get(keyPosition));
+            if (targets.isEmpty() || targets.get(targets.size() - 1) != target) {
+                targets.add(target);
+                groupStarts.add(i);
+            }
+        }
+        groupStarts.add(tuples.size());
+
+        for (int g = targets.size() - 1; g >= 0; g--) {
+            int pageIndex = targets.get(g);
+            List<Tuple> group = tuples.subList(groupStarts.get(g), groupStarts.get(g + 1));
+            Page page = Table.deserialize(table.getPages().get(pageIndex));
+            // Tombstoned tuples would lose their slots in the merge, drop them now since the page is rewritten anyway
+            PageCompactor.purge(table, metaOfTable, page);
+            Vector<Tuple> existing = page.getTuples();
+            for (Tuple tuple : existing)
+                originPage.put(tuple, page.getPageName());
+
+            ArrayList<Tuple> merged = new ArrayList<>(existing.size() + group.size());
+            int j = 0;
+            for (Tuple incoming : group) {
+                while (j < existing.size() && compareKeys(existing.get(j).get(keyPosition),
+                        incoming.get(keyPosition)) <= 0)
+                    merged.add(existing.get(j++));
+                merged.add(incoming);
+            }
+            while (j < existing.size())
+                merged.add(existing.get(j++));
+
+            // Appending past the end of the table fills pages completely, there is nothing to leave room for
+            boolean append = pageIndex == table.getPages().size() - 1
+                    && (existing.isEmpty() || compareKeys(group.get(0).get(keyPosition),
+                    existing.get(existing.size() - 1).get(keyPosition)) >= 0);
+            writeSplit(pageIndex, page, merged, append, placed);
+        }
+
+        updateIndexes(placed, originPage);
+    }
+
+
+    /**
+     * Writes the merged content of a page, splitting it into new pages placed right after it when it does not fit.
+     * A split produces the fewest pages that leave each page at about the fill factor of the table, the first part stays
+     * in the original page so tuples below the split point never move.
+     *
+     * @param pageIndex the index of the page in the table
+     * @param page the page being written
+     * @param merged the ordered content of the page
+     * @param append whether the content only grew at the end of the table
+     * @param placed the final content of every page written, filled in by this method
+     * @throws DBAppException if a page cannot be written
+     */
+    private void writeSplit(int pageIndex,
+                            Page page,
+                            ArrayList<Tuple> merged,
+                            boolean append,
+                            Hashtable<String, ArrayList<Tuple>> placed) throws DBAppException {
+        int maxRows = table.getMaxRowsInPage();
+        int parts = (merged.size() + maxRows - 1) / maxRows;
+        if (!append && parts > 1)
+            parts = Math.max(parts, (int) (merged.size() / Math.max(1.0, table.getFillFactor() * maxRows)));
+        parts = Math.max(parts, 1);
+
+        Vector<Comparable> minKeys = table.getPageMinKeys();
+        int start = 0;
+        for (int part = 0; part < parts; part++) {
+            int end = append ? Math.min(start + maxRows, merged.size())
+                    : (int) ((long) merged.size() * (part + 1) / parts);
+            Page target = page;
+            if (part > 0) {
+                target = table.newPage();
+                table.getPages().add(pageIndex + part, target.getPageName());
+                minKeys.add(pageIndex + part, null);
+            }
+            target.setTuples(new Vector<>(merged.subList(start, end)));
+            minKeys.set(pageIndex + part, (Comparable) merged.get(start).get(keyPosition));
+            Table.serializePage(target);
+            placed.put(target.getPageName(), new ArrayList<>(target.getTuples()));
+            start = end;
+        }
+    }
+
+
+    /**
+     * Brings every index of the table up to date after an insert.
+     * New tuples are inserted as one batch sorted by key per index, moved tuples only get their page reference updated.
+     *
+     * @param placed the final content of every page written
+     * @param originPage the page each pre-existing tuple was read from
+     * @throws DBAppException if an index operation fails
+     */
+    @SuppressWarnings("unchecked")
+    private void updateIndexes(Hashtable<String, ArrayList<Tuple>> placed,
+                               IdentityHashMap<Tuple, String> originPage) throws DBAppException {
+        for (String column : table.getTreeIndexColumnName().keySet()) {
+            int position = columnPosition(column);
+            if (position == -1)
+                continue;
+            TreeIndex treeIndex = table.getTreeIndexColumnName().get(column);
+            ArrayList<Object[]> newEntries = new ArrayList<>();
+            for (String pageName : placed.keySet()) {
+                for (Tuple tuple : placed.get(pageName)) {
+                    Comparable key = tuple.getKey(position);
+                    if (key == null)
+                        continue;
+                    String oldPage = originPage.get(tuple);
+                    if (oldPage == null)
+                        newEntries.add(new Object[]{key, new Ref(pageName)});
+                    else if (!oldPage.equals(pageName))
+                        treeIndex.updateRef(oldPage, pageName, key);
+                }
+            }
+            newEntries.sort((first, second) -> compareKeys(first[0], second[0]));
+            ArrayList<Comparable> keys = new ArrayList<>(newEntries.size());
+            ArrayList<Ref> refs = new ArrayList<>(newEntries.size());
+            for (Object[] entry : newEntries) {
+                keys.add((Comparable) entry[0]);
+                refs.add((Ref) entry[1]);
+            }
+            treeIndex.insertBatch(keys, refs);
+        }
+    }
+
+
+    /**
+     * Restores the page invariants after tuples were deleted from a page and the page was written back.
+     * An empty page is removed, and a page below half of the fill factor is merged into the smaller neighbour it fits in.
+     *
+     * @param pageIndex the index of the page that lost tuples
+     * @throws DBAppException if a page or an index cannot be read or written
+     */
+    public void rebalanceAfterDelete(int pageIndex) throws DBAppException {
+        Vector<String> pages = table.getPages();
+        Vector<Comparable> minKeys = table.getPageMinKeys();
+        Page page = load(pageIndex);
+        if (page.size() == 0) {
+            removePage(pageIndex, minKeys);
+            return;
+        }
+        minKeys.set(pageIndex, (Comparable) page.getTuples().get(0).get(keyPosition));
+
+        int maxRows = table.getMaxRowsInPage();
+        if (page.size() >= Math.max(1, (int) (table.getFillFactor() * maxRows / 2)))
+            return;
+
+        Page previous = pageIndex > 0 ? load(pageIndex - 1) : null;
+        Page next = pageIndex + 1 < pages.size() ? load(pageIndex + 1) : null;
+        boolean intoPrevious = previous != null && previous.size() + page.size() <= maxRows
+                && (next == null || previous.size() <= next.size() || next.size() + page.size() > maxRows);
+        boolean intoNext = !intoPrevious && next != null && next.size() + page.size() <= maxRows;
+        if (!intoPrevious && !intoNext)
+            return;
+
+        Page target = intoPrevious ? previous : next;
+        Vector<Tuple> tuples = new Vector<>();
+        if (intoPrevious) {
+            tuples.addAll(previous.getTuples());
+            tuples.addAll(page.getTuples());
+        } else {
+            tuples.addAll(page.getTuples());
+            tuples.addAll(next.getTuples());
+            minKeys.set(pageIndex + 1, minKeys.get(pageIndex));
+        }
+        target.setTuples(tuples);
+        Table.serializePage(target);
+        for (Tuple tuple : page.getTuples())
+            updateRefs(tuple, page.getPageName(), target.getPageName());
+        removePage(pageIndex, minKeys);
+    }
+
+
+    /**
+     * Reads a page without its tombstoned tuples, writing it back if any had to be removed.
+     *
+     * @param pageIndex the index of the page
+     * @return the page holding only live tuples
+     * @throws DBAppException if the page or an index cannot be read or written
+     */
+    private Page load(int pageIndex) throws DBAppException {
+        Page page = Table.deserialize(table.getPages().get(pageIndex));
+        if (page.deletedCount() > 0) {
+            PageCompactor.purge(table, metaOfTable, page);
+            Table.serializePage(page);
+        }
+        return page;
+    }
+
+
+    /**
+     * Points every index entry of a moved tuple at its new page.
+     *
+     * @param tuple the moved tuple
+     * @param oldPage the page the tuple left
+     * @param newPage the page the tuple now lives in
+     * @throws DBAppException if an index operation fails
+     */
+    @SuppressWarnings("unchecked")
+    private void updateRefs(Tuple tuple, String oldPage, String newPage) throws DBAppException {
+        for (String column : table.getTreeIndexColumnName().keySet()) {
+            int position = columnPosition(column);
+            Object key = position == -1 ? null : tuple.getKey(position);
+            if (key != null)
+                table.getTreeIndexColumnName().get(column).updateRef(oldPage, newPage, (Comparable) key);
+        }
+    }
+
+
+    /**
+     * Drops a page from the table and deletes its file.
+     * The cached minimum key goes first, so the cache never sees fewer pages than keys and is not rebuilt.
+     *
+     * @param pageIndex the index of the page to drop
+     * @param minKeys the cached minimum keys of the pages, as getPageMinKeys returned them
+     */
+    private void removePage(int pageIndex, Vector<Comparable> minKeys) throws DBAppException {
+        minKeys.remove(pageIndex);
+        String pageName = table.getPages().remove(pageIndex);
+        Table.deletePage(pageName);
+    }
+
+
+    /**
+     * Retrieves the position of a column in the tuples.
+     *
+     * @param strColumnName the name of the column
+     * @return the position of the column, or -1 if the table has no such column
+     */
+    private int columnPosition(String strColumnName) {
+        for (int i = 0; i < metaOfTable.size(); i++)
+            if (metaOfTable.get(i)[1].equals(strColumnName))
+                return i;
+        return -1;
+    }
+
+}
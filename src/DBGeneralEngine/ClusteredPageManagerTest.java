@@ -0,0 +1,110 @@
+package src.DBGeneralEngine;
+
+import src.BPTree.BPTree;
+import src.Ref.GeneralRef;
+import src.Ref.Ref;
+
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test how the clustered page manager splits and merges the pages of a table.
+ * After every change it checks the order of the pages, the cached minimum keys against the pages themselves,
+ * and that the index on a non-key column points every row at the page now holding it.
+ */
+public class ClusteredPageManagerTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBAppTest.prepare(DBAppTest.metadata("Clustered", "id",
+                "id", "java.lang.Integer", "name", "java.lang.String", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        dbApp.setPageFillFactor(0.5);
+        dbApp.getCompactor().shutdown();
+        Table table = new Table();
+        table.setTableName("Clustered");
+        table.getTreeIndexColumnName().put("name", new BPTree<String>(5));
+        dbApp.getTables().add(table);
+
+        // Appending fills the pages completely
+        TreeSet<Integer> ids = new TreeSet<>();
+        List<Hashtable<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i += 10)
+            rows.add(row(i, ids));
+        dbApp.insertIntoTable("Clustered", rows);
+        check(table.getPages().size() == 10, "200 appended rows took " + table.getPages().size() + " pages");
+        checkTable(table, ids);
+
+        // A batch landing in the middle page splits it at the fill factor, the rows that moved get new index references
+        String splitPage = table.getPages().get(2);
+        rows.clear();
+        for (int i = 405; i < 600; i += 10)
+            rows.add(row(i, ids));
+        for (int i = 401; i < 500; i += 10)
+            rows.add(row(i, ids));
+        dbApp.insertIntoTable("Clustered", rows);
+        check(table.getPages().size() == 14, "the split left " + table.getPages().size() + " pages, expected 14");
+        check(table.getPages().get(2).equals(splitPage), "the split page did not keep its place");
+        for (int i = 2; i < 7; i++)
+            check(Table.deserialize(table.getPages().get(i)).size() == 10, "page " + i + " was not split at the fill factor");
+        checkTable(table, ids);
+
+        // Emptying most of a split page merges it into a neighbour once the page is compacted
+        int pagesBefore = table.getPages().size();
+        for (int i : new int[]{401, 405, 411, 415, 421, 425}) {
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", i);
+            dbApp.deleteFromTable("Clustered", row);
+            ids.remove(i);
+        }
+        dbApp.getCompactor().drain();
+        check(table.getPages().size() == pagesBefore - 1, "the underfull page was not merged");
+        checkTable(table, ids);
+
+        System.out.println("ClusteredPageManagerTest passed");
+    }
+
+
+    private static Hashtable<String, Object> row(int id, TreeSet<Integer> ids) {
+        ids.add(id);
+        Hashtable<String, Object> row = new Hashtable<>();
+        row.put("id", id);
+        row.put("name", "n" + id);
+        return row;
+    }
+
+
+    /**
+     * Checks that the pages hold exactly the given ids in order, that the cached min keys match the keys read
+     * from the pages, and that the index finds every row on its page.
+     */
+    private static void checkTable(Table table, TreeSet<Integer> ids) throws DBAppException {
+        Iterator<Integer> expected = ids.iterator();
+        Vector<Comparable> minKeys = table.getPageMinKeys();
+        check(minKeys.size() == table.getPages().size(), "the min key cache does not have one key per page");
+        for (int i = 0; i < table.getPages().size(); i++) {
+            String pageName = table.getPages().get(i);
+            Page page = Table.deserialize(pageName);
+            check(page.size() > 0, "page " + i + " is empty");
+            check(page.getTuples().get(0).get(0).equals(minKeys.get(i)),
+                    "cached min key of page " + i + " is " + minKeys.get(i) + ", the page starts at " + page.getTuples().get(0).get(0));
+            for (Tuple tuple : page.getLiveTuples()) {
+                int id = (Integer) tuple.get(0);
+                check(expected.hasNext() && expected.next() == id, "page " + i + " holds " + id + " out of order");
+                GeneralRef ref = table.getTreeIndexColumnName().get("name").search("n" + id);
+                check(ref != null, "n" + id + " is not indexed");
+                boolean onPage = false;
+                for (Ref target : ref.getAllRef())
+                    onPage |= target.getPage().equals(pageName);
+                check(onPage, "the index does not point n" + id + " at " + pageName);
+            }
+        }
+        check(!expected.hasNext(), "rows are missing from the pages");
+    }
+
+}
@@ -0,0 +1,107 @@
+package src.DBGeneralEngine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * CodecStats counts the work of one page codec: how many bytes went in and came out, and the time spent
+ * encoding and decoding, so the compression ratio and the CPU cost of a codec can be read at run time.
+ */
+public final class CodecStats {
+
+    /**
+     * Attributes
+     * <p>
+     * encoded          ->  The number of pages or column blocks encoded.
+     * rawBytes         ->  The bytes handed to the codec.
+     * encodedBytes     ->  The bytes the codec produced from them.
+     * encodeNanos      ->  The time spent encoding.
+     * decoded          ->  The number of pages or column blocks decoded.
+     * decodeNanos      ->  The time spent decoding.
+     */
+    private final LongAdder encoded = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder decoded = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+
+
+    /**
+     * Records one encoding.
+     *
+     * @param raw the number of bytes before encoding
+     * @param result the number of bytes after encoding
+     * @param nanos the time the encoding took
+     */
+    public void recordEncode(long raw, long result, long nanos) {
+        encoded.increment();
+        rawBytes.add(raw);
+        encodedBytes.add(result);
+        encodeNanos.add(nanos);
+    }
+
+
+    /**
+     * Records one decoding.
+     *
+     * @param nanos the time the decoding took
+     */
+    public void recordDecode(long nanos) {
+        decoded.increment();
+        decodeNanos.add(nanos);
+    }
+
+
+    /**
+     * Getters
+     */
+    public long getEncoded() {
+        return encoded.sum();
+    }
+
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    public long getEncodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    public long getEncodeNanos() {
+        return encodeNanos.sum();
+    }
+
+    public long getDecoded() {
+        return decoded.sum();
+    }
+
+    public long getDecodeNanos() {
+        return decodeNanos.sum();
+    }
+
+
+    /**
+     * Computes how many times smaller the encoded bytes are than the raw bytes.
+     *
+     * @return the raw bytes over the encoded bytes, 1 before anything was encoded
+     */
+    public double getCompressionRatio() {
+        long result = encodedBytes.sum();
+        return (result == 0) ? 1 : (double) rawBytes.sum() / result;
+    }
+
+
+    /**
+     * Provides a one line summary of the counters.
+     *
+     * @return the ratio, the volumes and the mean encoding and decoding times
+     */
+    public String toString() {
+        long encodedCount = Math.max(1, encoded.sum()), decodedCount = Math.max(1, decoded.sum());
+        return String.format("ratio %.2f, %d -> %d bytes, encode %d us/op, decode %d us/op",
+                getCompressionRatio(), rawBytes.sum(), encodedBytes.sum(),
+                encodeNanos.sum() / encodedCount / 1000, decodeNanos.sum() / decodedCount / 1000);
+    }
+
+}
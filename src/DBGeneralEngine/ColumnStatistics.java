@@ -0,0 +1,269 @@
+package src.DBGeneralEngine;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Vector;
+
+
+/**
+ * ColumnStatistics describes the values of one column as analyzeTable last saw them, for the planner to estimate
+ * how many rows a condition on the column returns.
+ * The values a column holds most often are kept with their frequencies, the other values are summed up by
+ * an equi-depth histogram: bounds splitting them into buckets holding the same number of values each.
+ * Polygons are told apart by their vertices, their equals and hashCode only comparing areas, and ordered by area.
+ */
+public class ColumnStatistics implements Serializable {
+
+    /**
+     * Attributes
+     * <p>
+     * columnName           ->  The name of the column.
+     * nullFraction         ->  The fraction of the rows without a value in the column.
+     * distinctCount        ->  The estimated number of distinct values.
+     * min                  ->  The smallest value seen, null if the column held none.
+     * max                  ->  The largest value seen, null if the column held none.
+     * mostCommonValues     ->  The values held most often, most frequent first.
+     * mostCommonFrequencies->  The fraction of the rows holding every most common value.
+     * histogramBounds      ->  The bounds of the buckets of the other values, in ascending order.
+     */
+    private final String columnName;
+    private final double nullFraction;
+    private final long distinctCount;
+    private final Comparable min;
+    private final Comparable max;
+    private final Vector<Comparable> mostCommonValues;
+    private final Vector<Double> mostCommonFrequencies;
+    private final Vector<Comparable> histogramBounds;
+
+
+    /**
+     * Constructor
+     *
+     * @param columnName the name of the column
+     * @param nullFraction the fraction of the rows without a value
+     * @param distinctCount the estimated number of distinct values
+     * @param min the smallest value seen
+     * @param max the largest value seen
+     * @param mostCommonValues the values held most often, most frequent first
+     * @param mostCommonFrequencies the fraction of the rows holding every most common value
+     * @param histogramBounds the bounds of the buckets of the other values
+     */
+    public ColumnStatistics(String columnName, double nullFraction, long distinctCount, Comparable min, Comparable max,
+                            Vector<Comparable> mostCommonValues, Vector<Double> mostCommonFrequencies,
+                            Vector<Comparable> histogramBounds) {
+        this.columnName = columnName;
+        this.nullFraction = nullFraction;
+        this.distinctCount = distinctCount;
+        this.min = min;
+        this.max = max;
+        this.mostCommonValues = mostCommonValues;
+        this.mostCommonFrequencies = mostCommonFrequencies;
+        this.histogramBounds = histogramBounds;
+    }
+
+
+    /**
+     * Getters
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public double getNullFraction() {
+        return nullFraction;
+    }
+
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public Comparable getMin() {
+        return min;
+    }
+
+    public Comparable getMax() {
+        return max;
+    }
+
+    public Vector<Comparable> getMostCommonValues() {
+        return mostCommonValues;
+    }
+
+    public Vector<Double> getMostCommonFrequencies() {
+        return mostCommonFrequencies;
+    }
+
+    public Vector<Comparable> getHistogramBounds() {
+        return histogramBounds;
+    }
+
+
+    /**
+     * Estimates the fraction of the rows a condition on the column returns.
+     *
+     * @param strOperator the operator of the condition, one of the comparisons
+     * @param value the value of the condition, as the tuples hold it
+     * @return the fraction of the rows, or -1 for an operator the statistics cannot tell, such as a spatial one
+     */
+    public double selectivity(String strOperator, Comparable value) {
+        if (value == null)
+            return -1;
+        double selectivity;
+        try {
+            selectivity = switch (strOperator) {
+                case "=" -> equalFraction(value);
+                case "!=" -> nonNullFraction() - equalFraction(value);
+                case "<" -> lessFraction(value);
+                case "<=" -> lessFraction(value) + equalFraction(value);
+                case ">" -> nonNullFraction() - lessFraction(value) - equalFraction(value);
+                case ">=" -> nonNullFraction() - lessFraction(value);
+                default -> -1;
+            };
+        } catch (ClassCastException e) {
+            // A value of another type than the column's, the select itself will reject it
+            return -1;
+        }
+        return (selectivity == -1) ? -1 : Math.max(0, Math.min(1, selectivity));
+    }
+
+
+    /**
+     * Estimates the fraction of the rows holding a value.
+     * A most common value has its own frequency, any other value gets an equal share of the rows left to the others.
+     */
+    private double equalFraction(Comparable value) {
+        int common = indexOfCommonValue(value);
+        if (common != -1)
+            return mostCommonFrequencies.get(common);
+        if (min == null || compare(value, min) < 0 || compare(value, max) > 0)
+            return 0;
+        long others = Math.max(1, distinctCount - mostCommonValues.size());
+        return Math.max(0, nonNullFraction() - commonFraction()) / others;
+    }
+
+
+    /**
+     * Estimates the fraction of the rows holding a value strictly smaller than the given one.
+     */
+    private double lessFraction(Comparable value) {
+        double fraction = 0;
+        for (int i = 0; i < mostCommonValues.size(); i++)
+            if (compare(mostCommonValues.get(i), value) < 0)
+                fraction += mostCommonFrequencies.get(i);
+        return fraction + histogramFraction(value) * Math.max(0, nonNullFraction() - commonFraction());
+    }
+
+
+    /**
+     * Finds the fraction of the values of the histogram smaller than the given one,
+     * interpolating linearly inside the bucket of the value when the values are numbers or dates.
+     */
+    private double histogramFraction(Comparable value) {
+        int buckets = histogramBounds.size() - 1;
+        if (buckets < 1)
+            return (max != null && compare(value, max) > 0) ? 1 : 0;
+        if (compare(value, histogramBounds.firstElement()) <= 0)
+            return 0;
+        if (compare(value, histogramBounds.lastElement()) > 0)
+            return 1;
+        int bucket = 0;
+        while (bucket < buckets - 1 && compare(value, histogramBounds.get(bucket + 1)) > 0)
+            bucket++;
+        return (bucket + interpolate(histogramBounds.get(bucket), histogramBounds.get(bucket + 1), value)) / buckets;
+    }
+
+
+    /**
+     * Places a value between two bounds, 0 at the lower and 1 at the upper, halfway for values that cannot be measured.
+     */
+    private static double interpolate(Comparable low, Comparable high, Comparable value) {
+        double lowValue, highValue, position;
+        if (low instanceof Number && high instanceof Number && value instanceof Number) {
+            lowValue = ((Number) low).doubleValue();
+            highValue = ((Number) high).doubleValue();
+            position = ((Number) value).doubleValue();
+        } else if (low instanceof Date && high instanceof Date && value instanceof Date) {
+            lowValue = ((Date) low).getTime();
+            highValue = ((Date) high).getTime();
+            position = ((Date) value).getTime();
+        } else
+            return 0.5;
+        if (highValue <= lowValue)
+            return 0.5;
+        return Math.max(0, Math.min(1, (position - lowValue) / (highValue - lowValue)));
+    }
+
+
+    private int indexOfCommonValue(Comparable value) {
+        for (int i = 0; i < mostCommonValues.size(); i++)
+            if (compareDistinct(mostCommonValues.get(i), value) == 0)
+                return i;
+        return -1;
+    }
+
+
+    private double commonFraction() {
+        double fraction = 0;
+        for (double frequency : mostCommonFrequencies)
+            fraction += frequency;
+        return fraction;
+    }
+
+
+    private double nonNullFraction() {
+        return 1 - nullFraction;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Comparable first, Comparable second) {
+        return first.compareTo(second);
+    }
+
+
+    /**
+     * Compares two values of a column, polygons of the same area by their vertices, so only equal values compare as 0.
+     *
+     * @param first the first value
+     * @param second the second value
+     * @return a negative integer, zero, or a positive integer
+     */
+    @SuppressWarnings("unchecked")
+    static int compareDistinct(Object first, Object second) {
+        if (first instanceof CustomPolygon firstPolygon && second instanceof CustomPolygon secondPolygon)
+            return firstPolygon.compareShape(secondPolygon);
+        return ((Comparable) first).compareTo(second);
+    }
+
+
+    /**
+     * Hashes a value of a column, polygons by their vertices, consistently with compareDistinct.
+     *
+     * @param value the value, not null
+     * @return the hash of the value
+     */
+    static int distinctHash(Object value) {
+        return (value instanceof CustomPolygon polygon) ? polygon.getShapeHash() : value.hashCode();
+    }
+
+
+    /**
+     * Prints the statistics on one line.
+     *
+     * @return the statistics of the column
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(columnName).append(": distinct=").append(distinctCount)
+                .append(String.format(Locale.ROOT, ", nulls=%.1f%%", nullFraction * 100))
+                .append(", min=").append(min).append(", max=").append(max).append(", most common=[");
+        for (int i = 0; i < mostCommonValues.size(); i++) {
+            if (i > 0)
+                out.append(", ");
+            out.append(mostCommonValues.get(i)).append(String.format(Locale.ROOT, " %.1f%%", mostCommonFrequencies.get(i) * 100));
+        }
+        return out.append("], histogram=").append(histogramBounds).toString();
+    }
+
+}
@@ -0,0 +1,478 @@
+package src.DBGeneralEngine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+
+
+/**
+ * ColumnarPage is the page of an analytical table, it is written to disk column by column.
+ * In memory it behaves exactly like a Page, the tuples are laid out in columns only when the page is written:
+ * integers, doubles and booleans as primitive arrays, dates as epoch milliseconds, strings as a sorted dictionary of
+ * distinct values with their offsets plus one code per row, and any other value as a serialized block.
+ * A directory at the head of the file locates every column, so a scan can read the columns it checks and skip the rest.
+ */
+public class ColumnarPage extends Page {
+
+    /**
+     * Attributes
+     * <p>
+     * MAGIC        ->  The first four bytes of a columnar page file, a serialized Page starts with 0xACED instead.
+     * INT .. OBJECT->  The encodings of a column block.
+     */
+    public static final int MAGIC = 0x434F4C31;
+
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte DATE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte OBJECT = 6;
+
+
+    /**
+     * Constructor
+     *
+     * @param pageName the name of the page to be created
+     */
+    public ColumnarPage(String pageName) {
+        super(pageName);
+    }
+
+
+    /**
+     * Writes the page column by column.
+     * The file holds the magic number, the length of the header, then the header: the page name, the compression,
+     * the number of rows, the layout of the rows, the tombstones and a directory of the encoding, codec, offset,
+     * stored length and raw length of every column block. The column blocks follow the header.
+     * Under the page compression every block is compressed on its own, so a block can still be read alone.
+     *
+     * @param page the page to write, this page
+     * @param address the file path the page is written to
+     * @throws DBAppException if the file cannot be written
+     */
+    @Override
+    public void serialize(Page page, String address) throws DBAppException {
+        Vector<Tuple> tuples = getTuples();
+        int rows = tuples.size();
+        RowSchema schema = (rows == 0) ? null : tuples.get(0).getSchema();
+        int columns = (schema == null) ? 0 : schema.size();
+
+        try {
+            PageCompression compression = getCompression();
+            byte[] encodings = new byte[columns];
+            byte[] codecs = new byte[columns];
+            int[] rawLengths = new int[columns];
+            byte[][] blocks = new byte[columns][];
+            for (int column = 0; column < columns; column++) {
+                Object[] values = new Object[rows];
+                for (int row = 0; row < rows; row++)
+                    values[row] = tuples.get(row).get(column);
+                encodings[column] = encodingOf(values);
+                blocks[column] = encode(encodings[column], values);
+                rawLengths[column] = blocks[column].length;
+                codecs[column] = (byte) PageCompression.NONE.ordinal();
+
+                long start = System.nanoTime();
+                if (compression == PageCompression.FRAME_OF_REFERENCE
+                        && (encodings[column] == INT || encodings[column] == DATE)) {
+                    blocks[column] = encodeFrames(encodings[column], values);
+                    codecs[column] = (byte) PageCompression.FRAME_OF_REFERENCE.ordinal();
+                    PageCompression.FRAME_OF_REFERENCE.getStats()
+                            .recordEncode(rawLengths[column], blocks[column].length, System.nanoTime() - start);
+                } else if (compression != PageCompression.NONE) {
+                    byte[] compressed = BlockCodec.compress(blocks[column], blocks[column].length);
+                    PageCompression.BLOCK.getStats()
+                            .recordEncode(rawLengths[column], compressed.length, System.nanoTime() - start);
+                    // A block that does not shrink is kept as it is
+                    if (compressed.length < blocks[column].length) {
+                        blocks[column] = compressed;
+                        codecs[column] = (byte) PageCompression.BLOCK.ordinal();
+                    }
+                }
+            }
+
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeUTF(getPageName());
+            header.writeByte(compression.ordinal());
+            header.writeInt(rows);
+            header.writeInt(columns);
+            if (schema != null) {
+                header.write(schema.getKinds());
+                for (int column = 0; column < columns; column++)
+                    if (schema.getKind(column) == RowSchema.CODE)
+                        header.writeUTF(schema.getDictionary(column).getName());
+            }
+            writeBits(header, tombstones());
+            long offset = 0;
+            for (int column = 0; column < columns; column++) {
+                header.writeByte(encodings[column]);
+                header.writeByte(codecs[column]);
+                header.writeLong(offset);
+                header.writeInt(blocks[column].length);
+                header.writeInt(rawLengths[column]);
+                offset += blocks[column].length;
+            }
+            header.flush();
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(address)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(headerBytes.size());
+                headerBytes.writeTo(out);
+                for (byte[] block : blocks)
+                    out.write(block);
+            }
+        } catch (IOException e) {
+            throw new DBAppException("IO Exception in Page: " + getPageName());
+        }
+    }
+
+
+    /**
+     * Reads a columnar page back in full.
+     *
+     * @param name the name of the page
+     * @return the page with all its tuples
+     * @throws DBAppException if the file cannot be read
+     */
+    public static ColumnarPage read(String name) throws DBAppException {
+        return read(name, null);
+    }
+
+
+    /**
+     * Reads a columnar page back, decoding only the given columns.
+     * The tuples of the page are complete in number and order, the columns that were not read are null,
+     * so the result is only fit for checking conditions on the columns that were read.
+     *
+     * @param name the name of the page
+     * @param wanted the positions of the columns to read, or null for every column
+     * @return the page with the wanted columns of its tuples
+     * @throws DBAppException if the file cannot be read
+     */
+    public static ColumnarPage read(String name, int[] wanted) throws DBAppException {
+        EngineEvents.PageFetch event = new EngineEvents.PageFetch();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + name + ".class";
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            if (file.readInt() != MAGIC)
+                throw new DBAppException("Page " + name + " is not a columnar page");
+            byte[] headerBytes = new byte[file.readInt()];
+            file.readFully(headerBytes);
+            long blocksStart = file.getFilePointer();
+
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes));
+            ColumnarPage page = new ColumnarPage(header.readUTF());
+            page.setCompression(PageCompression.values()[header.readByte()]);
+            int rows = header.readInt();
+            int columns = header.readInt();
+            byte[] kinds = new byte[columns];
+            header.readFully(kinds);
+            StringDictionary[] dictionaries = new StringDictionary[columns];
+            for (int column = 0; column < columns; column++) {
+                if (kinds[column] != RowSchema.CODE)
+                    continue;
+                // Without its live dictionary the column is read back as plain Strings
+                dictionaries[column] = StringDictionary.named(header.readUTF());
+                if (dictionaries[column] == null)
+                    kinds[column] = RowSchema.REFERENCE;
+            }
+            BitSet tombstones = readBits(header);
+            byte[] encodings = new byte[columns];
+            byte[] codecs = new byte[columns];
+            long[] offsets = new long[columns];
+            int[] lengths = new int[columns];
+            int[] rawLengths = new int[columns];
+            for (int column = 0; column < columns; column++) {
+                encodings[column] = header.readByte();
+                codecs[column] = header.readByte();
+                offsets[column] = header.readLong();
+                lengths[column] = header.readInt();
+                rawLengths[column] = header.readInt();
+            }
+
+            Object[][] values = new Object[columns][];
+            for (int column = 0; column < columns; column++) {
+                if (wanted != null && !contains(wanted, column))
+                    continue;
+                byte[] block = new byte[lengths[column]];
+                file.seek(blocksStart + offsets[column]);
+                file.readFully(block);
+                values[column] = decodeBlock(encodings[column], codecs[column], block, rawLengths[column], rows);
+            }
+
+            Vector<Tuple> tuples = new Vector<>(rows);
+            if (columns > 0) {
+                RowSchema schema = RowSchema.ofKinds(kinds, dictionaries);
+                for (int row = 0; row < rows; row++) {
+                    Vector<Object> attributes = new Vector<>(columns);
+                    attributes.setSize(columns);
+                    for (int column = 0; column < columns; column++)
+                        if (values[column] != null)
+                            attributes.set(column, values[column][row]);
+                    tuples.add(new Tuple(schema, attributes));
+                }
+            }
+            page.setTuples(tuples);
+            for (int slot = tombstones.nextSetBit(0); slot >= 0; slot = tombstones.nextSetBit(slot + 1))
+                page.markDeleted(slot);
+            Table.recordRead(start, event, "columnar", fileName, page);
+            return page;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new DBAppException("IO Exception reading columnar page " + name);
+        }
+    }
+
+
+    /**
+     * Decodes a column block written with the given codec.
+     * A compressed block is decompressed into a frame of the FramePool, handed back once its values are decoded.
+     */
+    private static Object[] decodeBlock(byte encoding, byte codec, byte[] block, int rawLength, int rows)
+            throws IOException, ClassNotFoundException, DBAppException {
+        if (codec == PageCompression.NONE.ordinal())
+            return decode(encoding, block, block.length, rows);
+
+        long start = System.nanoTime();
+        if (codec == PageCompression.FRAME_OF_REFERENCE.ordinal()) {
+            Object[] values = decodeFrames(encoding, block, rows);
+            PageCompression.FRAME_OF_REFERENCE.getStats().recordDecode(System.nanoTime() - start);
+            return values;
+        }
+        byte[] frame = FramePool.acquire(rawLength);
+        try {
+            BlockCodec.decompress(block, 0, block.length, frame, rawLength);
+            Object[] values = decode(encoding, frame, rawLength, rows);
+            PageCompression.BLOCK.getStats().recordDecode(System.nanoTime() - start);
+            return values;
+        } finally {
+            FramePool.release(frame);
+        }
+    }
+
+
+    /**
+     * Encodes an integer or date column with FrameOfReference: the null flags, then the packed values,
+     * a null row repeating the value before it so it costs no bits in a column that never decreases.
+     */
+    private static byte[] encodeFrames(byte encoding, Object[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BitSet nulls = new BitSet();
+        long[] numbers = new long[values.length];
+        long previous = 0;
+        for (int row = 0; row < values.length; row++) {
+            if (values[row] == null) {
+                nulls.set(row);
+                numbers[row] = previous;
+                continue;
+            }
+            numbers[row] = previous = (encoding == INT) ? (Integer) values[row] : ((Date) values[row]).getTime();
+        }
+        writeBits(out, nulls);
+        FrameOfReference.encode(out, numbers);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Decodes a column block written by encodeFrames.
+     */
+    private static Object[] decodeFrames(byte encoding, byte[] block, int rows) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block));
+        BitSet nulls = readBits(in);
+        long[] numbers = FrameOfReference.decode(in, rows);
+        Object[] values = new Object[rows];
+        for (int row = 0; row < rows; row++)
+            if (!nulls.get(row))
+                values[row] = (encoding == INT) ? (Object) (int) numbers[row] : new Date(numbers[row]);
+        return values;
+    }
+
+
+    /**
+     * Collects the tombstoned slots of the page.
+     */
+    private BitSet tombstones() {
+        BitSet tombstones = new BitSet();
+        for (int slot = 0; slot < size(); slot++)
+            if (isDeleted(slot))
+                tombstones.set(slot);
+        return tombstones;
+    }
+
+
+    /**
+     * Picks the encoding of a column from the classes of its values, null values fit every encoding.
+     */
+    private static byte encodingOf(Object[] values) {
+        Class<?> type = null;
+        for (Object value : values) {
+            if (value == null)
+                continue;
+            if (type == null)
+                type = value.getClass();
+            else if (type != value.getClass())
+                return OBJECT;
+        }
+        if (type == Integer.class) return INT;
+        if (type == Double.class) return DOUBLE;
+        if (type == Date.class) return DATE;
+        if (type == Boolean.class) return BOOLEAN;
+        if (type == String.class) return STRING;
+        return OBJECT;
+    }
+
+
+    /**
+     * Encodes the values of one column into its block.
+     */
+    private static byte[] encode(byte encoding, Object[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (encoding == OBJECT) {
+            ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            objects.writeObject(values);
+            objects.flush();
+            return bytes.toByteArray();
+        }
+        if (encoding == STRING) {
+            // The codes of the page follow the order of the values, so the page dictionary is order preserving too
+            TreeMap<String, Integer> codes = new TreeMap<>();
+            for (Object value : values)
+                if (value != null)
+                    codes.put((String) value, 0);
+            ArrayList<byte[]> dictionary = new ArrayList<>(codes.size());
+            for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+                entry.setValue(dictionary.size());
+                dictionary.add(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            }
+            int[] rowCodes = new int[values.length];
+            for (int row = 0; row < values.length; row++)
+                rowCodes[row] = (values[row] == null) ? -1 : codes.get((String) values[row]);
+            out.writeInt(dictionary.size());
+            int offset = 0;
+            for (byte[] value : dictionary) {
+                out.writeInt(offset);
+                offset += value.length;
+            }
+            out.writeInt(offset);
+            for (byte[] value : dictionary)
+                out.write(value);
+            for (int code : rowCodes)
+                out.writeInt(code);
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        BitSet nulls = new BitSet();
+        for (int row = 0; row < values.length; row++)
+            if (values[row] == null)
+                nulls.set(row);
+        writeBits(out, nulls);
+        if (encoding == BOOLEAN) {
+            BitSet set = new BitSet();
+            for (int row = 0; row < values.length; row++)
+                if (Boolean.TRUE.equals(values[row]))
+                    set.set(row);
+            writeBits(out, set);
+        } else {
+            for (Object value : values) {
+                switch (encoding) {
+                    case INT -> out.writeInt(value == null ? 0 : (Integer) value);
+                    case DOUBLE -> out.writeDouble(value == null ? 0 : (Double) value);
+                    default -> out.writeLong(value == null ? 0 : ((Date) value).getTime());
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Decodes the block of one column back into its values.
+     */
+    private static Object[] decode(byte encoding, byte[] block, int length, int rows) throws IOException, ClassNotFoundException {
+        if (encoding == OBJECT)
+            return (Object[]) new ObjectInputStream(new ByteArrayInputStream(block, 0, length)).readObject();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(block, 0, length));
+        Object[] values = new Object[rows];
+        if (encoding == STRING) {
+            int size = in.readInt();
+            int[] offsets = new int[size + 1];
+            for (int i = 0; i <= size; i++)
+                offsets[i] = in.readInt();
+            byte[] blob = new byte[offsets[size]];
+            in.readFully(blob);
+            String[] dictionary = new String[size];
+            for (int i = 0; i < size; i++)
+                dictionary[i] = new String(blob, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            for (int row = 0; row < rows; row++) {
+                int code = in.readInt();
+                values[row] = (code == -1) ? null : dictionary[code];
+            }
+            return values;
+        }
+
+        BitSet nulls = readBits(in);
+        if (encoding == BOOLEAN) {
+            BitSet set = readBits(in);
+            for (int row = 0; row < rows; row++)
+                values[row] = nulls.get(row) ? null : set.get(row);
+            return values;
+        }
+        for (int row = 0; row < rows; row++) {
+            Object value = switch (encoding) {
+                case INT -> in.readInt();
+                case DOUBLE -> in.readDouble();
+                default -> new Date(in.readLong());
+            };
+            values[row] = nulls.get(row) ? null : value;
+        }
+        return values;
+    }
+
+
+    /**
+     * Writes a bit set as its number of words followed by the words.
+     */
+    private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words)
+            out.writeLong(word);
+    }
+
+
+    /**
+     * Reads a bit set written by writeBits.
+     */
+    private static BitSet readBits(DataInputStream in) throws IOException {
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++)
+            words[i] = in.readLong();
+        return BitSet.valueOf(words);
+    }
+
+
+    /**
+     * Checks whether a column is among the wanted ones.
+     */
+    private static boolean contains(int[] wanted, int column) {
+        for (int position : wanted)
+            if (position == column)
+                return true;
+        return false;
+    }
+
+}
@@ -0,0 +1,168 @@
+package src.DBGeneralEngine;
+
+import java.awt.Polygon;
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the column-oriented page format.
+ * Two tables receive the same rows, inserts and deletes, one written row by row and one column by column:
+ * every column of every row must read back the same, every select must return the same rows,
+ * and a columnar page read for a few columns must hold exactly those columns and the tombstones of the page.
+ */
+public class ColumnarPageTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBAppTest.prepare();
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        dbApp.getCompactor().shutdown();
+        Hashtable<String, Object> columns = new Hashtable<>();
+        columns.put("id", "java.lang.Integer");
+        columns.put("name", "java.lang.String");
+        columns.put("city", "java.lang.String");
+        columns.put("score", "java.lang.Double");
+        columns.put("active", "java.lang.Boolean");
+        columns.put("born", "java.util.Date");
+        columns.put("shape", "java.awt.Polygon");
+        dbApp.createTable("Rows", "id", new Hashtable<>(columns), false);
+        dbApp.createTable("Cols", "id", new Hashtable<>(columns), true);
+        dbApp.encodeColumn("Rows", "city");
+        dbApp.encodeColumn("Cols", "city");
+
+        Random random = new Random(38);
+        ArrayList<Hashtable<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+            rows.add(row(random, i * 2));
+        insert(dbApp, rows);
+        rows.clear();
+        for (int i = 0; i < 60; i++)
+            rows.add(row(random, i * 10 + 1));
+        insert(dbApp, rows);
+        for (int id = 100; id < 400; id += 3)
+            for (String tableName : new String[]{"Rows", "Cols"}) {
+                Hashtable<String, Object> key = new Hashtable<>();
+                key.put("id", id);
+                dbApp.deleteFromTable(tableName, key);
+            }
+
+        Table rowTable = table(dbApp, "Rows"), columnTable = table(dbApp, "Cols");
+        for (String pageName : columnTable.getPages())
+            check(Table.isColumnarPage(pageName), "page " + pageName + " of the columnar table is not columnar");
+        check(!Table.isColumnarPage(rowTable.getPages().get(0)), "the row table wrote a columnar page");
+        check(values(rowTable, "Rows").equals(values(columnTable, "Cols")), "the columnar table reads back other rows");
+
+        // Selects on every kind of column return the same rows from both formats
+        Object[][] conditions = {
+                {"id", "<", 77}, {"id", "!=", 4}, {"name", "=", "name7"}, {"name", ">", "name5"},
+                {"city", "<=", "Giza"}, {"city", "=", "Luxor"}, {"score", ">=", 0.25}, {"score", "<", -0.5},
+                {"active", "=", true}, {"born", "<", new Date(86_400_000L * 100)},
+                {"shape", SQLTerm.INTERSECTS, new Polygon(new int[]{0, 300, 300, 0}, new int[]{0, 0, 300, 300}, 4)}};
+        for (Object[] condition : conditions) {
+            TreeSet<Integer> fromRows = select(dbApp, "Rows", condition), fromColumns = select(dbApp, "Cols", condition);
+            check(!fromRows.isEmpty(), condition[0] + " " + condition[1] + " " + condition[2] + " selects no row");
+            check(fromRows.equals(fromColumns), condition[0] + " " + condition[1] + " " + condition[2] + " returned "
+                    + fromColumns + " from the columnar table, " + fromRows + " from the row table");
+        }
+
+        // A projected read holds the wanted columns and the tombstones, the other columns are left null
+        Vector<String[]> meta = DBApp.getTableMetadata("Cols");
+        int score = position(meta, "score"), city = position(meta, "city");
+        for (String pageName : columnTable.getPages()) {
+            Page full = Table.deserialize(pageName);
+            Page projected = ColumnarPage.read(pageName, new int[]{score, city});
+            check(projected.size() == full.size(), "the projected read of " + pageName + " has another number of tuples");
+            for (int slot = 0; slot < full.size(); slot++) {
+                check(projected.isDeleted(slot) == full.isDeleted(slot), "the projected read of " + pageName + " lost a tombstone");
+                Tuple tuple = projected.getTuples().get(slot);
+                for (int column = 0; column < meta.size(); column++)
+                    if (column == score || column == city)
+                        check(Objects.equals(tuple.get(column), full.getTuples().get(slot).get(column)),
+                                "column " + column + " of the projected read of " + pageName + " is wrong");
+                    else
+                        check(tuple.get(column) == null, "column " + column + " was read although it was not wanted");
+            }
+        }
+
+        System.out.println("ColumnarPageTest passed");
+    }
+
+
+    /**
+     * Builds a row with a value of every kind, some of them null.
+     */
+    private static Hashtable<String, Object> row(Random random, int id) {
+        String[] cities = {"Aswan", "Giza", "Luxor", "Suez"};
+        Hashtable<String, Object> row = new Hashtable<>();
+        row.put("id", id);
+        row.put("name", "name" + random.nextInt(12));
+        row.put("city", cities[random.nextInt(cities.length)]);
+        if (id % 5 != 0)
+            row.put("score", random.nextInt(400) / 100.0 - 2);
+        row.put("active", random.nextBoolean());
+        if (id % 7 != 3)
+            row.put("born", new Date(86_400_000L * random.nextInt(200)));
+        int x = random.nextInt(900), y = random.nextInt(900);
+        row.put("shape", new Polygon(new int[]{x, x + 20, x}, new int[]{y, y, y + 20}, 3));
+        return row;
+    }
+
+
+    private static void insert(DBApp dbApp, ArrayList<Hashtable<String, Object>> rows) throws DBAppException {
+        ArrayList<Hashtable<String, Object>> copy = new ArrayList<>();
+        for (Hashtable<String, Object> row : rows)
+            copy.add(new Hashtable<>(row));
+        dbApp.insertIntoTable("Rows", rows);
+        dbApp.insertIntoTable("Cols", copy);
+    }
+
+
+    private static TreeSet<Integer> select(DBApp dbApp, String tableName, Object[] condition) throws DBAppException {
+        TreeSet<Integer> ids = new TreeSet<>();
+        Vector<String[]> meta = DBApp.getTableMetadata(tableName);
+        int id = position(meta, "id");
+        dbApp.selectFromTable(new SQLTerm[]{new SQLTerm(tableName, (String) condition[0], (String) condition[1], condition[2])},
+                new String[]{}).forEachRemaining(tuple -> ids.add((Integer) tuple.get(id)));
+        return ids;
+    }
+
+
+    /**
+     * Reads every live row of a table as its columns by name, the TouchDate written at insertion left out.
+     */
+    private static ArrayList<TreeMap<String, String>> values(Table table, String tableName) throws DBAppException {
+        Vector<String[]> meta = DBApp.getTableMetadata(tableName);
+        ArrayList<TreeMap<String, String>> rows = new ArrayList<>();
+        for (String pageName : table.getPages())
+            for (Tuple tuple : Table.deserialize(pageName).getLiveTuples()) {
+                TreeMap<String, String> row = new TreeMap<>();
+                for (int column = 0; column < meta.size(); column++)
+                    if (!meta.get(column)[1].equals("TouchDate"))
+                        row.put(meta.get(column)[1], String.valueOf(tuple.get(column)));
+                rows.add(row);
+            }
+        return rows;
+    }
+
+
+    private static int position(Vector<String[]> meta, String column) {
+        for (int i = 0; i < meta.size(); i++)
+            if (meta.get(i)[1].equals(column))
+                return i;
+        throw new IllegalStateException(column + " is not a column");
+    }
+
+
+    private static Table table(DBApp dbApp, String tableName) {
+        for (Table table : dbApp.getTables())
+            if (table.getTableName().equals(tableName))
+                return table;
+        throw new IllegalStateException("table " + tableName + " was not created");
+    }
+
+}
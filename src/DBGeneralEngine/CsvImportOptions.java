@@ -0,0 +1,90 @@
+package src.DBGeneralEngine;
+
+
+/**
+ * CsvImportOptions class holds the settings of a bulk CSV import into a table.
+ * The defaults describe a comma separated file with a header line, parsed on every available core.
+ */
+public class CsvImportOptions {
+
+    /**
+     * Attributes
+     * <p>
+     *
+     * delimiter        ->  The character separating the fields of a line, fields may be quoted with double quotes.
+     * hasHeader        ->  Whether the first line names the columns, otherwise fields follow the metadata order.
+     * dateFormat       ->  The SimpleDateFormat pattern used for java.util.Date columns.
+     * parallelism      ->  The number of threads parsing chunks of lines.
+     * chunkSize        ->  The number of lines handed to a parsing thread at a time.
+     * maxRowsInMemory  ->  The number of parsed rows kept in memory before a sorted run is spilled to disk.
+     * spillDirectory   ->  The directory where sorted runs are spilled, they are removed once the import ends.
+     */
+    private char delimiter = ',';
+    private boolean hasHeader = true;
+    private String dateFormat = "yyyy-MM-dd";
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 10000;
+    private int maxRowsInMemory = 200000;
+    private String spillDirectory = "data";
+
+
+    /**
+     * Getters & Setters
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public boolean hasHeader() {
+        return hasHeader;
+    }
+
+    public void setHasHeader(boolean hasHeader) {
+        this.hasHeader = hasHeader;
+    }
+
+    public String getDateFormat() {
+        return dateFormat;
+    }
+
+    public void setDateFormat(String dateFormat) {
+        this.dateFormat = dateFormat;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public int getMaxRowsInMemory() {
+        return maxRowsInMemory;
+    }
+
+    public void setMaxRowsInMemory(int maxRowsInMemory) {
+        this.maxRowsInMemory = Math.max(1, maxRowsInMemory);
+    }
+
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+}
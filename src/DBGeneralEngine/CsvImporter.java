@@ -0,0 +1,537 @@
+package src.DBGeneralEngine;
+
+import src.Ref.Ref;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+
+/**
+ * CsvImporter class loads a CSV file into a table in bulk.
+ * Lines are parsed into typed rows in parallel chunks using the column types of the table metadata,
+ * sorted by the clustering key in memory-bounded runs that are spilled to disk, and merged back in key order.
+ * An empty table gets its pages written full and in order, followed by one sorted batch per index;
+ * a table that already holds data receives the merged rows as ordered batches through Table.insertTuples.
+ */
+public class CsvImporter {
+
+    /**
+     * Attributes
+     * <p>
+     *
+     * table            ->  The table being loaded.
+     * metaOfTable      ->  The metadata of the table, one row per column.
+     * options          ->  The settings of the import.
+     * clusteringPos    ->  The position of the clustering key in the rows.
+     * runs             ->  The sorted runs spilled to disk so far.
+     */
+    private final Table table;
+    private final Vector<String[]> metaOfTable;
+    private final CsvImportOptions options;
+    private final int clusteringPos;
+    private final ArrayList<File> runs = new ArrayList<>();
+
+
+    /**
+     * Constructor
+     *
+     * @param table the table to load, its primary position must already point at the clustering key
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param options the settings of the import
+     */
+    public CsvImporter(Table table, Vector<String[]> metaOfTable, CsvImportOptions options) {
+        this.table = table;
+        this.metaOfTable = metaOfTable;
+        this.options = options;
+        this.clusteringPos = table.getPrimaryPosition();
+    }
+
+
+    /**
+     * Imports every line of the given file into the table.
+     *
+     * @param path the CSV file to import
+     * @return the number of rows imported
+     * @throws DBAppException if the file cannot be read, a field cannot be converted to its column type, or a page cannot be written
+     */
+    public int importFile(Path path) throws DBAppException {
+        ExecutorService executor = Executors.newFixedThreadPool(options.getParallelism());
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line = options.hasHeader() ? reader.readLine() : null;
+            int[] fieldPositions = resolveFieldPositions(line);
+            Date touchDate = new Date();
+
+            ArrayDeque<Future<ArrayList<Vector<Object>>>> inFlight = new ArrayDeque<>();
+            ArrayList<Vector<Object>> buffer = new ArrayList<>();
+            ArrayList<String> chunk = new ArrayList<>(options.getChunkSize());
+            int lineNumber = options.hasHeader() ? 1 : 0;
+            int chunkStart = lineNumber + 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                chunk.add(line);
+                if (chunk.size() == options.getChunkSize()) {
+                    inFlight.add(submitChunk(executor, chunk, chunkStart, fieldPositions, touchDate));
+                    chunk = new ArrayList<>(options.getChunkSize());
+                    chunkStart = lineNumber + 1;
+                    // Bound the parsed rows waiting in memory to a couple of chunks per thread
+                    while (inFlight.size() >= 2 * options.getParallelism())
+                        buffer = collect(inFlight.poll(), buffer);
+                }
+            }
+            if (!chunk.isEmpty())
+                inFlight.add(submitChunk(executor, chunk, chunkStart, fieldPositions, touchDate));
+            while (!inFlight.isEmpty())
+                buffer = collect(inFlight.poll(), buffer);
+
+            Iterator<Vector<Object>> merged;
+            if (runs.isEmpty()) {
+                buffer.sort(this::compareRows);
+                merged = buffer.iterator();
+            } else {
+                spill(buffer);
+                merged = new RunMerger(runs);
+            }
+            // The table must still be empty when its pages are written, so the check and the write share one hold
+            table.getLock().writeLock().lock();
+            try {
+                if (table.getPages().isEmpty())
+                    return writeFullPages(merged);
+            } finally {
+                table.getLock().writeLock().unlock();
+            }
+            return insertInBatches(merged);
+        } catch (IOException e) {
+            throw new DBAppException("IO Exception importing " + path);
+        } catch (UncheckedIOException e) {
+            // A spilled run failed to read while being merged
+            throw new DBAppException("IO Exception importing " + path + ": " + e.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+            for (File run : runs)
+                run.delete();
+        }
+    }
+
+
+    /**
+     * Maps every field of a line to the position of its column in the rows.
+     *
+     * @param header the header line, or null to use the metadata order
+     * @return the row position of every field
+     * @throws DBAppException if the header names a column the table does not have
+     */
+    private int[] resolveFieldPositions(String header) throws DBAppException {
+        if (header == null) {
+            int[] positions = new int[metaOfTable.size()];
+            for (int i = 0; i < positions.length; i++)
+                positions[i] = i;
+            return positions;
+        }
+        ArrayList<String> names = splitLine(header, options.getDelimiter());
+        int[] positions = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            positions[i] = -1;
+            for (int j = 0; j < metaOfTable.size(); j++)
+                if (metaOfTable.get(j)[1].equals(names.get(i).trim()))
+                    positions[i] = j;
+            if (positions[i] == -1)
+                throw new DBAppException("Column " + names.get(i) + " does not exist in " + table.getTableName());
+        }
+        return positions;
+    }
+
+
+    /**
+     * Hands a chunk of lines to the parsing threads.
+     *
+     * @param executor the parsing threads
+     * @param lines the lines of the chunk
+     * @param firstLine the line number of the first line, used in error messages
+     * @param fieldPositions the row position of every field
+     * @param touchDate the touch date shared by the whole import
+     * @return the future rows of the chunk
+     */
+    private Future<ArrayList<Vector<Object>>> submitChunk(ExecutorService executor,
+                                                          ArrayList<String> lines,
+                                                          int firstLine,
+                                                          int[] fieldPositions,
+                                                          Date touchDate) {
+        return executor.submit(() -> {
+            // SimpleDateFormat is not thread safe, every chunk gets its own
+            SimpleDateFormat dateFormat = new SimpleDateFormat(options.getDateFormat());
+            ArrayList<Vector<Object>> rows = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++)
+                rows.add(parseRow(lines.get(i), firstLine + i, fieldPositions, dateFormat, touchDate));
+            return rows;
+        });
+    }
+
+
+    /**
+     * Waits for a parsed chunk and adds it to the in-memory buffer, spilling the buffer once it is full.
+     *
+     * @param future the parsed chunk
+     * @param buffer the rows parsed so far and not yet spilled
+     * @return the buffer to keep collecting into
+     * @throws DBAppException if the chunk failed to parse or the buffer cannot be spilled
+     */
+    private ArrayList<Vector<Object>> collect(Future<ArrayList<Vector<Object>>> future,
+                                              ArrayList<Vector<Object>> buffer) throws DBAppException {
+        try {
+            buffer.addAll(future.get());
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof DBAppException) ? (DBAppException) e.getCause()
+                    : new DBAppException("Error parsing CSV: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBAppException("CSV import interrupted");
+        }
+        if (buffer.size() < options.getMaxRowsInMemory())
+            return buffer;
+        spill(buffer);
+        return new ArrayList<>();
+    }
+
+
+    /**
+     * Converts one line into a row ordered as the table metadata.
+     *
+     * @param line the line to convert
+     * @param lineNumber the line number, used in error messages
+     * @param fieldPositions the row position of every field
+     * @param dateFormat the format of date fields
+     * @param touchDate the touch date shared by the whole import
+     * @return the row, without the trailing record id
+     * @throws DBAppException if a field cannot be converted or the clustering key is missing
+     */
+    private Vector<Object> parseRow(String line,
+                                    int lineNumber,
+                                    int[] fieldPositions,
+                                    SimpleDateFormat dateFormat,
+                                    Date touchDate) throws DBAppException {
+        ArrayList<String> fields = splitLine(line, options.getDelimiter());
+        if (fields.size() != fieldPositions.length)
+            throw new DBAppException("Line " + lineNumber + " has " + fields.size() + " fields, expected " + fieldPositions.length);
+
+        Vector<Object> attributes = new Vector<>(metaOfTable.size() + 1);
+        attributes.setSize(metaOfTable.size());
+        for (int i = 0; i < fields.size(); i++) {
+            String type = metaOfTable.get(fieldPositions[i])[2];
+            try {
+                attributes.set(fieldPositions[i], convert(fields.get(i), type, dateFormat));
+            } catch (NumberFormatException | ParseException e) {
+                throw new DBAppException("Line " + lineNumber + ": cannot read " + fields.get(i) + " as " + type);
+            }
+        }
+        for (int i = 0; i < metaOfTable.size(); i++)
+            if (metaOfTable.get(i)[1].equals("TouchDate") && attributes.get(i) == null)
+                attributes.set(i, touchDate);
+        if (attributes.get(clusteringPos) == null)
+            throw new DBAppException("Line " + lineNumber + ": clustering key value is missing");
+        return attributes;
+    }
+
+
+    /**
+     * Converts a field to the class of its column.
+     *
+     * @param field the raw field
+     * @param type the class name of the column as stored in the metadata
+     * @param dateFormat the format of date fields
+     * @return the converted value, or null for an empty field
+     * @throws ParseException if a date field does not follow the date format
+     * @throws DBAppException if the column type is not supported
+     */
+    private static Object convert(String field, String type, SimpleDateFormat dateFormat) throws ParseException, DBAppException {
+        String value = field.trim();
+        if (value.isEmpty())
+            return null;
+        return switch (type) {
+            case "java.lang.Integer" -> Integer.valueOf(value);
+            case "java.lang.Double" -> Double.valueOf(value);
+            case "java.lang.Boolean" -> Boolean.valueOf(value);
+            case "java.util.Date" -> dateFormat.parse(value);
+            case "java.lang.String" -> field;
+            case "java.awt.Polygon" -> new CustomPolygon(parsePolygon(value));
+            default -> throw new DBAppException("Data type not supported: " + type);
+        };
+    }
+
+
+    /**
+     * Parses a polygon written as its points, for example (10,20),(30,30),(40,40).
+     *
+     * @param value the points of the polygon
+     * @return the parsed polygon
+     */
+    public static Polygon parsePolygon(String value) {
+        String[] points = value.replace(" ", "").replace(",(", "#(").replace("(", "").replace(")", "").split("#");
+        int[] x = new int[points.length];
+        int[] y = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            String[] coordinates = points[i].split(",");
+            x[i] = Integer.parseInt(coordinates[0]);
+            y[i] = Integer.parseInt(coordinates[1]);
+        }
+        return new Polygon(x, y, points.length);
+    }
+
+
+    /**
+     * Splits a line into its fields, honouring double quoted fields and doubled quotes inside them.
+     *
+     * @param line the line to split
+     * @param delimiter the field delimiter
+     * @return the fields of the line
+     */
+    public static ArrayList<String> splitLine(String line, char delimiter) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                    field.append(line.charAt(++i));
+                else
+                    quoted = !quoted;
+            } else if (c == delimiter && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+
+    /**
+     * Orders two rows by their clustering key.
+     */
+    @SuppressWarnings("unchecked")
+    private int compareRows(Vector<Object> first, Vector<Object> second) {
+        return ((Comparable) first.get(clusteringPos)).compareTo(second.get(clusteringPos));
+    }
+
+
+    /**
+     * Sorts the buffer and writes it to disk as a new run.
+     *
+     * @param buffer the rows to spill
+     * @throws DBAppException if the run cannot be written
+     */
+    private void spill(ArrayList<Vector<Object>> buffer) throws DBAppException {
+        if (buffer.isEmpty())
+            return;
+        buffer.sort(this::compareRows);
+        try {
+            File run = File.createTempFile(table.getTableName() + "Run", ".spill", new File(options.getSpillDirectory()));
+            runs.add(run);
+            try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+                out.writeInt(buffer.size());
+                for (int i = 0; i < buffer.size(); i++) {
+                    out.writeObject(buffer.get(i));
+                    // Keep the stream from remembering every row it has written
+                    if (i % 1024 == 1023)
+                        out.reset();
+                }
+            }
+        } catch (IOException e) {
+            throw new DBAppException("IO Exception spilling sorted run of " + table.getTableName());
+        }
+    }
+
+
+    /**
+     * Writes the merged rows straight into full pages of an empty table, then loads every index with one sorted batch.
+     * The caller holds the table write lock.
+     *
+     * @param rows the rows in clustering key order
+     * @return the number of rows written
+     * @throws DBAppException if a page or an index cannot be written
+     */
+    @SuppressWarnings("unchecked")
+    private int writeFullPages(Iterator<Vector<Object>> rows) throws DBAppException {
+        Hashtable<String, Integer> indexedPositions = new Hashtable<>();
+        Hashtable<String, ArrayList<Object[]>> indexEntries = new Hashtable<>();
+        for (String column : table.getTreeIndexColumnName().keySet())
+            for (int i = 0; i < metaOfTable.size(); i++)
+                if (metaOfTable.get(i)[1].equals(column)) {
+                    indexedPositions.put(column, i);
+                    indexEntries.put(column, new ArrayList<>());
+                }
+
+        RowSchema schema = table.rowSchema(metaOfTable);
+        int count = 0;
+        Vector<Comparable> minKeys = table.getPageMinKeys();
+        Page page = null;
+        while (rows.hasNext()) {
+            Vector<Object> attributes = rows.next();
+            attributes.add(table.getLastId(true));
+            if (page == null) {
+                page = table.newPage();
+                table.getPages().add(page.getPageName());
+                minKeys.add((Comparable) attributes.get(clusteringPos));
+            }
+            Tuple tuple = new Tuple(schema, attributes);
+            page.getTuples().add(tuple);
+            for (String column : indexedPositions.keySet()) {
+                Object key = tuple.getKey(indexedPositions.get(column));
+                if (key != null)
+                    indexEntries.get(column).add(new Object[]{key, new Ref(page.getPageName())});
+            }
+            count++;
+            if (page.size() == table.getMaxRowsInPage()) {
+                Table.serializePage(page);
+                page = null;
+            }
+        }
+        if (page != null)
+            Table.serializePage(page);
+
+        for (String column : indexEntries.keySet()) {
+            ArrayList<Object[]> entries = indexEntries.get(column);
+            if (indexedPositions.get(column) != clusteringPos)
+                entries.sort((first, second) -> ((Comparable) first[0]).compareTo(second[0]));
+            ArrayList<Comparable> keys = new ArrayList<>(entries.size());
+            ArrayList<Ref> refs = new ArrayList<>(entries.size());
+            for (Object[] entry : entries) {
+                keys.add((Comparable) entry[0]);
+                refs.add((Ref) entry[1]);
+            }
+            table.getTreeIndexColumnName().get(column).insertBatch(keys, refs);
+        }
+        table.addModifiedRows(count);
+        return count;
+    }
+
+
+    /**
+     * Feeds the merged rows to a table that already holds data, one memory-sized ordered batch at a time.
+     * Every batch takes the table write lock in Table.insertTuples, so readers get in between batches.
+     *
+     * @param rows the rows in clustering key order
+     * @return the number of rows inserted
+     * @throws DBAppException if a page or an index cannot be written
+     */
+    private int insertInBatches(Iterator<Vector<Object>> rows) throws DBAppException {
+        RowSchema schema = table.rowSchema(metaOfTable);
+        int count = 0;
+        ArrayList<Tuple> batch = new ArrayList<>();
+        while (rows.hasNext()) {
+            Vector<Object> attributes = rows.next();
+            attributes.add(table.getLastId(true));
+            batch.add(new Tuple(schema, attributes));
+            if (batch.size() == options.getMaxRowsInMemory() || !rows.hasNext()) {
+                table.insertTuples(batch, metaOfTable);
+                count += batch.size();
+                batch = new ArrayList<>();
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * RunMerger class merges the sorted runs spilled to disk into a single stream in clustering key order.
+     */
+    private class RunMerger implements Iterator<Vector<Object>> {
+
+        /**
+         * Attributes
+         * <p>
+         *
+         * heads    ->  The runs that still have rows, ordered by the key of their next row.
+         */
+        private final PriorityQueue<RunReader> heads = new PriorityQueue<>((first, second) -> compareRows(first.head, second.head));
+
+        RunMerger(List<File> files) throws DBAppException {
+            for (File file : files) {
+                RunReader reader = new RunReader(file);
+                if (reader.advance())
+                    heads.add(reader);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Vector<Object> next() {
+            RunReader reader = heads.poll();
+            if (reader == null)
+                throw new NoSuchElementException();
+            Vector<Object> row = reader.head;
+            try {
+                if (reader.advance())
+                    heads.add(reader);
+            } catch (DBAppException e) {
+                throw new UncheckedIOException(new IOException(e.getMessage()));
+            }
+            return row;
+        }
+    }
+
+
+    /**
+     * RunReader class reads one spilled run row by row.
+     */
+    private static class RunReader {
+
+        /**
+         * Attributes
+         * <p>
+         *
+         * in           ->  The stream over the run file.
+         * remaining    ->  The number of rows not read yet.
+         * head         ->  The row most recently read.
+         */
+        private final ObjectInputStream in;
+        private int remaining;
+        private Vector<Object> head;
+
+        RunReader(File file) throws DBAppException {
+            try {
+                in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+                remaining = in.readInt();
+            } catch (IOException e) {
+                throw new DBAppException("IO Exception opening sorted run " + file.getName());
+            }
+        }
+
+        /**
+         * Reads the next row of the run into head, closing the run once it is exhausted.
+         *
+         * @return true if a row was read, false if the run is exhausted
+         * @throws DBAppException if the run cannot be read
+         */
+        @SuppressWarnings("unchecked")
+        boolean advance() throws DBAppException {
+            try {
+                if (remaining == 0) {
+                    in.close();
+                    return false;
+                }
+                head = (Vector<Object>) in.readObject();
+                remaining--;
+                return true;
+            } catch (IOException | ClassNotFoundException e) {
+                throw new DBAppException("Exception reading sorted run: " + e.getMessage());
+            }
+        }
+    }
+
+}
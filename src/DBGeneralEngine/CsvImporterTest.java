@@ -0,0 +1,91 @@
+package src.DBGeneralEngine;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the bulk CSV import.
+ * It imports shuffled rows through runs small enough to be spilled and merged, first into an empty table
+ * and then into the same table once it holds data, and checks that the pages come out in clustering key order.
+ */
+public class CsvImporterTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBAppTest.prepare(DBAppTest.metadata("Imported", "id",
+                "id", "java.lang.Integer", "name", "java.lang.String", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        Table table = new Table();
+        table.setTableName("Imported");
+        dbApp.getTables().add(table);
+
+        CsvImportOptions options = new CsvImportOptions();
+        options.setParallelism(2);
+        options.setChunkSize(50);
+        options.setMaxRowsInMemory(100);
+
+        // Even ids into the empty table, spilled as ten runs of 100 rows
+        int imported = dbApp.importCsv("Imported", write("imported-even.csv", 0, 2000, 2), options);
+        check(imported == 1000, "imported " + imported + " rows into the empty table");
+        checkPages(table, 1000, 2);
+        for (int i = 0; i < table.getPages().size() - 1; i++)
+            check(Table.deserialize(table.getPages().get(i)).size() == 20, "page " + i + " of the empty table is not full");
+
+        // Odd ids into the table that now holds data, merged in between the even ones
+        imported = dbApp.importCsv("Imported", write("imported-odd.csv", 1, 2000, 2), options);
+        check(imported == 1000, "imported " + imported + " rows into the filled table");
+        checkPages(table, 2000, 1);
+
+        File[] runs = new File(options.getSpillDirectory()).listFiles((dir, name) -> name.endsWith(".spill"));
+        check(runs == null || runs.length == 0, "the spilled runs were not removed");
+
+        System.out.println("CsvImporterTest passed");
+    }
+
+
+    /**
+     * Writes the ids from first to last, stepping by step, to a CSV file in shuffled order.
+     */
+    private static Path write(String fileName, int first, int last, int step) throws IOException {
+        ArrayList<Integer> ids = new ArrayList<>();
+        for (int i = first; i < last; i += step)
+            ids.add(i);
+        Collections.shuffle(ids, new Random(fileName.hashCode()));
+        File file = new File("data", fileName);
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("id,name\n");
+            for (int id : ids)
+                writer.write(id + ",n" + id + "\n");
+        }
+        return file.toPath();
+    }
+
+
+    /**
+     * Checks that the pages hold rows ids from 0, stepping by step, in order and that the cached min keys match a fresh read.
+     */
+    private static void checkPages(Table table, int rows, int step) throws DBAppException {
+        int expected = 0;
+        Vector<Comparable> minKeys = table.getPageMinKeys();
+        for (int i = 0; i < table.getPages().size(); i++) {
+            Page page = Table.deserialize(table.getPages().get(i));
+            check(page.size() > 0, "page " + i + " is empty");
+            check(minKeys.get(i).equals(page.getTuples().get(0).get(0)), "cached min key of page " + i + " is stale");
+            for (Tuple tuple : page.getTuples()) {
+                check(tuple.get(0).equals(expected), "page " + i + " holds " + tuple.get(0) + " where " + expected + " was expected");
+                check(tuple.get(1).equals("n" + expected), "row " + expected + " has the name " + tuple.get(1));
+                expected += step;
+            }
+        }
+        check(expected == rows * step, "the pages hold " + expected + " rows, expected " + rows);
+    }
+
+}
@@ -1,21 +1,46 @@
 package src.DBGeneralEngine;
 
 import java.awt.*;
+import java.awt.geom.Area;
+import java.awt.geom.Line2D;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
 import java.io.Serializable;
+import java.util.Arrays;
+
+import src.RTree.MBR;
 
 
 /**
  * CustomPolygon class represents a polygon with additional functionalities.
  * This class implements Comparable to allow sorting based on the polygon's area.
+ * The bounding box, the area and a hash of the vertices are computed once when the polygon is created or read back,
+ * so comparisons and rectangle checks allocate nothing, and only the vertices are written when the polygon is serialized.
+ * The wrapped polygon is treated as immutable, it must not be changed once wrapped.
  */
 public class CustomPolygon implements Comparable<CustomPolygon>, Serializable {
 
     /**
      * Attributes
      *
-     * polygon -> The underlying Polygon object representing the shape.
+     * polygon      -> The underlying Polygon object representing the shape, rebuilt from the vertices when read back.
+     * xpoints      -> The x coordinates of the vertices, exactly npoints long and shared with the polygon when possible.
+     * ypoints      -> The y coordinates of the vertices, exactly npoints long and shared with the polygon when possible.
+     * minX, minY   -> The lower left corner of the bounding box.
+     * maxX, maxY   -> The upper right corner of the bounding box.
+     * area         -> The area of the bounding box, the value polygons are compared by.
+     * shapeHash    -> The hash of the vertices, equal for polygons of the same shape.
+     * mbr          -> The bounding box as the rectangle R-Tree entries are summarised by.
      */
-    public Polygon polygon;
+    public transient Polygon polygon;
+    private transient int[] xpoints;
+    private transient int[] ypoints;
+    private transient int minX, minY, maxX, maxY;
+    private transient int area;
+    private transient int shapeHash;
+    private transient MBR mbr;
 
 
     /**
@@ -26,6 +51,80 @@ public class CustomPolygon implements Comparable<CustomPolygon>, Serializable {
      */
     public CustomPolygon(Polygon polygon) {
         this.polygon = polygon;
+        cacheGeometry();
+    }
+
+
+    /**
+     * Computes the compact vertices, the bounding box, the area and the hash of the polygon in one pass.
+     */
+    private void cacheGeometry() {
+        int n = polygon.npoints;
+        xpoints = (polygon.xpoints.length == n) ? polygon.xpoints : Arrays.copyOf(polygon.xpoints, n);
+        ypoints = (polygon.ypoints.length == n) ? polygon.ypoints : Arrays.copyOf(polygon.ypoints, n);
+
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+        int hash = n;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xpoints[i]);
+            minY = Math.min(minY, ypoints[i]);
+            maxX = Math.max(maxX, xpoints[i]);
+            maxY = Math.max(maxY, ypoints[i]);
+            hash = 31 * (31 * hash + xpoints[i]) + ypoints[i];
+        }
+        if (n == 0)
+            minX = minY = maxX = maxY = 0;
+        area = (maxX - minX) * (maxY - minY);
+        shapeHash = hash;
+        mbr = new MBR(minX, minY, maxX, maxY);
+    }
+
+
+    /**
+     * Writes the polygon as its number of vertices followed by their coordinates.
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(xpoints.length);
+        for (int i = 0; i < xpoints.length; i++) {
+            out.writeInt(xpoints[i]);
+            out.writeInt(ypoints[i]);
+        }
+    }
+
+
+    /**
+     * Reads the vertices written by writeObject and rebuilds the polygon and its cached geometry.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int n = in.readInt();
+        int[] x = new int[n], y = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = in.readInt();
+            y[i] = in.readInt();
+        }
+        polygon = new Polygon(x, y, n);
+        cacheGeometry();
+    }
+
+
+    /**
+     * Getters
+     */
+    public int getArea() {
+        return area;
+    }
+
+    public int getShapeHash() {
+        return shapeHash;
+    }
+
+    public MBR getMBR() {
+        return mbr;
     }
 
 
@@ -39,13 +138,7 @@ public class CustomPolygon implements Comparable<CustomPolygon>, Serializable {
      */
     @Override
     public int compareTo(CustomPolygon customPolygon) {
-        Dimension dimension = polygon.getBounds().getSize();
-        int polygonArea = dimension.width * dimension.height;
-
-        dimension = customPolygon.polygon.getBounds().getSize();
-        int customPolygonArea = dimension.width * dimension.height;
-
-        return polygonArea - customPolygonArea;
+        return Integer.compare(area, customPolygon.area);
     }
 
 
@@ -58,9 +151,217 @@ public class CustomPolygon implements Comparable<CustomPolygon>, Serializable {
      */
     @Override
     public boolean equals(Object obj) {
+        return obj instanceof CustomPolygon customPolygon && area == customPolygon.area;
+    }
+
+
+    /**
+     * Hashes the polygon by its area, consistently with equals.
+     *
+     * @return the area of the polygon
+     */
+    @Override
+    public int hashCode() {
+        return area;
+    }
+
+
+    /**
+     * Checks if this CustomPolygon has exactly the same vertices as another one, in the same order.
+     * Unlike equals, which only compares areas, this identifies one polygon value.
+     *
+     * @param customPolygon the CustomPolygon to compare with
+     * @return true if both polygons have the same vertices, false otherwise
+     */
+    public boolean sameShape(CustomPolygon customPolygon) {
+        return shapeHash == customPolygon.shapeHash
+                && Arrays.equals(xpoints, customPolygon.xpoints)
+                && Arrays.equals(ypoints, customPolygon.ypoints);
+    }
+
+
+    /**
+     * Orders polygons by area like compareTo, and polygons of the same area by their vertices,
+     * so that polygons of the same shape, and only those, compare as equal.
+     *
+     * @param customPolygon the CustomPolygon to compare against
+     * @return a negative integer, zero, or a positive integer
+     */
+    public int compareShape(CustomPolygon customPolygon) {
+        int byArea = compareTo(customPolygon);
+        if (byArea != 0)
+            return byArea;
+        int byX = Arrays.compare(xpoints, customPolygon.xpoints);
+        return (byX != 0) ? byX : Arrays.compare(ypoints, customPolygon.ypoints);
+    }
+
+
+    /**
+     * Checks whether the bounding boxes of this CustomPolygon and another one share at least one point.
+     *
+     * @param customPolygon the CustomPolygon to test against
+     * @return true if the bounding boxes intersect, false otherwise
+     */
+    private boolean boundsIntersect(CustomPolygon customPolygon) {
+        return minX <= customPolygon.maxX && customPolygon.minX <= maxX
+                && minY <= customPolygon.maxY && customPolygon.minY <= maxY;
+    }
+
+
+    /**
+     * Checks whether the bounding box of this CustomPolygon covers the bounding box of another one.
+     *
+     * @param customPolygon the CustomPolygon whose bounding box has to be covered
+     * @return true if the bounding box of the other polygon lies inside this one, false otherwise
+     */
+    private boolean boundsContain(CustomPolygon customPolygon) {
+        return minX <= customPolygon.minX && customPolygon.maxX <= maxX
+                && minY <= customPolygon.minY && customPolygon.maxY <= maxY;
+    }
+
+
+    /**
+     * Checks if this CustomPolygon shares at least one point with another one.
+     * The shapes are intersected exactly, a vertex of one polygon lying inside the other also counts
+     * so polygons without area, such as segments, still intersect what they touch.
+     *
+     * @param customPolygon the CustomPolygon to test against
+     * @return true if the polygons intersect, false otherwise
+     */
+    public boolean intersects(CustomPolygon customPolygon) {
+        if (!boundsIntersect(customPolygon))
+            return false;
+        Polygon other = customPolygon.polygon;
+
+        Area shared = new Area(polygon);
+        shared.intersect(new Area(other));
+        return !shared.isEmpty() || anyVertexInside(polygon, other) || anyVertexInside(other, polygon);
+    }
+
+
+    /**
+     * Checks if every point of another CustomPolygon lies inside this one.
+     *
+     * @param customPolygon the CustomPolygon that has to be covered
+     * @return true if this polygon contains the other one, false otherwise
+     */
+    public boolean contains(CustomPolygon customPolygon) {
+        if (!boundsContain(customPolygon))
+            return false;
+        Polygon other = customPolygon.polygon;
+
+        Area outside = new Area(other);
+        if (outside.isEmpty()) {
+            for (int i = 0; i < other.npoints; i++)
+                if (!polygon.contains(other.xpoints[i], other.ypoints[i]) && !onBoundary(polygon, other.xpoints[i], other.ypoints[i]))
+                    return false;
+            return true;
+        }
+        outside.subtract(new Area(polygon));
+        return outside.isEmpty();
+    }
+
+
+    /**
+     * Checks if this CustomPolygon covers exactly the same region as another one.
+     * Polygons with the same vertices are equal right away, otherwise both have to share their bounding box
+     * and contain each other, which also equates the same shape listed from another vertex or direction.
+     *
+     * @param customPolygon the CustomPolygon to compare with
+     * @return true if both polygons cover the same points, false otherwise
+     */
+    public boolean spatiallyEquals(CustomPolygon customPolygon) {
+        if (minX != customPolygon.minX || minY != customPolygon.minY || maxX != customPolygon.maxX || maxY != customPolygon.maxY)
+            return false;
+        return sameShape(customPolygon) || (contains(customPolygon) && customPolygon.contains(this));
+    }
+
+
+    /**
+     * Checks if this CustomPolygon lies completely inside another one.
+     *
+     * @param customPolygon the CustomPolygon that has to cover this one
+     * @return true if this polygon is within the other one, false otherwise
+     */
+    public boolean within(CustomPolygon customPolygon) {
+        return customPolygon.contains(this);
+    }
+
+
+    /**
+     * Computes the Euclidean distance between this CustomPolygon and another one.
+     * Polygons that intersect, or whose edges cross, are at distance 0, otherwise the distance is the shortest one
+     * between a vertex of one polygon and an edge of the other.
+     *
+     * @param customPolygon the CustomPolygon to measure the distance to
+     * @return the distance between the two polygons
+     */
+    public double distance(CustomPolygon customPolygon) {
+        Polygon other = customPolygon.polygon;
+        if (intersects(customPolygon) || edgesCross(polygon, other))
+            return 0;
+        return Math.min(vertexToEdgeDistance(polygon, other), vertexToEdgeDistance(other, polygon));
+    }
+
+
+    /**
+     * Computes the shortest distance between a vertex of the first polygon and an edge of the second one.
+     * A polygon of a single vertex has that vertex as its only edge.
+     */
+    private static double vertexToEdgeDistance(Polygon vertices, Polygon edges) {
+        double distance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < vertices.npoints; i++)
+            for (int j = 0; j < edges.npoints; j++) {
+                int next = (j + 1) % edges.npoints;
+                distance = Math.min(distance, Line2D.ptSegDist(edges.xpoints[j], edges.ypoints[j],
+                        edges.xpoints[next], edges.ypoints[next], vertices.xpoints[i], vertices.ypoints[i]));
+            }
+        return distance;
+    }
+
+
+    /**
+     * Checks whether an edge of the first polygon crosses an edge of the second one.
+     */
+    private static boolean edgesCross(Polygon first, Polygon second) {
+        for (int i = 0; i < first.npoints; i++) {
+            int nextI = (i + 1) % first.npoints;
+            for (int j = 0; j < second.npoints; j++) {
+                int nextJ = (j + 1) % second.npoints;
+                if (Line2D.linesIntersect(first.xpoints[i], first.ypoints[i], first.xpoints[nextI], first.ypoints[nextI],
+                        second.xpoints[j], second.ypoints[j], second.xpoints[nextJ], second.ypoints[nextJ]))
+                    return true;
+            }
+        }
+        return false;
+    }
+
 
-        CustomPolygon customPolygon = (CustomPolygon) obj;
-        return this.compareTo(customPolygon) == 0;
+    /**
+     * Checks whether a vertex of the second polygon lies inside or on the boundary of the first one.
+     */
+    private static boolean anyVertexInside(Polygon container, Polygon vertices) {
+        for (int i = 0; i < vertices.npoints; i++)
+            if (container.contains(vertices.xpoints[i], vertices.ypoints[i])
+                    || onBoundary(container, vertices.xpoints[i], vertices.ypoints[i]))
+                return true;
+        return false;
+    }
+
+
+    /**
+     * Checks whether a point lies on one of the edges of a polygon.
+     */
+    private static boolean onBoundary(Polygon polygon, int x, int y) {
+        for (int i = 0; i < polygon.npoints; i++) {
+            int j = (i + 1) % polygon.npoints;
+            long x1 = polygon.xpoints[i], y1 = polygon.ypoints[i];
+            long x2 = polygon.xpoints[j], y2 = polygon.ypoints[j];
+            long cross = (x2 - x1) * (y - y1) - (y2 - y1) * (x - x1);
+            if (cross == 0 && Math.min(x1, x2) <= x && x <= Math.max(x1, x2) && Math.min(y1, y2) <= y && y <= Math.max(y1, y2))
+                return true;
+        }
+        return false;
     }
 
 
@@ -74,20 +375,13 @@ public class CustomPolygon implements Comparable<CustomPolygon>, Serializable {
     public String toString() {
 
         StringBuilder stringBuilder = new StringBuilder("Points: ");
-        int[] x = polygon.xpoints;
-        int[] y = polygon.ypoints;
+        for (int i = 0; i < xpoints.length; i++) {
 
-        for (int i = 0; i < y.length; i++) {
-
-            stringBuilder.append("(").append(x[i]).append(", ").append(y[i]).append(") ");
+            stringBuilder.append("(").append(xpoints[i]).append(", ").append(ypoints[i]).append(") ");
         }
-        Dimension dimension = polygon.getBounds().getSize();
-        int polygonArea = dimension.width * dimension.height;
-        stringBuilder.append("Area: ").append(polygonArea);
+        stringBuilder.append("Area: ").append(area);
 
         return stringBuilder.toString();
     }
 
 }
-
-
@@ -0,0 +1,136 @@
+package src.DBGeneralEngine;
+
+import src.RTree.MBR;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test CustomPolygon.
+ * The geometry it caches must match the one computed from the wrapped polygon, also for polygons whose vertex arrays
+ * are longer than their number of vertices, and must be rebuilt identically when the polygon is read back.
+ * The spatial predicates must hold on the exact shapes: a concave polygon does not intersect what only its bounding box
+ * covers, touching edges and degenerate polygons count, and the same shape listed differently is spatially equal.
+ */
+public class CustomPolygonTest {
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+
+        Random random = new Random(35);
+        ArrayList<CustomPolygon> polygons = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // addPoint grows the vertex arrays ahead of the vertices, so most of them are longer than npoints
+            Polygon polygon = new Polygon();
+            int vertices = 1 + random.nextInt(7);
+            for (int v = 0; v < vertices; v++)
+                polygon.addPoint(random.nextInt(2000) - 1000, random.nextInt(2000) - 1000);
+            CustomPolygon customPolygon = new CustomPolygon(polygon);
+            checkGeometry(customPolygon, polygon);
+            polygons.add(customPolygon);
+        }
+        // The same shapes wrapped a second time, from arrays exactly npoints long
+        for (int i = 0; i < 50; i++) {
+            Polygon polygon = polygons.get(i).polygon;
+            polygons.add(new CustomPolygon(new Polygon(Arrays.copyOf(polygon.xpoints, polygon.npoints),
+                    Arrays.copyOf(polygon.ypoints, polygon.npoints), polygon.npoints)));
+        }
+
+        // Read back, the polygons keep their vertices and rebuild the same geometry
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(polygons);
+        }
+        ArrayList<CustomPolygon> read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (ArrayList<CustomPolygon>) in.readObject();
+        }
+        for (int i = 0; i < polygons.size(); i++) {
+            CustomPolygon written = polygons.get(i), back = read.get(i);
+            check(back.sameShape(written) && back.compareShape(written) == 0, "polygon " + i + " changed shape when read back");
+            check(back.getArea() == written.getArea() && back.getShapeHash() == written.getShapeHash()
+                    && back.getMBR().equals(written.getMBR()), "polygon " + i + " read back with other geometry");
+            checkGeometry(back, written.polygon);
+        }
+
+        // Wrapped twice, a shape is the same shape, and only polygons of the same shape compare as equal
+        for (int i = 0; i < 50; i++)
+            check(polygons.get(i).sameShape(polygons.get(200 + i)), "polygon " + i + " wrapped twice is another shape");
+        for (CustomPolygon first : polygons)
+            for (CustomPolygon second : polygons) {
+                check((first.compareShape(second) == 0) == first.sameShape(second), "compareShape disagrees with sameShape");
+                check(Integer.signum(first.compareShape(second)) == -Integer.signum(second.compareShape(first)),
+                        "compareShape is not antisymmetric");
+            }
+
+        // Only the vertices are written
+        Polygon square = new Polygon(new int[]{0, 10, 10, 0}, new int[]{0, 0, 10, 10}, 4);
+        int written = serializedSize(new CustomPolygon(square)), plain = serializedSize(square);
+        check(written < plain, "a CustomPolygon takes " + written + " bytes, the polygon it wraps " + plain);
+
+        // The exact predicates on a concave L shape, whose bounding box covers much more than the shape
+        CustomPolygon shapeL = polygon(0, 0, 10, 0, 10, 2, 2, 2, 2, 10, 0, 10);
+        CustomPolygon hollow = polygon(5, 5, 8, 5, 8, 8, 5, 8);
+        CustomPolygon touching = polygon(10, 0, 12, 0, 12, 2, 10, 2);
+        CustomPolygon segment = polygon(1, 1, 1, 8);
+        CustomPolygon point = polygon(9, 1);
+        CustomPolygon box = polygon(0, 0, 10, 0, 10, 10, 0, 10);
+        check(!shapeL.intersects(hollow) && !hollow.intersects(shapeL), "the L shape intersects a square in its hollow");
+        check(box.intersects(hollow) && box.contains(hollow) && hollow.within(box), "the box does not cover the square");
+        check(!shapeL.contains(hollow) && !hollow.within(shapeL), "the L shape contains a square in its hollow");
+        check(shapeL.intersects(touching) && touching.intersects(shapeL), "polygons sharing an edge do not intersect");
+        check(!shapeL.contains(touching), "the L shape contains a square beside it");
+        check(shapeL.intersects(segment) && shapeL.contains(segment) && segment.within(shapeL), "the L shape misses a segment inside it");
+        check(shapeL.contains(point) && point.within(box), "a point inside is not contained");
+        check(!shapeL.contains(box) && box.contains(shapeL), "containment of the L shape and its box is wrong");
+        check(shapeL.distance(hollow) == 3 && shapeL.distance(touching) == 0 && hollow.distance(shapeL) == 3,
+                "the distance between the L shape and the squares is wrong");
+        check(box.spatiallyEquals(polygon(10, 10, 0, 10, 0, 0, 10, 0)) && !box.sameShape(polygon(10, 10, 0, 10, 0, 0, 10, 0)),
+                "the box listed from another corner and direction is not spatially equal");
+        check(!box.spatiallyEquals(shapeL), "the L shape is spatially equal to its bounding box");
+
+        System.out.println("CustomPolygonTest passed");
+    }
+
+
+    /**
+     * Checks the cached vertices, bounding box and area against the ones computed from the polygon.
+     */
+    private static void checkGeometry(CustomPolygon customPolygon, Polygon polygon) {
+        Rectangle bounds = polygon.getBounds();
+        check(customPolygon.getMBR().equals(new MBR(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height)),
+                "the cached bounding box " + customPolygon.getMBR() + " differs from " + bounds);
+        check(customPolygon.getArea() == bounds.width * bounds.height, "the cached area differs from the bounds");
+        check(customPolygon.polygon.npoints == polygon.npoints, "the wrapped polygon lost vertices");
+        for (int v = 0; v < polygon.npoints; v++)
+            check(customPolygon.polygon.xpoints[v] == polygon.xpoints[v] && customPolygon.polygon.ypoints[v] == polygon.ypoints[v],
+                    "vertex " + v + " moved");
+    }
+
+
+    /**
+     * Builds a polygon from its x and y coordinates, alternating.
+     */
+    static CustomPolygon polygon(int... coordinates) {
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < coordinates.length; i += 2)
+            polygon.addPoint(coordinates[i], coordinates[i + 1]);
+        return new CustomPolygon(polygon);
+    }
+
+
+    private static int serializedSize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.size();
+    }
+
+}
@@ -6,6 +6,12 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.List;
+
+import src.BPTree.BPTree;
+import src.RTree.RTree;
+import src.RTree.RTreeBulkLoader;
+import src.Ref.Ref;
 
 /**
  * DBApp class represents the main database application.
@@ -21,10 +27,22 @@ public class DBApp implements Serializable {
      * tables   ->    A Vector to hold the tables in the database
      * MaximumRowsCountInPage   ->  Maximum number of rows allowed per page
      * nodeSide ->  Size of nodes in the database structure
+     * pageFillFactor   ->  Fraction of MaximumRowsCountInPage a page split leaves in every page
+     * compactor    ->  Background compaction of pages holding deleted tuples and rebuilds of stale statistics, started on first use
+     * analyzeThreshold ->  Fraction of the rows of an analyzed table modified before its statistics are rebuilt
+     * slowQueryLog ->  Log of the statements slower than its threshold, null when slow statements are not logged
+     * resultCache  ->  Results of recent selects, answering repeated selects on unchanged tables, null when results are not cached
      */
     Vector<Table> tables = new Vector<>();
     private int MaximumRowsCountInPage;
     private int nodeSize;
+    private double pageFillFactor;
+    private double analyzeThreshold = 0.1;
+    private transient PageCompactor compactor;
+    private transient SlowQueryLog slowQueryLog;
+    private transient ResultCache resultCache;
+    private static final long COMPACTION_INTERVAL_MILLIS = 500;
+    private static final int COMPACTION_BATCH_PAGES = 16;
 
 
     /**
@@ -84,6 +102,81 @@ public class DBApp implements Serializable {
         this.nodeSize = nodeSize;
     }
 
+    /**
+     * Returns the fraction of the page capacity a page split leaves in every resulting page.
+     *
+     * @return the page fill factor
+     */
+    public double getPageFillFactor() {
+        return pageFillFactor;
+    }
+
+    /**
+     * Sets the fraction of the page capacity a page split leaves in every resulting page.
+     *
+     * @param pageFillFactor the new page fill factor, between 0 and 1
+     */
+    public void setPageFillFactor(double pageFillFactor) {
+        this.pageFillFactor = pageFillFactor;
+    }
+
+    /**
+     * Returns the fraction of the rows of an analyzed table that can change before its statistics are rebuilt.
+     *
+     * @return the analyze threshold
+     */
+    public double getAnalyzeThreshold() {
+        return analyzeThreshold;
+    }
+
+    /**
+     * Sets the fraction of the rows of an analyzed table that can change before its statistics are rebuilt.
+     *
+     * @param analyzeThreshold the new analyze threshold, 0 to rebuild statistics only through analyzeTable
+     */
+    public void setAnalyzeThreshold(double analyzeThreshold) {
+        this.analyzeThreshold = analyzeThreshold;
+    }
+
+    /**
+     * Returns the log of the slow statements.
+     *
+     * @return the slow query log, null when slow statements are not logged
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    /**
+     * Sets the log of the slow statements, closing the previous one.
+     *
+     * @param slowQueryLog the new slow query log, null to stop logging slow statements
+     */
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        SlowQueryLog previous = this.slowQueryLog;
+        this.slowQueryLog = slowQueryLog;
+        if (previous != null && previous != slowQueryLog)
+            previous.close();
+    }
+
+    /**
+     * Returns the cache of the results of recent selects.
+     *
+     * @return the result cache, null when results are not cached
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Sets the cache of the results of recent selects.
+     *
+     * @param resultCache the new result cache, null to stop caching results
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
 
     /**
      * Inserts a new entry into the metadata CSV file for a specified table.
@@ -164,6 +257,20 @@ public class DBApp implements Serializable {
             // Set maximum rows and node size from properties
             MaximumRowsCountInPage = Integer.parseInt(bal.getProperty("MaximumRowsCountInPage"));
             nodeSize = Integer.parseInt(bal.getProperty("NodeSize"));
+            pageFillFactor = Double.parseDouble(bal.getProperty("PageFillFactor", "0.5"));
+            analyzeThreshold = Double.parseDouble(bal.getProperty("AnalyzeThreshold", "0.1"));
+
+            // Log the statements slower than the threshold, a negative threshold logs nothing
+            double slowQueryThreshold = Double.parseDouble(bal.getProperty("SlowQueryThresholdMillis", "-1"));
+            if (slowQueryThreshold >= 0)
+                setSlowQueryLog(new SlowQueryLog(bal.getProperty("SlowQueryLogFile", "data/slow-query.log"), slowQueryThreshold,
+                        Long.parseLong(bal.getProperty("SlowQueryLogMaxBytes", "10485760")),
+                        Integer.parseInt(bal.getProperty("SlowQueryLogFiles", "5"))));
+
+            // Cache the results of repeated selects, no results are cached by default
+            int resultCacheEntries = Integer.parseInt(bal.getProperty("ResultCacheEntries", "0"));
+            if (resultCacheEntries > 0)
+                resultCache = new ResultCache(resultCacheEntries, Long.parseLong(bal.getProperty("ResultCacheRows", "100000")));
 
             // Create necessary directories and files
             File data = new File("data");
@@ -338,7 +445,8 @@ public class DBApp implements Serializable {
 
 
     /**
-     * Compares two polygons for equality based on their points.
+     * Compares two polygons for equality based on the region they cover,
+     * the same test a "=" condition on a polygon column applies.
      *
      * @param p1 the first polygon to compare
      * @param p2 the second polygon to compare
@@ -347,9 +455,7 @@ public class DBApp implements Serializable {
     public static boolean equalPolygons(final Polygon p1, final Polygon p2) {
         if (p1 == null) return (p2 == null);
         if (p2 == null) return false;
-        if (p1.npoints != p2.npoints) return false;
-        if (!Arrays.equals(p1.xpoints, p2.xpoints)) return false;
-        return Arrays.equals(p1.ypoints, p2.ypoints);
+        return new CustomPolygon(p1).spatiallyEquals(new CustomPolygon(p2));
     }
 
 
@@ -369,36 +475,82 @@ public class DBApp implements Serializable {
             String strClusteringKeyColumn,
             Hashtable<String, Object> htblColNameType)
             throws DBAppException, IOException {
+        createTable(strTableName, strClusteringKeyColumn, htblColNameType, false);
+    }
+
+
+    /**
+     * Creates a new table with the specified name and clustering key, choosing the format of its pages.
+     * The columns are registered in data/metadata.csv, so the table can be written to and queried right away.
+     * A columnar table writes its pages column by column, which suits analytical tables scanned on a few columns.
+     *
+     * @param strTableName the name of the table to create
+     * @param strClusteringKeyColumn the name of the clustering key column
+     * @param htblColNameType a Hashtable containing column names and their data types
+     * @param columnar true to write the pages of the table column by column
+     * @throws DBAppException if a data type is not supported, the clustering key is not a column, or the table exists
+     *
+     * @throws IOException if an error occurs during file operations
+     */
+    public void createTable(
+            String strTableName,
+            String strClusteringKeyColumn,
+            Hashtable<String, Object> htblColNameType,
+            boolean columnar)
+            throws DBAppException, IOException {
+
+        // Check that every column type is supported before creating anything
+        for (Object type : htblColNameType.values())
+            if (!(type.equals("java.lang.Integer") ||
+                    type.equals("java.lang.String") ||
+                    type.equals("java.lang.Double") ||
+                    type.equals("java.lang.Boolean") ||
+                    type.equals("java.util.Date") ||
+                    type.equals("java.awt.Polygon"))
+            ) throw (new DBAppException("Data type not supported"));
+
+        if (!htblColNameType.containsKey(strClusteringKeyColumn))
+            throw new DBAppException("Clustering key " + strClusteringKeyColumn + " is not a column of " + strTableName);
+        if (!getTableMetadata(strTableName).isEmpty())
+            throw new DBAppException("Table " + strTableName + " already exists");
 
         // Add default TouchDate column of type java.util.Date
         htblColNameType.put("TouchDate", "java.util.Date");
+        insertIntoTableMetadata(strTableName, strClusteringKeyColumn, htblColNameType);
 
         // Create a new Table object and initialize it
         Table t = new Table();
-        tables.add(t);
-        Page firstPage = new Page("");
         t.setTableName(strTableName);
         t.setClusteringKey(strClusteringKeyColumn);
-//        firstPage.hashtables.add(htblColNameType);
-
-        // Add the first page to the table
-        t.getPages().add(String.valueOf(firstPage));
-        firstPage.serialize(firstPage, "firstPage.ser");
+        t.setColumnar(columnar);
+        tables.add(t);
+    }
 
-        // Validate column types
-        Enumeration<String> e = htblColNameType.keys();
-        String in1 = (String) e.nextElement();
-        String in2 = (String) e.nextElement();
 
-        // Check if the column type is supported
-        if (
-                !in2.equals("java.lang.Integer") ||
-                        !in2.equals("java.lang.String") ||
-                        !in2.equals("java.lang.Double") ||
-                        !in2.equals("java.lang.Boolean") ||
-                        !in2.equals("java.util.Date") ||
-                        !in2.equals("java.awt.Polygon")
-        ) throw (new DBAppException("Data type not supported"));
+    /**
+     * Appends the columns of a new table to data/metadata.csv, the clustering key first and none of them indexed.
+     * The header of the file is written first if the file is still empty.
+     *
+     * @param strTableName the name of the table
+     * @param strClusteringKeyColumn the name of the clustering key column
+     * @param htblColNameType the column names and their data types
+     * @throws DBAppException if the metadata file cannot be written
+     */
+    private static void insertIntoTableMetadata(String strTableName, String strClusteringKeyColumn,
+                                                Hashtable<String, Object> htblColNameType) throws DBAppException {
+        File metadata = new File("data/metadata.csv");
+        try (FileWriter csvWriter = new FileWriter(metadata, true)) {
+            if (metadata.length() == 0)
+                csvWriter.append("TableName,ColumnName,ColumnType,ClusteringKey,Indexed\n");
+            csvWriter.append(strTableName).append(',').append(strClusteringKeyColumn).append(',')
+                    .append(htblColNameType.get(strClusteringKeyColumn).toString()).append(",True,False\n");
+            for (Map.Entry<String, Object> column : htblColNameType.entrySet())
+                if (!column.getKey().equals(strClusteringKeyColumn))
+                    csvWriter.append(strTableName).append(',').append(column.getKey()).append(',')
+                            .append(column.getValue().toString()).append(",False,False\n");
+        } catch (IOException e) {
+            throw new DBAppException("IO Exception writing the metadata");
+        }
     }
 
 
@@ -460,6 +612,211 @@ public class DBApp implements Serializable {
     }
 
 
+    /**
+     * Inserts a batch of rows into the specified table.
+     * The table metadata is read and resolved once for the whole batch, every row is validated against it,
+     * and the rows are then handed to the table to be placed page by page in clustering key order.
+     *
+     * @param strTableName the name of the table to insert into
+     * @param rows the rows to insert, each a Hashtable of column names and their corresponding values
+     *
+     * @throws DBAppException if the table does not exist, a column is unknown, or a value does not match its column type
+     */
+    public void insertIntoTable(
+            String strTableName,
+            List<Hashtable<String, Object>> rows)
+            throws DBAppException {
+
+        SlowQueryLog.Statement statement = beginStatement();
+        try {
+            insertTuples(strTableName, rows);
+            statement.log("insert", strTableName, () -> "rows=" + rows.size());
+        } finally {
+            statement.end();
+        }
+    }
+
+
+    /**
+     * Validates a batch of rows against the metadata of the table and inserts them.
+     *
+     * @param strTableName the name of the table to insert into
+     * @param rows the rows to insert
+     * @throws DBAppException if the table does not exist, a column is unknown, or a value does not match its column type
+     */
+    private void insertTuples(String strTableName, List<Hashtable<String, Object>> rows) throws DBAppException {
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+        int clusteringPosition = t.getPrimaryPosition();
+
+        // Resolve the columns once for the whole batch
+        Hashtable<String, Integer> columnPositions = new Hashtable<>();
+        for (int i = 0; i < metaOfTable.size(); i++)
+            columnPositions.put(metaOfTable.get(i)[1], i);
+
+        // All rows of a batch share the same touch date
+        Date touchDate = new Date();
+        Integer touchDatePosition = columnPositions.get("TouchDate");
+
+        RowSchema schema = t.rowSchema(metaOfTable);
+        ArrayList<Tuple> tuples = new ArrayList<>(rows.size());
+        for (Hashtable<String, Object> row : rows) {
+            Vector<Object> attributes = new Vector<>(metaOfTable.size() + 1);
+            attributes.setSize(metaOfTable.size());
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                Integer position = columnPositions.get(entry.getKey());
+                if (position == null)
+                    throw new DBAppException("Column " + entry.getKey() + " does not exist in " + strTableName);
+                Object value = entry.getValue();
+                if (value instanceof Polygon)
+                    value = new CustomPolygon((Polygon) value);
+                String type = metaOfTable.get(position)[2];
+                boolean matches = (value instanceof CustomPolygon) ? type.equals("java.awt.Polygon")
+                        : value.getClass().getName().equals(type);
+                if (!matches)
+                    throw new DBAppException("Classes don't match for column " + entry.getKey());
+                attributes.set(position, value);
+            }
+            if (attributes.get(clusteringPosition) == null)
+                throw new DBAppException("Clustering key value is missing");
+            if (touchDatePosition != null)
+                attributes.set(touchDatePosition, touchDate);
+            attributes.add(t.getLastId(true));
+            tuples.add(new Tuple(schema, attributes));
+        }
+
+        t.insertTuples(tuples, metaOfTable);
+        refreshStatistics(t, metaOfTable);
+    }
+
+
+    /**
+     * Builds the statistics of a table: its rows and, for every column, the null fraction, the distinct values,
+     * the bounds, the most common values and an equi-depth histogram of the others.
+     * A large table is sampled rather than read in full. The statistics are kept with the table, drive the
+     * estimates of explain, and are rebuilt on their own once the analyze threshold of the rows has changed.
+     *
+     * @param strTableName the name of the table
+     * @return the statistics of the table
+     *
+     * @throws DBAppException if the table does not exist or a page cannot be read
+     */
+    public TableStatistics analyzeTable(String strTableName) throws DBAppException {
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+        return t.analyze(metaOfTable);
+    }
+
+
+    /**
+     * Queues a rebuild of the statistics of an analyzed table once enough of its rows changed.
+     * The rebuild runs on the compactor thread, the write that crossed the threshold does not wait for it.
+     *
+     * @param t the table just modified
+     * @param metaOfTable the metadata of the table
+     */
+    private void refreshStatistics(Table t, Vector<String[]> metaOfTable) {
+        if (t.statisticsStale(analyzeThreshold))
+            getCompactor().analyzeLater(t, metaOfTable);
+    }
+
+
+    /**
+     * Starts timing a statement for the slow query log.
+     *
+     * @return the statement, untimed when slow statements are not logged
+     */
+    private SlowQueryLog.Statement beginStatement() {
+        SlowQueryLog log = slowQueryLog;
+        return (log != null) ? log.begin() : SlowQueryLog.Statement.UNTIMED;
+    }
+
+
+    /**
+     * Imports the rows of a CSV file into the specified table in bulk.
+     * Fields are converted using the column types in the metadata, rows are sorted by the clustering key
+     * with bounded memory, and an empty table gets its pages and indexes built in a single pass.
+     *
+     * @param strTableName the name of the table to import into
+     * @param path the CSV file to import
+     * @param options the settings of the import, such as the delimiter, date format and parallelism
+     * @return the number of rows imported
+     *
+     * @throws DBAppException if the table does not exist, the file cannot be read, or a field does not match its column type
+     */
+    public int importCsv(String strTableName, java.nio.file.Path path, CsvImportOptions options) throws DBAppException {
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+        int imported = new CsvImporter(t, metaOfTable, options).importFile(path);
+        refreshStatistics(t, metaOfTable);
+        return imported;
+    }
+
+
+    /**
+     * Finds a loaded table and prepares it for inserts: points its primary position at the clustering key
+     * and fills in the page capacity from the configuration when it is not set yet.
+     *
+     * @param strTableName the name of the table
+     * @param metaOfTable the metadata rows of the table
+     * @return the table
+     * @throws DBAppException if the table does not exist or has no clustering key
+     */
+    private Table resolveTable(String strTableName, Vector<String[]> metaOfTable) throws DBAppException {
+        Table t = findLoadedTable(strTableName);
+        if (t == null || metaOfTable.isEmpty())
+            throw new DBAppException("Table " + strTableName + " does not exist");
+
+        int clusteringPosition = -1;
+        for (int i = 0; i < metaOfTable.size(); i++)
+            if (metaOfTable.get(i)[3].equalsIgnoreCase("true"))
+                clusteringPosition = i;
+        if (clusteringPosition == -1)
+            throw new DBAppException("Table " + strTableName + " has no clustering key");
+        t.setPrimaryPosition(clusteringPosition);
+        if (t.getMaxRowsInPage() == 0)
+            t.setMaxRowsInPage(MaximumRowsCountInPage);
+        if (pageFillFactor > 0)
+            t.setFillFactor(pageFillFactor);
+        if (t.getClusteringKey() == null)
+            t.setClusteringKey(metaOfTable.get(clusteringPosition)[1]);
+        return t;
+    }
+
+
+    /**
+     * Finds a loaded table by its name, the last one loaded under the name winning.
+     *
+     * @param strTableName the name of the table
+     * @return the table, or null if no table of that name is loaded
+     */
+    private Table findLoadedTable(String strTableName) {
+        Table t = null;
+        for (Table table : tables)
+            if (table.getTableName().equals(strTableName))
+                t = table;
+        return t;
+    }
+
+
+    /**
+     * Reads the metadata rows of a single table.
+     *
+     * @param strTableName the name of the table
+     * @return a Vector with one String array per column: table name, column name, column type, clustering key, indexed
+     * @throws DBAppException if an error occurs while reading the metadata file
+     */
+    public static Vector<String[]> getTableMetadata(String strTableName) throws DBAppException {
+        Vector<String[]> metaOfTable = new Vector<>();
+        for (Object obj : readFile("data/metadata.csv")) {
+            String[] current = (String[]) obj;
+            if (current.length > 3 && current[0].equals(strTableName))
+                metaOfTable.add(current);
+        }
+        return metaOfTable;
+    }
+
+
     /**
      * Updates records in the specified table based on the provided clustering key.
      * The method validates the key's type and performs the update operation.
@@ -474,13 +831,34 @@ public class DBApp implements Serializable {
      * @throws IOException if an error occurs during file operations
      * @throws ParseException if there is an error parsing dates
      */
-    @SuppressWarnings("unchecked")
     public void updateTable(
             String strTableName,
             String strClusteringKey,
             Hashtable<String, Object> hashtableColumnNameValue)
             throws DBAppException, NumberFormatException, FileNotFoundException, IOException, ParseException {
 
+        SlowQueryLog.Statement statement = beginStatement();
+        try {
+            updateTuples(strTableName, strClusteringKey, hashtableColumnNameValue);
+            statement.log("update", strTableName, () -> "key=" + SlowQueryLog.quote(strClusteringKey)
+                    + " values=" + SlowQueryLog.quote(hashtableColumnNameValue));
+        } finally {
+            statement.end();
+        }
+    }
+
+
+    /**
+     * Parses the clustering key of an update against the type of the table's clustering key.
+     *
+     * @param strTableName the name of the table to update
+     * @param strClusteringKey the clustering key of the row to update
+     * @param hashtableColumnNameValue a Hashtable containing column names and their new values
+     * @throws DBAppException if the key type is unsupported
+     */
+    @SuppressWarnings("unchecked")
+    private void updateTuples(String strTableName, String strClusteringKey, Hashtable<String, Object> hashtableColumnNameValue)
+            throws DBAppException, IOException, ParseException {
         // Determine the type of the clustering key and parse it accordingly
         Object key;
         switch (getTypeOfKey(strTableName)) {
@@ -635,6 +1013,7 @@ public class DBApp implements Serializable {
     /**
      * Deletes records from the specified table based on provided criteria.
      * The method identifies records to delete using the provided Hashtable.
+     * Matching records are tombstoned and the call returns without waiting for their space and index entries to be reclaimed.
      *
      * @param strTableName the name of the table to delete from
      * @param hashtableColumnNameValue a Hashtable containing criteria for deletion
@@ -642,52 +1021,532 @@ public class DBApp implements Serializable {
      * @throws DBAppException if the table does not exist or other errors occur
      * @throws IOException if an error occurs during file operations
      */
-    @SuppressWarnings("unchecked")
     public void deleteFromTable(
             String strTableName,
             Hashtable<String, Object> hashtableColumnNameValue)
             throws DBAppException, IOException {
 
-		/*
-
-		table t = findTable(strTableName);
-		Vector x = new Vector();//pages
-		Hashtable zero = new Hashtable();
-		//deserialize
-		x.add(t.pages);
-
-		page p=new page();
-		for(int i = 0;i<x.size();i++) {
-			p = (page) x.elementAt(i);
-			p.deserialize(p, "Untitled.ser");
-			for(int j=0;j<p.hashtables.size();j++)
-				if(p.hashtables.elementAt(j).equals(hashtableColumnNameValue))
-					p.hashtables.remove(j);
-		}
-		p.serialize(p, "Untitled.ser");
-
-		 */
-        for (int i = 0; i < tables.size(); i++)
-            if (tables.elementAt(i).getTableName().equals(strTableName)) {
-                // DESERIALIZE
-
-//                tables.elementAt(i);
-//                tables.elementAt(i).setPages((Vector<Page>) Table.deserialize(tables.elementAt(i).getTableName()));
-//                for(int j = 0; j< tables.elementAt(i).getPages().size(); j++)
-//                    for(int k = 0; k< tables.elementAt(i).getPages().elementAt(j).hashtables.size(); k++){
-//                        Hashtable<String, Object> tempHash = tables.elementAt(i).getPages().elementAt(j).hashtables.elementAt(k);
-//                        String name1 = hashtableColumnNameValue.keys().nextElement();
-//                        Object val1 = hashtableColumnNameValue.get(name1);
-//                        String name2 = tempHash.keys().nextElement();
-//                        Object val2 = tempHash.get(val1);
-//                        if(name1.equals(name2) && val1.equals(val2))
-//                            tables.elementAt(i).getPages().elementAt(j).hashtables.remove(
-//                                    tables.elementAt(i).getPages().elementAt(j).hashtables.elementAt(k));
-//                    }
-
-                // SERIALIZE
-                tables.elementAt(i).serialize(tables.elementAt(i).getTableName());
+        SlowQueryLog.Statement statement = beginStatement();
+        try {
+            Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+            Table t = resolveTable(strTableName, metaOfTable);
+            // Tuples are only tombstoned here, the compactor reclaims their space and index entries in the background
+            ArrayList<String> touched = t.deleteTuples(hashtableColumnNameValue, metaOfTable);
+            getCompactor().enqueue(t, metaOfTable, touched);
+            refreshStatistics(t, metaOfTable);
+
+            // SERIALIZE
+            t.serialize(t.getTableName());
+            statement.log("delete", strTableName, () -> "conditions=" + SlowQueryLog.quote(hashtableColumnNameValue)
+                    + " pagesTouched=" + touched.size());
+        } finally {
+            statement.end();
+        }
+    }
+
+
+    /**
+     * Selects the records of a table matching a chain of conditions.
+     * Polygon columns also accept the spatial operators of SQLTerm, answered by the column's R-Tree when it has one.
+     *
+     * @param arrSQLTerms the conditions, all on the same table
+     * @param strarrOperators the logical operators "AND", "OR" or "XOR" between consecutive conditions
+     * @return an iterator over the matching tuples
+     *
+     * @throws DBAppException if the table, a column or an operator is invalid, or a page cannot be read
+     */
+    public Iterator<Tuple> selectFromTable(SQLTerm[] arrSQLTerms, String[] strarrOperators) throws DBAppException {
+        SlowQueryLog.Statement statement = beginStatement();
+        try {
+            String strTableName = checkSelect(arrSQLTerms, strarrOperators);
+            Table loaded = findLoadedTable(strTableName);
+            List<Tuple> result = cachedSelect(loaded, () -> ResultCache.key(arrSQLTerms, strarrOperators), () -> {
+                Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+                Table t = resolveTable(strTableName, metaOfTable);
+                return t.selectTuples(arrSQLTerms, strarrOperators, metaOfTable);
+            });
+            statement.log("select", strTableName, () -> "conditions="
+                    + SlowQueryLog.quote(Table.describeConditions(arrSQLTerms, strarrOperators))
+                    + " accessPaths=" + SlowQueryLog.quote(loaded.describeAccessPaths(arrSQLTerms)) + " rows=" + result.size());
+            return result.iterator();
+        } finally {
+            statement.end();
+        }
+    }
+
+
+    /**
+     * Selects the first records matching a chain of conditions in the order of a column, as ORDER BY ... LIMIT does.
+     * Ordered by the clustering key, or ascending by a column with a B+ Tree, the table is read in order and
+     * the read stops once enough records matched; in any other order a heap keeps the first records of the matches.
+     *
+     * @param arrSQLTerms the conditions, all on the same table
+     * @param strarrOperators the logical operators "AND", "OR" or "XOR" between consecutive conditions
+     * @param strOrderColumn the column the records are ordered by, null for the clustering key
+     * @param ascending true for the smallest values first, false for the largest first
+     * @param limit the largest number of records returned
+     * @return an iterator over at most limit matching tuples, in order
+     *
+     * @throws DBAppException if the table, a column or an operator is invalid, the limit is negative, or a page cannot be read
+     */
+    public Iterator<Tuple> selectFromTable(SQLTerm[] arrSQLTerms, String[] strarrOperators,
+                                           String strOrderColumn, boolean ascending, int limit) throws DBAppException {
+        String strTableName = checkSelect(arrSQLTerms, strarrOperators);
+        return selectTop(strTableName, arrSQLTerms, strarrOperators, strOrderColumn, ascending, limit);
+    }
+
+
+    /**
+     * Selects the first records of a table in the order of a column, such as its latest records by clustering key.
+     *
+     * @param strTableName the name of the table
+     * @param strOrderColumn the column the records are ordered by, null for the clustering key
+     * @param ascending true for the smallest values first, false for the largest first
+     * @param limit the largest number of records returned
+     * @return an iterator over at most limit tuples, in order
+     *
+     * @throws DBAppException if the table or the column does not exist, the limit is negative, or a page cannot be read
+     */
+    public Iterator<Tuple> selectFromTable(String strTableName, String strOrderColumn, boolean ascending, int limit) throws DBAppException {
+        return selectTop(strTableName, new SQLTerm[0], new String[0], strOrderColumn, ascending, limit);
+    }
+
+
+    /**
+     * Runs an ordered and limited select through the result cache and the slow query log.
+     */
+    private Iterator<Tuple> selectTop(String strTableName, SQLTerm[] arrSQLTerms, String[] strarrOperators,
+                                      String strOrderColumn, boolean ascending, int limit) throws DBAppException {
+        SlowQueryLog.Statement statement = beginStatement();
+        try {
+            Table loaded = findLoadedTable(strTableName);
+            String order = ((strOrderColumn == null) ? "" : strOrderColumn + " ") + (ascending ? "ASC" : "DESC") + " LIMIT " + limit;
+            List<Tuple> result = cachedSelect(loaded, () -> ResultCache.key(strTableName, arrSQLTerms, strarrOperators, order), () -> {
+                Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+                Table t = resolveTable(strTableName, metaOfTable);
+                return t.selectTop(arrSQLTerms, strarrOperators, metaOfTable, strOrderColumn, ascending, limit);
+            });
+            statement.log("select", strTableName, () -> "conditions="
+                    + SlowQueryLog.quote(Table.describeConditions(arrSQLTerms, strarrOperators))
+                    + " order=" + SlowQueryLog.quote(order) + " rows=" + result.size());
+            return result.iterator();
+        } finally {
+            statement.end();
+        }
+    }
+
+
+    /**
+     * Prepares a select to be run many times with new values: the table, the columns, the operators and the access
+     * paths of its conditions are resolved once, and every run only binds its values and reads the table.
+     *
+     * @param arrSQLTerms the conditions, all on the same table, their values being ignored
+     * @param strarrOperators the logical operators "AND", "OR" or "XOR" between consecutive conditions
+     * @return the prepared select, run with PreparedSelect.execute
+     *
+     * @throws DBAppException if the table, a column or an operator is invalid
+     */
+    public PreparedSelect prepareSelect(SQLTerm[] arrSQLTerms, String[] strarrOperators) throws DBAppException {
+        String strTableName = checkSelect(arrSQLTerms, strarrOperators);
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+        return new PreparedSelect(this, t, arrSQLTerms, strarrOperators, metaOfTable);
+    }
+
+
+    /**
+     * Runs a prepared select with its bound values, through the result cache and the slow query log as selectFromTable does.
+     *
+     * @param select the prepared select
+     * @param values the value of every condition, checked against the types of their columns
+     * @return an iterator over the matching tuples
+     * @throws DBAppException if a page cannot be read
+     */
+    Iterator<Tuple> executePrepared(PreparedSelect select, Object[] values) throws DBAppException {
+        SlowQueryLog.Statement statement = beginStatement();
+        try {
+            Table t = select.getTable();
+            List<Tuple> result = cachedSelect(t, () -> ResultCache.key(select.terms(values), select.getLogicalOperators()),
+                    () -> t.selectPrepared(select, values));
+            statement.log("select", t.getTableName(), () -> "prepared=" + SlowQueryLog.quote(select)
+                    + " values=" + SlowQueryLog.quote(Arrays.toString(values)) + " rows=" + result.size());
+            return result.iterator();
+        } finally {
+            statement.end();
+        }
+    }
+
+
+    /**
+     * A select run when the result cache cannot answer it.
+     */
+    private interface SelectRun {
+        ArrayList<Tuple> run() throws DBAppException;
+    }
+
+
+    /**
+     * Answers a repeated select on an unchanged table from the result cache, without reading the metadata or a page,
+     * and otherwise runs it, caching its result.
+     *
+     * @param t the loaded table the select reads, null if there is none
+     * @param key builds the key of the select, only called when results are cached
+     * @param select runs the select
+     * @return the result, read only when it is cached and shared with other selects
+     * @throws DBAppException if the select fails
+     */
+    private List<Tuple> cachedSelect(Table t, java.util.function.Supplier<ResultCache.Key> key, SelectRun select) throws DBAppException {
+        ResultCache cache = resultCache;
+        if (cache == null || t == null)
+            return select.run();
+        ResultCache.Key selectKey = key.get();
+        long version = t.getVersion();
+        ArrayList<Tuple> result = cache.get(t, selectKey);
+        if (result == null) {
+            result = select.run();
+            cache.put(t, version, selectKey, result);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+
+    /**
+     * Explains how a select would be answered without running it: the access path of every condition,
+     * the set operations combining their results, and the rows every step is expected to return.
+     *
+     * @param arrSQLTerms the conditions, all on the same table
+     * @param strarrOperators the logical operators "AND", "OR" or "XOR" between consecutive conditions
+     * @return the plan of the select, printed as a tree by its toString
+     *
+     * @throws DBAppException if the table, a column or an operator is invalid
+     */
+    public QueryPlan explain(SQLTerm[] arrSQLTerms, String[] strarrOperators) throws DBAppException {
+        return explain(arrSQLTerms, strarrOperators, false);
+    }
+
+
+    /**
+     * Runs a select and explains it: its plan, and for every step the rows it returned, the pages and index nodes
+     * it read, the page key cache hits and the time it took.
+     *
+     * @param arrSQLTerms the conditions, all on the same table
+     * @param strarrOperators the logical operators "AND", "OR" or "XOR" between consecutive conditions
+     * @return the plan of the select with the measured cost of every step
+     *
+     * @throws DBAppException if the table, a column or an operator is invalid, or a page cannot be read
+     */
+    public QueryPlan explainAnalyze(SQLTerm[] arrSQLTerms, String[] strarrOperators) throws DBAppException {
+        return explain(arrSQLTerms, strarrOperators, true);
+    }
+
+
+    /**
+     * Plans a select on its table, running it too when analyze is true.
+     */
+    private QueryPlan explain(SQLTerm[] arrSQLTerms, String[] strarrOperators, boolean analyze) throws DBAppException {
+        String strTableName = checkSelect(arrSQLTerms, strarrOperators);
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+        return t.explain(arrSQLTerms, strarrOperators, metaOfTable, analyze);
+    }
+
+
+    /**
+     * Checks the shape of a select: at least one condition, one operator between consecutive conditions,
+     * and every condition on the same table.
+     *
+     * @param arrSQLTerms the conditions
+     * @param strarrOperators the logical operators between them
+     * @return the name of the table of the conditions
+     * @throws DBAppException if the select is malformed
+     */
+    private static String checkSelect(SQLTerm[] arrSQLTerms, String[] strarrOperators) throws DBAppException {
+        if (arrSQLTerms == null || arrSQLTerms.length == 0)
+            throw new DBAppException("At least one condition is needed");
+        if (strarrOperators == null || strarrOperators.length != arrSQLTerms.length - 1)
+            throw new DBAppException("Expected " + (arrSQLTerms.length - 1) + " operators between the conditions");
+
+        String strTableName = arrSQLTerms[0].getStrTableName();
+        for (SQLTerm term : arrSQLTerms)
+            if (!term.getStrTableName().equals(strTableName))
+                throw new DBAppException("All the conditions must be on the same table");
+        return strTableName;
+    }
+
+
+    /**
+     * Selects the k tuples whose polygon in the given column is nearest to a polygon, closest first.
+     * An R-Tree on the column is searched best-first and its candidates are refined with the exact polygon distance,
+     * a column without one is scanned.
+     *
+     * @param strTableName the name of the table
+     * @param strColName the name of the polygon column
+     * @param polygon the polygon to measure the distances to
+     * @param k the number of tuples wanted
+     * @return an iterator over at most k tuples, nearest first
+     *
+     * @throws DBAppException if the column is not a polygon column, k is negative, or the table cannot be read
+     */
+    public Iterator<Tuple> selectNearest(String strTableName, String strColName, Polygon polygon, int k) throws DBAppException {
+        if (polygon == null)
+            throw new DBAppException("A nearest neighbour search needs a polygon or a point");
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+        return t.selectNearest(strColName, new CustomPolygon(polygon), k, metaOfTable).iterator();
+    }
+
+
+    /**
+     * Selects the k tuples whose polygon in the given column is nearest to a point, closest first.
+     *
+     * @param strTableName the name of the table
+     * @param strColName the name of the polygon column
+     * @param point the point to measure the distances to
+     * @param k the number of tuples wanted
+     * @return an iterator over at most k tuples, nearest first
+     *
+     * @throws DBAppException if the column is not a polygon column, k is negative, or the table cannot be read
+     */
+    public Iterator<Tuple> selectNearest(String strTableName, String strColName, Point point, int k) throws DBAppException {
+        if (point == null)
+            throw new DBAppException("A nearest neighbour search needs a polygon or a point");
+        return selectNearest(strTableName, strColName, new Polygon(new int[]{point.x}, new int[]{point.y}, 1), k);
+    }
+
+
+    /**
+     * Creates an R-Tree index on a polygon column, packed with Sort-Tile-Recursive from the tuples already in the table,
+     * and marks the column as indexed in the metadata.
+     *
+     * @param strTableName the name of the table
+     * @param strColName the name of the polygon column to index
+     *
+     * @throws DBAppException if the column is not a polygon column, is already indexed, or the table cannot be read
+     */
+    public void createRTreeIndex(String strTableName, String strColName) throws DBAppException {
+        createRTreeIndex(strTableName, strColName, RTreeBulkLoader.Packing.STR);
+    }
+
+
+    /**
+     * Creates an R-Tree index on a polygon column and marks the column as indexed in the metadata.
+     * The table is scanned once and the tree is bulk loaded bottom-up from the collected polygons in the given packing order.
+     *
+     * @param strTableName the name of the table
+     * @param strColName the name of the polygon column to index
+     * @param packing the order the polygons are packed in, Sort-Tile-Recursive or Hilbert curve
+     *
+     * @throws DBAppException if the column is not a polygon column, is already indexed, or the table cannot be read
+     */
+    public void createRTreeIndex(String strTableName, String strColName, RTreeBulkLoader.Packing packing) throws DBAppException {
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+
+        int position = -1;
+        for (int i = 0; i < metaOfTable.size(); i++)
+            if (metaOfTable.get(i)[1].equals(strColName))
+                position = i;
+        if (position == -1)
+            throw new DBAppException("Column " + strColName + " does not exist in " + strTableName);
+        if (!metaOfTable.get(position)[2].equals("java.awt.Polygon"))
+            throw new DBAppException("An R-Tree index needs a java.awt.Polygon column");
+        if (t.getTreeIndexColumnName().containsKey(strColName))
+            throw new DBAppException("Column " + strColName + " is already indexed");
+        if (nodeSize <= 0)
+            throw new DBAppException("NodeSize is not configured");
+
+        t.getLock().writeLock().lock();
+        try {
+            ArrayList<CustomPolygon> keys = new ArrayList<>();
+            ArrayList<Ref> refs = new ArrayList<>();
+            for (String pageName : t.getPages())
+                for (Tuple tuple : Table.deserialize(pageName).getLiveTuples()) {
+                    Object key = tuple.get(position);
+                    if (key == null)
+                        continue;
+                    keys.add((CustomPolygon) key);
+                    refs.add(new Ref(pageName));
+                }
+
+            RTree rTree = new RTree(nodeSize);
+            rTree.bulkLoad(keys, refs, packing);
+            t.getTreeIndexColumnName().put(strColName, rTree);
+        } finally {
+            t.getLock().writeLock().unlock();
+        }
+        setIndexedInMetadata(strTableName, strColName);
+
+        // SERIALIZE
+        t.serialize(t.getTableName());
+    }
+
+
+    /**
+     * Dictionary encodes a low cardinality String column of a table.
+     * Every tuple already in the table is laid out again with the value of the column packed as its int code in an
+     * order preserving dictionary, and a B+ Tree index on the column is rebuilt with codes as keys.
+     * From then on equality and range conditions on the column compare codes instead of Strings.
+     *
+     * @param strTableName the name of the table
+     * @param strColName the name of the String column to encode
+     *
+     * @throws DBAppException if the column is not a String column, is the clustering key, is already encoded,
+     * or the table cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public void encodeColumn(String strTableName, String strColName) throws DBAppException {
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+
+        int position = -1;
+        for (int i = 0; i < metaOfTable.size(); i++)
+            if (metaOfTable.get(i)[1].equals(strColName))
+                position = i;
+        if (position == -1)
+            throw new DBAppException("Column " + strColName + " does not exist in " + strTableName);
+        if (!metaOfTable.get(position)[2].equals("java.lang.String"))
+            throw new DBAppException("Dictionary encoding needs a java.lang.String column");
+        if (metaOfTable.get(position)[3].equals("True"))
+            throw new DBAppException("The clustering key cannot be dictionary encoded");
+        if (t.getDictionaries().containsKey(strColName))
+            throw new DBAppException("Column " + strColName + " is already dictionary encoded");
+
+        t.getLock().writeLock().lock();
+        try {
+            t.getDictionaries().put(strColName, StringDictionary.of(strTableName, strColName));
+            RowSchema schema = t.rowSchema(metaOfTable);
+            ArrayList<Object[]> entries = new ArrayList<>();
+            for (String pageName : t.getPages()) {
+                Page page = Table.deserialize(pageName);
+                Vector<Tuple> tuples = page.getTuples();
+                for (int i = 0; i < tuples.size(); i++) {
+                    Tuple tuple = new Tuple(schema, tuples.get(i).getAttributes());
+                    tuples.set(i, tuple);
+                    if (!page.isDeleted(i) && !tuple.isNull(position))
+                        entries.add(new Object[]{tuple.getKey(position), new Ref(pageName)});
+                }
+                Table.serializePage(page);
             }
+
+            // The keys of an index on the column were Strings, the index is loaded again with codes
+            TreeIndex index = t.getTreeIndexColumnName().get(strColName);
+            if (index instanceof BPTree) {
+                entries.sort((first, second) -> ((DictionaryCode) first[0]).compareTo((DictionaryCode) second[0]));
+                ArrayList<DictionaryCode> keys = new ArrayList<>(entries.size());
+                ArrayList<Ref> refs = new ArrayList<>(entries.size());
+                for (Object[] entry : entries) {
+                    keys.add((DictionaryCode) entry[0]);
+                    refs.add((Ref) entry[1]);
+                }
+                BPTree<DictionaryCode> bpTree = new BPTree<>(((BPTree) index).getOrder());
+                bpTree.insertBatch(keys, refs);
+                t.getTreeIndexColumnName().put(strColName, bpTree);
+            }
+        } finally {
+            t.getLock().writeLock().unlock();
+        }
+
+        // SERIALIZE
+        t.serialize(t.getTableName());
+    }
+
+
+    /**
+     * Sets how the pages of a table are compressed and rewrites the pages already in the table with it.
+     * Row pages are compressed whole by the BlockCodec, the column blocks of a columnar page one by one,
+     * integer and date blocks being bit packed by FrameOfReference under FRAME_OF_REFERENCE.
+     * The compression ratio and the time spent by every codec are counted in PageCompression.getStats().
+     *
+     * @param strTableName the name of the table
+     * @param compression the compression of the pages
+     *
+     * @throws DBAppException if the table does not exist or a page cannot be read or written
+     */
+    public void setPageCompression(String strTableName, PageCompression compression) throws DBAppException {
+        Vector<String[]> metaOfTable = getTableMetadata(strTableName);
+        Table t = resolveTable(strTableName, metaOfTable);
+
+        t.getLock().writeLock().lock();
+        try {
+            t.setCompression(compression);
+            for (String pageName : t.getPages()) {
+                Page page = Table.deserialize(pageName);
+                if (page.getCompression() == compression)
+                    continue;
+                page.setCompression(compression);
+                Table.serializePage(page);
+            }
+        } finally {
+            t.getLock().writeLock().unlock();
+        }
+
+        // SERIALIZE
+        t.serialize(t.getTableName());
+    }
+
+
+    /**
+     * Marks a column as indexed in the metadata file.
+     *
+     * @param strTableName the name of the table
+     * @param strColName the name of the indexed column
+     * @throws DBAppException if the metadata file cannot be read or written
+     */
+    private static void setIndexedInMetadata(String strTableName, String strColName) throws DBAppException {
+        Vector rows = readFile("data/metadata.csv");
+        try (FileWriter csvWriter = new FileWriter("data/metadata.csv")) {
+            for (Object obj : rows) {
+                String[] current = (String[]) obj;
+                if (current.length > 4 && current[0].equals(strTableName) && current[1].equals(strColName))
+                    current[4] = "True";
+                csvWriter.append(String.join(",", current)).append("\n");
+            }
+        } catch (IOException e) {
+            throw new DBAppException("IO Exception writing the metadata");
+        }
+    }
+
+
+    /**
+     * Returns the compactor reclaiming the space of deleted tuples, starting it on first use.
+     *
+     * @return the page compactor of the database
+     */
+    public synchronized PageCompactor getCompactor() {
+        if (compactor == null)
+            compactor = new PageCompactor(COMPACTION_INTERVAL_MILLIS, COMPACTION_BATCH_PAGES);
+        return compactor;
+    }
+
+
+    /**
+     * Closes the database: compacts the pages still queued, writes the page list of every loaded table
+     * and stops the background threads. The database can be used again afterwards, the compactor restarting on first use.
+     *
+     * @throws DBAppException if queued pages could not be compacted, the tables being written in any case
+     */
+    public void close() throws DBAppException {
+        PageCompactor stopped;
+        synchronized (this) {
+            stopped = compactor;
+            compactor = null;
+        }
+        try {
+            if (stopped != null) {
+                stopped.shutdown();
+                stopped.drain();
+            }
+        } finally {
+            for (Table t : tables) {
+                t.getLock().readLock().lock();
+                try {
+                    t.serialize(t.getTableName());
+                } finally {
+                    t.getLock().readLock().unlock();
+                }
+            }
+            setSlowQueryLog(null);
+        }
     }
 
 
@@ -247,6 +247,61 @@ public class DBAppTest implements Serializable {
     }
 
 
+    /**
+     * Builds the metadata rows of a test table, none of the columns indexed.
+     *
+     * @param tableName the name of the table
+     * @param clusteringKey the name of the clustering key column
+     * @param columns the column names and their types, in pairs
+     * @return the metadata rows, one per column
+     */
+    public static Vector<String[]> metadata(String tableName, String clusteringKey, String... columns) {
+        Vector<String[]> meta = new Vector<>();
+        for (int i = 0; i < columns.length; i += 2)
+            meta.add(new String[]{tableName, columns[i], columns[i + 1],
+                    columns[i].equals(clusteringKey) ? "True" : "False", "False"});
+        return meta;
+    }
+
+
+    /**
+     * Starts a test on an empty working directory: the pages and nodes of earlier runs are removed,
+     * the counter of node names is reset and the metadata file holds only the given tables.
+     *
+     * @param tables the metadata rows of the tables to register
+     * @throws IOException if the files cannot be written
+     */
+    @SafeVarargs
+    public static void prepare(Vector<String[]>... tables) throws IOException {
+        File[] files = new File(".").listFiles((dir, name) -> name.startsWith("data: "));
+        if (files != null)
+            for (File file : files)
+                file.delete();
+        new File("data").mkdir();
+        try (FileWriter writer = new FileWriter("data/metaBPtree.csv")) {
+            writer.write("0");
+        }
+        try (FileWriter writer = new FileWriter("data/metadata.csv")) {
+            writer.write("TableName,ColumnName,ColumnType,ClusteringKey,Indexed\n");
+            for (Vector<String[]> table : tables)
+                for (String[] column : table)
+                    writer.write(String.join(",", column) + "\n");
+        }
+    }
+
+
+    /**
+     * Fails a test with the given message if the condition does not hold.
+     *
+     * @param condition the expected behaviour
+     * @param message the description of the failure
+     */
+    public static void check(boolean condition, String message) {
+        if (!condition)
+            throw new IllegalStateException(message);
+    }
+
+
     /**
      * Main method for testing the DBAppTest class.
      * Dummy entries are instantiated here for testing purposes.
@@ -0,0 +1,129 @@
+package src.DBGeneralEngine;
+
+import java.io.Serializable;
+
+
+/**
+ * DictionaryCode is the index key of a dictionary encoded String column.
+ * It holds the int code of the value instead of the value, and compares by the rank of the code in its dictionary,
+ * so index keys sort exactly like the Strings they stand for.
+ * A key built for a value missing from the dictionary has no code and sorts between the values around it.
+ */
+public final class DictionaryCode implements Comparable<DictionaryCode>, Serializable {
+
+    /**
+     * Attributes
+     * <p>
+     * dictionary   ->  The dictionary the code belongs to.
+     * code         ->  The code of the value, or -1 for a value missing from the dictionary.
+     * probe        ->  The position of a missing value in the order of the dictionary, unused when there is a code.
+     */
+    private final StringDictionary dictionary;
+    private final int code;
+    private final int probe;
+
+
+    /**
+     * Constructor
+     *
+     * @param dictionary the dictionary the code belongs to
+     * @param code the code of a stored value
+     */
+    public DictionaryCode(StringDictionary dictionary, int code) {
+        this(dictionary, code, 0);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param dictionary the dictionary the code belongs to
+     * @param code the code of the value, or -1 if the value is missing from the dictionary
+     * @param probe the position of the value in the order of the dictionary, as given by probe
+     */
+    DictionaryCode(StringDictionary dictionary, int code, int probe) {
+        this.dictionary = dictionary;
+        this.code = code;
+        this.probe = probe;
+    }
+
+
+    /**
+     * Getters
+     */
+    public int getCode() {
+        return code;
+    }
+
+    public String getValue() {
+        return (code == -1) ? null : dictionary.decode(code);
+    }
+
+
+    /**
+     * Gets the position of the key in the order of the dictionary.
+     * The position of a stored code is read from the dictionary every time since new values shift the ranks.
+     *
+     * @return the doubled rank of the code, or the odd position of a missing value
+     */
+    public int order() {
+        return (code == -1) ? probe : dictionary.order(code);
+    }
+
+
+    /**
+     * Compares a stored value of the column with this key.
+     *
+     * @param value a non null value of the column
+     * @return a negative integer, zero, or a positive integer as the value sorts before, with, or after this key
+     */
+    public int compareValue(String value) {
+        return Integer.compare(dictionary.probe(value), order());
+    }
+
+
+    /**
+     * Compares two keys of the same dictionary by rank.
+     *
+     * @param other the key to compare with
+     * @return a negative integer, zero, or a positive integer as this key sorts before, with, or after the other
+     */
+    @Override
+    public int compareTo(DictionaryCode other) {
+        return Integer.compare(order(), other.order());
+    }
+
+
+    /**
+     * Checks if another object is the key of the same value.
+     *
+     * @param obj the object to compare with
+     * @return true if both keys hold the same code, or stand for the same missing position
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof DictionaryCode other && other.code == code && (code != -1 || other.probe == probe);
+    }
+
+
+    /**
+     * Hashes the key by its code, which unlike the rank never changes.
+     *
+     * @return the hash of the key
+     */
+    @Override
+    public int hashCode() {
+        return (code == -1) ? ~probe : code;
+    }
+
+
+    /**
+     * Provides the value the key stands for.
+     *
+     * @return the decoded value, or a placeholder for a missing value
+     */
+    public String toString() {
+        return (code == -1) ? "<missing>" : getValue();
+    }
+
+}
@@ -0,0 +1,251 @@
+package src.DBGeneralEngine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.File;
+
+
+/**
+ * EngineEvents holds the Java Flight Recorder events of the engine, so a recording shows where the time of a select
+ * goes: the conditions and access paths of the select, the pages it fetched and the index nodes it walked through,
+ * and the pages and nodes written back to disk.
+ * <p>
+ * An event is created and begun before the work it times and emitted once the work is done:
+ * <pre>
+ *     EngineEvents.PageFetch event = new EngineEvents.PageFetch();
+ *     event.begin();
+ *     ...
+ *     event.emit(name, "row", fileName, page.size());
+ * </pre>
+ * While no recording enables an event, emit returns after one check and the event is never filled in,
+ * so no file is measured and no string is built.
+ * The events are enabled in a recording by their names, such as src.DBGeneralEngine.PageFetch, or all at once
+ * through the Database Engine category of JDK Mission Control.
+ */
+public final class EngineEvents {
+
+    /**
+     * Constructor
+     * The events are nested classes, EngineEvents itself holds nothing.
+     */
+    private EngineEvents() {
+    }
+
+
+    /**
+     * A select on a table, from its first condition to its combined result.
+     */
+    @Name("src.DBGeneralEngine.Select")
+    @Label("Select")
+    @Category({"Database Engine", "Query"})
+    @Description("A select on a table, its conditions and the access path of every condition")
+    public static final class Select extends Event {
+
+        @Label("Table")
+        String table;
+
+        @Label("Conditions")
+        String conditions;
+
+        @Label("Access Paths")
+        String accessPaths;
+
+        @Label("Rows")
+        int rows;
+
+        /**
+         * Fills in and commits the event if a recording wants it.
+         *
+         * @param table the name of the table
+         * @param conditions the conditions and their operators, as written
+         * @param accessPaths the access path of every condition, in order
+         * @param rows the rows the select returned
+         */
+        public void emit(String table, String conditions, String accessPaths, int rows) {
+            if (!shouldCommit())
+                return;
+            this.table = table;
+            this.conditions = conditions;
+            this.accessPaths = accessPaths;
+            this.rows = rows;
+            commit();
+        }
+    }
+
+
+    /**
+     * A single condition of a select, answered by one access path.
+     */
+    @Name("src.DBGeneralEngine.Condition")
+    @Label("Condition")
+    @Category({"Database Engine", "Query"})
+    @Description("A single condition of a select and the access path that answered it")
+    @StackTrace(false)
+    public static final class Condition extends Event {
+
+        @Label("Table")
+        String table;
+
+        @Label("Column")
+        String column;
+
+        @Label("Operator")
+        String operator;
+
+        @Label("Access Path")
+        String accessPath;
+
+        @Label("Rows")
+        int rows;
+
+        /**
+         * Fills in and commits the event if a recording wants it.
+         *
+         * @param table the name of the table
+         * @param column the column of the condition
+         * @param operator the operator of the condition
+         * @param accessPath the access path that answered it
+         * @param rows the rows it returned
+         */
+        public void emit(String table, String column, String operator, AccessPath accessPath, int rows) {
+            if (!shouldCommit())
+                return;
+            this.table = table;
+            this.column = column;
+            this.operator = operator;
+            this.accessPath = accessPath.name();
+            this.rows = rows;
+            commit();
+        }
+    }
+
+
+    /**
+     * The read of a page or an overflow page from its file.
+     * The engine keeps no pages in memory between operations, every fetch reads its file.
+     */
+    @Name("src.DBGeneralEngine.PageFetch")
+    @Label("Page Fetch")
+    @Category({"Database Engine", "Storage"})
+    @Description("The read of a page from its file")
+    @StackTrace(false)
+    public static final class PageFetch extends Event {
+
+        @Label("Page")
+        String page;
+
+        @Label("Format")
+        @Description("row, compressed, columnar or overflow")
+        String format;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Rows")
+        @Description("The tuples of a page, the references of an overflow page")
+        int rows;
+
+        /**
+         * Fills in and commits the event if a recording wants it.
+         *
+         * @param page the name of the page
+         * @param format how the page is stored
+         * @param fileName the file the page was read from
+         * @param rows the rows the page holds
+         */
+        public void emit(String page, String format, String fileName, int rows) {
+            if (!shouldCommit())
+                return;
+            this.page = page;
+            this.format = format;
+            this.bytes = new File(fileName).length();
+            this.rows = rows;
+            commit();
+        }
+    }
+
+
+    /**
+     * The read of a B+ Tree or R-Tree node while an index is walked.
+     */
+    @Name("src.DBGeneralEngine.IndexNodeRead")
+    @Label("Index Node Read")
+    @Category({"Database Engine", "Storage"})
+    @Description("The read of an index node from its file while the index is walked")
+    @StackTrace(false)
+    public static final class IndexNodeRead extends Event {
+
+        @Label("Index")
+        @Description("B+ Tree or R-Tree")
+        String index;
+
+        @Label("Node")
+        String node;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        /**
+         * Fills in and commits the event if a recording wants it.
+         *
+         * @param index the kind of the index
+         * @param node the name of the node
+         * @param fileName the file the node was read from
+         */
+        public void emit(String index, String node, String fileName) {
+            if (!shouldCommit())
+                return;
+            this.index = index;
+            this.node = node;
+            this.bytes = new File(fileName).length();
+            commit();
+        }
+    }
+
+
+    /**
+     * The write of a page, an overflow page or an index node back to its file.
+     * The engine has no write-ahead log, these writes are where its changes reach the disk.
+     */
+    @Name("src.DBGeneralEngine.Flush")
+    @Label("Flush")
+    @Category({"Database Engine", "Storage"})
+    @Description("The write of a page or an index node back to its file")
+    public static final class Flush extends Event {
+
+        @Label("File")
+        String file;
+
+        @Label("Kind")
+        @Description("page, overflow page, B+ Tree node or R-Tree node")
+        String kind;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        /**
+         * Fills in and commits the event if a recording wants it.
+         *
+         * @param kind what was written
+         * @param fileName the file it was written to
+         */
+        public void emit(String kind, String fileName) {
+            if (!shouldCommit())
+                return;
+            this.file = fileName;
+            this.kind = kind;
+            this.bytes = new File(fileName).length();
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package src.DBGeneralEngine;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import src.BPTree.BPTree;
+import src.Ref.Ref;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the flight recorder events of the engine.
+ * A recording taken around a scan, an index lookup and an insert must hold one select event per select with its
+ * conditions, access paths and rows, one condition event per condition, one fetch event per page read with the format
+ * and the bytes of its file, the index nodes the lookup read, and the pages the insert wrote back.
+ */
+public class EngineEventsTest {
+
+    private static final String[] KINDS = {"Select", "Condition", "PageFetch", "IndexNodeRead", "Flush"};
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBApp dbApp = TableTest.table("Recorded", 200);
+        Table table = dbApp.getTables().get(0);
+        Hashtable<String, Long> pageBytes = new Hashtable<>();
+        for (String pageName : table.getPages())
+            pageBytes.put(pageName, new File("data: " + pageName + ".class").length());
+        BPTree<String> names = new BPTree<>(5);
+        for (String pageName : table.getPages())
+            for (Tuple tuple : Table.deserialize(pageName).getLiveTuples())
+                names.insert((String) tuple.get(1), new Ref(pageName));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String kind : KINDS)
+                recording.enable("src.DBGeneralEngine." + kind).withThreshold(Duration.ZERO);
+            recording.start();
+            check(select(dbApp, "name", "=", "n17") == 1, "the scan did not find n17");
+            table.getTreeIndexColumnName().put("name", names);
+            check(select(dbApp, "name", "=", "n150") == 1, "the index lookup did not find n150");
+            ArrayList<Hashtable<String, Object>> rows = new ArrayList<>();
+            rows.add(TableTest.row(1000));
+            dbApp.insertIntoTable("Recorded", rows);
+            recording.stop();
+            Path file = Files.createTempFile("engine", ".jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+            Files.delete(file);
+        }
+
+        // One select event per select, naming its conditions, access paths and rows
+        List<RecordedEvent> selects = events(events, "Select");
+        check(selects.size() == 2, "the recording holds " + selects.size() + " select events");
+        checkSelect(selects.get(0), "name = n17", "FULL_SCAN");
+        checkSelect(selects.get(1), "name = n150", "INDEX");
+
+        // One condition event per condition, with the access path that answered it
+        List<RecordedEvent> conditions = events(events, "Condition");
+        check(conditions.size() == 2, "the recording holds " + conditions.size() + " condition events");
+        for (int i = 0; i < 2; i++) {
+            RecordedEvent condition = conditions.get(i);
+            check(condition.getString("table").equals("Recorded") && condition.getString("column").equals("name")
+                    && condition.getString("operator").equals("=") && condition.getInt("rows") == 1,
+                    "condition event " + i + " is " + condition);
+            check(condition.getString("accessPath").equals(i == 0 ? "FULL_SCAN" : "INDEX"),
+                    "condition event " + i + " took " + condition.getString("accessPath"));
+        }
+
+        // The scan fetched every page once, the lookup only the page of its row, each with the bytes of its file
+        List<RecordedEvent> fetches = events(events, "PageFetch");
+        TreeSet<String> fetched = new TreeSet<>();
+        for (RecordedEvent fetch : fetches) {
+            String page = fetch.getString("page");
+            check(fetch.getString("format").equals("row"), page + " was fetched as " + fetch.getString("format"));
+            check(pageBytes.containsKey(page) && fetch.getLong("bytes") == pageBytes.get(page),
+                    page + " was fetched with " + fetch.getLong("bytes") + " bytes");
+            check(fetch.getInt("rows") > 0, page + " was fetched without rows");
+            fetched.add(page);
+        }
+        check(fetched.equals(new TreeSet<>(pageBytes.keySet())), "the scan fetched " + fetched);
+        long lookupFetches = fetches.stream()
+                .filter(fetch -> fetch.getStartTime().isAfter(selects.get(0).getEndTime())
+                        && !fetch.getStartTime().isAfter(selects.get(1).getEndTime())).count();
+        check(lookupFetches == 1, "the index lookup fetched " + lookupFetches + " pages");
+
+        // The lookup read B+ Tree nodes, and the insert wrote back the page it landed in
+        List<RecordedEvent> nodeReads = events(events, "IndexNodeRead");
+        check(!nodeReads.isEmpty(), "the index lookup read no node");
+        for (RecordedEvent nodeRead : nodeReads)
+            check(nodeRead.getString("index").equals("B+ Tree") && nodeRead.getLong("bytes") > 0,
+                    "the node read " + nodeRead + " is wrong");
+        List<RecordedEvent> flushes = events(events, "Flush");
+        check(flushes.stream().anyMatch(flush -> flush.getString("kind").equals("page") && flush.getLong("bytes") > 0
+                        && flush.getString("file").startsWith("data: ")), "the insert flushed no page");
+
+        System.out.println("EngineEventsTest passed");
+    }
+
+
+    /**
+     * Checks a select event on the table, its conditions, the access path of its only condition and the one row it returned.
+     */
+    private static void checkSelect(RecordedEvent select, String conditions, String accessPaths) {
+        check(select.getString("table").equals("Recorded"), "the select event names table " + select.getString("table"));
+        check(select.getString("conditions").equals(conditions), "the select event lists " + select.getString("conditions"));
+        check(select.getString("accessPaths").equals(accessPaths), "the select of " + conditions + " took "
+                + select.getString("accessPaths"));
+        check(select.getInt("rows") == 1, "the select of " + conditions + " returned " + select.getInt("rows") + " rows");
+    }
+
+
+    /**
+     * Keeps the events of one kind, in the order they started.
+     */
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String kind) {
+        List<RecordedEvent> kept = new ArrayList<>();
+        for (RecordedEvent event : events)
+            if (event.getEventType().getName().equals("src.DBGeneralEngine." + kind))
+                kept.add(event);
+        kept.sort(Comparator.comparing(RecordedEvent::getStartTime));
+        return kept;
+    }
+
+
+    private static int select(DBApp dbApp, String column, String operator, Object value) throws DBAppException {
+        int[] rows = {0};
+        dbApp.selectFromTable(new SQLTerm[]{new SQLTerm("Recorded", column, operator, value)}, new String[]{})
+                .forEachRemaining(tuple -> rows[0]++);
+        return rows[0];
+    }
+
+}
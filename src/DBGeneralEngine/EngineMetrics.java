@@ -0,0 +1,412 @@
+package src.DBGeneralEngine;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * EngineMetrics is the registry of the counters and latency histograms of the hot paths of the engine:
+ * the reads and writes of pages, B+ Tree nodes, R-Tree nodes and overflow pages, the access path every condition of
+ * a select takes, and the rows read from pages against the rows the conditions return.
+ * <p>
+ * Recording is off by default and switched on with the dbengine.metrics system property, setEnabled or the MBean.
+ * While it is off a hot path only reads one volatile flag: start returns 0 and every record call returns right away,
+ * so no clock is read, no file is measured and no counter is touched.
+ * A thread running an analyzed query also records into its QueryTrace, the metrics being enabled or not.
+ * <p>
+ * A timed path reads the clock with start and hands the result back to record once it is done:
+ * <pre>
+ *     long start = EngineMetrics.start();
+ *     ...
+ *     EngineMetrics.record(EngineMetrics.Operation.PAGE_READ, start, fileName);
+ * </pre>
+ */
+public final class EngineMetrics {
+
+    /**
+     * The timed storage operations, each counted, measured in bytes and timed.
+     */
+    public enum Operation {
+        PAGE_READ, PAGE_WRITE,
+        BPTREE_NODE_READ, BPTREE_NODE_WRITE,
+        RTREE_NODE_READ, RTREE_NODE_WRITE,
+        OVERFLOW_PAGE_READ, OVERFLOW_PAGE_WRITE
+    }
+
+
+    /**
+     * The plain counters.
+     * <p>
+     * ROWS_SCANNED             ->  The rows read from pages.
+     * ROWS_RETURNED            ->  The rows the conditions of selects returned.
+     * PAGE_KEY_CACHE_HITS      ->  The lookups of the minimum keys of the pages answered from the cache of the table.
+     * PAGE_KEY_CACHE_MISSES    ->  The lookups that had to read every page to rebuild the cache.
+     * RESULT_CACHE_HITS        ->  The selects answered from the result cache.
+     * RESULT_CACHE_MISSES      ->  The selects the result cache could not answer.
+     * COMPACTION_FAILURES      ->  The compaction batches and background statistics rebuilds that failed.
+     * COMPACTION_PAGES_SKIPPED ->  The pages the compactor gave up on, left tombstoned.
+     * SLOW_QUERY_LINES_DROPPED ->  The lines of the slow query log dropped, the queue being full or the file failing.
+     */
+    public enum Counter {
+        ROWS_SCANNED, ROWS_RETURNED, PAGE_KEY_CACHE_HITS, PAGE_KEY_CACHE_MISSES, RESULT_CACHE_HITS, RESULT_CACHE_MISSES,
+        COMPACTION_FAILURES, COMPACTION_PAGES_SKIPPED, SLOW_QUERY_LINES_DROPPED
+    }
+
+
+    /**
+     * Attributes
+     * <p>
+     * OBJECT_NAME      ->  The name the MBean is registered under.
+     * enabled          ->  Whether the metrics are recorded.
+     * registered       ->  Whether the MBean is registered.
+     * counts           ->  The number of every operation.
+     * bytes            ->  The bytes read or written by every operation.
+     * latencies        ->  The latency of every operation.
+     * pathCounts       ->  The number of conditions answered by every access path.
+     * pathRows         ->  The rows returned by every access path.
+     * pathLatencies    ->  The latency of every access path.
+     * counters         ->  The value of every plain counter.
+     * tracing          ->  The number of query traces installed, while it is 0 no thread looks for its trace.
+     * trace            ->  The query trace of the calling thread, if it runs an analyzed query.
+     */
+    public static final String OBJECT_NAME = "src.DBGeneralEngine:type=EngineMetrics";
+
+    private static volatile boolean enabled;
+    private static boolean registered;
+
+    private static final LongAdder[] counts = adders(Operation.values().length);
+    private static final LongAdder[] bytes = adders(Operation.values().length);
+    private static final LatencyHistogram[] latencies = histograms(Operation.values().length);
+    private static final LongAdder[] pathCounts = adders(AccessPath.values().length);
+    private static final LongAdder[] pathRows = adders(AccessPath.values().length);
+    private static final LatencyHistogram[] pathLatencies = histograms(AccessPath.values().length);
+    private static final LongAdder[] counters = adders(Counter.values().length);
+    private static volatile int tracing;
+    private static final ThreadLocal<QueryTrace> trace = new ThreadLocal<>();
+
+    static {
+        if (Boolean.getBoolean("dbengine.metrics"))
+            setEnabled(true);
+    }
+
+
+    /**
+     * Constructor
+     * The registry is static, its methods are static.
+     */
+    private EngineMetrics() {
+    }
+
+
+    /**
+     * Getters & Setters
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches the recording of the metrics on or off, registering the MBean the first time it is switched on.
+     *
+     * @param on true to record the metrics
+     */
+    public static void setEnabled(boolean on) {
+        if (on)
+            registerMBean();
+        enabled = on;
+    }
+
+
+    /**
+     * Reads the clock at the start of a timed path.
+     *
+     * @return the current time in nanoseconds, or 0 if the metrics are off and no query is traced
+     */
+    public static long start() {
+        return (enabled || tracing != 0) ? System.nanoTime() : 0;
+    }
+
+
+    /**
+     * Records a storage operation, its size being the length of the file it read or wrote.
+     *
+     * @param operation the operation
+     * @param start the value start returned when the operation began
+     * @param fileName the file the operation read or wrote
+     */
+    public static void record(Operation operation, long start, String fileName) {
+        if (start == 0)
+            return;
+        // A traced query only counts the operation, the file is measured for the metrics alone
+        record(operation, start, enabled ? new File(fileName).length() : 0);
+    }
+
+
+    /**
+     * Records a storage operation of a known size.
+     *
+     * @param operation the operation
+     * @param start the value start returned when the operation began
+     * @param byteCount the bytes the operation read or wrote
+     */
+    public static void record(Operation operation, long start, long byteCount) {
+        if (start == 0)
+            return;
+        if (enabled) {
+            int index = operation.ordinal();
+            latencies[index].record(System.nanoTime() - start);
+            counts[index].increment();
+            bytes[index].add(byteCount);
+        }
+        QueryTrace current = currentTrace();
+        if (current != null)
+            current.add(operation);
+    }
+
+
+    /**
+     * Records a condition answered by an access path.
+     *
+     * @param path the access path the condition took
+     * @param start the value start returned when the condition began
+     * @param rows the rows the condition returned
+     */
+    public static void record(AccessPath path, long start, int rows) {
+        if (start == 0 || !enabled)
+            return;
+        int index = path.ordinal();
+        pathLatencies[index].record(System.nanoTime() - start);
+        pathCounts[index].increment();
+        pathRows[index].add(rows);
+        counters[Counter.ROWS_RETURNED.ordinal()].add(rows);
+    }
+
+
+    /**
+     * Adds to a plain counter.
+     *
+     * @param counter the counter
+     * @param amount the amount to add
+     */
+    public static void add(Counter counter, long amount) {
+        if (enabled)
+            counters[counter.ordinal()].add(amount);
+        QueryTrace current = currentTrace();
+        if (current != null)
+            current.add(counter, amount);
+    }
+
+
+    /**
+     * Installs a trace on the calling thread, the storage work it does from now on is also counted in the trace.
+     *
+     * @param queryTrace the trace to count into
+     * @return the trace installed before, to be given back to endTrace
+     */
+    static QueryTrace beginTrace(QueryTrace queryTrace) {
+        synchronized (EngineMetrics.class) {
+            tracing++;
+        }
+        QueryTrace previous = trace.get();
+        trace.set(queryTrace);
+        return previous;
+    }
+
+
+    /**
+     * Removes the trace of the calling thread, putting back the one installed before it.
+     *
+     * @param previous the value beginTrace returned
+     */
+    static void endTrace(QueryTrace previous) {
+        if (previous == null)
+            trace.remove();
+        else
+            trace.set(previous);
+        synchronized (EngineMetrics.class) {
+            tracing--;
+        }
+    }
+
+
+    /**
+     * Wraps a task forked by a query so it counts into the trace of the forking thread, if it has one.
+     *
+     * @param task the task
+     * @return the task, counting into the current trace while it runs
+     */
+    static <T> Callable<T> traced(Callable<T> task) {
+        QueryTrace current = currentTrace();
+        if (current == null)
+            return task;
+        return () -> {
+            QueryTrace previous = beginTrace(current);
+            try {
+                return task.call();
+            } finally {
+                endTrace(previous);
+            }
+        };
+    }
+
+
+    /**
+     * Retrieves the trace of the calling thread, without touching the thread local while no query is traced.
+     */
+    private static QueryTrace currentTrace() {
+        return (tracing == 0) ? null : trace.get();
+    }
+
+
+    /**
+     * Getters
+     */
+    public static long getCount(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    public static long getBytes(Operation operation) {
+        return bytes[operation.ordinal()].sum();
+    }
+
+    public static LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public static long getCount(AccessPath path) {
+        return pathCounts[path.ordinal()].sum();
+    }
+
+    public static long getRows(AccessPath path) {
+        return pathRows[path.ordinal()].sum();
+    }
+
+    public static LatencyHistogram getLatency(AccessPath path) {
+        return pathLatencies[path.ordinal()];
+    }
+
+    public static long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+
+    /**
+     * Reads every metric under a dotted name, such as page_read.count, page_read.p99Nanos or path.index.rows.
+     * The hits and misses of the FramePool are included as the frame_pool counters.
+     *
+     * @return the value of every metric by name, sorted by name
+     */
+    public static Map<String, Long> snapshot() {
+        TreeMap<String, Long> metrics = new TreeMap<>();
+        for (Operation operation : Operation.values()) {
+            String name = operation.name().toLowerCase();
+            metrics.put(name + ".count", getCount(operation));
+            metrics.put(name + ".bytes", getBytes(operation));
+            putLatency(metrics, name, getLatency(operation));
+        }
+        for (AccessPath path : AccessPath.values()) {
+            String name = "path." + path.name().toLowerCase();
+            metrics.put(name + ".count", getCount(path));
+            metrics.put(name + ".rows", getRows(path));
+            putLatency(metrics, name, getLatency(path));
+        }
+        for (Counter counter : Counter.values())
+            metrics.put(counter.name().toLowerCase(), get(counter));
+        metrics.put("frame_pool.hits", FramePool.getHits());
+        metrics.put("frame_pool.misses", FramePool.getMisses());
+        return metrics;
+    }
+
+
+    /**
+     * Sets every metric back to zero.
+     */
+    public static void reset() {
+        for (LongAdder[] group : new LongAdder[][]{counts, bytes, pathCounts, pathRows, counters})
+            for (LongAdder adder : group)
+                adder.reset();
+        for (LatencyHistogram histogram : latencies)
+            histogram.reset();
+        for (LatencyHistogram histogram : pathLatencies)
+            histogram.reset();
+    }
+
+
+    /**
+     * Adds the mean, percentiles and maximum of a histogram to a snapshot, in nanoseconds.
+     */
+    private static void putLatency(Map<String, Long> metrics, String name, LatencyHistogram histogram) {
+        metrics.put(name + ".meanNanos", (long) histogram.getMean());
+        metrics.put(name + ".p50Nanos", histogram.getPercentile(50));
+        metrics.put(name + ".p99Nanos", histogram.getPercentile(99));
+        metrics.put(name + ".p999Nanos", histogram.getPercentile(99.9));
+        metrics.put(name + ".maxNanos", histogram.getMax());
+    }
+
+
+    /**
+     * Registers the MBean with the platform MBean server, once.
+     * A server refusing the registration leaves the metrics readable through the static methods.
+     */
+    private static synchronized void registerMBean() {
+        if (registered)
+            return;
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            System.err.println("EngineMetrics could not be registered with JMX: " + e.getMessage());
+        }
+    }
+
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+
+    private static LatencyHistogram[] histograms(int count) {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++)
+            histograms[i] = new LatencyHistogram();
+        return histograms;
+    }
+
+
+    /**
+     * The MBean, forwarding to the static registry.
+     */
+    private static final class Bean implements EngineMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return EngineMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            EngineMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public Map<String, Long> getMetrics() {
+            return snapshot();
+        }
+
+        @Override
+        public void reset() {
+            EngineMetrics.reset();
+        }
+
+    }
+
+}
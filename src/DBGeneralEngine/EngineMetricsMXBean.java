@@ -0,0 +1,41 @@
+package src.DBGeneralEngine;
+
+import java.util.Map;
+
+
+/**
+ * The management interface of EngineMetrics, registered with the platform MBean server under
+ * src.DBGeneralEngine:type=EngineMetrics so the metrics can be read and switched on from JConsole or any JMX client.
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * Checks if the engine records its metrics.
+     *
+     * @return true if the metrics are recorded
+     */
+    boolean isEnabled();
+
+
+    /**
+     * Switches the recording of the metrics on or off.
+     *
+     * @param enabled true to record the metrics
+     */
+    void setEnabled(boolean enabled);
+
+
+    /**
+     * Reads every metric.
+     *
+     * @return the value of every metric by name
+     */
+    Map<String, Long> getMetrics();
+
+
+    /**
+     * Sets every metric back to zero.
+     */
+    void reset();
+
+}
@@ -0,0 +1,108 @@
+package src.DBGeneralEngine;
+
+import src.BPTree.BPTree;
+import src.Ref.Ref;
+
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the engine metrics.
+ * Nothing is counted while the metrics are off; once on, a scan counts every page it reads with the bytes of its file,
+ * the rows it reads and returns and the access path it took, index lookups count the nodes they read, writes count
+ * the pages they write, and the same values are served by the MBean.
+ */
+public class EngineMetricsTest {
+
+    public static void main(String[] args) throws DBAppException, IOException, JMException {
+
+        DBApp dbApp = TableTest.table("Metered", 200);
+        Table table = dbApp.getTables().get(0);
+        int pages = table.getPages().size();
+        long pageBytes = 0;
+        for (String pageName : table.getPages())
+            pageBytes += new File("data: " + pageName + ".class").length();
+
+        // Off, the hot paths leave every metric alone
+        EngineMetrics.setEnabled(false);
+        EngineMetrics.reset();
+        select(dbApp, "name", "=", "n17");
+        check(EngineMetrics.snapshot().entrySet().stream()
+                        .filter(metric -> !metric.getKey().startsWith("frame_pool")).allMatch(metric -> metric.getValue() == 0),
+                "metrics were recorded while they were off");
+
+        // A scan reads every page once
+        EngineMetrics.setEnabled(true);
+        check(select(dbApp, "name", "=", "n17") == 1, "the scan did not find n17");
+        check(EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) == pages,
+                "the scan counted " + EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) + " page reads of " + pages + " pages");
+        check(EngineMetrics.getBytes(EngineMetrics.Operation.PAGE_READ) == pageBytes, "the scan counted the wrong page bytes");
+        check(EngineMetrics.getLatency(EngineMetrics.Operation.PAGE_READ).getCount() == pages, "not every page read was timed");
+        check(EngineMetrics.get(EngineMetrics.Counter.ROWS_SCANNED) == 200, "the scan counted "
+                + EngineMetrics.get(EngineMetrics.Counter.ROWS_SCANNED) + " rows scanned");
+        check(EngineMetrics.getCount(AccessPath.FULL_SCAN) == 1 && EngineMetrics.getRows(AccessPath.FULL_SCAN) == 1
+                && EngineMetrics.get(EngineMetrics.Counter.ROWS_RETURNED) == 1, "the scan was not counted as a full scan of one row");
+
+        // A search on the clustering key stops at the page holding the key
+        EngineMetrics.reset();
+        check(select(dbApp, "id", "=", 45) == 1, "the binary search did not find 45");
+        check(EngineMetrics.getCount(AccessPath.BINARY) == 1 && EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) < pages,
+                "the binary search read " + EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) + " pages");
+
+        // An index lookup reads B+ Tree nodes, then the page of the row
+        BPTree<String> names = new BPTree<>(5);
+        for (String pageName : table.getPages())
+            for (Tuple tuple : Table.deserialize(pageName).getLiveTuples())
+                names.insert((String) tuple.get(1), new Ref(pageName));
+        table.getTreeIndexColumnName().put("name", names);
+        EngineMetrics.reset();
+        check(select(dbApp, "name", "=", "n150") == 1, "the index lookup did not find n150");
+        check(EngineMetrics.getCount(AccessPath.INDEX) == 1, "the lookup was not counted as an index lookup");
+        check(EngineMetrics.getCount(EngineMetrics.Operation.BPTREE_NODE_READ) > 0
+                && EngineMetrics.getBytes(EngineMetrics.Operation.BPTREE_NODE_READ) > 0, "the lookup counted no node read");
+        check(EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) == 1, "the index lookup read "
+                + EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) + " pages");
+
+        // An insert writes the page it lands in
+        EngineMetrics.reset();
+        ArrayList<Hashtable<String, Object>> rows = new ArrayList<>();
+        rows.add(TableTest.row(1000));
+        dbApp.insertIntoTable("Metered", rows);
+        check(EngineMetrics.getCount(EngineMetrics.Operation.PAGE_WRITE) > 0
+                && EngineMetrics.getBytes(EngineMetrics.Operation.PAGE_WRITE) > 0, "the insert counted no page write");
+
+        // The MBean serves the same values and switches the recording
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(EngineMetrics.OBJECT_NAME);
+        check(server.isRegistered(name), "the MBean is not registered");
+        EngineMetricsMXBean bean = JMX.newMXBeanProxy(server, name, EngineMetricsMXBean.class);
+        Map<String, Long> metrics = bean.getMetrics();
+        check(metrics.equals(EngineMetrics.snapshot()), "the MBean serves other values than the registry");
+        check(metrics.get("page_write.count") == EngineMetrics.getCount(EngineMetrics.Operation.PAGE_WRITE),
+                "page_write.count is missing from the snapshot");
+        bean.reset();
+        check(EngineMetrics.getCount(EngineMetrics.Operation.PAGE_WRITE) == 0, "the MBean did not reset the metrics");
+        bean.setEnabled(false);
+        check(!EngineMetrics.isEnabled() && !bean.isEnabled(), "the MBean did not switch the metrics off");
+
+        System.out.println("EngineMetricsTest passed");
+    }
+
+
+    private static int select(DBApp dbApp, String column, String operator, Object value) throws DBAppException {
+        int[] rows = {0};
+        dbApp.selectFromTable(new SQLTerm[]{new SQLTerm("Metered", column, operator, value)}, new String[]{})
+                .forEachRemaining(tuple -> rows[0]++);
+        return rows[0];
+    }
+
+}
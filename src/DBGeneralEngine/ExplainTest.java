@@ -0,0 +1,177 @@
+package src.DBGeneralEngine;
+
+import src.BPTree.BPTree;
+import src.Ref.Ref;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test explain and explain analyze.
+ * The plan of a select must be the left-deep tree of its set operations, every condition taking the access path the
+ * select takes and expecting the rows the default selectivities give, and planning it must read nothing.
+ * Analyzed, every node must report the rows it really returned and the pages and index nodes its step read,
+ * the set operations reading nothing of their own.
+ */
+public class ExplainTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBApp dbApp = TableTest.table("Explained", 200);
+        Table table = dbApp.getTables().get(0);
+        int pages = table.getPages().size();
+        SQLTerm[] terms = {new SQLTerm("Explained", "id", "<", 50), new SQLTerm("Explained", "name", ">", "n3"),
+                new SQLTerm("Explained", "id", "=", 120), new SQLTerm("Explained", "name", "!=", "n7")};
+        String[] operators = {"AND", "or", "Xor"};
+        IntPredicate[] matches = {id -> id < 50, id -> ("n" + id).compareTo("n3") > 0, id -> id == 120, id -> id != 7};
+
+        // Planned only, the select reads no page and every condition expects the rows of its default selectivity
+        EngineMetrics.setEnabled(true);
+        EngineMetrics.reset();
+        QueryPlan plan = dbApp.explain(terms, operators);
+        check(EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) == 0, "explain read pages");
+        List<QueryPlan> leaves = checkShape(plan, terms, operators, AccessPath.BINARY, AccessPath.FULL_SCAN,
+                AccessPath.BINARY, AccessPath.LINEAR);
+        long tableRows = table.estimateTableRows();
+        double[] selectivities = {1.0 / 3, 1.0 / 3, 0.1, 0.9};
+        for (int i = 0; i < leaves.size(); i++) {
+            check(leaves.get(i).getEstimatedRows() == Math.round(tableRows * selectivities[i]),
+                    "condition " + i + " expects " + leaves.get(i).getEstimatedRows() + " of " + tableRows + " rows");
+            check(!leaves.get(i).isAnalyzed(), "condition " + i + " was analyzed without being run");
+        }
+        checkEstimates(plan);
+        check(plan.toString().startsWith("XOR  (estimated rows=" + plan.getEstimatedRows() + ")\n  OR"),
+                "the plan prints as\n" + plan);
+
+        // Analyzed, every node returns what its conditions select and the scan reads every page once
+        checkAnalyzed(dbApp, terms, operators, matches);
+        List<QueryPlan> analyzedLeaves = checkShape(dbApp.explainAnalyze(terms, operators), terms, operators,
+                AccessPath.BINARY, AccessPath.FULL_SCAN, AccessPath.BINARY, AccessPath.LINEAR);
+        check(analyzedLeaves.get(1).getPagesRead() == pages, "the full scan read "
+                + analyzedLeaves.get(1).getPagesRead() + " of " + pages + " pages");
+        check(analyzedLeaves.get(0).getPagesRead() < pages, "the binary search read every page");
+
+        // Once the names are indexed, the condition on them reads index nodes instead of scanning
+        BPTree<String> names = new BPTree<>(5);
+        for (String pageName : table.getPages())
+            for (Tuple tuple : Table.deserialize(pageName).getLiveTuples())
+                names.insert((String) tuple.get(1), new Ref(pageName));
+        table.getTreeIndexColumnName().put("name", names);
+        QueryPlan indexed = checkAnalyzed(dbApp, terms, operators, matches);
+        QueryPlan byName = checkShape(indexed, terms, operators, AccessPath.BINARY, AccessPath.INDEX,
+                AccessPath.BINARY, AccessPath.LINEAR).get(1);
+        check(byName.getNodesRead() > 0, "the index lookup read no node");
+        check(indexed.toString().contains("B+ Tree index: name > n3") && indexed.toString().contains("actual rows="),
+                "the analyzed plan prints as\n" + indexed);
+
+        // An operator outside AND, OR and XOR is rejected
+        boolean rejected = false;
+        try {
+            dbApp.explain(new SQLTerm[]{terms[0], terms[1]}, new String[]{"NAND"});
+        } catch (DBAppException e) {
+            rejected = true;
+        }
+        check(rejected, "explain accepted NAND");
+        EngineMetrics.setEnabled(false);
+
+        System.out.println("ExplainTest passed");
+    }
+
+
+    /**
+     * Checks the plan is the left-deep tree of the operators over the conditions in their order, taking the given
+     * access paths, and returns its leaves in the order of the conditions.
+     */
+    private static List<QueryPlan> checkShape(QueryPlan plan, SQLTerm[] terms, String[] operators, AccessPath... paths) {
+        LinkedList<QueryPlan> leaves = new LinkedList<>();
+        QueryPlan node = plan;
+        for (int i = operators.length - 1; i >= 0; i--) {
+            check(!node.isLeaf() && node.getOperator().equals(operators[i].toLowerCase()),
+                    "the plan has " + node.getOperator() + " where " + operators[i] + " was expected");
+            check(node.getRight().isLeaf(), "the plan is not left-deep");
+            leaves.addFirst(node.getRight());
+            node = node.getLeft();
+        }
+        check(node.isLeaf(), "the first condition is not a leaf");
+        leaves.addFirst(node);
+        for (int i = 0; i < terms.length; i++) {
+            check(leaves.get(i).getTerm() == terms[i], "leaf " + i + " holds another condition");
+            check(leaves.get(i).getAccessPath() == paths[i], "condition " + i + " takes " + leaves.get(i).getAccessPath()
+                    + " instead of " + paths[i]);
+        }
+        return leaves;
+    }
+
+
+    /**
+     * Checks every set operation expects no more rows than its sides allow.
+     */
+    private static void checkEstimates(QueryPlan node) {
+        if (node.isLeaf())
+            return;
+        long left = node.getLeft().getEstimatedRows(), right = node.getRight().getEstimatedRows();
+        long rows = node.getEstimatedRows();
+        boolean bounded = switch (node.getOperator()) {
+            case "and" -> rows <= Math.min(left, right);
+            case "or" -> rows >= Math.max(left, right) && rows <= left + right;
+            default -> rows <= left + right;
+        };
+        check(rows >= 0 && bounded, node.getOperator() + " of " + left + " and " + right + " rows expects " + rows);
+        checkEstimates(node.getLeft());
+    }
+
+
+    /**
+     * Analyzes the select and checks the rows of every node against the ids its conditions match,
+     * the whole plan returning what the select returns.
+     */
+    private static QueryPlan checkAnalyzed(DBApp dbApp, SQLTerm[] terms, String[] operators, IntPredicate[] matches)
+            throws DBAppException {
+        QueryPlan plan = dbApp.explainAnalyze(terms, operators);
+        List<QueryPlan> nodes = new ArrayList<>();
+        for (QueryPlan node = plan; ; node = node.getLeft()) {
+            nodes.add(0, node);
+            if (node.isLeaf())
+                break;
+        }
+        TreeSet<Integer> sofar = matching(matches[0]);
+        check(nodes.get(0).getActualRows() == sofar.size(), "condition 0 returned " + nodes.get(0).getActualRows() + " rows");
+        for (int i = 1; i < nodes.size(); i++) {
+            QueryPlan node = nodes.get(i);
+            TreeSet<Integer> current = matching(matches[i]);
+            check(node.getRight().isAnalyzed() && node.getRight().getActualRows() == current.size(),
+                    "condition " + i + " returned " + node.getRight().getActualRows() + " rows, " + current.size() + " match it");
+            TreeSet<Integer> combined = new TreeSet<>(sofar);
+            switch (node.getOperator()) {
+                case "and" -> combined.retainAll(current);
+                case "or" -> combined.addAll(current);
+                default -> {
+                    for (int id : current)
+                        if (!combined.remove(id))
+                            combined.add(id);
+                }
+            }
+            check(node.isAnalyzed() && node.getActualRows() == combined.size(),
+                    node.getOperator() + " returned " + node.getActualRows() + " rows, " + combined.size() + " expected");
+            check(node.getPagesRead() == 0 && node.getNodesRead() == 0, node.getOperator() + " read storage of its own");
+            sofar = combined;
+        }
+        int selected = TableTest.ids(dbApp.selectFromTable(terms, operators)).size();
+        check(plan.getActualRows() == selected, "the plan returned " + plan.getActualRows() + " rows, the select " + selected);
+        return plan;
+    }
+
+
+    private static TreeSet<Integer> matching(IntPredicate condition) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (int id = 0; id < 200; id++)
+            if (condition.test(id))
+                ids.add(id);
+        return ids;
+    }
+
+}
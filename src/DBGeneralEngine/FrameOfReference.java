@@ -0,0 +1,120 @@
+package src.DBGeneralEngine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+
+/**
+ * FrameOfReference packs a column of integers or epoch times into as few bits per value as the column needs.
+ * Every value is stored as its distance from a reference, the smallest value of the column, in the number of bits
+ * the largest distance takes. A column that never decreases, the clustering key or the row id, is stored as the
+ * gaps between consecutive values instead, which are usually far smaller than the values themselves.
+ */
+public final class FrameOfReference {
+
+    /**
+     * Attributes
+     * <p>
+     * FRAME        ->  The values are stored as distances from the smallest value.
+     * DELTA        ->  The values are stored as gaps from the previous value, the first one from the reference.
+     */
+    private static final byte FRAME = 0;
+    private static final byte DELTA = 1;
+
+
+    /**
+     * Constructor
+     * The codec is stateless, its methods are static.
+     */
+    private FrameOfReference() {
+    }
+
+
+    /**
+     * Writes the values packed: the mode, the reference, the bit width, then the packed words.
+     *
+     * @param out the stream to write to
+     * @param values the values of the column
+     * @throws IOException if the stream cannot be written
+     */
+    public static void encode(DataOutputStream out, long[] values) throws IOException {
+        boolean ascending = true;
+        long min = (values.length == 0) ? 0 : values[0];
+        for (int i = 1; i < values.length; i++) {
+            ascending &= values[i] >= values[i - 1];
+            min = Math.min(min, values[i]);
+        }
+
+        long[] offsets = new long[values.length];
+        long bits = 0;
+        for (int i = 0; i < values.length; i++) {
+            offsets[i] = ascending ? values[i] - ((i == 0) ? min : values[i - 1]) : values[i] - min;
+            bits |= offsets[i];
+        }
+        int width = 64 - Long.numberOfLeadingZeros(bits);
+
+        out.writeByte(ascending ? DELTA : FRAME);
+        out.writeLong(min);
+        out.writeByte(width);
+        long[] words = new long[(int) (((long) values.length * width + 63) / 64)];
+        for (int i = 0; i < values.length; i++)
+            pack(words, (long) i * width, width, offsets[i]);
+        for (long word : words)
+            out.writeLong(word);
+    }
+
+
+    /**
+     * Reads values written by encode.
+     *
+     * @param in the stream to read from
+     * @param count the number of values
+     * @return the values of the column
+     * @throws IOException if the stream cannot be read
+     */
+    public static long[] decode(DataInputStream in, int count) throws IOException {
+        byte mode = in.readByte();
+        long reference = in.readLong();
+        int width = in.readByte();
+        long[] words = new long[(int) (((long) count * width + 63) / 64)];
+        for (int i = 0; i < words.length; i++)
+            words[i] = in.readLong();
+
+        long[] values = new long[count];
+        long previous = reference;
+        for (int i = 0; i < count; i++) {
+            long offset = unpack(words, (long) i * width, width);
+            values[i] = (mode == DELTA) ? (previous += offset) : reference + offset;
+        }
+        return values;
+    }
+
+
+    /**
+     * Writes the low width bits of a value at a bit position of the words.
+     */
+    private static void pack(long[] words, long bitPosition, int width, long value) {
+        if (width == 0)
+            return;
+        int word = (int) (bitPosition >>> 6), shift = (int) (bitPosition & 63);
+        words[word] |= value << shift;
+        if (shift + width > 64)
+            words[word + 1] |= value >>> (64 - shift);
+    }
+
+
+    /**
+     * Reads width bits at a bit position of the words.
+     */
+    private static long unpack(long[] words, long bitPosition, int width) {
+        if (width == 0)
+            return 0;
+        int word = (int) (bitPosition >>> 6), shift = (int) (bitPosition & 63);
+        long value = words[word] >>> shift;
+        if (shift + width > 64)
+            value |= words[word + 1] << (64 - shift);
+        return (width == 64) ? value : value & ((1L << width) - 1);
+    }
+
+}
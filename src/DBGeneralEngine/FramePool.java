@@ -0,0 +1,118 @@
+package src.DBGeneralEngine;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * FramePool keeps the buffers compressed pages are decompressed into, so reading a page does not allocate
+ * a new buffer as large as the page every time.
+ * Frames come in power of two sizes from MIN_FRAME bytes up, and every size keeps at most MAX_IDLE_FRAMES idle frames.
+ * A frame is borrowed for the time the page is decoded from it and handed back right after.
+ */
+public final class FramePool {
+
+    /**
+     * Attributes
+     * <p>
+     * MIN_FRAME        ->  The size of the smallest frame, in bytes.
+     * SIZE_CLASSES     ->  The number of frame sizes, the largest being MIN_FRAME times 2 to the power SIZE_CLASSES - 1.
+     * MAX_IDLE_FRAMES  ->  The number of idle frames kept per size, frames handed back beyond it are dropped.
+     * idle             ->  The idle frames of every size.
+     * idleCounts       ->  The number of idle frames of every size.
+     * hits, misses     ->  How many frames were taken from the pool and how many had to be allocated.
+     */
+    private static final int MIN_FRAME = 4096;
+    private static final int SIZE_CLASSES = 16;
+    private static final int MAX_IDLE_FRAMES = 8;
+
+    private static final ConcurrentLinkedQueue<byte[]>[] idle = newQueues();
+    private static final AtomicInteger[] idleCounts = new AtomicInteger[SIZE_CLASSES];
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    static {
+        for (int i = 0; i < SIZE_CLASSES; i++)
+            idleCounts[i] = new AtomicInteger();
+    }
+
+
+    /**
+     * Constructor
+     * The pool is shared, its methods are static.
+     */
+    private FramePool() {
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentLinkedQueue<byte[]>[] newQueues() {
+        ConcurrentLinkedQueue<byte[]>[] queues = new ConcurrentLinkedQueue[SIZE_CLASSES];
+        for (int i = 0; i < SIZE_CLASSES; i++)
+            queues[i] = new ConcurrentLinkedQueue<>();
+        return queues;
+    }
+
+
+    /**
+     * Borrows a frame of at least the given size.
+     *
+     * @param size the number of bytes needed
+     * @return a frame of the smallest size class holding size bytes, or an unpooled buffer beyond the largest class
+     */
+    public static byte[] acquire(int size) {
+        int sizeClass = sizeClass(size);
+        if (sizeClass >= SIZE_CLASSES) {
+            misses.increment();
+            return new byte[size];
+        }
+        byte[] frame = idle[sizeClass].poll();
+        if (frame != null) {
+            idleCounts[sizeClass].decrementAndGet();
+            hits.increment();
+            return frame;
+        }
+        misses.increment();
+        return new byte[MIN_FRAME << sizeClass];
+    }
+
+
+    /**
+     * Hands a frame back to the pool once the page decoded from it is no longer read from it.
+     *
+     * @param frame a frame borrowed with acquire
+     */
+    public static void release(byte[] frame) {
+        int sizeClass = sizeClass(frame.length);
+        if (sizeClass >= SIZE_CLASSES || frame.length != MIN_FRAME << sizeClass)
+            return;
+        if (idleCounts[sizeClass].incrementAndGet() <= MAX_IDLE_FRAMES)
+            idle[sizeClass].offer(frame);
+        else
+            idleCounts[sizeClass].decrementAndGet();
+    }
+
+
+    /**
+     * Getters
+     */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+
+    /**
+     * Finds the smallest size class holding the given number of bytes.
+     */
+    private static int sizeClass(int size) {
+        if (size <= MIN_FRAME)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros((size - 1) / MIN_FRAME);
+    }
+
+}
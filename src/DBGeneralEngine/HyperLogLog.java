@@ -0,0 +1,84 @@
+package src.DBGeneralEngine;
+
+
+/**
+ * HyperLogLog estimates the number of distinct values of a column in a fixed amount of memory,
+ * after Flajolet, Fusy, Gandouet and Meunier, with the small range correction by linear counting.
+ * Every value is hashed, the first PRECISION bits of the hash pick a register and the register keeps the longest run
+ * of leading zeros seen in the remaining bits. With 2^14 registers the estimate is within about 1% of the truth.
+ */
+public final class HyperLogLog {
+
+    /**
+     * Attributes
+     * <p>
+     * PRECISION    ->  The number of bits of the hash picking the register.
+     * REGISTERS    ->  The number of registers, 2^PRECISION.
+     * registers    ->  The longest run of leading zeros plus one seen by every register.
+     */
+    private static final int PRECISION = 14;
+    private static final int REGISTERS = 1 << PRECISION;
+
+    private final byte[] registers = new byte[REGISTERS];
+
+
+    /**
+     * Adds a value, null values are not counted.
+     *
+     * @param value the value
+     */
+    public void add(Object value) {
+        if (value != null)
+            addHash(value.hashCode());
+    }
+
+
+    /**
+     * Adds a value by its hash code, for values whose own hashCode does not tell distinct values apart.
+     *
+     * @param hashCode the hash code of the value
+     */
+    public void addHash(int hashCode) {
+        long hash = mix(hashCode);
+        int register = (int) (hash >>> (64 - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[register])
+            registers[register] = (byte) rank;
+    }
+
+
+    /**
+     * Estimates the number of distinct values added.
+     *
+     * @return the estimated count
+     */
+    public long estimate() {
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+                empty++;
+        }
+        double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+        double estimate = alpha * REGISTERS * REGISTERS / sum;
+        // Few values leave registers empty, counting them is then more accurate
+        if (estimate <= 2.5 * REGISTERS && empty > 0)
+            estimate = REGISTERS * Math.log((double) REGISTERS / empty);
+        return Math.round(estimate);
+    }
+
+
+    /**
+     * Spreads a hash code over 64 bits with the finalizer of MurmurHash3.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,139 @@
+package src.DBGeneralEngine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * LatencyHistogram records latencies in nanoseconds from many threads at once into log-linear buckets.
+ * Values below 128 get a bucket each, larger values share a bucket with the values of the same power of two and the
+ * same six bits after the leading one, so every recorded value is known to within about 1.5 percent whatever its size,
+ * in a fixed array of counters that recording never allocates or locks.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Attributes
+     * <p>
+     * SUB_BUCKET_BITS  ->  The bits after the leading one that tell the buckets of a power of two apart.
+     * LINEAR           ->  The values counted exactly, one bucket each.
+     * BUCKETS          ->  The number of buckets, enough for every positive long.
+     * counts           ->  The count of every bucket.
+     * total            ->  The number of recorded values.
+     * sum              ->  The sum of the recorded values.
+     * max              ->  The largest recorded value.
+     */
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int LINEAR = 2 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+
+    /**
+     * Getters
+     */
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = total.get();
+        return (count == 0) ? 0 : (double) sum.get() / count;
+    }
+
+
+    /**
+     * Gets the latency below which a given share of the recorded latencies fall.
+     *
+     * @param percentile the share, between 0 and 100
+     * @return the highest value of the bucket holding the percentile, at most the largest recorded value
+     */
+    public long getPercentile(double percentile) {
+        long count = total.get();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank)
+                return Math.min(highestOf(bucket), max.get());
+        }
+        return max.get();
+    }
+
+
+    /**
+     * Forgets every recorded value. Values recorded by other threads while the histogram is reset may be partly kept.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            counts.set(bucket, 0);
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+
+    /**
+     * Adds the values recorded by another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long count = other.counts.get(bucket);
+            if (count != 0)
+                counts.addAndGet(bucket, count);
+        }
+        total.addAndGet(other.total.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+
+    /**
+     * Gets the bucket of a value, the value itself below LINEAR, its power of two and its next six bits above.
+     */
+    private static int bucketOf(long value) {
+        if (value < LINEAR)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+
+    /**
+     * Gets the highest value counted by a bucket.
+     */
+    private static long highestOf(int bucket) {
+        if (bucket < LINEAR)
+            return bucket;
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) ((bucket & (LINEAR / 2 - 1)) + LINEAR / 2) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}
@@ -139,14 +139,8 @@ public class OverflowPage implements Serializable {
      */
     public ArrayList<Ref> getAllRefs() throws DBAppException {
         ArrayList<Ref> refRes = new ArrayList<>(refs);
-        if (nextRef != null) {
-            try {
-                refRes.addAll(deserialize(nextRef).getAllRefs());
-            } catch (DBAppException e) {
-                e.printStackTrace();
-                throw new DBAppException("Exception above while getting overflow page");
-            }
-        }
+        if (nextRef != null)
+            refRes.addAll(deserialize(nextRef).getAllRefs());
         return refRes;
     }
 
@@ -319,12 +313,18 @@ public class OverflowPage implements Serializable {
      * @throws DBAppException if an IO exception occurs during serialization
      */
     public void serialize() throws DBAppException {
+        EngineEvents.Flush event = new EngineEvents.Flush();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + this.getPageName() + ".class";
         try {
-            FileOutputStream fileOut = new FileOutputStream("data: " + this.getPageName() + ".class");
+            FileOutputStream fileOut = new FileOutputStream(fileName);
             ObjectOutputStream stream = new ObjectOutputStream(fileOut);
             stream.writeObject(this);
             stream.close();
             fileOut.close();
+            EngineMetrics.record(EngineMetrics.Operation.OVERFLOW_PAGE_WRITE, start, fileName);
+            event.emit("overflow page", fileName);
         } catch (IOException e) {
             throw new DBAppException("IO Exception in " + this.getPageName());
         }
@@ -340,18 +340,23 @@ public class OverflowPage implements Serializable {
      * @throws DBAppException if an error occurs during deserialization
      */
     public OverflowPage deserialize(String name) throws DBAppException {
+        EngineEvents.PageFetch event = new EngineEvents.PageFetch();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + name + ".class";
         try {
-            FileInputStream fileIn = new FileInputStream("data: " + name + ".class");
+            FileInputStream fileIn = new FileInputStream(fileName);
             ObjectInputStream stream = new ObjectInputStream(fileIn);
             OverflowPage overflowPage = (OverflowPage) stream.readObject();
             stream.close();
             fileIn.close();
+            EngineMetrics.record(EngineMetrics.Operation.OVERFLOW_PAGE_READ, start, fileName);
+            event.emit(name, "overflow", fileName, overflowPage.getRefs().size());
             return overflowPage;
         } catch (IOException e) {
-            e.printStackTrace();
+            // Overflow pages are also read by optimistic index lookups, a failure is reported by the caller
             throw new DBAppException("IO Exception in " + name);
         } catch (ClassNotFoundException e) {
-            e.printStackTrace();
             throw new DBAppException("Class Not Found Exception in " + name + ".class");
         }
 
@@ -393,7 +398,7 @@ public class OverflowPage implements Serializable {
         try {
 
             String lastFetched = "";
-            Vector meta = readFile("data/metadata.csv");
+            Vector meta = readFile("data/metaBPtree.csv");
             int overrideLastFetched = 0;
             for (Object obj : meta) {
                 String[] curr = (String[]) obj;
@@ -402,7 +407,7 @@ public class OverflowPage implements Serializable {
                 curr[0] = overrideLastFetched + "";
                 break;
             }
-            FileWriter fileWriter = new FileWriter("data/metadata.csv");
+            FileWriter fileWriter = new FileWriter("data/metaBPtree.csv");
             for (Object obj : meta) {
                 String[] curr = (String[]) obj;
                 fileWriter.append(curr[0]);
@@ -1,11 +1,8 @@
 package src.DBGeneralEngine;
 
-import src.Ref.GeneralRef;
-import src.Ref.OverflowRef;
-
 import java.io.*;
-import java.sql.Ref;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Hashtable;
 import java.util.Set;
 import java.util.Vector;
@@ -14,10 +11,21 @@ public class Page implements Serializable {
 
     /**
      * Attributes
+     * <p>
+     *
+     * tombstones   ->  The slots of tuples that were deleted but not yet removed by compaction.
+     * liveTuples   ->  The tuples that are not tombstoned, rebuilt lazily after the page changes.
+     * compression  ->  How the page is compressed when it is written, set by its table.
+     * MAGIC        ->  The first four bytes of a compressed page file, followed by the codec, the raw and the compressed length.
      */
     private Vector vector = new Vector();
     private Vector<Tuple> tuples;
     private String pageName;
+    private BitSet tombstones = new BitSet();
+    private transient Vector<Tuple> liveTuples;
+    private PageCompression compression = PageCompression.NONE;
+
+    public static final int MAGIC = 0x434D5031;
 
 
     /**
@@ -74,6 +82,27 @@ public class Page implements Serializable {
      */
     public void setTuples(Vector<Tuple> tuples) {
         this.tuples = tuples;
+        this.tombstones = new BitSet();
+        this.liveTuples = null;
+    }
+
+
+    /**
+     * Returns the tuples of the page that are not tombstoned, which is what readers should see.
+     * When nothing is tombstoned this is the tuples Vector itself.
+     *
+     * @return the Vector of live Tuple objects
+     */
+    public Vector<Tuple> getLiveTuples() {
+        if (deletedCount() == 0)
+            return tuples;
+        if (liveTuples == null) {
+            liveTuples = new Vector<>(tuples.size() - deletedCount());
+            for (int i = 0; i < tuples.size(); i++)
+                if (!tombstones.get(i))
+                    liveTuples.add(tuples.get(i));
+        }
+        return liveTuples;
     }
 
 
@@ -107,6 +136,86 @@ public class Page implements Serializable {
     }
 
 
+    /**
+     * Returns the number of tuples in the page that are not tombstoned.
+     *
+     * @return the number of live tuples
+     */
+    public int liveSize() {
+        return tuples.size() - deletedCount();
+    }
+
+
+    /**
+     * Returns the number of tombstoned slots waiting for compaction.
+     *
+     * @return the number of deleted tuples still stored in the page
+     */
+    public int deletedCount() {
+        return (tombstones == null) ? 0 : tombstones.cardinality();
+    }
+
+
+    /**
+     * Checks whether the tuple in the given slot was deleted.
+     *
+     * @param slot the index of the tuple in the page
+     * @return true if the slot is tombstoned
+     */
+    public boolean isDeleted(int slot) {
+        return tombstones != null && tombstones.get(slot);
+    }
+
+
+    /**
+     * Marks the tuple in the given slot as deleted, the tuple stays in place until the page is compacted.
+     *
+     * @param slot the index of the tuple in the page
+     */
+    public void markDeleted(int slot) {
+        if (tombstones == null)
+            tombstones = new BitSet();
+        tombstones.set(slot);
+        liveTuples = null;
+    }
+
+
+    /**
+     * Returns the tombstoned tuples that are still stored in the page.
+     *
+     * @return the deleted tuples, in page order
+     */
+    public ArrayList<Tuple> getDeletedTuples() {
+        ArrayList<Tuple> deleted = new ArrayList<>(deletedCount());
+        if (deletedCount() == 0)
+            return deleted;
+        for (int i = tombstones.nextSetBit(0); i >= 0 && i < tuples.size(); i = tombstones.nextSetBit(i + 1))
+            deleted.add(tuples.get(i));
+        return deleted;
+    }
+
+
+    /**
+     * Physically removes every tombstoned tuple in a single pass over the page.
+     *
+     * @return the removed tuples, in page order
+     */
+    public ArrayList<Tuple> purgeDeleted() {
+        ArrayList<Tuple> removed = new ArrayList<>(deletedCount());
+        if (deletedCount() == 0)
+            return removed;
+        Vector<Tuple> kept = new Vector<>(liveSize());
+        for (int i = 0; i < tuples.size(); i++) {
+            if (tombstones.get(i))
+                removed.add(tuples.get(i));
+            else
+                kept.add(tuples.get(i));
+        }
+        setTuples(kept);
+        return removed;
+    }
+
+
     /**
      * Performs a binary search on the tuples to find the position of the specified key.
      * It first attempts to find the last occurrence of the key. If not found, it checks for the first greater key.
@@ -137,13 +246,13 @@ public class Page implements Serializable {
         int mid;
         while (low <= high) {
             mid = low + (high - low + 1) / 2;
-            Comparable currentValue = (Comparable) tuples.get(mid).getAttributes().get(pos);
-            if (currentValue.compareTo(key) < 0) {
+            int comparison = tuples.get(mid).compareAt(pos, key);
+            if (comparison < 0) {
                 low = mid + 1;
-            } else if (currentValue.compareTo(key) == 0) {
+            } else if (comparison == 0) {
                 low = mid + 1;
                 result = mid;
-            } else if (currentValue.compareTo(mid) > 0) {
+            } else {
                 high = mid - 1;
             }
         }
@@ -166,10 +275,9 @@ public class Page implements Serializable {
         int mid;
         while (low <= high) {
             mid = low + (high - low + 1) / 2;
-            Comparable currentValue = (Comparable) tuples.get(mid).getAttributes().get(pos);
-            if (currentValue.compareTo(key) <= 0) {
+            if (tuples.get(mid).compareAt(pos, key) <= 0) {
                 low = mid + 1;
-            } else if (currentValue.compareTo(mid) > 0) {
+            } else {
                 result = mid;
                 high = mid - 1;
             }
@@ -186,6 +294,10 @@ public class Page implements Serializable {
      * @throws DBAppException if an IOException occurs during the serialization process
      */
     public void serialize(Page page, String address) throws DBAppException {
+        if (getCompression() != PageCompression.NONE) {
+            serializeCompressed(page, address);
+            return;
+        }
         try {
             FileOutputStream fileOut = new FileOutputStream(address);
             ObjectOutputStream out = new ObjectOutputStream(fileOut);
@@ -199,6 +311,91 @@ public class Page implements Serializable {
     }
 
 
+    /**
+     * Serializes a page through the BlockCodec, the file holding the magic number, the codec, the length of the
+     * serialized page, the length of the compressed bytes and the compressed bytes.
+     *
+     * @param page the Page object to be serialized
+     * @param address the file path where the compressed Page object will be stored
+     * @throws DBAppException if an IOException occurs during the serialization process
+     */
+    private void serializeCompressed(Page page, String address) throws DBAppException {
+        try {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(raw)) {
+                out.writeObject(page);
+            }
+            byte[] bytes = raw.toByteArray();
+            long start = System.nanoTime();
+            byte[] compressed = BlockCodec.compress(bytes, bytes.length);
+            PageCompression.BLOCK.getStats().recordEncode(bytes.length, compressed.length, System.nanoTime() - start);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(address)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(PageCompression.BLOCK.ordinal());
+                out.writeInt(bytes.length);
+                out.writeInt(compressed.length);
+                out.write(compressed);
+            }
+        } catch (IOException e) {
+            throw new DBAppException("IO Exception in Page: " + pageName);
+        }
+    }
+
+
+    /**
+     * Reads back a page written by serializeCompressed, the magic number being already read.
+     * The page is decompressed into a frame of the FramePool, which goes back to the pool once the page is read.
+     *
+     * @param in the stream of the page file, positioned right after the magic number
+     * @return the page
+     * @throws DBAppException if the file cannot be read or is corrupt
+     */
+    static Page readCompressed(DataInputStream in) throws DBAppException {
+        try {
+            if (in.readByte() != PageCompression.BLOCK.ordinal())
+                throw new DBAppException("Unknown page codec");
+            int rawLength = in.readInt();
+            byte[] compressed = new byte[in.readInt()];
+            in.readFully(compressed);
+
+            byte[] frame = FramePool.acquire(rawLength);
+            try {
+                long start = System.nanoTime();
+                BlockCodec.decompress(compressed, 0, compressed.length, frame, rawLength);
+                PageCompression.BLOCK.getStats().recordDecode(System.nanoTime() - start);
+                try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(frame, 0, rawLength))) {
+                    return (Page) stream.readObject();
+                }
+            } finally {
+                FramePool.release(frame);
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new DBAppException("IO Exception reading compressed page");
+        }
+    }
+
+
+    /**
+     * Gets how the page is compressed when it is written.
+     *
+     * @return the compression of the page, NONE for pages written before the option existed
+     */
+    public PageCompression getCompression() {
+        return (compression == null) ? PageCompression.NONE : compression;
+    }
+
+
+    /**
+     * Sets how the page is compressed the next time it is written.
+     *
+     * @param compression the compression of the table the page belongs to
+     */
+    public void setCompression(PageCompression compression) {
+        this.compression = compression;
+    }
+
+
     /**
      * Deserializes a Page object from a specified file address.
      *
@@ -229,137 +426,134 @@ public class Page implements Serializable {
      * @param pos the position of the attribute used for comparison
      */
     public void insertIntoPage(Tuple x, int pos) {
-        Comparable nKey = (Comparable) x.getAttributes().get(pos);
+        Object nKey = x.get(pos);
 
         for (int i = 0; i < tuples.size(); i++) {
-            if (nKey.compareTo(tuples.get(i).getAttributes().get(pos)) < 0) {
+            if (tuples.get(i).compareAt(pos, nKey) > 0) {
                 tuples.insertElementAt(x, i);
+                shiftTombstones(i);
                 return;
             }
         }
         tuples.insertElementAt(x, tuples.size());
+        liveTuples = null;
+    }
+
+
+    /**
+     * Moves the tombstones at or after a slot one slot up, after a tuple was inserted at that slot.
+     *
+     * @param slot the slot a tuple was inserted at
+     */
+    private void shiftTombstones(int slot) {
+        liveTuples = null;
+        if (deletedCount() == 0)
+            return;
+        BitSet shifted = tombstones.get(0, slot);
+        for (int i = tombstones.nextSetBit(slot); i >= 0; i = tombstones.nextSetBit(i + 1))
+            shifted.set(i + 1);
+        tombstones = shifted;
     }
 
 
     /**
      * Deletes tuples from the page that match the specified criteria defined in the hashtable.
-     * The method checks each tuple against the values in the hashtable and removes matching tuples.
+     * Matching tuples are only tombstoned, they are removed together with their index entries when the page is compacted.
      *
      * @param hashtableColumnNameValue a Hashtable containing column name-value pairs to match against
      * @param attributeIndex a Vector containing the indices of the attributes to check for matches
+     * @return the number of tuples deleted
      */
-    public void deleteInPage(Hashtable<String, Object> hashtableColumnNameValue, Vector<Integer> attributeIndex) {
-
+    public int deleteInPage(Hashtable<String, Object> hashtableColumnNameValue, Vector<Integer> attributeIndex) {
+        int deleted = 0;
         for (int i = 0; i < tuples.size(); i++) {
-            Vector x = tuples.get(i).getAttributes();
+            if (isDeleted(i))
+                continue;
+            Tuple x = tuples.get(i);
             Set<String> keys = hashtableColumnNameValue.keySet();
             int j = 0;
             for (String key : keys) {
                 if (j == attributeIndex.size()) {
                     break;
                 }
-                if (!x.get(attributeIndex.get(j)).equals(hashtableColumnNameValue.get(key))) {
+                if (!hashtableColumnNameValue.get(key).equals(x.get(attributeIndex.get(j)))) {
                     break;
                 }
                 j++;
             }
             if (j == attributeIndex.size()) {
-                tuples.remove(i);
-                i--;
+                markDeleted(i);
+                deleted++;
             }
         }
+        return deleted;
     }
 
 
     /**
      * Deletes tuples from the page based on the specified conditions and attributes.
-     * The method checks for a specific clustering key and deletes references from associated TreeIndex objects.
+     * When the clustering key is given only the run of tuples holding that key is checked.
+     * Matching tuples are only tombstoned, the index entries pointing at them are removed in one batch when the page is compacted.
      *
      * @param metaOfTable metadata of the table containing attributes
      * @param orgPos the original position of the clustering key
      * @param clusteringKey the name of the clustering key attribute
-     * @param colNameTreeIndex a Hashtable mapping column names to their TreeIndex objects
      * @param hashtableColumnNameValue a Hashtable containing the values for the columns to be matched
-     * @param allIndices a list of all indices associated with the table
      * @param isCluster boolean indicating if the operation is cluster-based
-     * @throws DBAppException if an error occurs during the deletion process
-     */
-    public void deleteInPageForRef(Vector<String[]> metaOfTable,
-                                   int orgPos,
-                                   String clusteringKey,
-                                   Hashtable<String, TreeIndex> colNameTreeIndex,
-                                   Hashtable<String, Object> hashtableColumnNameValue,
-                                   ArrayList<String> allIndices,
-                                   boolean isCluster) throws DBAppException {
-        int n = 0;
-        int lastOccurrence = tuples.size();
-        if (isCluster) {
-            lastOccurrence = binarySearchLastOccurrence((Comparable) hashtableColumnNameValue.get(clusteringKey), orgPos) + 1;
-            for (n = lastOccurrence - 1; n >= 0 && ((Comparable) tuples.get(n).getAttributes().get(orgPos))
-                    .compareTo(hashtableColumnNameValue.get(clusteringKey)) == 0; n--)
-                ;
-            n++;
-        }
+     * @return the number of tuples deleted
+     */
+    public int deleteInPageForRef(Vector<String[]> metaOfTable,
+                                  int orgPos,
+                                  String clusteringKey,
+                                  Hashtable<String, Object> hashtableColumnNameValue,
+                                  boolean isCluster) {
+        if (isCluster)
+            return deleteInPageWithBinarySearch(hashtableColumnNameValue, metaOfTable, orgPos, clusteringKey);
 
         ArrayList<String> arrayList = new ArrayList<>();
         for (String[] strings : metaOfTable) {
             arrayList.add(strings[1]);
         }
-        for (int k = n; k <= Math.min(tuples.size() - 1, lastOccurrence); k++) {
-            Tuple tuple = tuples.get(k);
-            if (validDelete(arrayList, hashtableColumnNameValue, tuple)) {
-                for (int i = 0; i < tuples.get(k).getAttributes().size() - 2; i++) {
-                    for (String allIndex : allIndices) {
-                        if (allIndex.equals(arrayList.get(i))) {
-                            TreeIndex tree = colNameTreeIndex.get(allIndex);
-                            GeneralRef generalRef = tree.search((Comparable) tuple.getAttributes().get(i));
-                            if (generalRef instanceof Ref) {
-                                tree.delete((Comparable) tuples.get(k).getAttributes().get(i));
-                            } else {
-                                if (generalRef instanceof OverflowRef) {
-                                    {
-                                        tree.delete((Comparable) tuple.getAttributes().get(i), this.pageName);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                tuples.remove(k);
-                k--;
+        int deleted = 0;
+        for (int k = 0; k < tuples.size(); k++) {
+            if (!isDeleted(k) && validDelete(arrayList, hashtableColumnNameValue, tuples.get(k))) {
+                markDeleted(k);
+                deleted++;
             }
         }
+        return deleted;
     }
 
 
     /**
      * Deletes tuples from the page using binary search based on the specified clustering key.
-     * The method searches for the last occurrence of the key and removes matching tuples.
+     * The method searches for the last occurrence of the key and tombstones matching tuples walking backwards through the run of equal keys.
      *
      * @param hashtableColumnNameValue a Hashtable containing the values for the columns to be matched
      * @param metaOfTable metadata of the table containing attributes
      * @param orgPos the original position of the clustering key
      * @param clusteringKey the name of the clustering key attribute
+     * @return the number of tuples deleted
      */
-    public void deleteInPageWithBinarySearch(Hashtable<String, Object> hashtableColumnNameValue,
-                                             Vector<String[]> metaOfTable,
-                                             int orgPos,
-                                             String clusteringKey) {
+    public int deleteInPageWithBinarySearch(Hashtable<String, Object> hashtableColumnNameValue,
+                                            Vector<String[]> metaOfTable,
+                                            int orgPos,
+                                            String clusteringKey) {
 
-        int n = binarySearchLastOccurrence((Comparable) hashtableColumnNameValue.get(clusteringKey), orgPos);
+        Comparable key = (Comparable) hashtableColumnNameValue.get(clusteringKey);
+        int n = binarySearchLastOccurrence(key, orgPos);
         ArrayList<String> arrayList = new ArrayList<>();
         for (String[] strings : metaOfTable) {
             arrayList.add(strings[1]);
         }
-        for (int i = n; i >= 0; i--) {
-            Tuple tuple = tuples.get(i);
-            if (tuple.getAttributes().get(orgPos).equals(hashtableColumnNameValue.get(clusteringKey))) {
-                if (validDelete(arrayList, hashtableColumnNameValue, tuple)) {
-                    tuples.remove(i);
-                    i++;
-                }
+        int deleted = 0;
+        for (int i = n; i >= 0 && tuples.get(i).compareAt(orgPos, key) == 0; i--) {
+            if (!isDeleted(i) && validDelete(arrayList, hashtableColumnNameValue, tuples.get(i))) {
+                markDeleted(i);
+                deleted++;
             }
         }
+        return deleted;
     }
 
 
@@ -379,7 +573,7 @@ public class Page implements Serializable {
         for (String s : arrayList) {
             for (int j = 0; j < x.size(); j++) {
                 if (s.equals(x.get(j))) {
-                    if (!(hashtableColumnNameValue.get(s).equals(t.getAttributes().get(j)))) {
+                    if (!(hashtableColumnNameValue.get(s).equals(t.get(j)))) {
                         return false;
                     }
                 }
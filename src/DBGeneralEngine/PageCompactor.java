@@ -0,0 +1,345 @@
+package src.DBGeneralEngine;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * PageCompactor class reclaims the space of tombstoned tuples in the background.
+ * Deletes only mark tuples and queue their pages here; a daemon thread later deletes the index entries of the tombstoned
+ * tuples in one sorted batch per index, removes the tuples, and merges pages left sparse into their neighbours.
+ * Each round holds the table write lock for a bounded number of pages so readers are never stalled for long,
+ * and writes the page list of the table before releasing it, so a merge that deleted page files is never lost.
+ * <p>
+ * The compactor thread also rebuilds the statistics of tables found stale by a writer, so the writer does not pay for it.
+ * <p>
+ * A batch that fails is counted in EngineMetrics and queued again; a page that failed MAX_ATTEMPTS times is skipped
+ * and stays tombstoned, which costs space but not correctness since readers ignore tombstoned tuples.
+ */
+public class PageCompactor {
+
+    /**
+     * Attributes
+     * <p>
+     *
+     * MAX_ATTEMPTS ->  The number of failed batches a page may be part of before it is skipped.
+     * pending      ->  The pages waiting for compaction, per table, in the order they were queued.
+     * metadata     ->  The metadata of every table with pending pages.
+     * attempts     ->  The failed batches every page was part of, for the pages still queued.
+     * analyzing    ->  The tables whose statistics are waiting to be rebuilt.
+     * batchSize    ->  The maximum number of pages compacted under a single hold of the table write lock.
+     * executor     ->  The daemon thread running the compaction rounds.
+     * failures     ->  The batches and statistics rebuilds that failed.
+     * skipped      ->  The pages given up on.
+     * lastFailure  ->  The error of the last failure, null if nothing failed.
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    private final LinkedHashMap<Table, LinkedHashSet<String>> pending = new LinkedHashMap<>();
+    private final Hashtable<Table, Vector<String[]>> metadata = new Hashtable<>();
+    private final Hashtable<String, Integer> attempts = new Hashtable<>();
+    private final Set<Table> analyzing = ConcurrentHashMap.newKeySet();
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private volatile Exception lastFailure;
+
+
+    /**
+     * Constructor
+     *
+     * @param intervalMillis the delay between two compaction rounds
+     * @param batchSize the maximum number of pages compacted under a single hold of the table write lock
+     */
+    public PageCompactor(long intervalMillis, int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "page-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runRound, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Getters
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+
+    /**
+     * Queues pages holding tombstones for compaction.
+     *
+     * @param table the table the pages belong to
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param pageNames the pages that received tombstones
+     */
+    public synchronized void enqueue(Table table, Vector<String[]> metaOfTable, Collection<String> pageNames) {
+        if (pageNames.isEmpty())
+            return;
+        metadata.put(table, metaOfTable);
+        pending.computeIfAbsent(table, key -> new LinkedHashSet<>()).addAll(pageNames);
+    }
+
+
+    /**
+     * Rebuilds the statistics of a table on the compactor thread, a table already waiting is not queued twice.
+     * A failed rebuild is counted like a failed batch, the statistics stay as they were until a later write asks again.
+     *
+     * @param table the table whose statistics are stale
+     * @param metaOfTable the metadata of the table, one row per column
+     */
+    public void analyzeLater(Table table, Vector<String[]> metaOfTable) {
+        if (!analyzing.add(table))
+            return;
+        executor.execute(() -> {
+            try {
+                table.analyze(metaOfTable);
+            } catch (DBAppException | RuntimeException e) {
+                failed(e);
+            } finally {
+                analyzing.remove(table);
+            }
+        });
+    }
+
+
+    /**
+     * Compacts every queued page on the calling thread, used when the engine has to be quiet, for example before a shutdown.
+     * Failed batches are queued again until their pages are skipped, so the queue is empty once it returns.
+     *
+     * @throws DBAppException if a batch failed on the way, the last error being its cause
+     */
+    public void drain() throws DBAppException {
+        long failed = compactQueued();
+        if (failed > 0)
+            throw new DBAppException(failed + " compaction batches failed, the last with: " + lastFailure);
+    }
+
+
+    /**
+     * Stops the background thread, pages still queued stay tombstoned until a later compaction.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+
+    /**
+     * Runs one scheduled round, failed batches being counted and queued again by compactQueued.
+     */
+    private void runRound() {
+        compactQueued();
+    }
+
+
+    /**
+     * Compacts batches until the queue is empty.
+     *
+     * @return the number of batches that failed
+     */
+    @SuppressWarnings("unchecked")
+    private long compactQueued() {
+        long failed = 0;
+        Object[] round;
+        while ((round = takeBatch()) != null) {
+            Table table = (Table) round[0];
+            Vector<String[]> metaOfTable = (Vector<String[]>) round[1];
+            ArrayList<String> batch = (ArrayList<String>) round[2];
+            try {
+                compact(table, metaOfTable, batch);
+                attempts.keySet().removeAll(batch);
+            } catch (DBAppException | RuntimeException e) {
+                failed++;
+                failed(table, metaOfTable, batch, e);
+            }
+        }
+        return failed;
+    }
+
+
+    /**
+     * Records a failed batch and queues its pages again, skipping the pages that failed MAX_ATTEMPTS times.
+     *
+     * @param table the table the pages belong to
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param batch the pages of the failed batch
+     * @param e the error the batch failed with
+     */
+    private void failed(Table table, Vector<String[]> metaOfTable, ArrayList<String> batch, Exception e) {
+        failed(e);
+        ArrayList<String> retry = new ArrayList<>(batch.size());
+        for (String pageName : batch) {
+            if (attempts.merge(pageName, 1, Integer::sum) < MAX_ATTEMPTS)
+                retry.add(pageName);
+            else {
+                attempts.remove(pageName);
+                skipped.increment();
+                EngineMetrics.add(EngineMetrics.Counter.COMPACTION_PAGES_SKIPPED, 1);
+            }
+        }
+        enqueue(table, metaOfTable, retry);
+    }
+
+
+    /**
+     * Counts a failure of the background work and keeps its error.
+     *
+     * @param e the error
+     */
+    private void failed(Exception e) {
+        lastFailure = e;
+        failures.increment();
+        EngineMetrics.add(EngineMetrics.Counter.COMPACTION_FAILURES, 1);
+    }
+
+
+    /**
+     * Removes up to batchSize queued pages of the first table in the queue.
+     *
+     * @return the table, its metadata and the page names, or null if nothing is queued
+     */
+    private synchronized Object[] takeBatch() {
+        Iterator<Map.Entry<Table, LinkedHashSet<String>>> tables = pending.entrySet().iterator();
+        if (!tables.hasNext())
+            return null;
+        Map.Entry<Table, LinkedHashSet<String>> entry = tables.next();
+        ArrayList<String> batch = new ArrayList<>(batchSize);
+        Iterator<String> pageNames = entry.getValue().iterator();
+        while (pageNames.hasNext() && batch.size() < batchSize) {
+            batch.add(pageNames.next());
+            pageNames.remove();
+        }
+        Table table = entry.getKey();
+        Vector<String[]> metaOfTable = metadata.get(table);
+        if (entry.getValue().isEmpty()) {
+            tables.remove();
+            metadata.remove(table);
+        }
+        return new Object[]{table, metaOfTable, batch};
+    }
+
+
+    /**
+     * Compacts a batch of pages of one table under its write lock.
+     * The index entries of the tombstoned tuples are deleted first, in one batch per index, and only then are the tuples
+     * removed from their pages, so a failed index delete leaves the tombstones in place for the retry to find.
+     * Sparse pages are merged last, once the index deletes no longer need the entries under their original page.
+     *
+     * @param table the table the pages belong to
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param pageNames the pages to compact
+     * @throws DBAppException if a page or an index cannot be read or written
+     */
+    private void compact(Table table, Vector<String[]> metaOfTable, ArrayList<String> pageNames) throws DBAppException {
+        table.getLock().writeLock().lock();
+        try {
+            Hashtable<String, Page> pages = new Hashtable<>();
+            Hashtable<String, ArrayList<Tuple>> removed = new Hashtable<>();
+            for (String pageName : pageNames) {
+                if (table.getPageIndex(pageName) == -1)
+                    continue;
+                Page page = Table.deserialize(pageName);
+                if (page.deletedCount() == 0)
+                    continue;
+                pages.put(pageName, page);
+                removed.put(pageName, page.getDeletedTuples());
+            }
+            deleteFromIndexes(table, metaOfTable, removed);
+            for (Page page : pages.values()) {
+                page.purgeDeleted();
+                Table.serializePage(page);
+            }
+
+            ClusteredPageManager manager = new ClusteredPageManager(table, metaOfTable);
+            for (String pageName : removed.keySet()) {
+                int pageIndex = table.getPageIndex(pageName);
+                if (pageIndex != -1)
+                    manager.rebalanceAfterDelete(pageIndex);
+            }
+            // A merge may have deleted page files, the table must not keep listing them
+            if (!removed.isEmpty())
+                table.serialize(table.getTableName());
+        } finally {
+            table.getLock().writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Removes the tombstoned tuples of a page that is about to be rewritten anyway, together with their index entries.
+     * The index entries go first, so the page keeps its tombstones if an index cannot be updated.
+     * The caller must hold the table write lock and write the page afterwards.
+     *
+     * @param table the table the page belongs to
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param page the page to purge
+     * @throws DBAppException if an index cannot be updated
+     */
+    public static void purge(Table table, Vector<String[]> metaOfTable, Page page) throws DBAppException {
+        if (page.deletedCount() == 0)
+            return;
+        Hashtable<String, ArrayList<Tuple>> removed = new Hashtable<>();
+        removed.put(page.getPageName(), page.getDeletedTuples());
+        deleteFromIndexes(table, metaOfTable, removed);
+        page.purgeDeleted();
+    }
+
+
+    /**
+     * Deletes the index entries of removed tuples, as one batch sorted by key per index.
+     *
+     * @param table the table the tuples belonged to
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param removed the removed tuples of every page
+     * @throws DBAppException if an index cannot be updated
+     */
+    @SuppressWarnings("unchecked")
+    private static void deleteFromIndexes(Table table,
+                                          Vector<String[]> metaOfTable,
+                                          Hashtable<String, ArrayList<Tuple>> removed) throws DBAppException {
+        if (removed.isEmpty())
+            return;
+        for (String column : table.getTreeIndexColumnName().keySet()) {
+            int position = -1;
+            for (int i = 0; i < metaOfTable.size(); i++)
+                if (metaOfTable.get(i)[1].equals(column))
+                    position = i;
+            if (position == -1)
+                continue;
+
+            ArrayList<Object[]> entries = new ArrayList<>();
+            for (String pageName : removed.keySet())
+                for (Tuple tuple : removed.get(pageName)) {
+                    Object key = tuple.getKey(position);
+                    if (key != null)
+                        entries.add(new Object[]{key, pageName});
+                }
+            entries.sort((first, second) -> ((Comparable) first[0]).compareTo(second[0]));
+            ArrayList<Comparable> keys = new ArrayList<>(entries.size());
+            ArrayList<String> pageNames = new ArrayList<>(entries.size());
+            for (Object[] entry : entries) {
+                keys.add((Comparable) entry[0]);
+                pageNames.add((String) entry[1]);
+            }
+            table.getTreeIndexColumnName().get(column).deleteBatch(keys, pageNames);
+        }
+    }
+
+}
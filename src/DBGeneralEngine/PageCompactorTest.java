@@ -0,0 +1,151 @@
+package src.DBGeneralEngine;
+
+import src.BPTree.BPTree;
+import src.Ref.GeneralRef;
+import src.Ref.Ref;
+
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the background compaction of tombstoned tuples.
+ * It deletes rows of an indexed table while the index refuses its first batch delete,
+ * and checks that the retry still removes every index entry of the deleted rows.
+ */
+public class PageCompactorTest {
+
+    /**
+     * An index that fails its first batch delete and forwards everything else to the real index.
+     */
+    private static class FailingIndex implements TreeIndex<String> {
+
+        /**
+         * Attributes
+         *
+         * index  -> The real index
+         * failed -> Whether the batch delete failed already
+         */
+        private final TreeIndex<String> index;
+        private boolean failed;
+
+        FailingIndex(TreeIndex<String> index) {
+            this.index = index;
+        }
+
+        public void deleteBatch(ArrayList<String> keys, ArrayList<String> pageNames) throws DBAppException {
+            if (!failed) {
+                failed = true;
+                throw new DBAppException("Index delete failed on purpose");
+            }
+            index.deleteBatch(keys, pageNames);
+        }
+
+        public void insert(String key, Ref recordReference) throws DBAppException {
+            index.insert(key, recordReference);
+        }
+
+        public void insertBatch(ArrayList<String> keys, ArrayList<Ref> recordReferences) throws DBAppException {
+            index.insertBatch(keys, recordReferences);
+        }
+
+        public GeneralRef search(String key) throws DBAppException {
+            return index.search(key);
+        }
+
+        public ArrayList<GeneralRef> searchMTE(String key) throws DBAppException {
+            return index.searchMTE(key);
+        }
+
+        public ArrayList<GeneralRef> searchMT(String key) throws DBAppException {
+            return index.searchMT(key);
+        }
+
+        public Ref searchForInsertion(String key, int tableLength) throws DBAppException {
+            return index.searchForInsertion(key, tableLength);
+        }
+
+        public LeafNode getLeftmostLeaf() throws DBAppException {
+            return index.getLeftmostLeaf();
+        }
+
+        public void updateRef(String oldPage, String newPage, String key) throws DBAppException {
+            index.updateRef(oldPage, newPage, key);
+        }
+
+        public boolean delete(String key) throws DBAppException {
+            return index.delete(key);
+        }
+
+        public boolean delete(String key, String pageName) throws DBAppException {
+            return index.delete(key, pageName);
+        }
+    }
+
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBAppTest.prepare(DBAppTest.metadata("Compacted", "id",
+                "id", "java.lang.Integer", "name", "java.lang.String", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        Table table = new Table();
+        table.setTableName("Compacted");
+        table.getTreeIndexColumnName().put("name", new BPTree<String>(5));
+        dbApp.getTables().add(table);
+
+        List<Hashtable<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", i);
+            row.put("name", "n" + i);
+            rows.add(row);
+        }
+        dbApp.insertIntoTable("Compacted", rows);
+
+        // Compact on this thread only, so the failing batch is the one drained below
+        PageCompactor compactor = dbApp.getCompactor();
+        compactor.shutdown();
+        FailingIndex index = new FailingIndex(table.getTreeIndexColumnName().get("name"));
+        table.getTreeIndexColumnName().put("name", index);
+
+        for (int i = 50; i < 90; i++) {
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", i);
+            dbApp.deleteFromTable("Compacted", row);
+        }
+        try {
+            compactor.drain();
+        } catch (DBAppException e) {
+            // the first batch failed and was retried
+        }
+
+        check(index.failed, "the index delete never ran");
+        check(compactor.getFailures() == 1, "expected one failed batch, got " + compactor.getFailures());
+        check(compactor.getSkipped() == 0, "no page should have been skipped");
+        for (String pageName : table.getPages())
+            check(Table.deserialize(pageName).deletedCount() == 0, pageName + " still holds tombstones");
+
+        for (int i = 0; i < 200; i++) {
+            GeneralRef ref = index.search("n" + i);
+            if (i >= 50 && i < 90) {
+                check(ref == null || ref.getAllRef().isEmpty(), "n" + i + " was deleted but is still indexed");
+                continue;
+            }
+            check(ref != null, "n" + i + " lost its index entry");
+            for (Ref target : ref.getAllRef()) {
+                check(table.getPageIndex(target.getPage()) != -1, "n" + i + " points at the dropped page " + target.getPage());
+                boolean found = false;
+                for (Tuple tuple : Table.deserialize(target.getPage()).getLiveTuples())
+                    found |= tuple.get(0).equals(i);
+                check(found, "n" + i + " points at " + target.getPage() + " which does not hold it");
+            }
+        }
+
+        System.out.println("PageCompactorTest passed");
+    }
+
+}
@@ -0,0 +1,36 @@
+package src.DBGeneralEngine;
+
+
+/**
+ * PageCompression is the compression option of the pages of a table.
+ * <p>
+ * NONE                 ->  Pages are written as they are.
+ * BLOCK                ->  Row pages, and every column block of a columnar page, go through the BlockCodec.
+ * FRAME_OF_REFERENCE   ->  The integer and date column blocks of a columnar page are bit packed by FrameOfReference,
+ *                          every other block and every row page go through the BlockCodec.
+ * <p>
+ * Every codec counts its own work, the statistics of a constant are those of the codec it stands for.
+ */
+public enum PageCompression {
+
+    NONE,
+    BLOCK,
+    FRAME_OF_REFERENCE;
+
+
+    /**
+     * Attributes
+     * <p>
+     * stats    ->  The bytes and the time spent by the codec since the start of the run.
+     */
+    private final CodecStats stats = new CodecStats();
+
+
+    /**
+     * Getters
+     */
+    public CodecStats getStats() {
+        return stats;
+    }
+
+}
@@ -0,0 +1,210 @@
+package src.DBGeneralEngine;
+
+import java.io.*;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the compression of pages.
+ * It round trips bytes through the BlockCodec and numbers through FrameOfReference, then compresses the pages of
+ * a row table and of a columnar table and checks that every row and every select reads back as before.
+ */
+public class PageCompressionTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        // The BlockCodec on inputs shorter than a match, on overlapping runs, on text and on random bytes
+        Random random = new Random(40);
+        byte[] noise = new byte[5000];
+        random.nextBytes(noise);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 400; i++)
+            text.append("row ").append(i % 37).append(", name").append(i % 11).append(';');
+        for (byte[] bytes : new byte[][]{new byte[0], {1, 2, 3}, new byte[70_000], noise, text.toString().getBytes()})
+            checkBlock(bytes);
+        check(BlockCodec.compress(new byte[70_000], 70_000).length < 1000, "a run of zeros was not compressed");
+
+        // FrameOfReference on ascending values, on unsorted values around zero, on a constant and on nothing
+        long[] ascending = new long[300], unsorted = new long[300], constant = new long[300];
+        for (int i = 0; i < 300; i++) {
+            ascending[i] = 1_700_000_000_000L + i * 86_400_000L;
+            unsorted[i] = random.nextInt(2001) - 1000;
+            constant[i] = -42;
+        }
+        for (long[] values : new long[][]{ascending, unsorted, constant, new long[0]})
+            checkFrame(values);
+
+        DBAppTest.prepare(DBAppTest.metadata("Packed", "id",
+                "id", "java.lang.Integer", "name", "java.lang.String", "score", "java.lang.Double",
+                "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        Table rowTable = new Table();
+        rowTable.setTableName("Packed");
+        dbApp.getTables().add(rowTable);
+        Hashtable<String, Object> columns = new Hashtable<>();
+        columns.put("id", "java.lang.Integer");
+        columns.put("name", "java.lang.String");
+        columns.put("score", "java.lang.Double");
+        columns.put("born", "java.util.Date");
+        dbApp.createTable("Columns", "id", columns, true);
+
+        for (String tableName : new String[]{"Packed", "Columns"}) {
+            Table table = table(dbApp, tableName);
+            insert(dbApp, tableName, 0, 100);
+            List<Vector<Object>> plain = select(dbApp, tableName);
+
+            // Compressing rewrites the pages already in the table, the rows read back unchanged
+            PageCompression compression = table.isColumnar() ? PageCompression.FRAME_OF_REFERENCE : PageCompression.BLOCK;
+            long encoded = compression.getStats().getEncodedBytes();
+            dbApp.setPageCompression(tableName, compression);
+            check(compression.getStats().getEncodedBytes() > encoded, tableName + " pages did not go through " + compression);
+            for (String pageName : table.getPages()) {
+                check(fileMagic(pageName) == (table.isColumnar() ? ColumnarPage.MAGIC : Page.MAGIC),
+                        "page " + pageName + " of " + tableName + " was not rewritten compressed");
+                check(Table.deserialize(pageName).getCompression() == compression, "page " + pageName + " lost its compression");
+            }
+            check(select(dbApp, tableName).equals(plain), "the compressed pages of " + tableName + " read back different rows");
+
+            // Pages created and split after the switch are compressed too
+            insert(dbApp, tableName, 1000, 40);
+            insert(dbApp, tableName, 51, 30);
+            for (String pageName : table.getPages())
+                check(Table.deserialize(pageName).getCompression() == compression, "a new page of " + tableName + " is not compressed");
+            List<Vector<Object>> grown = select(dbApp, tableName);
+            check(grown.size() == 170, tableName + " holds " + grown.size() + " rows, expected 170");
+            checkRows(grown);
+
+            // A single column of a columnar page is read back alone from its own block
+            if (table.isColumnar()) {
+                int score = position(tableName, "score");
+                for (String pageName : table.getPages()) {
+                    Page full = Table.deserialize(pageName);
+                    Page projected = ColumnarPage.read(pageName, new int[]{score});
+                    for (int i = 0; i < full.size(); i++)
+                        check(Objects.equals(projected.getTuples().get(i).get(score), full.getTuples().get(i).get(score)),
+                                "the projected score of row " + i + " of " + pageName + " is wrong");
+                }
+            }
+
+            // And going back to uncompressed pages keeps the rows
+            dbApp.setPageCompression(tableName, PageCompression.NONE);
+            check(select(dbApp, tableName).equals(grown), "the decompressed pages of " + tableName + " read back different rows");
+        }
+
+        System.out.println("PageCompressionTest passed");
+    }
+
+
+    /**
+     * Compresses and decompresses bytes and checks they come back unchanged.
+     */
+    private static void checkBlock(byte[] bytes) throws DBAppException {
+        byte[] compressed = BlockCodec.compress(bytes, bytes.length);
+        byte[] read = new byte[bytes.length];
+        BlockCodec.decompress(compressed, 0, compressed.length, read, bytes.length);
+        check(Arrays.equals(read, bytes), "the BlockCodec changed " + bytes.length + " bytes");
+    }
+
+
+    /**
+     * Encodes and decodes numbers and checks they come back unchanged.
+     */
+    private static void checkFrame(long[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            FrameOfReference.encode(out, values);
+        }
+        long[] read = FrameOfReference.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), values.length);
+        check(Arrays.equals(read, values), "FrameOfReference changed " + values.length + " values");
+    }
+
+
+    /**
+     * Inserts rows with ids from first, stepping by two, with nulls in some of them.
+     */
+    private static void insert(DBApp dbApp, String tableName, int first, int count) throws DBAppException {
+        ArrayList<Hashtable<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int id = first + 2 * i;
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", id);
+            row.put("name", "name" + id % 13);
+            if (id % 3 != 0)
+                row.put("score", id / 8.0 - 5);
+            if (table(dbApp, tableName).isColumnar() && id % 4 != 1)
+                row.put("born", new Date(86_400_000L * (id - 50)));
+            rows.add(row);
+        }
+        dbApp.insertIntoTable(tableName, rows);
+    }
+
+
+    /**
+     * Selects every row of a table, without the TouchDate column written at insertion.
+     */
+    private static List<Vector<Object>> select(DBApp dbApp, String tableName) throws DBAppException {
+        int touchDate = position(tableName, "TouchDate");
+        ArrayList<Vector<Object>> rows = new ArrayList<>();
+        dbApp.selectFromTable(new SQLTerm[]{new SQLTerm(tableName, "id", ">=", Integer.MIN_VALUE)}, new String[]{})
+                .forEachRemaining(tuple -> {
+                    Vector<Object> row = new Vector<>();
+                    for (int i = 0; i < tuple.size(); i++)
+                        if (i != touchDate)
+                            row.add(tuple.get(i));
+                    rows.add(row);
+                });
+        return rows;
+    }
+
+
+    /**
+     * Checks that the rows come out in id order, each holding the values it was inserted with.
+     */
+    private static void checkRows(List<Vector<Object>> rows) {
+        for (int i = 0; i + 1 < rows.size(); i++)
+            check((Integer) rows.get(i).get(0) < (Integer) rows.get(i + 1).get(0), "the rows are out of id order at " + i);
+        for (Vector<Object> row : rows) {
+            int id = (Integer) row.get(0);
+            check(row.contains("name" + id % 13), "row " + id + " lost its name");
+            check(row.contains(id / 8.0 - 5) == (id % 3 != 0), "row " + id + " has the wrong score");
+        }
+    }
+
+
+    /**
+     * Finds a table of the DBApp by its name.
+     */
+    private static Table table(DBApp dbApp, String tableName) {
+        for (Table table : dbApp.getTables())
+            if (table.getTableName().equals(tableName))
+                return table;
+        throw new IllegalStateException("table " + tableName + " was not created");
+    }
+
+
+    /**
+     * Finds the position of a column in the tuples of a table, from its metadata.
+     */
+    private static int position(String tableName, String column) throws DBAppException {
+        Vector<String[]> meta = DBApp.getTableMetadata(tableName);
+        for (int i = 0; i < meta.size(); i++)
+            if (meta.get(i)[1].equals(column))
+                return i;
+        throw new IllegalStateException(column + " is not a column of " + tableName);
+    }
+
+
+    /**
+     * Reads the first four bytes of the file of a page.
+     */
+    private static int fileMagic(String pageName) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream("data: " + pageName + ".class"))) {
+            return in.readInt();
+        }
+    }
+
+}
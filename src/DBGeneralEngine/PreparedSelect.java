@@ -0,0 +1,245 @@
+package src.DBGeneralEngine;
+
+import java.awt.Polygon;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Vector;
+
+
+/**
+ * PreparedSelect is a select compiled once and run many times with new values, as DBApp.prepareSelect returns it.
+ * <p>
+ * Preparing resolves everything a select does not need to do again on every run: the table and its metadata,
+ * the position and type of the column of every condition, the operators, and the access path of every condition.
+ * A run only checks its values against the column types and reads the table, the metadata file is not read again.
+ * The access paths are chosen again only when the indexes of the conditions' columns changed since they were chosen.
+ * <pre>
+ *     PreparedSelect byName = dbApp.prepareSelect(new SQLTerm[]{new SQLTerm("Students", "name", "=", null)}, new String[0]);
+ *     Iterator&lt;Tuple&gt; ahmed = byName.execute("Ahmed");
+ *     Iterator&lt;Tuple&gt; sara = byName.execute("Sara");
+ * </pre>
+ */
+public class PreparedSelect {
+
+    /**
+     * Attributes
+     * <p>
+     * dbApp                ->  The database the select runs in.
+     * table                ->  The table the select reads.
+     * columns              ->  The column of every condition.
+     * operators            ->  The operator of every condition, as it was written.
+     * searchOperators      ->  The operator every condition is searched with, "=" on a polygon column being "equals".
+     * positions            ->  The position of the column of every condition in the tuples.
+     * types                ->  The type of the column of every condition, as the metadata names it.
+     * logicalOperators     ->  The logical operators between consecutive conditions, in lower case.
+     * plan                 ->  The access path of every condition and the indexes it was chosen with.
+     */
+    private final DBApp dbApp;
+    private final Table table;
+    private final String[] columns;
+    private final String[] operators;
+    private final String[] searchOperators;
+    private final int[] positions;
+    private final String[] types;
+    private final String[] logicalOperators;
+    private volatile Plan plan;
+
+
+    /**
+     * Constructor
+     * Checks the conditions against the metadata of the table and chooses their access paths.
+     *
+     * @param dbApp the database the select runs in
+     * @param table the table the select reads
+     * @param arrSQLTerms the conditions, their values being ignored
+     * @param strarrOperators the logical operators "AND", "OR" or "XOR" between consecutive conditions
+     * @param metaOfTable the metadata of the table, one row per column
+     * @throws DBAppException if a column, an operator or a logical operator is invalid
+     */
+    PreparedSelect(DBApp dbApp, Table table, SQLTerm[] arrSQLTerms, String[] strarrOperators,
+                   Vector<String[]> metaOfTable) throws DBAppException {
+        int count = arrSQLTerms.length;
+        this.dbApp = dbApp;
+        this.table = table;
+        this.columns = new String[count];
+        this.operators = new String[count];
+        this.searchOperators = new String[count];
+        this.positions = new int[count];
+        this.types = new String[count];
+        this.logicalOperators = new String[count - 1];
+
+        for (int i = 0; i < count; i++) {
+            SQLTerm term = arrSQLTerms[i];
+            columns[i] = term.getStrColumnName();
+            operators[i] = term.getStrOperator();
+            positions[i] = -1;
+            for (int j = 0; j < metaOfTable.size(); j++)
+                if (metaOfTable.get(j)[1].equals(columns[i]))
+                    positions[i] = j;
+            if (positions[i] == -1)
+                throw new DBAppException("Column " + columns[i] + " does not exist in " + table.getTableName());
+            types[i] = metaOfTable.get(positions[i])[2];
+            if (!Table.validOperator(operators[i]))
+                throw new DBAppException("INVALID OPERATOR " + operators[i]);
+            if (Table.isSpatialOperator(operators[i]) && !isPolygon(i))
+                throw new DBAppException("The operator " + operators[i] + " needs a polygon column");
+            searchOperators[i] = Table.searchOperator(operators[i], isPolygon(i));
+        }
+        for (int i = 0; i < count - 1; i++) {
+            if (!Table.validLogicalOperator(strarrOperators[i]))
+                throw new DBAppException("INVALID OPERATOR " + strarrOperators[i]);
+            logicalOperators[i] = strarrOperators[i].toLowerCase();
+        }
+        this.plan = plan();
+    }
+
+
+    /**
+     * Getters
+     */
+    public String getTableName() {
+        return table.getTableName();
+    }
+
+    public int getConditionCount() {
+        return columns.length;
+    }
+
+    Table getTable() {
+        return table;
+    }
+
+    String getColumn(int condition) {
+        return columns[condition];
+    }
+
+    String getSearchOperator(int condition) {
+        return searchOperators[condition];
+    }
+
+    int getPosition(int condition) {
+        return positions[condition];
+    }
+
+    String getLogicalOperator(int index) {
+        return logicalOperators[index];
+    }
+
+    String[] getLogicalOperators() {
+        return logicalOperators.clone();
+    }
+
+
+    /**
+     * Runs the select with new values.
+     *
+     * @param values the value of every condition, in the order of the conditions
+     * @return an iterator over the matching tuples
+     * @throws DBAppException if a value is missing or does not match the type of its column, or a page cannot be read
+     */
+    public Iterator<Tuple> execute(Object... values) throws DBAppException {
+        return dbApp.executePrepared(this, bind(values));
+    }
+
+
+    /**
+     * Checks the values of a run against the types of the columns of the conditions.
+     *
+     * @param values the value of every condition
+     * @return the values as the tuples hold them, polygons being turned into CustomPolygons
+     * @throws DBAppException if a value is missing or does not match the type of its column
+     */
+    private Object[] bind(Object[] values) throws DBAppException {
+        if (values == null || values.length != columns.length)
+            throw new DBAppException("Expected " + columns.length + " values, one per condition");
+        Object[] bound = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof Polygon polygon)
+                value = new CustomPolygon(polygon);
+            boolean matches = (value instanceof CustomPolygon) ? isPolygon(i)
+                    : value != null && value.getClass().getName().equals(types[i]);
+            if (!matches)
+                throw new DBAppException("Classes don't match for column " + columns[i]);
+            bound[i] = value;
+        }
+        return bound;
+    }
+
+
+    /**
+     * Returns the access path of every condition, choosing them again if an index of their columns changed.
+     * Runs under the read lock of the table.
+     *
+     * @return the access paths, in the order of the conditions
+     */
+    AccessPath[] accessPaths() {
+        Plan current = plan;
+        Hashtable<String, TreeIndex> indexes = table.getTreeIndexColumnName();
+        for (int i = 0; i < columns.length; i++)
+            if (indexes.get(columns[i]) != current.indexes[i]) {
+                current = plan();
+                plan = current;
+                break;
+            }
+        return current.paths;
+    }
+
+
+    /**
+     * Chooses the access path of every condition from the indexes the table has now.
+     */
+    private Plan plan() {
+        TreeIndex[] indexes = new TreeIndex[columns.length];
+        AccessPath[] paths = new AccessPath[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = table.getTreeIndexColumnName().get(columns[i]);
+            paths[i] = table.accessPath(columns[i], isPolygon(i), searchOperators[i]);
+        }
+        return new Plan(indexes, paths);
+    }
+
+
+    /**
+     * Builds the conditions of a run, for the result cache, the slow query log and the flight recorder.
+     *
+     * @param values the bound value of every condition
+     * @return the conditions with their values
+     */
+    SQLTerm[] terms(Object[] values) {
+        SQLTerm[] terms = new SQLTerm[columns.length];
+        for (int i = 0; i < columns.length; i++)
+            terms[i] = new SQLTerm(table.getTableName(), columns[i], operators[i], values[i]);
+        return terms;
+    }
+
+
+    private boolean isPolygon(int condition) {
+        return types[condition].equals("java.awt.Polygon");
+    }
+
+
+    /**
+     * Prints the select with a ? in place of every value.
+     *
+     * @return the select, such as "name = ? AND id > ?"
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0)
+                out.append(' ').append(logicalOperators[i - 1].toUpperCase()).append(' ');
+            out.append(columns[i]).append(' ').append(operators[i]).append(" ?");
+        }
+        return out.toString();
+    }
+
+
+    /**
+     * The access path of every condition and the index of its column when it was chosen, null for none.
+     */
+    private record Plan(TreeIndex[] indexes, AccessPath[] paths) {
+    }
+
+}
@@ -0,0 +1,141 @@
+package src.DBGeneralEngine;
+
+import src.BPTree.BPTree;
+import src.Ref.Ref;
+
+import java.awt.Polygon;
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test prepared selects.
+ * A select is prepared before its columns are indexed and run again after an index is created on them:
+ * the runs after the index must take it, and every run must return the rows a brute force check of the table finds.
+ */
+public class PreparedSelectTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBAppTest.prepare(DBAppTest.metadata("Prepared", "id",
+                "id", "java.lang.Integer", "name", "java.lang.String", "shape", "java.awt.Polygon", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        dbApp.getCompactor().shutdown();
+        Table table = new Table();
+        table.setTableName("Prepared");
+        dbApp.getTables().add(table);
+        TreeMap<Integer, Object[]> rows = new TreeMap<>();
+        ArrayList<Hashtable<String, Object>> batch = new ArrayList<>();
+        for (int id = 0; id < 200; id++) {
+            int x = (id % 20) * 10, y = (id / 20) * 10;
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", id);
+            row.put("name", "n" + id % 7);
+            row.put("shape", new Polygon(new int[]{x, x + 6, x + 6, x}, new int[]{y, y, y + 6, y + 6}, 4));
+            rows.put(id, new Object[]{"n" + id % 7, new CustomPolygon((Polygon) row.get("shape"))});
+            batch.add(row);
+        }
+        dbApp.insertIntoTable("Prepared", batch);
+        EngineMetrics.setEnabled(true);
+
+        PreparedSelect byShape = dbApp.prepareSelect(new SQLTerm[]{new SQLTerm("Prepared", "shape", SQLTerm.INTERSECTS, null)},
+                new String[0]);
+        PreparedSelect byName = dbApp.prepareSelect(new SQLTerm[]{new SQLTerm("Prepared", "name", "=", null),
+                new SQLTerm("Prepared", "id", "<", null)}, new String[]{"AND"});
+        check(byName.toString().equals("name = ? AND id < ?"), "the prepared select prints as " + byName);
+
+        // Without indexes the shapes are scanned
+        long scans = EngineMetrics.getCount(AccessPath.FULL_SCAN);
+        checkShapes(byShape, rows);
+        check(EngineMetrics.getCount(AccessPath.FULL_SCAN) > scans, "the shapes were not scanned before the index existed");
+        checkNames(byName, rows);
+
+        // An R-Tree created after preparing is taken by the next runs
+        dbApp.createRTreeIndex("Prepared", "shape");
+        long rTreeSearches = EngineMetrics.getCount(AccessPath.RTREE);
+        checkShapes(byShape, rows);
+        check(EngineMetrics.getCount(AccessPath.RTREE) > rTreeSearches, "the prepared select did not take the new R-Tree");
+
+        // So is a B+ Tree on the name
+        long indexSearches = EngineMetrics.getCount(AccessPath.INDEX);
+        BPTree<String> names = new BPTree<>(5);
+        for (String pageName : table.getPages())
+            for (Tuple tuple : Table.deserialize(pageName).getLiveTuples())
+                names.insert((String) tuple.get(1), new Ref(pageName));
+        table.getTreeIndexColumnName().put("name", names);
+        checkNames(byName, rows);
+        check(EngineMetrics.getCount(AccessPath.INDEX) > indexSearches, "the prepared select did not take the new B+ Tree");
+
+        // And rows written after the index are found through it
+        batch.clear();
+        Hashtable<String, Object> row = new Hashtable<>();
+        row.put("id", 500);
+        row.put("name", "n3");
+        row.put("shape", new Polygon(new int[]{52, 58, 58, 52}, new int[]{52, 52, 58, 58}, 4));
+        rows.put(500, new Object[]{"n3", new CustomPolygon((Polygon) row.get("shape"))});
+        batch.add(row);
+        dbApp.insertIntoTable("Prepared", batch);
+        checkShapes(byShape, rows);
+        checkNames(byName, rows);
+
+        // Values are checked against the types of their columns
+        boolean rejected = false;
+        try {
+            byName.execute("n1", "10");
+        } catch (DBAppException e) {
+            rejected = true;
+        }
+        check(rejected, "a String bound to an Integer column was accepted");
+        EngineMetrics.setEnabled(false);
+
+        System.out.println("PreparedSelectTest passed");
+    }
+
+
+    /**
+     * Runs the select on shapes with a few query rectangles and checks it against every stored shape.
+     */
+    private static void checkShapes(PreparedSelect byShape, TreeMap<Integer, Object[]> rows) throws DBAppException {
+        for (int[] query : new int[][]{{3, 3, 12, 12}, {47, 51, 8, 5}, {95, 15, 40, 40}, {300, 300, 5, 5}}) {
+            int x = query[0], y = query[1];
+            Polygon polygon = new Polygon(new int[]{x, x + query[2], x + query[2], x}, new int[]{y, y, y + query[3], y + query[3]}, 4);
+            CustomPolygon customPolygon = new CustomPolygon(polygon);
+            TreeSet<Integer> expected = new TreeSet<>();
+            rows.forEach((id, values) -> {
+                if (((CustomPolygon) values[1]).intersects(customPolygon))
+                    expected.add(id);
+            });
+            TreeSet<Integer> selected = ids(byShape.execute(polygon));
+            check(selected.equals(expected), "shapes intersecting " + Arrays.toString(query) + " are " + selected + ", expected " + expected);
+        }
+    }
+
+
+    /**
+     * Runs the select on names with a few values and checks it against every stored row.
+     */
+    private static void checkNames(PreparedSelect byName, TreeMap<Integer, Object[]> rows) throws DBAppException {
+        for (Object[] values : new Object[][]{{"n3", 90}, {"n0", 1000}, {"n6", 0}, {"n9", 100}}) {
+            TreeSet<Integer> expected = new TreeSet<>();
+            rows.forEach((id, row) -> {
+                if (row[0].equals(values[0]) && id < (Integer) values[1])
+                    expected.add(id);
+            });
+            TreeSet<Integer> selected = ids(byName.execute(values));
+            check(selected.equals(expected), "name = " + values[0] + " AND id < " + values[1] + " returned " + selected
+                    + ", expected " + expected);
+        }
+    }
+
+
+    private static TreeSet<Integer> ids(Iterator<Tuple> tuples) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        tuples.forEachRemaining(tuple -> ids.add((Integer) tuple.get(0)));
+        return ids;
+    }
+
+}
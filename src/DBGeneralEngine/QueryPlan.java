@@ -0,0 +1,207 @@
+package src.DBGeneralEngine;
+
+import java.util.Locale;
+
+
+/**
+ * QueryPlan is the plan of a select, as DBApp.explain and DBApp.explainAnalyze report it.
+ * Every condition is a leaf answered by its own access path, and the logical operators combine the results left to right,
+ * so the plan is a left-deep tree of set operations over the leaves: (a AND b) OR c.
+ * <p>
+ * Every node carries the rows the planner expects. An analyzed plan also carries what running it cost:
+ * the rows the node returned, the pages, overflow pages and index nodes it read, the page key cache hits
+ * and the time it took. The costs of a leaf are those of its access path, those of a set operation are
+ * the combining alone, its children having their own.
+ */
+public class QueryPlan {
+
+    /**
+     * Attributes
+     * <p>
+     * term             ->  The condition of a leaf, null for a set operation.
+     * accessPath       ->  The access path of a leaf, null for a set operation.
+     * operator         ->  The logical operator of a set operation, "and", "or" or "xor", null for a leaf.
+     * left             ->  The plan of the conditions before the operator, null for a leaf.
+     * right            ->  The condition after the operator, null for a leaf.
+     * estimatedRows    ->  The rows the planner expects the node to return.
+     * analyzed         ->  Whether the plan was run and its costs measured.
+     * actualRows       ->  The rows the node returned.
+     * pagesRead        ->  The pages and overflow pages the node read.
+     * nodesRead        ->  The index nodes the node read.
+     * cacheHits        ->  The lookups of the minimum keys of the pages answered from the cache.
+     * nanos            ->  The time the node took, in nanoseconds.
+     */
+    private final SQLTerm term;
+    private final AccessPath accessPath;
+    private final String operator;
+    private final QueryPlan left;
+    private final QueryPlan right;
+    private final long estimatedRows;
+    private boolean analyzed;
+    private long actualRows;
+    private long pagesRead;
+    private long nodesRead;
+    private long cacheHits;
+    private long nanos;
+
+
+    /**
+     * Constructors
+     * <p>
+     *
+     * The plan of a single condition.
+     *
+     * @param term the condition
+     * @param accessPath the access path answering it
+     * @param estimatedRows the rows expected
+     */
+    public QueryPlan(SQLTerm term, AccessPath accessPath, long estimatedRows) {
+        this.term = term;
+        this.accessPath = accessPath;
+        this.operator = null;
+        this.left = null;
+        this.right = null;
+        this.estimatedRows = estimatedRows;
+    }
+
+    /**
+     * The plan of a set operation combining the results of two plans.
+     *
+     * @param operator the logical operator, "and", "or" or "xor"
+     * @param left the plan of the conditions before the operator
+     * @param right the plan of the condition after the operator
+     * @param estimatedRows the rows expected
+     */
+    public QueryPlan(String operator, QueryPlan left, QueryPlan right, long estimatedRows) {
+        this.term = null;
+        this.accessPath = null;
+        this.operator = operator.toLowerCase();
+        this.left = left;
+        this.right = right;
+        this.estimatedRows = estimatedRows;
+    }
+
+
+    /**
+     * Getters
+     */
+    public boolean isLeaf() {
+        return term != null;
+    }
+
+    public SQLTerm getTerm() {
+        return term;
+    }
+
+    public AccessPath getAccessPath() {
+        return accessPath;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public QueryPlan getLeft() {
+        return left;
+    }
+
+    public QueryPlan getRight() {
+        return right;
+    }
+
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    public boolean isAnalyzed() {
+        return analyzed;
+    }
+
+    public long getActualRows() {
+        return actualRows;
+    }
+
+    public long getPagesRead() {
+        return pagesRead;
+    }
+
+    public long getNodesRead() {
+        return nodesRead;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+
+    /**
+     * Records what running the node cost.
+     *
+     * @param actualRows the rows it returned
+     * @param trace the storage work it did
+     * @param nanos the time it took, in nanoseconds
+     */
+    void analyzed(long actualRows, QueryTrace trace, long nanos) {
+        this.analyzed = true;
+        this.actualRows = actualRows;
+        this.pagesRead = trace.getPagesRead();
+        this.nodesRead = trace.getNodesRead();
+        this.cacheHits = trace.getCacheHits();
+        this.nanos = nanos;
+    }
+
+
+    /**
+     * Prints the plan as an indented tree, the root first, one node per line.
+     *
+     * @return the plan
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        print(out, 0);
+        return out.toString();
+    }
+
+
+    /**
+     * Prints a node and, under it, its children.
+     */
+    private void print(StringBuilder out, int depth) {
+        out.append("  ".repeat(depth));
+        if (isLeaf())
+            out.append(describe(accessPath)).append(": ").append(term.getStrColumnName()).append(' ')
+                    .append(term.getStrOperator()).append(' ').append(term.getObjValue());
+        else
+            out.append(operator.toUpperCase());
+        out.append("  (estimated rows=").append(estimatedRows);
+        if (analyzed)
+            out.append(", actual rows=").append(actualRows).append(", pages=").append(pagesRead)
+                    .append(", nodes=").append(nodesRead).append(", cache hits=").append(cacheHits)
+                    .append(String.format(Locale.ROOT, ", time=%.3f ms", nanos / 1e6));
+        out.append(")\n");
+        if (!isLeaf()) {
+            left.print(out, depth + 1);
+            right.print(out, depth + 1);
+        }
+    }
+
+
+    /**
+     * Names an access path the way the plan prints it.
+     */
+    private static String describe(AccessPath path) {
+        return switch (path) {
+            case BINARY -> "Binary search on the clustering key";
+            case INDEX -> "B+ Tree index";
+            case RTREE -> "R-Tree index";
+            case LINEAR -> "Linear scan";
+            case FULL_SCAN -> "Full scan";
+        };
+    }
+
+}
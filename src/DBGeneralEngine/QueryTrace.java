@@ -0,0 +1,77 @@
+package src.DBGeneralEngine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * QueryTrace counts the storage work of one operator of an analyzed query, on every thread working for it.
+ * EngineMetrics adds to the trace installed on the calling thread, whether or not its own metrics are enabled,
+ * and the tasks a query forks carry the trace of the thread that forked them.
+ */
+final class QueryTrace {
+
+    /**
+     * Attributes
+     * <p>
+     * pagesRead    ->  The pages and overflow pages read.
+     * nodesRead    ->  The B+ Tree and R-Tree nodes read.
+     * cacheHits    ->  The lookups answered by the cache of the minimum keys of the pages.
+     * rowsScanned  ->  The rows of the pages read.
+     */
+    private final LongAdder pagesRead = new LongAdder();
+    private final LongAdder nodesRead = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder rowsScanned = new LongAdder();
+
+
+    /**
+     * Counts a storage operation.
+     *
+     * @param operation the operation
+     */
+    void add(EngineMetrics.Operation operation) {
+        switch (operation) {
+            case PAGE_READ, OVERFLOW_PAGE_READ -> pagesRead.increment();
+            case BPTREE_NODE_READ, RTREE_NODE_READ -> nodesRead.increment();
+            default -> {
+            }
+        }
+    }
+
+
+    /**
+     * Adds to the counter matching a plain counter of EngineMetrics.
+     *
+     * @param counter the counter
+     * @param amount the amount to add
+     */
+    void add(EngineMetrics.Counter counter, long amount) {
+        switch (counter) {
+            case PAGE_KEY_CACHE_HITS -> cacheHits.add(amount);
+            case ROWS_SCANNED -> rowsScanned.add(amount);
+            default -> {
+            }
+        }
+    }
+
+
+    /**
+     * Getters
+     */
+    long getPagesRead() {
+        return pagesRead.sum();
+    }
+
+    long getNodesRead() {
+        return nodesRead.sum();
+    }
+
+    long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+}
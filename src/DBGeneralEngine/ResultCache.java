@@ -0,0 +1,226 @@
+package src.DBGeneralEngine;
+
+import java.awt.Polygon;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * ResultCache keeps the results of recent selects, so a select repeated while its table is unchanged
+ * is answered without reading a page or an index node.
+ * <p>
+ * A result is keyed by its table and its conditions, normalized so the same select written differently shares an entry:
+ * the logical operators are upper cased and the conditions of a chain of ANDs only, or of ORs only, are sorted.
+ * Every result remembers the version of its table when the select started; every insert and delete moves the version on,
+ * so a result read back with another version is stale and dropped.
+ * <p>
+ * The cache is bounded by the number of results and by the rows they hold together, the least recently used results
+ * are evicted first. A result larger than the whole row budget is not cached.
+ * The tuples of a cached result are shared by every select it answers and must not be modified by the callers.
+ */
+public class ResultCache {
+
+    /**
+     * Attributes
+     * <p>
+     * maxEntries   ->  The largest number of results kept.
+     * maxRows      ->  The largest number of rows the kept results hold together.
+     * entries      ->  The kept results by key, least recently used first.
+     * rows         ->  The rows the kept results hold together.
+     * hits         ->  The selects answered from the cache.
+     * misses       ->  The selects that had to run, their result being absent or stale.
+     * evictions    ->  The results evicted to stay within the bounds.
+     */
+    private final int maxEntries;
+    private final long maxRows;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long rows;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * Constructor
+     *
+     * @param maxEntries the largest number of results kept
+     * @param maxRows the largest number of rows the kept results hold together
+     */
+    public ResultCache(int maxEntries, long maxRows) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxRows = Math.max(1, maxRows);
+    }
+
+
+    /**
+     * Getters
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of the selects answered from the cache.
+     *
+     * @return the hit rate, 0 before the first select
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return (total == 0) ? 0 : (double) hit / total;
+    }
+
+
+    /**
+     * Builds the key of a select, normalizing its conditions and operators.
+     *
+     * @param arrSQLTerms the conditions, all on the same table
+     * @param strarrOperators the logical operators between them
+     * @return the key of the select
+     */
+    public static Key key(SQLTerm[] arrSQLTerms, String[] strarrOperators) {
+        return key(arrSQLTerms[0].getStrTableName(), arrSQLTerms, strarrOperators, "");
+    }
+
+
+    /**
+     * Builds the key of a select returning its first rows in an order.
+     *
+     * @param strTableName the name of the table
+     * @param arrSQLTerms the conditions, possibly none
+     * @param strarrOperators the logical operators between them
+     * @param order the order and limit of the select, such as "id DESC LIMIT 50", empty for none
+     * @return the key of the select
+     */
+    public static Key key(String strTableName, SQLTerm[] arrSQLTerms, String[] strarrOperators, String order) {
+        ArrayList<List<Object>> terms = new ArrayList<>(arrSQLTerms.length);
+        for (SQLTerm term : arrSQLTerms)
+            terms.add(List.of(term.getStrColumnName(), term.getStrOperator(), valueKey(term.getObjValue())));
+        ArrayList<String> operators = new ArrayList<>(strarrOperators.length);
+        for (String operator : strarrOperators)
+            operators.add(operator.toUpperCase());
+
+        // AND and OR are commutative, a chain of only one of them does not depend on the order of its conditions
+        if (new HashSet<>(operators).size() == 1 && !operators.get(0).equals("XOR"))
+            terms.sort(Comparator.comparing(Object::toString));
+        return new Key(strTableName, terms, operators, order);
+    }
+
+
+    /**
+     * Turns the value of a condition into a key part: polygons are compared by their vertices, since their equals
+     * only compares areas, and the class of the value is kept so 5 and "5" stay apart.
+     */
+    private static Object valueKey(Object objValue) {
+        if (objValue instanceof Polygon polygon)
+            objValue = new CustomPolygon(polygon);
+        if (objValue instanceof CustomPolygon)
+            return "polygon " + objValue;
+        if (objValue == null)
+            return "null";
+        return List.of(objValue.getClass().getName(), objValue);
+    }
+
+
+    /**
+     * Looks up the result of a select.
+     *
+     * @param table the table the select reads
+     * @param key the key of the select
+     * @return the result, or null if it is not cached or the table changed since
+     */
+    public synchronized ArrayList<Tuple> get(Table table, Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.table == table && entry.version == table.getVersion()) {
+            hits.increment();
+            EngineMetrics.add(EngineMetrics.Counter.RESULT_CACHE_HITS, 1);
+            return entry.result;
+        }
+        if (entry != null)
+            remove(key, entry);
+        misses.increment();
+        EngineMetrics.add(EngineMetrics.Counter.RESULT_CACHE_MISSES, 1);
+        return null;
+    }
+
+
+    /**
+     * Keeps the result of a select, evicting the least recently used results beyond the bounds.
+     *
+     * @param table the table the select read
+     * @param version the version of the table read before the select started
+     * @param key the key of the select
+     * @param result the result of the select
+     */
+    public synchronized void put(Table table, long version, Key key, ArrayList<Tuple> result) {
+        // A write finished during the select, its result may already be stale
+        if (result.size() > maxRows || version != table.getVersion())
+            return;
+        Entry previous = entries.remove(key);
+        if (previous != null)
+            rows -= previous.result.size();
+        entries.put(key, new Entry(table, version, result));
+        rows += result.size();
+
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || rows > maxRows) && eldest.hasNext()) {
+            rows -= eldest.next().getValue().result.size();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+
+    /**
+     * Drops every result.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        rows = 0;
+    }
+
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        rows -= entry.result.size();
+    }
+
+
+    /**
+     * The normalized table, conditions, operators, order and limit of a select.
+     */
+    public record Key(String tableName, List<List<Object>> terms, List<String> operators, String order) {
+    }
+
+
+    /**
+     * A cached result and the table version it was read at.
+     */
+    private record Entry(Table table, long version, ArrayList<Tuple> result) {
+    }
+
+}
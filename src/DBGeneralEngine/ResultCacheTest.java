@@ -0,0 +1,151 @@
+package src.DBGeneralEngine;
+
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the result cache of selects.
+ * A repeated select must be answered without reading a page, and every insert or delete on its table must make
+ * the next select run again and see the change, while writes to another table leave the cached result in place.
+ */
+public class ResultCacheTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBAppTest.prepare(
+                DBAppTest.metadata("Cached", "id", "id", "java.lang.Integer", "name", "java.lang.String", "TouchDate", "java.util.Date"),
+                DBAppTest.metadata("Other", "id", "id", "java.lang.Integer", "name", "java.lang.String", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        dbApp.getCompactor().shutdown();
+        for (String tableName : new String[]{"Cached", "Other"}) {
+            Table table = new Table();
+            table.setTableName(tableName);
+            dbApp.getTables().add(table);
+        }
+        TreeMap<Integer, String> rows = new TreeMap<>();
+        ArrayList<Hashtable<String, Object>> batch = new ArrayList<>();
+        for (int id = 0; id < 200; id += 2)
+            batch.add(row(id, rows));
+        dbApp.insertIntoTable("Cached", batch);
+        ResultCache cache = new ResultCache(8, 1000);
+        dbApp.setResultCache(cache);
+        EngineMetrics.setEnabled(true);
+
+        // The second run is a hit and reads no page, the same select written differently shares the entry
+        check(select(dbApp, "and").equals(expected(rows)), "the first select returned the wrong rows");
+        check(cache.getHits() == 0 && cache.getMisses() == 1, "the first select was not a miss");
+        long pageReads = EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ);
+        check(select(dbApp, "and").equals(expected(rows)), "the cached result differs from the first one");
+        check(select(dbApp, "AND").equals(expected(rows)), "the reordered select returned the wrong rows");
+        check(cache.getHits() == 2 && cache.getMisses() == 1, "the repeated selects were not answered from the cache");
+        check(EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) == pageReads, "a cached select read pages");
+
+        // An insert makes the next select run and see the new row, which is then cached again
+        batch.clear();
+        batch.add(row(304, rows));
+        dbApp.insertIntoTable("Cached", batch);
+        check(select(dbApp, "AND").equals(expected(rows)), "the select after an insert missed the new row");
+        check(cache.getMisses() == 2, "the select after an insert was answered from the cache");
+        select(dbApp, "AND");
+        check(cache.getHits() == 3, "the result after the insert was not cached again");
+
+        // So does a delete
+        Hashtable<String, Object> deleted = new Hashtable<>();
+        deleted.put("id", 54);
+        dbApp.deleteFromTable("Cached", deleted);
+        rows.remove(54);
+        check(select(dbApp, "AND").equals(expected(rows)), "the select after a delete still returned the deleted row");
+        check(cache.getMisses() == 3, "the select after a delete was answered from the cache");
+
+        // A write to another table keeps the result
+        batch.clear();
+        batch.add(row(1, new TreeMap<>()));
+        dbApp.insertIntoTable("Other", batch);
+        select(dbApp, "AND");
+        check(cache.getHits() == 4 && cache.getMisses() == 3, "a write to another table invalidated the result");
+
+        // An ordered select with a limit is invalidated the same way
+        List<Integer> top = top(dbApp);
+        check(top.equals(top(rows)), "the ordered select returned " + top);
+        batch.clear();
+        batch.add(row(500, rows));
+        dbApp.insertIntoTable("Cached", batch);
+        top = top(dbApp);
+        check(top.equals(top(rows)), "the ordered select after an insert returned " + top);
+
+        // The least recently used results are evicted beyond the bound on entries
+        ResultCache small = new ResultCache(2, 1000);
+        dbApp.setResultCache(small);
+        select(dbApp, "AND");
+        top(dbApp);
+        select(dbApp, "AND");
+        dbApp.selectFromTable(new SQLTerm[]{new SQLTerm("Cached", "id", "=", 4)}, new String[]{});
+        check(small.size() == 2 && small.getEvictions() == 1, "the cache holds " + small.size() + " results after "
+                + small.getEvictions() + " evictions");
+        select(dbApp, "AND");
+        check(small.getHits() == 2, "the most recently used result was evicted");
+        EngineMetrics.setEnabled(false);
+
+        System.out.println("ResultCacheTest passed");
+    }
+
+
+    private static Hashtable<String, Object> row(int id, TreeMap<Integer, String> rows) {
+        Hashtable<String, Object> row = new Hashtable<>();
+        row.put("id", id);
+        row.put("name", "n" + id % 10);
+        rows.put(id, "n" + id % 10);
+        return row;
+    }
+
+
+    /**
+     * Selects the ids of the rows named n4 from id 40, with the conditions in the order given by the operator case.
+     */
+    private static List<Integer> select(DBApp dbApp, String operator) throws DBAppException {
+        SQLTerm name = new SQLTerm("Cached", "name", "=", "n4");
+        SQLTerm id = new SQLTerm("Cached", "id", ">=", 40);
+        SQLTerm[] terms = operator.equals("AND") ? new SQLTerm[]{id, name} : new SQLTerm[]{name, id};
+        ArrayList<Integer> ids = new ArrayList<>();
+        dbApp.selectFromTable(terms, new String[]{operator}).forEachRemaining(tuple -> ids.add((Integer) tuple.get(0)));
+        Collections.sort(ids);
+        return ids;
+    }
+
+
+    /**
+     * The ids the select must return.
+     */
+    private static List<Integer> expected(TreeMap<Integer, String> rows) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        rows.forEach((id, name) -> {
+            if (name.equals("n4") && id >= 40)
+                ids.add(id);
+        });
+        return ids;
+    }
+
+
+    /**
+     * Selects the three largest ids.
+     */
+    private static List<Integer> top(DBApp dbApp) throws DBAppException {
+        ArrayList<Integer> ids = new ArrayList<>();
+        dbApp.selectFromTable("Cached", "id", false, 3).forEachRemaining(tuple -> ids.add((Integer) tuple.get(0)));
+        return ids;
+    }
+
+
+    /**
+     * The three largest ids.
+     */
+    private static List<Integer> top(TreeMap<Integer, String> rows) {
+        return new ArrayList<>(rows.descendingKeySet()).subList(0, 3);
+    }
+
+}
@@ -0,0 +1,267 @@
+package src.DBGeneralEngine;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * RowSchema is the compiled layout of the rows of a table, shared by every tuple with the same column types.
+ * Integer, double and date columns, and the row id that follows the columns, are packed into one long[] per tuple,
+ * every other column is kept as a reference in one Object[] per tuple, so a row holds no boxed numbers or dates
+ * and reading a numeric column involves no monitor and no allocation.
+ * The first words of the long[] are the null flags of the packed columns, one bit per packed column.
+ * A dictionary encoded String column is packed as the int code of its value in the dictionary of the column.
+ */
+public final class RowSchema implements Serializable {
+
+    /**
+     * Kinds of columns
+     * <p>
+     * INT          ->  An Integer column, packed.
+     * DOUBLE       ->  A Double column, packed as the raw bits of the double.
+     * DATE         ->  A Date column, packed as milliseconds since the epoch.
+     * REFERENCE    ->  Any other column, String and polygon columns among them, kept as a reference.
+     * CODE         ->  A dictionary encoded String column, packed as the code of the value.
+     */
+    public static final byte INT = 0;
+    public static final byte DOUBLE = 1;
+    public static final byte DATE = 2;
+    public static final byte REFERENCE = 3;
+    public static final byte CODE = 4;
+
+
+    /**
+     * Attributes
+     * <p>
+     * kinds        ->  The kind of every column, the row id being the last one.
+     * slots        ->  The index of every column in the long[] of packed columns, after the null words,
+     *                  or in the Object[] of references.
+     * nullWords    ->  The number of leading words of the long[] holding the null flags of the packed columns.
+     * packedWidth  ->  The length of the long[] of a tuple, null words included.
+     * references   ->  The length of the Object[] of a tuple.
+     * dictionaries ->  The dictionary of every CODE column, null for the other columns.
+     * signature    ->  The kinds and the names of the dictionaries as a string, the key schemas are shared by.
+     * schemas      ->  Every compiled schema by signature, so all tuples of a table point at one instance.
+     */
+    private final byte[] kinds;
+    private final int[] slots;
+    private final int nullWords;
+    private final int packedWidth;
+    private final int references;
+    private final StringDictionary[] dictionaries;
+    private final String signature;
+
+    private static final ConcurrentHashMap<String, RowSchema> schemas = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor
+     * Assigns every column its slot, packed columns first come first served in the long[], the others in the Object[].
+     *
+     * @param kinds the kind of every column, the row id being the last one
+     * @param dictionaries the dictionary of every CODE column, null for the other columns
+     */
+    private RowSchema(byte[] kinds, StringDictionary[] dictionaries) {
+        this.kinds = kinds;
+        this.dictionaries = dictionaries;
+        this.slots = new int[kinds.length];
+        int packed = 0, referenced = 0;
+        for (int i = 0; i < kinds.length; i++)
+            slots[i] = (kinds[i] == REFERENCE) ? referenced++ : packed++;
+        this.nullWords = (packed + 63) / 64;
+        for (int i = 0; i < kinds.length; i++)
+            if (kinds[i] != REFERENCE)
+                slots[i] += nullWords;
+        this.packedWidth = nullWords + packed;
+        this.references = referenced;
+        this.signature = signatureOf(kinds, dictionaries);
+    }
+
+
+    /**
+     * Compiles the layout of the rows of a table from its metadata, the row id being appended as an integer column.
+     *
+     * @param metaOfTable the metadata of the table, one row per column with the column type at index 2
+     * @return the shared schema of rows with these column types
+     */
+    public static RowSchema of(Vector<String[]> metaOfTable) {
+        return of(metaOfTable, new Hashtable<>());
+    }
+
+
+    /**
+     * Compiles the layout of the rows of a table from its metadata and the dictionaries of its encoded String columns,
+     * the row id being appended as an integer column.
+     *
+     * @param metaOfTable the metadata of the table, one row per column with the column name at index 1 and the type at index 2
+     * @param dictionaries the dictionary of every dictionary encoded column, by column name
+     * @return the shared schema of rows with these column types and dictionaries
+     */
+    public static RowSchema of(Vector<String[]> metaOfTable, Hashtable<String, StringDictionary> dictionaries) {
+        byte[] kinds = new byte[metaOfTable.size() + 1];
+        StringDictionary[] columnDictionaries = new StringDictionary[kinds.length];
+        for (int i = 0; i < metaOfTable.size(); i++) {
+            columnDictionaries[i] = dictionaries.get(metaOfTable.get(i)[1]);
+            kinds[i] = switch (metaOfTable.get(i)[2]) {
+                case "java.lang.Integer" -> INT;
+                case "java.lang.Double" -> DOUBLE;
+                case "java.util.Date" -> DATE;
+                case "java.lang.String" -> (columnDictionaries[i] != null) ? CODE : REFERENCE;
+                default -> REFERENCE;
+            };
+            if (kinds[i] != CODE)
+                columnDictionaries[i] = null;
+        }
+        kinds[metaOfTable.size()] = INT;
+        return shared(kinds, columnDictionaries);
+    }
+
+
+    /**
+     * Infers the layout of a row from the classes of its values, for rows built without the metadata of their table.
+     * A null value is laid out as a reference.
+     *
+     * @param values the values of the row, the row id being the last one
+     * @return the shared schema of rows with these column kinds
+     */
+    public static RowSchema infer(Vector values) {
+        byte[] kinds = new byte[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            kinds[i] = (value instanceof Integer) ? INT
+                    : (value instanceof Double) ? DOUBLE
+                    : (value instanceof Date) ? DATE
+                    : REFERENCE;
+        }
+        return shared(kinds, new StringDictionary[kinds.length]);
+    }
+
+
+    /**
+     * Returns the shared schema with the given kinds, for layouts stored next to the data they describe.
+     *
+     * @param kinds the kind of every column, the row id being the last one
+     * @param dictionaries the dictionary of every CODE column, null for the other columns
+     * @return the shared schema with these kinds
+     */
+    static RowSchema ofKinds(byte[] kinds, StringDictionary[] dictionaries) {
+        return shared(kinds.clone(), dictionaries.clone());
+    }
+
+
+    /**
+     * Returns the one instance of the schema with the given kinds and dictionaries.
+     */
+    private static RowSchema shared(byte[] kinds, StringDictionary[] dictionaries) {
+        String signature = signatureOf(kinds, dictionaries);
+        RowSchema schema = schemas.get(signature);
+        return (schema != null) ? schema : schemas.computeIfAbsent(signature, key -> new RowSchema(kinds, dictionaries));
+    }
+
+
+    /**
+     * Spells out the kinds as one digit per column, followed by the name of the dictionary of every CODE column.
+     */
+    private static String signatureOf(byte[] kinds, StringDictionary[] dictionaries) {
+        StringBuilder stringBuilder = new StringBuilder(kinds.length);
+        for (byte kind : kinds)
+            stringBuilder.append(kind);
+        for (int i = 0; i < kinds.length; i++)
+            if (kinds[i] == CODE)
+                stringBuilder.append('|').append(dictionaries[i].getName());
+        return stringBuilder.toString();
+    }
+
+
+    /**
+     * Replaces a schema read back from disk with the shared instance, so the tuples of every page point at the same one.
+     *
+     * @return the shared schema with the same kinds
+     */
+    @Serial
+    private Object readResolve() {
+        return schemas.computeIfAbsent(signature, key -> this);
+    }
+
+
+    /**
+     * Getters
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    public byte getKind(int column) {
+        return kinds[column];
+    }
+
+    byte[] getKinds() {
+        return kinds.clone();
+    }
+
+    public StringDictionary getDictionary(int column) {
+        return dictionaries[column];
+    }
+
+    int getSlot(int column) {
+        return slots[column];
+    }
+
+    int getPackedWidth() {
+        return packedWidth;
+    }
+
+    int getReferences() {
+        return references;
+    }
+
+
+    /**
+     * Gets the word and bit of the null flag of a packed column.
+     *
+     * @param column the packed column
+     * @return the index of the flag, counted in bits from the start of the long[]
+     */
+    int nullBit(int column) {
+        return slots[column] - nullWords;
+    }
+
+
+    /**
+     * Encodes a value of a packed column into its long.
+     *
+     * @param column the packed column
+     * @param value  the non null value
+     * @return the packed form of the value
+     */
+    long pack(int column, Object value) {
+        return switch (kinds[column]) {
+            case INT -> (Integer) value;
+            case DOUBLE -> Double.doubleToRawLongBits((Double) value);
+            case CODE -> dictionaries[column].encode((String) value);
+            default -> ((Date) value).getTime();
+        };
+    }
+
+
+    /**
+     * Decodes the long of a packed column back into its value.
+     *
+     * @param column the packed column
+     * @param bits   the packed form of the value
+     * @return a new boxed value
+     */
+    Object unpack(int column, long bits) {
+        return switch (kinds[column]) {
+            case INT -> (int) bits;
+            case DOUBLE -> Double.longBitsToDouble(bits);
+            case CODE -> dictionaries[column].decode((int) bits);
+            default -> new Date(bits);
+        };
+    }
+
+}
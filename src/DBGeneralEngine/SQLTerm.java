@@ -4,6 +4,22 @@ import java.awt.*;
 
 public class SQLTerm {
 
+    /**
+     * Spatial operators, polygon columns can be filtered by their relationship with a polygon value
+     * in addition to the area comparisons of the other operators.
+     * "=" on a polygon value is answered as EQUALS.
+     * <p>
+     * EQUALS       ->  The stored polygon covers exactly the same region as the value.
+     * INTERSECTS   ->  The stored polygon shares at least one point with the value.
+     * CONTAINS     ->  The stored polygon covers the value.
+     * WITHIN       ->  The stored polygon lies inside the value.
+     */
+    public static final String EQUALS = "equals";
+    public static final String INTERSECTS = "intersects";
+    public static final String CONTAINS = "contains";
+    public static final String WITHIN = "within";
+
+
     /**
      * Attributes
      */
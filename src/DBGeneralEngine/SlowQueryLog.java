@@ -0,0 +1,324 @@
+package src.DBGeneralEngine;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * SlowQueryLog records the statements slower than a threshold: the operation, the table, the conditions and
+ * access paths of a select, the pages and index nodes read and the elapsed time, one line per statement.
+ * <p>
+ * The caller only formats the line of a slow statement and hands it to a bounded queue, a daemon thread writes
+ * the queue to the file. A full queue drops the line rather than blocking the caller, and a batch the file fails to take
+ * is dropped with the file reopened for the next one; the dropped lines are counted, also in EngineMetrics.
+ * The file is rotated once it reaches maxBytes: slow-query.log becomes slow-query.log.1, the older files move up
+ * one number and the oldest beyond maxFiles is deleted.
+ * <p>
+ * A statement is timed from begin to log, the storage work it does on the way being counted in its QueryTrace:
+ * <pre>
+ *     SlowQueryLog.Statement statement = log.begin();
+ *     try {
+ *         ...
+ *         statement.log("select", tableName, () -> "rows=" + rows);
+ *     } finally {
+ *         statement.end();
+ *     }
+ * </pre>
+ */
+public class SlowQueryLog {
+
+    /**
+     * The details of a slow statement, built only once it is known to be slow.
+     */
+    public interface Details {
+        String describe();
+    }
+
+
+    /**
+     * Attributes
+     * <p>
+     * QUEUE_CAPACITY   ->  The number of lines waiting to be written before new lines are dropped.
+     * CLOSE            ->  The line telling the writer to stop.
+     * CLOSE_TIMEOUT    ->  The seconds close waits for room in the queue, and then for the writer to finish.
+     * path             ->  The file the lines are written to.
+     * thresholdNanos   ->  The elapsed time from which a statement is slow, negative to log nothing.
+     * maxBytes         ->  The size from which the file is rotated.
+     * maxFiles         ->  The number of files kept, the current one included.
+     * queue            ->  The lines waiting to be written.
+     * written          ->  The lines written.
+     * dropped          ->  The lines dropped because the queue was full or their batch could not be written.
+     * writer           ->  The daemon thread writing the lines.
+     */
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final String CLOSE = new String("close");
+    private static final long CLOSE_TIMEOUT = 5;
+
+    private final File path;
+    private volatile long thresholdNanos;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+
+
+    /**
+     * Constructor
+     *
+     * @param path the file the lines are written to
+     * @param thresholdMillis the elapsed time from which a statement is slow, negative to log nothing
+     * @param maxBytes the size from which the file is rotated
+     * @param maxFiles the number of files kept, the current one included
+     */
+    public SlowQueryLog(String path, double thresholdMillis, long maxBytes, int maxFiles) {
+        this.path = new File(path);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+        setThresholdMillis(thresholdMillis);
+        this.writer = new Thread(this::write, "slow-query-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /**
+     * Getters & Setters
+     */
+    public File getPath() {
+        return path;
+    }
+
+    public double getThresholdMillis() {
+        return thresholdNanos / 1e6;
+    }
+
+    /**
+     * Sets the elapsed time from which a statement is slow.
+     *
+     * @param thresholdMillis the threshold in milliseconds, negative to log nothing
+     */
+    public void setThresholdMillis(double thresholdMillis) {
+        this.thresholdNanos = (thresholdMillis < 0) ? -1 : Math.round(thresholdMillis * 1e6);
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+
+    /**
+     * Starts timing a statement on the calling thread.
+     *
+     * @return the statement, to be logged once done and ended in any case
+     */
+    public Statement begin() {
+        return new Statement((thresholdNanos >= 0) ? this : null);
+    }
+
+
+    /**
+     * Writes the lines still queued and stops the writer.
+     * If the queue stays full for CLOSE_TIMEOUT seconds the writer is interrupted instead, dropping the queued lines.
+     */
+    public void close() {
+        try {
+            if (!queue.offer(CLOSE, CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                drop(queue.size());
+                writer.interrupt();
+            }
+            writer.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Counts dropped lines.
+     *
+     * @param lines the number of lines dropped
+     */
+    private void drop(long lines) {
+        dropped.add(lines);
+        EngineMetrics.add(EngineMetrics.Counter.SLOW_QUERY_LINES_DROPPED, lines);
+    }
+
+
+    /**
+     * A statement being timed.
+     */
+    public static final class Statement {
+
+        /**
+         * Attributes
+         * <p>
+         * UNTIMED      ->  The statement of a database without a slow query log, never logged.
+         * owner        ->  The log the statement goes to, null if nothing is logged.
+         * start        ->  When the statement began, in nanoseconds.
+         * trace        ->  The storage work of the statement, null if nothing is logged.
+         * previous     ->  The trace the calling thread had before, put back by end.
+         * ended        ->  Whether end already put the previous trace back.
+         */
+        public static final Statement UNTIMED = new Statement(null);
+
+        private final SlowQueryLog owner;
+        private final long start;
+        private final QueryTrace trace;
+        private QueryTrace previous;
+        private boolean ended;
+
+        private Statement(SlowQueryLog owner) {
+            this.owner = owner;
+            this.start = (owner != null) ? System.nanoTime() : 0;
+            this.trace = (owner != null) ? new QueryTrace() : null;
+            if (owner != null)
+                previous = EngineMetrics.beginTrace(trace);
+        }
+
+
+        /**
+         * Logs the statement if it was slower than the threshold.
+         *
+         * @param operation select, insert, update or delete
+         * @param table the name of the table
+         * @param details the rest of the line, built only for a slow statement
+         */
+        public void log(String operation, String table, Details details) {
+            if (owner == null)
+                return;
+            long elapsed = System.nanoTime() - start;
+            long threshold = owner.thresholdNanos;
+            if (threshold < 0 || elapsed < threshold)
+                return;
+            String line = Instant.now() + " operation=" + operation + " table=" + quote(table)
+                    + String.format(Locale.ROOT, " elapsedMs=%.3f", elapsed / 1e6)
+                    + " pagesRead=" + trace.getPagesRead() + " nodesRead=" + trace.getNodesRead()
+                    + " rowsScanned=" + trace.getRowsScanned() + " " + details.describe();
+            if (!owner.queue.offer(line))
+                owner.drop(1);
+        }
+
+
+        /**
+         * Stops counting the storage work of the calling thread into the statement.
+         */
+        public void end() {
+            if (owner != null && !ended) {
+                ended = true;
+                EngineMetrics.endTrace(previous);
+            }
+        }
+    }
+
+
+    /**
+     * Quotes a value of a line, so values holding spaces stay one field.
+     *
+     * @param value the value
+     * @return the value between double quotes, its own double quotes and backslashes escaped
+     */
+    public static String quote(Object value) {
+        return '"' + String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+
+    /**
+     * Runs the writer: takes the queued lines in batches, appends them to the file and rotates it when full.
+     * The lines of a batch the file fails to take are counted as dropped, the file is closed and opened again
+     * for the next batch.
+     */
+    private void write() {
+        ArrayList<String> batch = new ArrayList<>();
+        BufferedWriter out = null;
+        long size = 0;
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                int next = 0, unflushed = 0;
+                try {
+                    while (next < batch.size() && batch.get(next) != CLOSE) {
+                        String line = batch.get(next);
+                        if (out == null) {
+                            out = new BufferedWriter(new FileWriter(path, StandardCharsets.UTF_8, true));
+                            size = path.length();
+                        }
+                        out.write(line);
+                        out.newLine();
+                        size += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                        unflushed++;
+                        next++;
+                        if (size >= maxBytes) {
+                            BufferedWriter full = out;
+                            out = null;
+                            full.close();
+                            written.add(unflushed);
+                            unflushed = 0;
+                            rotate();
+                        }
+                    }
+                    if (out != null)
+                        out.flush();
+                    written.add(unflushed);
+                } catch (IOException e) {
+                    // The lines still buffered are lost with the file, as are the lines not written yet
+                    drop(unflushed + batch.subList(next, batch.size()).stream().filter(line -> line != CLOSE).count());
+                    closeQuietly(out);
+                    out = null;
+                }
+                if (batch.contains(CLOSE))
+                    return;
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+
+    /**
+     * Closes the file after a failure or on the way out, a failure to close it being of no further use.
+     */
+    private static void closeQuietly(BufferedWriter out) {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // The lines it held are already counted as dropped or could not be saved anyway
+        }
+    }
+
+
+    /**
+     * Moves every file one number up, the current one becoming .1 and the oldest beyond maxFiles being deleted.
+     */
+    private void rotate() {
+        new File(path + "." + (maxFiles - 1)).delete();
+        for (int i = maxFiles - 2; i >= 1; i--)
+            new File(path + "." + i).renameTo(new File(path + "." + (i + 1)));
+        if (maxFiles > 1)
+            path.renameTo(new File(path + ".1"));
+        else
+            path.delete();
+    }
+
+}
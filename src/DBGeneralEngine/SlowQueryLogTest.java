@@ -0,0 +1,123 @@
+package src.DBGeneralEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the slow query log.
+ * With a threshold of 0 every select, insert and delete is written with its table, conditions, access paths,
+ * the pages and index nodes it read and its elapsed time; above the threshold nothing is written. The file is rotated
+ * once full, keeping maxFiles files, and lines the file cannot take are counted as dropped.
+ */
+public class SlowQueryLogTest {
+
+    private static final String PATH = "data/slow-query-test.log";
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBApp dbApp = TableTest.table("Logged", 200);
+        int pages = dbApp.getTables().get(0).getPages().size();
+        deleteLogs();
+
+        // Every statement is slower than 0 ms
+        SlowQueryLog log = new SlowQueryLog(PATH, 0, 1 << 20, 3);
+        dbApp.setSlowQueryLog(log);
+        check(select(dbApp, "name", "=", "n17") == 1, "the scan did not find n17");
+        check(select(dbApp, "id", "=", 45) == 1, "the binary search did not find 45");
+        ArrayList<Hashtable<String, Object>> rows = new ArrayList<>();
+        rows.add(TableTest.row(1000));
+        rows.add(TableTest.row(1001));
+        dbApp.insertIntoTable("Logged", rows);
+        Hashtable<String, Object> key = new Hashtable<>();
+        key.put("id", 5);
+        dbApp.deleteFromTable("Logged", key);
+        dbApp.setSlowQueryLog(null);
+        check(log.getWritten() == 4 && log.getDropped() == 0, "the log wrote " + log.getWritten() + " lines, dropped "
+                + log.getDropped());
+
+        List<String> lines = Files.readAllLines(new File(PATH).toPath());
+        check(lines.size() == 4, "the log holds " + lines.size() + " lines");
+        checkLine(lines.get(0), "operation=select", "table=\"Logged\"", "conditions=\"name = n17\"",
+                "accessPaths=\"FULL_SCAN\"", "pagesRead=" + pages + " ", "nodesRead=0", "rowsScanned=200", "rows=1");
+        checkLine(lines.get(1), "operation=select", "conditions=\"id = 45\"", "accessPaths=\"BINARY\"", "rows=1");
+        check(!lines.get(1).contains("pagesRead=0 ") && !lines.get(1).contains("pagesRead=" + pages + " "),
+                "the binary search logged " + lines.get(1));
+        checkLine(lines.get(2), "operation=insert", "table=\"Logged\"", "rows=2");
+        checkLine(lines.get(3), "operation=delete", "table=\"Logged\"");
+        for (String line : lines) {
+            check(line.contains(" elapsedMs="), "the line misses the elapsed time: " + line);
+            Instant.parse(line.substring(0, line.indexOf(' ')));
+        }
+
+        // Statements faster than the threshold are not written
+        deleteLogs();
+        log = new SlowQueryLog(PATH, 60_000, 1 << 20, 3);
+        dbApp.setSlowQueryLog(log);
+        select(dbApp, "name", "=", "n18");
+        dbApp.setSlowQueryLog(null);
+        check(log.getWritten() == 0 && !new File(PATH).exists(), "a fast statement was logged");
+
+        // A full file is rotated, the oldest beyond maxFiles deleted
+        log = new SlowQueryLog(PATH, 0, 400, 3);
+        dbApp.setSlowQueryLog(log);
+        for (int i = 0; i < 20; i++)
+            select(dbApp, "id", "=", 100 + i);
+        dbApp.setSlowQueryLog(null);
+        check(log.getWritten() == 20, "the rotated log wrote " + log.getWritten() + " lines");
+        for (String suffix : new String[]{"", ".1", ".2"}) {
+            File file = new File(PATH + suffix);
+            check(file.exists() && file.length() > 0, file + " was not kept");
+            for (String line : Files.readAllLines(file.toPath()))
+                check(line.contains("operation=select"), file + " holds " + line);
+        }
+        check(!new File(PATH + ".3").exists(), "more than 3 files were kept");
+        List<String> newest = Files.readAllLines(new File(PATH).toPath());
+        check(newest.get(newest.size() - 1).contains("conditions=\"id = 119\""), "the last select is not in the current file");
+
+        // Lines the file cannot take are dropped and counted
+        File directory = new File(PATH);
+        deleteLogs();
+        check(directory.mkdir(), "the log path could not be taken by a directory");
+        EngineMetrics.setEnabled(true);
+        EngineMetrics.reset();
+        log = new SlowQueryLog(PATH, 0, 1 << 20, 3);
+        dbApp.setSlowQueryLog(log);
+        select(dbApp, "id", "=", 150);
+        select(dbApp, "id", "=", 151);
+        dbApp.setSlowQueryLog(null);
+        check(log.getWritten() == 0 && log.getDropped() == 2, "the log wrote " + log.getWritten() + " lines, dropped "
+                + log.getDropped() + " into a directory");
+        check(EngineMetrics.get(EngineMetrics.Counter.SLOW_QUERY_LINES_DROPPED) == 2, "the dropped lines were not counted");
+        EngineMetrics.setEnabled(false);
+        check(directory.delete(), "the directory could not be removed");
+
+        System.out.println("SlowQueryLogTest passed");
+    }
+
+
+    private static void checkLine(String line, String... fields) {
+        for (String field : fields)
+            check(line.contains(field), "the line " + line + " misses " + field);
+    }
+
+
+    private static void deleteLogs() {
+        for (String suffix : new String[]{"", ".1", ".2", ".3"})
+            new File(PATH + suffix).delete();
+    }
+
+
+    private static int select(DBApp dbApp, String column, String operator, Object value) throws DBAppException {
+        int[] rows = {0};
+        dbApp.selectFromTable(new SQLTerm[]{new SQLTerm("Logged", column, operator, value)}, new String[]{})
+                .forEachRemaining(tuple -> rows[0]++);
+        return rows[0];
+    }
+
+}
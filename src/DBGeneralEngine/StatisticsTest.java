@@ -0,0 +1,138 @@
+package src.DBGeneralEngine;
+
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the statistics analyzeTable builds.
+ * On a small table every page is read and the row count, null fractions, bounds, distinct counts, most common values
+ * and histograms must match the rows, and explain must estimate from them. A large table is analyzed from a sample of
+ * its pages, and the statistics of an analyzed table are rebuilt on their own once the analyze threshold of its rows changed.
+ */
+public class StatisticsTest {
+
+    public static void main(String[] args) throws DBAppException, IOException, InterruptedException {
+
+        DBAppTest.prepare(metadata("Analyzed"), metadata("Sampled"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        dbApp.setAnalyzeThreshold(0);
+        Table analyzed = table(dbApp, "Analyzed"), sampled = table(dbApp, "Sampled");
+        insert(dbApp, "Analyzed", 0, 400);
+        insert(dbApp, "Sampled", 0, 2000);
+        check(analyzed.getStatistics() == null, "the table has statistics before it was analyzed");
+
+        // A small table is read in full
+        TableStatistics statistics = dbApp.analyzeTable("Analyzed");
+        check(analyzed.getStatistics() == statistics, "the statistics were not kept with the table");
+        check(statistics.getRowCount() == 400 && statistics.getPageCount() == analyzed.getPages().size()
+                && statistics.getPagesRead() == statistics.getPageCount(), "the small table was not read in full: " + statistics);
+
+        // Every id differs: no common value, an equi-depth histogram from the smallest id to the largest
+        ColumnStatistics id = statistics.getColumn("id");
+        check(id.getNullFraction() == 0 && id.getMin().equals(0) && id.getMax().equals(399), "the bounds of id are wrong: " + id);
+        check(Math.abs(id.getDistinctCount() - 400) <= 20, "id has " + id.getDistinctCount() + " distinct values");
+        check(id.getMostCommonValues().isEmpty(), "id has common values " + id.getMostCommonValues());
+        Vector<Comparable> bounds = id.getHistogramBounds();
+        check(bounds.size() == TableStatistics.BUCKETS + 1 && bounds.firstElement().equals(0) && bounds.lastElement().equals(399),
+                "the histogram of id is bounded by " + bounds);
+        for (int b = 1; b < bounds.size(); b++) {
+            int depth = (Integer) bounds.get(b) - (Integer) bounds.get(b - 1);
+            check(Math.abs(depth - 40) <= 1, "bucket " + b + " of id holds " + depth + " ids");
+        }
+
+        // A grade is missing from a tenth of the rows and is 7 in half of them
+        ColumnStatistics grade = statistics.getColumn("grade");
+        check(Math.abs(grade.getNullFraction() - 0.1) < 1e-9, "grade is null in " + grade.getNullFraction() + " of the rows");
+        check(grade.getMin().equals(2) && grade.getMax().equals(398), "the bounds of grade are wrong: " + grade);
+        check(!grade.getMostCommonValues().isEmpty() && grade.getMostCommonValues().get(0).equals(7)
+                && Math.abs(grade.getMostCommonFrequencies().get(0) - 0.5) < 1e-9, "7 is not the most common grade: " + grade);
+        ColumnStatistics name = statistics.getColumn("name");
+        check(Math.abs(name.getDistinctCount() - 50) <= 3, "name has " + name.getDistinctCount() + " distinct values");
+
+        // Explain estimates from the statistics
+        checkEstimate(dbApp, new SQLTerm("Analyzed", "id", "<", 100), 100);
+        checkEstimate(dbApp, new SQLTerm("Analyzed", "grade", "=", 7), 200);
+        checkEstimate(dbApp, new SQLTerm("Analyzed", "grade", ">", 200), 80);
+        checkEstimate(dbApp, new SQLTerm("Analyzed", "name", "=", "n12"), 8);
+
+        // A large table is sampled, its rows scaled up from the pages read
+        EngineMetrics.setEnabled(true);
+        EngineMetrics.reset();
+        TableStatistics sample = dbApp.analyzeTable("Sampled");
+        check(EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) == TableStatistics.SAMPLE_PAGES,
+                "analyzing the large table read " + EngineMetrics.getCount(EngineMetrics.Operation.PAGE_READ) + " pages");
+        EngineMetrics.setEnabled(false);
+        check(sample.getPagesRead() == TableStatistics.SAMPLE_PAGES && sample.getPageCount() == sampled.getPages().size(),
+                "the large table was not sampled: " + sample);
+        check(Math.abs(sample.getRowCount() - 2000) <= 200, "the large table is estimated at " + sample.getRowCount() + " rows");
+        check(sample.getColumn("id").getMin().equals(0) && sample.getColumn("id").getMax().equals(1999),
+                "the sample missed the first or the last page");
+        check(Math.abs(sample.getColumn("id").getDistinctCount() - 2000) <= 200,
+                "the sampled id has " + sample.getColumn("id").getDistinctCount() + " distinct values");
+
+        // Without a threshold the statistics stay until the next analyzeTable
+        insert(dbApp, "Analyzed", 400, 450);
+        check(analyzed.getModifiedRows() == 50 && !analyzed.statisticsStale(dbApp.getAnalyzeThreshold())
+                && analyzed.getStatistics() == statistics, "the statistics were rebuilt without a threshold");
+
+        // With one, the write that crosses it queues a rebuild
+        dbApp.setAnalyzeThreshold(0.25);
+        insert(dbApp, "Analyzed", 450, 490);
+        check(analyzed.getStatistics() == statistics, "the statistics were rebuilt before the threshold was crossed");
+        insert(dbApp, "Analyzed", 490, 520);
+        for (int wait = 0; wait < 100 && analyzed.getStatistics() == statistics; wait++)
+            Thread.sleep(50);
+        TableStatistics rebuilt = analyzed.getStatistics();
+        check(rebuilt != statistics && rebuilt.getRowCount() == 520 && analyzed.getModifiedRows() == 0,
+                "the statistics were not rebuilt once the threshold was crossed");
+        check(rebuilt.getColumn("id").getMax().equals(519), "the rebuilt statistics miss the new rows");
+        dbApp.getCompactor().shutdown();
+
+        System.out.println("StatisticsTest passed");
+    }
+
+
+    private static void checkEstimate(DBApp dbApp, SQLTerm term, long rows) throws DBAppException {
+        long estimated = dbApp.explain(new SQLTerm[]{term}, new String[0]).getEstimatedRows();
+        check(Math.abs(estimated - rows) <= Math.max(2, rows / 10), term.getStrColumnName() + " " + term.getStrOperator()
+                + " " + term.getObjValue() + " is estimated at " + estimated + " rows, " + rows + " hold it");
+    }
+
+
+    private static Vector<String[]> metadata(String tableName) {
+        return DBAppTest.metadata(tableName, "id", "id", "java.lang.Integer", "name", "java.lang.String",
+                "grade", "java.lang.Integer", "TouchDate", "java.util.Date");
+    }
+
+
+    private static Table table(DBApp dbApp, String tableName) {
+        Table table = new Table();
+        table.setTableName(tableName);
+        dbApp.getTables().add(table);
+        return table;
+    }
+
+
+    /**
+     * Inserts the rows with ids from first up to last: names repeat every 50 ids, the grade is missing from every
+     * tenth row, 7 in every odd row and the id in the others.
+     */
+    private static void insert(DBApp dbApp, String tableName, int first, int last) throws DBAppException {
+        ArrayList<Hashtable<String, Object>> rows = new ArrayList<>();
+        for (int i = first; i < last; i++) {
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", i);
+            row.put("name", "n" + i % 50);
+            if (i % 10 != 0)
+                row.put("grade", i % 2 == 1 ? 7 : i);
+            rows.add(row);
+        }
+        dbApp.insertIntoTable(tableName, rows);
+    }
+
+}
@@ -0,0 +1,232 @@
+package src.DBGeneralEngine;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * StringDictionary is the order preserving dictionary of a low cardinality String column.
+ * Every distinct value gets an int code the first time it is stored, codes are handed out in arrival order and never
+ * change, so the codes already packed into tuples and index keys stay valid as the dictionary grows.
+ * The dictionary also keeps the rank of every code among the sorted values, and two codes compare by their ranks,
+ * so equality and range conditions on the column compare ints instead of Strings.
+ */
+public final class StringDictionary implements Serializable {
+
+    /**
+     * Attributes
+     * <p>
+     * name         ->  The table and column the dictionary encodes, the key dictionaries are shared by.
+     * values       ->  The value of every code, a code being its index.
+     * ranks        ->  The rank of every code among the sorted values.
+     * sorted       ->  The values in ascending order.
+     * codes        ->  The code of every value.
+     * dictionaries ->  Every dictionary by name, so the tuples and index keys read back from disk share the live one.
+     */
+    private final String name;
+    private transient volatile String[] values;
+    private transient volatile int[] ranks;
+    private transient volatile String[] sorted;
+    private transient ConcurrentHashMap<String, Integer> codes;
+
+    private static final ConcurrentHashMap<String, StringDictionary> dictionaries = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor
+     *
+     * @param name the table and column the dictionary encodes
+     */
+    private StringDictionary(String name) {
+        this.name = name;
+        this.values = new String[0];
+        this.ranks = new int[0];
+        this.sorted = new String[0];
+        this.codes = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Returns the dictionary of a column, creating it the first time the column is encoded.
+     *
+     * @param strTableName the name of the table
+     * @param strColName the name of the String column
+     * @return the shared dictionary of the column
+     */
+    public static StringDictionary of(String strTableName, String strColName) {
+        return dictionaries.computeIfAbsent(strTableName + "." + strColName, StringDictionary::new);
+    }
+
+
+    /**
+     * Returns the live dictionary with the given name, for layouts that store the name of their dictionary.
+     *
+     * @param name the table and column the dictionary encodes
+     * @return the dictionary, or null if no dictionary of that name was created or read in this run
+     */
+    static StringDictionary named(String name) {
+        return dictionaries.get(name);
+    }
+
+
+    /**
+     * Getters
+     */
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+
+    /**
+     * Gets the code of a value, adding the value to the dictionary if it is new.
+     * A new value is ranked among the existing ones, the ranks of the greater values move up by one.
+     *
+     * @param value the non null value to encode
+     * @return the code of the value
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        return (code != null) ? code : add(value);
+    }
+
+
+    /**
+     * Appends a new value, its code being the number of values before it.
+     */
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null)
+            return code;
+
+        int newCode = values.length;
+        int rank = -Arrays.binarySearch(sorted, value) - 1;
+
+        String[] newSorted = new String[sorted.length + 1];
+        System.arraycopy(sorted, 0, newSorted, 0, rank);
+        newSorted[rank] = value;
+        System.arraycopy(sorted, rank, newSorted, rank + 1, sorted.length - rank);
+
+        int[] newRanks = Arrays.copyOf(ranks, newCode + 1);
+        for (int i = 0; i < newCode; i++)
+            if (newRanks[i] >= rank)
+                newRanks[i]++;
+        newRanks[newCode] = rank;
+
+        String[] newValues = Arrays.copyOf(values, newCode + 1);
+        newValues[newCode] = value;
+
+        sorted = newSorted;
+        ranks = newRanks;
+        values = newValues;
+        codes.put(value, newCode);
+        return newCode;
+    }
+
+
+    /**
+     * Gets the value of a code.
+     *
+     * @param code a code handed out by encode
+     * @return the value the code stands for
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+
+
+    /**
+     * Gets the code of a value without adding it.
+     *
+     * @param value the value to look up
+     * @return the code of the value, or -1 if the value was never stored
+     */
+    public int codeOf(String value) {
+        Integer code = codes.get(value);
+        return (code == null) ? -1 : code;
+    }
+
+
+    /**
+     * Gets the position of a code in the order of the values, doubled so that a value missing from the dictionary
+     * still has a position, the odd one between its neighbours.
+     *
+     * @param code a code handed out by encode
+     * @return twice the rank of the code
+     */
+    public int order(int code) {
+        return 2 * ranks[code];
+    }
+
+
+    /**
+     * Gets the position of any value in the order of the values, comparable with order.
+     *
+     * @param value the value to place
+     * @return twice the rank of the value if it is in the dictionary, the odd position between the ranks of the values
+     * right before and right after it otherwise
+     */
+    public int probe(String value) {
+        Integer code = codes.get(value);
+        if (code != null)
+            return order(code);
+        return 2 * (-Arrays.binarySearch(sorted, value) - 1) - 1;
+    }
+
+
+    /**
+     * Builds the key of a value to search an index or compare tuples with, without adding the value.
+     *
+     * @param value the value of the condition
+     * @return the key of the value, placed between the keys of its neighbours if the value was never stored
+     */
+    public DictionaryCode key(String value) {
+        return new DictionaryCode(this, codeOf(value), probe(value));
+    }
+
+
+    /**
+     * Writes the name and the values in code order, the ranks are rebuilt when the dictionary is read back.
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        String[] snapshot = values;
+        out.writeInt(snapshot.length);
+        for (String value : snapshot)
+            out.writeUTF(value);
+    }
+
+
+    /**
+     * Reads the values back and rebuilds the ranks and the lookup of codes.
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        values = new String[0];
+        ranks = new int[0];
+        sorted = new String[0];
+        codes = new ConcurrentHashMap<>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++)
+            add(in.readUTF());
+    }
+
+
+    /**
+     * Replaces a dictionary read back from disk with the live one of the same column, which holds the same codes
+     * and possibly more, so the codes of every page are decoded by one instance.
+     *
+     * @return the shared dictionary of the column
+     */
+    @Serial
+    private Object readResolve() {
+        return dictionaries.computeIfAbsent(name, key -> this);
+    }
+
+}
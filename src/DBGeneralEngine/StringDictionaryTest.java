@@ -0,0 +1,99 @@
+package src.DBGeneralEngine;
+
+import src.BPTree.BPTree;
+
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the order preserving dictionary of encoded String columns.
+ * Values added after others must be ranked between their neighbours, both in the dictionary itself and in the
+ * selects of a table whose column was encoded before the value was first inserted.
+ */
+public class StringDictionaryTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        StringDictionary dictionary = StringDictionary.of("Dictionary", "word");
+        String[] words = {"mango", "cherry", "tangerine", "apple", "fig", "kiwi"};
+        for (String word : words)
+            dictionary.encode(word);
+        check(dictionary.encode("fig") == 4, "encoding a stored value handed out a new code");
+        String[] sorted = words.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i + 1 < sorted.length; i++) {
+            check(dictionary.order(dictionary.codeOf(sorted[i])) < dictionary.order(dictionary.codeOf(sorted[i + 1])),
+                    sorted[i] + " is not ordered before " + sorted[i + 1]);
+            check(dictionary.key(sorted[i]).compareTo(dictionary.key(sorted[i + 1])) < 0,
+                    "the key of " + sorted[i] + " is not ordered before the key of " + sorted[i + 1]);
+        }
+        // A value never stored is placed between its neighbours without being added
+        int grape = dictionary.probe("grape");
+        check(dictionary.order(dictionary.codeOf("fig")) < grape && grape < dictionary.order(dictionary.codeOf("kiwi")),
+                "grape is not placed between fig and kiwi");
+        check(dictionary.codeOf("grape") == -1 && dictionary.size() == words.length, "probing added grape");
+
+        // A table whose column is encoded first and receives the values in between afterwards
+        DBAppTest.prepare(DBAppTest.metadata("Cities", "id",
+                "id", "java.lang.Integer", "city", "java.lang.String", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        Table table = new Table();
+        table.setTableName("Cities");
+        // The index is rebuilt on codes by encodeColumn, the values added later must land in order in it
+        table.getTreeIndexColumnName().put("city", new BPTree<String>(5));
+        dbApp.getTables().add(table);
+        String[] cities = {"Aswan", "Giza", "Luxor", "Suez"};
+        String[] later = {"Cairo", "Dahab", "Minya", "Zagazig", "Alexandria"};
+        TreeMap<Integer, String> stored = new TreeMap<>();
+        insert(dbApp, stored, cities, 0);
+        dbApp.encodeColumn("Cities", "city");
+        insert(dbApp, stored, later, 1000);
+
+        for (String bound : new String[]{"Cairo", "Dahab", "Fayoum", "Minya", "Aaa", "Zzz"})
+            for (String operator : new String[]{"<", "<=", ">", ">=", "="}) {
+                TreeSet<Integer> selected = new TreeSet<>();
+                dbApp.selectFromTable(new SQLTerm[]{new SQLTerm("Cities", "city", operator, bound)}, new String[]{})
+                        .forEachRemaining(tuple -> selected.add((Integer) tuple.get(0)));
+                TreeSet<Integer> expected = new TreeSet<>();
+                for (Map.Entry<Integer, String> row : stored.entrySet()) {
+                    int comparison = row.getValue().compareTo(bound);
+                    boolean matches = switch (operator) {
+                        case "<" -> comparison < 0;
+                        case "<=" -> comparison <= 0;
+                        case ">" -> comparison > 0;
+                        case ">=" -> comparison >= 0;
+                        default -> comparison == 0;
+                    };
+                    if (matches)
+                        expected.add(row.getKey());
+                }
+                check(selected.equals(expected), "city " + operator + " " + bound + " returned " + selected + ", expected " + expected);
+            }
+
+        System.out.println("StringDictionaryTest passed");
+    }
+
+
+    /**
+     * Inserts ten rows of every city, with ids from the given first one.
+     */
+    private static void insert(DBApp dbApp, TreeMap<Integer, String> stored, String[] cities, int firstId) throws DBAppException {
+        ArrayList<Hashtable<String, Object>> rows = new ArrayList<>();
+        int id = firstId;
+        for (int i = 0; i < 10; i++)
+            for (String city : cities) {
+                Hashtable<String, Object> row = new Hashtable<>();
+                row.put("id", id);
+                row.put("city", city);
+                rows.add(row);
+                stored.put(id++, city);
+            }
+        dbApp.insertIntoTable("Cities", rows);
+    }
+
+}
@@ -3,7 +3,14 @@ package src.DBGeneralEngine;
 
 import java.io.*;
 import java.util.*;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import src.BPTree.BPTreeLeafNode;
+import src.RTree.RTree;
 import src.Ref.Ref;
 import src.Ref.GeneralRef;
 import src.Ref.OverflowRef;
@@ -28,6 +35,17 @@ public class Table implements Serializable {
      * clusteringKey            ->  The name of the column used for clustering data within the table.
      * treeIndexColumnName      -> A Hashtable that maps column names to their corresponding TreeIndex instances.
      *                                  ( used for efficient data retrieval )
+     * fillFactor               ->  The fraction of maxRowsInPage a page split leaves in every resulting page.
+     * nextPageNumber           ->  The suffix of the next page created, page names are never reused.
+     * pageMinKeys              ->  The cached minimum clustering key of every page, in the order of pages.
+     * lock                     ->  Writers, including the background compaction, hold the write lock, readers the read lock.
+     * columnar                 ->  Whether the pages of the table are written column by column, for analytical tables.
+     * dictionaries             ->  The order preserving dictionary of every dictionary encoded String column, by column name.
+     * compression              ->  How the pages of the table are compressed when they are written.
+     * statistics               ->  The statistics analyzeTable last built for the table, null before the first analysis.
+     * modifiedTotal            ->  The rows inserted or deleted over the life of the table.
+     * modifiedAtAnalysis       ->  The value of modifiedTotal when the current statistics were collected.
+     * version                  ->  Moved on by every write changing the rows of the table, cached results read at another version are stale.
      */
     private Vector<String> pages = new Vector<>();
     private int maxRowsInPage;
@@ -36,6 +54,20 @@ public class Table implements Serializable {
     private String tableName;
     private String clusteringKey;
     private final Hashtable<String, TreeIndex> treeIndexColumnName = new Hashtable<>();
+    private double fillFactor = 0.5;
+    private int nextPageNumber;
+    private Vector<Comparable> pageMinKeys = new Vector<>();
+    private transient ReentrantReadWriteLock lock;
+    private boolean columnar;
+    private final Hashtable<String, StringDictionary> dictionaries = new Hashtable<>();
+    private PageCompression compression = PageCompression.NONE;
+    private volatile TableStatistics statistics;
+    private final AtomicLong modifiedTotal = new AtomicLong();
+    private volatile long modifiedAtAnalysis;
+    private volatile long version;
+
+    private static final int PARALLEL_REFINE_PAGES = 4;
+    private static final int INDEX_ORDER_RECENT_PAGES = 16;
 
 
     /**
@@ -133,12 +165,159 @@ public class Table implements Serializable {
 
     /**
      * Generates a new page name based on the table name and a sequential numbering scheme.
+     * Pages split in the middle of the table make the order of pages differ from the order of their names,
+     * so the numbering is a counter that is only derived from the existing pages the first time it is used.
      *
      * @return A string representing the name of a new page for the table.
      */
     public String getNewPageName() {
-        return tableName + ((pages.size() == 0) ? 0
-                : Integer.parseInt((pages.get(pages.size() - 1)).substring(tableName.length())) + 1);
+        if (nextPageNumber == 0)
+            for (String page : pages)
+                nextPageNumber = Math.max(nextPageNumber, getSuffix(page) + 1);
+        return tableName + nextPageNumber++;
+    }
+
+    /**
+     * Creates an empty page for the table under a new name, a columnar page if the table is analytical.
+     *
+     * @return the new page, not yet written
+     */
+    public Page newPage() {
+        Page page = columnar ? new ColumnarPage(getNewPageName()) : new Page(getNewPageName());
+        page.setCompression(getCompression());
+        return page;
+    }
+
+    /**
+     * Retrieves how the pages of the table are compressed when they are written.
+     *
+     * @return The compression of the pages, NONE by default.
+     */
+    public PageCompression getCompression() {
+        return (compression == null) ? PageCompression.NONE : compression;
+    }
+
+    /**
+     * Sets how the pages created from now on are compressed, existing pages keep theirs until they are rewritten
+     * by DBApp.setPageCompression.
+     *
+     * @param compression The compression of the pages.
+     */
+    public void setCompression(PageCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Retrieves the statistics analyzeTable last built for the table.
+     *
+     * @return The statistics, or null if the table was never analyzed.
+     */
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Retrieves the rows inserted or deleted since the statistics were built.
+     *
+     * @return The number of rows modified.
+     */
+    public long getModifiedRows() {
+        return modifiedTotal.get() - modifiedAtAnalysis;
+    }
+
+    /**
+     * Retrieves the version of the rows of the table, moved on by every insert and delete.
+     *
+     * @return The version of the table.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Compiles the layout of the rows of the table, dictionary encoded columns being packed as codes.
+     *
+     * @param metaOfTable the metadata of the table, one row per column
+     * @return the shared schema of the rows of the table
+     */
+    public RowSchema rowSchema(Vector<String[]> metaOfTable) {
+        return RowSchema.of(metaOfTable, dictionaries);
+    }
+
+    /**
+     * Converts a value of a column into the key its index is searched with, the key of its code for a dictionary
+     * encoded column.
+     *
+     * @param column the name of the column
+     * @param value the value of the column
+     * @return the index key of the value
+     */
+    public Comparable indexKey(String column, Object value) {
+        if (value instanceof String string && dictionaries.containsKey(column))
+            return dictionaries.get(column).key(string);
+        return (Comparable) value;
+    }
+
+    /**
+     * Retrieves the dictionaries of the dictionary encoded String columns of the table.
+     *
+     * @return The dictionary of every encoded column, by column name.
+     */
+    public Hashtable<String, StringDictionary> getDictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * Checks whether the pages of the table are written column by column.
+     *
+     * @return true for an analytical table
+     */
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    /**
+     * Retrieves the lock guarding the pages of the table, created on first use since it is not serialized.
+     *
+     * @return The read-write lock of the table.
+     */
+    public synchronized ReentrantReadWriteLock getLock() {
+        if (lock == null)
+            lock = new ReentrantReadWriteLock();
+        return lock;
+    }
+
+    /**
+     * Retrieves the fraction of the page capacity a page split leaves in every resulting page.
+     *
+     * @return The fill factor, between 0 and 1.
+     */
+    public double getFillFactor() {
+        return (fillFactor > 0 && fillFactor <= 1) ? fillFactor : 0.5;
+    }
+
+    /**
+     * Retrieves the cached minimum clustering key of every page, in the order of pages.
+     * The cache is rebuilt from the pages whenever it is out of step with them.
+     * Like getMax, the key is read from the stored tuples, tombstoned ones included: a tombstoned tuple keeps its slot
+     * in key order until compaction, so the bounds of a page enclose its live keys and are never tighter than them.
+     *
+     * @return The minimum key of every page.
+     * @throws DBAppException If a page cannot be read while rebuilding the cache.
+     */
+    public Vector<Comparable> getPageMinKeys() throws DBAppException {
+        if (pageMinKeys == null || pageMinKeys.size() != pages.size()) {
+            EngineMetrics.add(EngineMetrics.Counter.PAGE_KEY_CACHE_MISSES, 1);
+            Vector<Comparable> minKeys = new Vector<>(pages.size());
+            for (String pageName : pages) {
+                Page page = deserialize(pageName);
+                minKeys.add(page.size() == 0 ? null : (Comparable) page.getTuples().get(0).get(primaryPosition));
+            }
+            pageMinKeys = minKeys;
+        } else {
+            EngineMetrics.add(EngineMetrics.Counter.PAGE_KEY_CACHE_HITS, 1);
+        }
+        return pageMinKeys;
     }
 
     /**
@@ -152,9 +331,10 @@ public class Table implements Serializable {
 
     /**
      * Retrieves the maximum value from the page at the given index.
+     * The value is read from the stored tuples, tombstoned ones included, the same rule as getPageMinKeys.
      *
      * @param index The index of the page from which to retrieve the maximum value.
-     * @return      The maximum value from the specified page.
+     * @return      The maximum value from the specified page, null if the page holds no tuple.
      * @throws DBAppException If an error occurs during the process of deserializing the page.
      */
     public Comparable getMax(int index) throws DBAppException {
@@ -162,12 +342,22 @@ public class Table implements Serializable {
         String pageName = pages.get(index);
         // Deserialize the page using its name
         Page page = deserialize(pageName);
-        // Get the last tuple from the page
-        Tuple lastTuple = page.getTuples().get(page.size() - 1);
+        return getMax(page);
+    }
+
+
+    /**
+     * Retrieves the maximum value from a page already read, tombstoned tuples included.
+     *
+     * @param page The page from which to retrieve the maximum value.
+     * @return     The maximum value from the page, null if the page holds no tuple.
+     */
+    private Comparable getMax(Page page) {
+        if (page.size() == 0)
+            return null;
         // Get the value of the primary key attribute from the last tuple
-        Object obj = lastTuple.getAttributes().get(primaryPosition);
-        // Convert the value to Comparable and return it
-        return (Comparable) obj;
+        Tuple lastTuple = page.getTuples().get(page.size() - 1);
+        return (Comparable) lastTuple.get(primaryPosition);
     }
 
 
@@ -179,14 +369,8 @@ public class Table implements Serializable {
      * @throws DBAppException If an error occurs during the process of deserializing the page.
      */
     public Comparable getMin(int index) throws DBAppException {
-        // Get the page name from the pages list using the specified index
-        String pageName = pages.get(index);
-        // Deserialize the page using its name
-        Page page = deserialize(pageName);
-        // Get the minimum value from the first tuple in the page
-        Comparable min = (Comparable) page.getTuples().get(0).getAttributes().get(primaryPosition);
-        // Return the minimum value
-        return min;
+        // The minimum keys are cached, so no page has to be read
+        return getPageMinKeys().get(index);
     }
 
     /**
@@ -209,13 +393,13 @@ public class Table implements Serializable {
 
     /**
      * Retrieves the index of a specific data page within the table.
-     * This method delegates the task of extracting the numeric suffix from the page name to the getSuffix method and uses that value as the index.
+     * Page names are not positions, a page split inserts new pages between existing ones.
      *
      * @param pageName The name of the data page to locate.
      * @return  The index of the data page within the table, or -1 if not found.
      */
     public int getPageIndex(String pageName) {
-        return getSuffix(pageName);
+        return pages.indexOf(pageName);
     }
 
     /**
@@ -254,6 +438,26 @@ public class Table implements Serializable {
      */
     public void setPages(Vector<String> pages) {
         this.pages = pages;
+        this.pageMinKeys = null;
+    }
+
+    /**
+     * Sets the fraction of the page capacity a page split leaves in every resulting page.
+     *
+     * @param fillFactor The new fill factor, between 0 and 1.
+     */
+    public void setFillFactor(double fillFactor) {
+        this.fillFactor = fillFactor;
+    }
+
+    /**
+     * Sets whether the pages of the table are written column by column.
+     * Only pages created afterwards take the format, existing pages keep theirs.
+     *
+     * @param columnar true for an analytical table
+     */
+    public void setColumnar(boolean columnar) {
+        this.columnar = columnar;
     }
 
     /**
@@ -307,17 +511,84 @@ public class Table implements Serializable {
     }
 
 
+    /**
+     * Serialize a page object to disk under its own name, the counterpart of deserialize(String).
+     *
+     * @param page The page to write.
+     * @throws DBAppException if an IOException occurs during the serialization process
+     */
+    public static void serializePage(Page page) throws DBAppException {
+        EngineEvents.Flush event = new EngineEvents.Flush();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + page.getPageName() + ".class";
+        page.serialize(page, fileName);
+        EngineMetrics.record(EngineMetrics.Operation.PAGE_WRITE, start, fileName);
+        event.emit("page", fileName);
+    }
+
+
+    /**
+     * Checks whether the file of a page was written column by column.
+     *
+     * @param name The name of the page.
+     * @return true if the file starts with the magic number of columnar pages.
+     * @throws DBAppException if the file cannot be read.
+     */
+    public static boolean isColumnarPage(String name) throws DBAppException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream("data: " + name + ".class"))) {
+            return in.readInt() == ColumnarPage.MAGIC;
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            throw new DBAppException("IO Exception");
+        }
+    }
+
+
+    /**
+     * Delete the file of a page that is no longer part of the table.
+     *
+     * @param name The name of the page to delete.
+     */
+    public static void deletePage(String name) {
+        new File("data: " + name + ".class").delete();
+    }
+
+
     /**
      * Deserialize a page object from disk with the given name.
+     * Columnar pages are recognised by their first bytes and read back column by column.
      *
      * @param name The name of the page to deserialize.
      * @return The deserialized page object.
      * @throws DBAppException if an IOException or ClassNotFoundException occurs during the deserialization process
      */
     public static Page deserialize(String name) throws DBAppException {
+        EngineEvents.PageFetch event = new EngineEvents.PageFetch();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + name + ".class";
         try {
             // Open the file input stream for the page file
-            FileInputStream fileIn = new FileInputStream("data: " + name + ".class");
+            BufferedInputStream fileIn = new BufferedInputStream(new FileInputStream(fileName));
+            // Columnar and compressed pages start with their own magic number instead of a serialized object
+            fileIn.mark(4);
+            DataInputStream dataIn = new DataInputStream(fileIn);
+            int magic = dataIn.readInt();
+            if (magic == ColumnarPage.MAGIC) {
+                // Columnar pages record their own reads, they are also read column by column
+                fileIn.close();
+                return ColumnarPage.read(name);
+            }
+            if (magic == Page.MAGIC) {
+                // Compressed pages are decompressed into a pooled frame first
+                Page page = Page.readCompressed(dataIn);
+                fileIn.close();
+                recordRead(start, event, "compressed", fileName, page);
+                return page;
+            }
+            fileIn.reset();
             // Initialize an object input stream to read from the file input stream
             ObjectInputStream in = new ObjectInputStream(fileIn);
             // Read the Page object from the object input stream
@@ -326,6 +597,7 @@ public class Table implements Serializable {
             in.close();
             // Close the file input stream
             fileIn.close();
+            recordRead(start, event, "row", fileName, pageIn);
             // Return the deserialized Page object
             return pageIn;
         } catch (IOException e) { // Catch IO Exception
@@ -337,6 +609,24 @@ public class Table implements Serializable {
 
 
 
+    /**
+     * Records the read of a page and the rows it brought in, and emits its fetch event.
+     *
+     * @param start The value EngineMetrics.start returned before the read.
+     * @param event The fetch event begun before the read.
+     * @param format How the page is stored: row, compressed or columnar.
+     * @param fileName The file of the page.
+     * @param page The page read.
+     */
+    static void recordRead(long start, EngineEvents.PageFetch event, String format, String fileName, Page page) {
+        event.emit(page.getPageName(), format, fileName, page.size());
+        if (start == 0)
+            return;
+        EngineMetrics.record(EngineMetrics.Operation.PAGE_READ, start, fileName);
+        EngineMetrics.add(EngineMetrics.Counter.ROWS_SCANNED, page.size());
+    }
+
+
     /**
      * Parses the given object into a comparable value based on the metadata of the specified table.
      *
@@ -414,20 +704,19 @@ public class Table implements Serializable {
             for (String str : pages) {
                 Page page = Table.deserialize(str);
                 int initialLength = 0;
-                int finalLength = page.getTuples().size() - 1;
+                int finalLength = page.getLiveTuples().size() - 1;
 
                 while (initialLength <= finalLength) {
                     int midLength = initialLength + (finalLength - initialLength) / 2;
 
-                    if (key.compareTo((page.getTuples().get(midLength)).getAttributes().get(table.getPrimaryPosition())) == 0) {
-                        while (midLength > 0 && key
-                                .compareTo((page.getTuples().get(midLength - 1)).getAttributes().get(table.getPrimaryPosition())) == 0) {
+                    if (page.getLiveTuples().get(midLength).compareAt(table.getPrimaryPosition(), key) == 0) {
+                        while (midLength > 0 && page.getLiveTuples().get(midLength - 1).compareAt(table.getPrimaryPosition(), key) == 0) {
                             midLength--;
                         }
                         return page.getPageName() + "#" + midLength;
                     }
 
-                    if (key.compareTo((page.getTuples().get(midLength)).getAttributes().get(table.getPrimaryPosition())) < 0)
+                    if (page.getLiveTuples().get(midLength).compareAt(table.getPrimaryPosition(), key) > 0)
                         finalLength = midLength - 1;
 
                     else
@@ -442,6 +731,154 @@ public class Table implements Serializable {
     }
 
 
+    /**
+     * Inserts a batch of tuples into the table.
+     * Every page the batch falls into is read and written once and split if it overflows, the pages after it are left untouched.
+     *
+     * @param tuples the tuples to insert, their attributes ordered as the table metadata
+     * @param metaOfTable the metadata of the table, one row per column
+     * @throws DBAppException if an error occurs while reading or writing pages or indexes
+     */
+    public void insertTuples(ArrayList<Tuple> tuples, Vector<String[]> metaOfTable) throws DBAppException {
+        getLock().writeLock().lock();
+        try {
+            new ClusteredPageManager(this, metaOfTable).insert(tuples);
+            addModifiedRows(tuples.size());
+        } finally {
+            getLock().writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Deletes the tuples matching every given column value by tombstoning them in their pages.
+     * Only the pages that can hold a match are read: the run of pages holding the clustering key when it is given,
+     * the pages an index points at when an indexed column is given, and every page otherwise.
+     * Index entries and page space are reclaimed later by the compaction of the returned pages.
+     *
+     * @param hashtableColumnNameValue the column names and the values a tuple must hold to be deleted
+     * @param metaOfTable the metadata of the table, one row per column
+     * @return the names of the pages that received tombstones
+     * @throws DBAppException if a column does not exist or a page cannot be read or written
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<String> deleteTuples(Hashtable<String, Object> hashtableColumnNameValue,
+                                          Vector<String[]> metaOfTable) throws DBAppException {
+        Vector<Integer> attributeIndex = new Vector<>();
+        for (String column : hashtableColumnNameValue.keySet()) {
+            int position = getColumnPositionInTuple(column, metaOfTable);
+            if (position == -1)
+                throw new DBAppException("Column " + column + " does not exist in " + tableName);
+            attributeIndex.add(position);
+        }
+        String clusteringColumn = metaOfTable.get(primaryPosition)[1];
+
+        getLock().writeLock().lock();
+        try {
+            ArrayList<String> touched = new ArrayList<>();
+            if (pages.isEmpty())
+                return touched;
+
+            Collection<String> candidates = pages;
+            Object key = hashtableColumnNameValue.get(clusteringColumn);
+            if (key != null) {
+                // Equal keys can spill over the end of the previous pages
+                int start = new ClusteredPageManager(this, metaOfTable).locatePage(key);
+                while (start > 0 && getMin(start).compareTo(key) == 0)
+                    start--;
+                candidates = new ArrayList<>();
+                for (int i = start; i < pages.size() && getMin(i).compareTo(key) <= 0; i++)
+                    candidates.add(pages.get(i));
+            } else {
+                for (String column : hashtableColumnNameValue.keySet())
+                    if (treeIndexColumnName.containsKey(column)) {
+                        GeneralRef generalRef = treeIndexColumnName.get(column).search(indexKey(column, hashtableColumnNameValue.get(column)));
+                        candidates = new LinkedHashSet<>();
+                        if (generalRef != null)
+                            for (Ref ref : fillInRef(generalRef))
+                                candidates.add(ref.getPage());
+                        break;
+                    }
+            }
+
+            for (String pageName : candidates) {
+                Page page = deserialize(pageName);
+                int deleted = (key != null)
+                        ? page.deleteInPageWithBinarySearch(hashtableColumnNameValue, metaOfTable, primaryPosition, clusteringColumn)
+                        : page.deleteInPage(hashtableColumnNameValue, attributeIndex);
+                if (deleted > 0) {
+                    serializePage(page);
+                    touched.add(pageName);
+                    addModifiedRows(deleted);
+                }
+            }
+            return touched;
+        } finally {
+            getLock().writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Builds the statistics of the table from its pages, or from a sample of them when the table is large,
+     * and keeps them for the planner.
+     * The pages are read under the read lock and the statistics published under the write lock,
+     * unless an analysis that started later published its own meanwhile.
+     *
+     * @param metaOfTable the metadata of the table, one row per column
+     * @return the statistics kept
+     * @throws DBAppException if a page cannot be read
+     */
+    public TableStatistics analyze(Vector<String[]> metaOfTable) throws DBAppException {
+        TableStatistics analyzed;
+        long modifiedSeen;
+        getLock().readLock().lock();
+        try {
+            // Writers hold the write lock, the rows counted now are the rows the pages hold while they are read
+            modifiedSeen = modifiedTotal.get();
+            analyzed = TableStatistics.collect(pages, metaOfTable, new Random());
+        } finally {
+            getLock().readLock().unlock();
+        }
+
+        getLock().writeLock().lock();
+        try {
+            if (statistics == null || modifiedSeen >= modifiedAtAnalysis) {
+                statistics = analyzed;
+                modifiedAtAnalysis = modifiedSeen;
+            }
+            return statistics;
+        } finally {
+            getLock().writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Checks whether enough rows changed since the last analysis for its statistics to be rebuilt.
+     * A table never analyzed is left alone, its planner keeps the default estimates.
+     *
+     * @param threshold the fraction of the rows that has to be modified, 0 or less never to rebuild
+     * @return true if the statistics are out of date
+     */
+    public boolean statisticsStale(double threshold) {
+        TableStatistics current = statistics;
+        return current != null && threshold > 0 && getModifiedRows() > threshold * Math.max(1, current.getRowCount());
+    }
+
+
+    /**
+     * Counts rows written to the table and moves its version on, once the rows are in place.
+     * Also called by the paths that bypass insertTuples, such as a bulk load.
+     *
+     * @param rows the number of rows written
+     */
+    void addModifiedRows(long rows) {
+        modifiedTotal.addAndGet(rows);
+        version++;
+    }
+
+
     /**
      * Checks if a tuple satisfies the given SQL term.
      *
@@ -452,22 +889,396 @@ public class Table implements Serializable {
      * @throws DBAppException if an invalid operator is encountered
      */
     private boolean checkTupleInCurrent(SQLTerm sqlTerm, Tuple tuple, int position) throws DBAppException {
-        Comparable comparableOne = (Comparable) tuple.getAttributes().get(position);
-        Comparable comparableTwo = (Comparable) sqlTerm.getObjValue();
+        Object value = sqlTerm.getObjValue();
+        boolean polygon = value instanceof CustomPolygon;
         return switch (sqlTerm.getStrOperator()) {
-            case "=" ->
-                    (comparableOne instanceof CustomPolygon) ? comparableOne.equals(comparableTwo) : comparableOne.compareTo(comparableTwo) == 0;
-            case "!=" ->
-                    (comparableOne instanceof CustomPolygon) ? !comparableOne.equals(comparableTwo) : comparableOne.compareTo(comparableTwo) != 0;
-            case ">" -> comparableOne.compareTo(comparableTwo) > 0;
-            case ">=" -> comparableOne.compareTo(comparableTwo) >= 0;
-            case "<" -> comparableOne.compareTo(comparableTwo) < 0;
-            case "<=" -> comparableOne.compareTo(comparableTwo) <= 0;
+            case "=" -> polygon ? spatialMatch(tuple.get(position), value, SQLTerm.EQUALS) : tuple.compareAt(position, value) == 0;
+            case "!=" -> polygon ? !spatialMatch(tuple.get(position), value, SQLTerm.EQUALS) : tuple.compareAt(position, value) != 0;
+            case ">" -> tuple.compareAt(position, value) > 0;
+            case ">=" -> tuple.compareAt(position, value) >= 0;
+            case "<" -> tuple.compareAt(position, value) < 0;
+            case "<=" -> tuple.compareAt(position, value) <= 0;
+            case SQLTerm.EQUALS, SQLTerm.INTERSECTS, SQLTerm.CONTAINS, SQLTerm.WITHIN -> spatialMatch(tuple.get(position), value, sqlTerm.getStrOperator());
             default -> throw new DBAppException("INVALID OPERATOR " + sqlTerm.getStrOperator());
         };
     }
 
 
+    /**
+     * Selects the tuples matching a chain of SQL terms combined left to right by "AND", "OR" or "XOR".
+     * Every term is answered by the cheapest access path of its column, an index, the clustering order or a scan,
+     * and the partial results are then combined as sets.
+     *
+     * @param arrSQLTerms the conditions, all on this table
+     * @param arrOperators the logical operators between consecutive conditions
+     * @param metaOfTable the metadata of the table, one row per column
+     * @return the matching tuples
+     * @throws DBAppException if a column, an operator or a value is invalid, or a page cannot be read
+     */
+    public ArrayList<Tuple> selectTuples(SQLTerm[] arrSQLTerms,
+                                         String[] arrOperators,
+                                         Vector<String[]> metaOfTable) throws DBAppException {
+        EngineEvents.Select event = new EngineEvents.Select();
+        event.begin();
+        getLock().readLock().lock();
+        try {
+            ArrayList<Tuple> result = null;
+            for (int i = 0; i < arrSQLTerms.length; i++) {
+                SQLTerm term = arrSQLTerms[i];
+                int position = checkTerm(term, metaOfTable);
+                ArrayList<Tuple> current = getArrayOfTuples(term.getStrColumnName(), term.getObjValue(), term.getStrOperator(), position);
+                result = (result == null) ? current : combine(arrOperators[i - 1], result, current);
+            }
+            if (result == null)
+                result = new ArrayList<>();
+            if (event.isEnabled())
+                emitSelect(event, arrSQLTerms, arrOperators, result.size());
+            return result;
+        } finally {
+            getLock().readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Runs a prepared select with the values bound to its conditions.
+     * The columns, operators and access paths were resolved when the select was prepared,
+     * the conditions are searched and combined as selectTuples does.
+     *
+     * @param select the prepared select
+     * @param values the value of every condition, checked against the types of their columns
+     * @return an ArrayList of the matching tuples
+     * @throws DBAppException if a page cannot be read
+     */
+    ArrayList<Tuple> selectPrepared(PreparedSelect select, Object[] values) throws DBAppException {
+        EngineEvents.Select event = new EngineEvents.Select();
+        event.begin();
+        getLock().readLock().lock();
+        try {
+            AccessPath[] paths = select.accessPaths();
+            ArrayList<Tuple> result = null;
+            for (int i = 0; i < values.length; i++) {
+                ArrayList<Tuple> current = getArrayOfTuples(select.getColumn(i), values[i], select.getSearchOperator(i),
+                        select.getPosition(i), paths[i]);
+                result = (result == null) ? current : combine(select.getLogicalOperator(i - 1), result, current);
+            }
+            if (event.isEnabled())
+                emitSelect(event, select.terms(values), select.getLogicalOperators(), result.size());
+            return result;
+        } finally {
+            getLock().readLock().unlock();
+        }
+    }
+
+    /**
+     * Selects the first rows of a select in the order of a column, reading no more of the table than needed.
+     * Three ways of answering it are weighed with the estimates of the planner:
+     * <ul>
+     *     <li>in the order of the clustering key, the pages are read from the first or the last one
+     *     and the scan stops once it has enough matching rows,</li>
+     *     <li>in ascending order of a column with a B+ Tree, the leaves of the tree are followed from the smallest key
+     *     and the pages of every key are read, stopping once enough rows match,</li>
+     *     <li>otherwise the rows matching the conditions are found as selectTuples finds them, or every page is read
+     *     when there is no condition, and a heap of the limit size keeps the first rows seen so far.</li>
+     * </ul>
+     * An ordered read is taken when the rows it is expected to read, the limit divided by the selectivity of
+     * the conditions, cost fewer page reads than finding every matching row.
+     * Rows without a value in the order column come last in both orders.
+     *
+     * @param arrSQLTerms the conditions, all on this table, none to select from every row
+     * @param arrOperators the logical operators between consecutive conditions
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param strOrderColumn the column the rows are ordered by, null for the clustering key
+     * @param ascending true for the smallest values first, false for the largest first
+     * @param limit the largest number of rows returned
+     * @return at most limit matching tuples, in order
+     * @throws DBAppException if a column, an operator or a value is invalid, the limit is negative, or a page cannot be read
+     */
+    public ArrayList<Tuple> selectTop(SQLTerm[] arrSQLTerms,
+                                      String[] arrOperators,
+                                      Vector<String[]> metaOfTable,
+                                      String strOrderColumn,
+                                      boolean ascending,
+                                      int limit) throws DBAppException {
+        if (limit < 0)
+            throw new DBAppException("The limit cannot be negative");
+        String orderColumn = (strOrderColumn == null) ? clusteringKey : strOrderColumn;
+        int orderPosition = getColumnPositionInTuple(orderColumn, metaOfTable);
+        if (orderPosition == -1)
+            throw new DBAppException("Column " + orderColumn + " does not exist in " + tableName);
+
+        getLock().readLock().lock();
+        try {
+            TupleCheck check = compileConditions(arrSQLTerms, arrOperators, metaOfTable);
+            if (limit == 0 || pages.isEmpty())
+                return new ArrayList<>();
+
+            // The pages an ordered read needs, against the pages finding every matching row reads
+            long tableRows = Math.max(1, estimateTableRows());
+            long matchingRows = (check == null) ? tableRows
+                    : Math.max(1, explain(arrSQLTerms, arrOperators, metaOfTable, false).getEstimatedRows());
+            long orderedRows = Math.min(tableRows, (long) Math.ceil((double) limit * tableRows / matchingRows));
+            double rowsPerPage = Math.max(1, (double) tableRows / pages.size());
+            boolean scansAll = check == null;
+            for (SQLTerm term : (check == null) ? new SQLTerm[0] : arrSQLTerms) {
+                AccessPath path = accessPath(term.getStrColumnName(), term.getObjValue(),
+                        searchOperator(term.getStrOperator(), term.getObjValue()));
+                scansAll |= path == AccessPath.FULL_SCAN || path == AccessPath.LINEAR;
+            }
+            long matchingPages = scansAll ? pages.size() : Math.min(pages.size(), matchingRows);
+
+            if (orderColumn.equals(clusteringKey) && Math.ceil(orderedRows / rowsPerPage) <= matchingPages)
+                return scanInOrder(check, ascending, limit);
+            TreeIndex index = treeIndexColumnName.get(orderColumn);
+            if (ascending && index != null && !(index instanceof RTree) && Math.min(orderedRows, pages.size()) < matchingPages)
+                return scanIndexInOrder(index, orderPosition, check, limit);
+
+            Comparator<Tuple> order = orderOf(orderPosition, ascending);
+            PriorityQueue<Tuple> heap = new PriorityQueue<>(limit + 1, order.reversed());
+            if (check == null) {
+                for (String pageName : pages)
+                    for (Tuple tuple : deserialize(pageName).getLiveTuples())
+                        keepFirst(heap, tuple, limit);
+            } else
+                for (Tuple tuple : selectTuples(arrSQLTerms, arrOperators, metaOfTable))
+                    keepFirst(heap, tuple, limit);
+            ArrayList<Tuple> result = new ArrayList<>(heap);
+            result.sort(order);
+            return result;
+        } finally {
+            getLock().readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Compiles the conditions of a select into one check of a tuple, combined left to right as their results are.
+     *
+     * @param arrSQLTerms the conditions, null or empty for none
+     * @param arrOperators the logical operators between consecutive conditions
+     * @param metaOfTable the metadata of the table, one row per column
+     * @return the check, null when there is no condition
+     * @throws DBAppException if a column, an operator or a logical operator is invalid
+     */
+    private TupleCheck compileConditions(SQLTerm[] arrSQLTerms, String[] arrOperators,
+                                         Vector<String[]> metaOfTable) throws DBAppException {
+        TupleCheck combined = null;
+        for (int i = 0; arrSQLTerms != null && i < arrSQLTerms.length; i++) {
+            SQLTerm term = arrSQLTerms[i];
+            int position = checkTerm(term, metaOfTable);
+            Object value = term.getObjValue();
+            // A dictionary encoded column is compared by the rank of the value, as getArrayOfTuples does
+            if (value instanceof String && dictionaries.containsKey(term.getStrColumnName()))
+                value = indexKey(term.getStrColumnName(), value);
+            TupleCheck current = compileCheck(searchOperator(term.getStrOperator(), term.getObjValue()), value, position);
+            if (combined == null) {
+                combined = current;
+                continue;
+            }
+            if (!validLogicalOperator(arrOperators[i - 1]))
+                throw new DBAppException("INVALID OPERATOR " + arrOperators[i - 1]);
+            TupleCheck sofar = combined;
+            combined = switch (arrOperators[i - 1].toLowerCase()) {
+                case "and" -> tuple -> sofar.matches(tuple) && current.matches(tuple);
+                case "or" -> tuple -> sofar.matches(tuple) || current.matches(tuple);
+                default -> tuple -> sofar.matches(tuple) ^ current.matches(tuple);
+            };
+        }
+        return combined;
+    }
+
+
+    /**
+     * Reads the pages in the order of the clustering key, from the first or the last one,
+     * until enough tuples passed the check.
+     *
+     * @param check the check of the conditions, null to keep every tuple
+     * @param ascending true to start from the first page, false from the last
+     * @param limit the number of tuples wanted
+     * @return at most limit tuples, in order of the clustering key
+     * @throws DBAppException if a page cannot be read
+     */
+    private ArrayList<Tuple> scanInOrder(TupleCheck check, boolean ascending, int limit) throws DBAppException {
+        ArrayList<Tuple> result = new ArrayList<>(limit);
+        for (int i = 0; i < pages.size() && result.size() < limit; i++) {
+            Vector<Tuple> tuples = deserialize(pages.get(ascending ? i : pages.size() - 1 - i)).getLiveTuples();
+            for (int j = 0; j < tuples.size() && result.size() < limit; j++) {
+                Tuple tuple = tuples.get(ascending ? j : tuples.size() - 1 - j);
+                if (check == null || check.matches(tuple))
+                    result.add(tuple);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Follows the leaves of an index from its smallest key, reading the pages of every key,
+     * until enough tuples passed the check. The tuples without a value in the column are read last.
+     *
+     * @param index the index of the order column
+     * @param position the position of the order column in the tuples
+     * @param check the check of the conditions, null to keep every tuple
+     * @param limit the number of tuples wanted
+     * @return at most limit tuples, in ascending order of the column
+     * @throws DBAppException if a page or a node cannot be read
+     */
+    private ArrayList<Tuple> scanIndexInOrder(TreeIndex index, int position, TupleCheck check, int limit) throws DBAppException {
+        ArrayList<Tuple> result = new ArrayList<>(limit);
+        // The pages of the last keys, consecutive keys often sharing their pages
+        LinkedHashMap<String, Page> recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+                return size() > INDEX_ORDER_RECENT_PAGES;
+            }
+        };
+        LeafNode leafNode = index.getLeftmostLeaf();
+        while (leafNode != null && result.size() < limit) {
+            for (int i = 0; i < leafNode.getNumberOfKeys() && result.size() < limit; i++) {
+                Comparable key = leafNode.getKey(i);
+                for (Ref ref : fillInRef(leafNode.getRecord(i))) {
+                    Page page = recent.get(ref.getPage());
+                    if (page == null) {
+                        page = deserialize(ref.getPage());
+                        recent.put(ref.getPage(), page);
+                    }
+                    for (Tuple tuple : page.getLiveTuples())
+                        if (result.size() < limit && !tuple.isNull(position) && tuple.compareAt(position, key) == 0
+                                && (check == null || check.matches(tuple)))
+                            result.add(tuple);
+                }
+            }
+            leafNode = (leafNode instanceof BPTreeLeafNode) ? ((BPTreeLeafNode) leafNode).getNextNode() : null;
+        }
+        for (int i = 0; i < pages.size() && result.size() < limit; i++)
+            for (Tuple tuple : deserialize(pages.get(i)).getLiveTuples())
+                if (result.size() < limit && tuple.isNull(position) && (check == null || check.matches(tuple)))
+                    result.add(tuple);
+        return result;
+    }
+
+
+    /**
+     * Orders tuples by a column, the tuples without a value last.
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparator<Tuple> orderOf(int position, boolean ascending) {
+        return (first, second) -> {
+            Object a = first.get(position), b = second.get(position);
+            if (a == null || b == null)
+                return (a == null) ? ((b == null) ? 0 : 1) : -1;
+            int compared = ((Comparable) a).compareTo(b);
+            return ascending ? compared : -compared;
+        };
+    }
+
+
+    /**
+     * Offers a tuple to the heap of the first tuples, dropping the last one kept once there are more than limit.
+     */
+    private static void keepFirst(PriorityQueue<Tuple> heap, Tuple tuple, int limit) {
+        heap.offer(tuple);
+        if (heap.size() > limit)
+            heap.poll();
+    }
+
+
+
+    /**
+     * Selects the k tuples whose polygon in the given column is nearest to a query polygon, closest first.
+     * With an R-Tree on the column, the tree returns the records of the nearest polygons and only their pages are read,
+     * widening the search while deleted tuples keep the k-th live one out of reach,
+     * otherwise every page is scanned while the k nearest tuples seen so far are kept in a bounded heap.
+     * Tuples without a polygon are never returned, and ties at the k-th distance are resolved arbitrarily.
+     *
+     * @param strColumnName the polygon column
+     * @param objValue the polygon to measure the distances to, a single vertex for a point
+     * @param k the number of tuples wanted
+     * @param metaOfTable the metadata of the table, one row per column
+     * @return at most k tuples ordered by their distance to the query
+     * @throws DBAppException if the column is not a polygon column, k is negative, or a page cannot be read
+     */
+    public ArrayList<Tuple> selectNearest(String strColumnName,
+                                          CustomPolygon objValue,
+                                          int k,
+                                          Vector<String[]> metaOfTable) throws DBAppException {
+        int position = getColumnPositionInTuple(strColumnName, metaOfTable);
+        if (position == -1)
+            throw new DBAppException("Column " + strColumnName + " does not exist in " + tableName);
+        if (!metaOfTable.get(position)[2].equals("java.awt.Polygon"))
+            throw new DBAppException("A nearest neighbour search needs a java.awt.Polygon column");
+        if (k < 0)
+            throw new DBAppException("The number of neighbours cannot be negative");
+
+        getLock().readLock().lock();
+        try {
+            if (k == 0)
+                return new ArrayList<>();
+
+            // Max-heap on the distance, its head is the farthest of the k nearest tuples seen so far
+            PriorityQueue<Map.Entry<Tuple, Double>> nearest = new PriorityQueue<>(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+            if (treeIndexColumnName.get(strColumnName) instanceof RTree rTree) {
+                // The tree still holds the records of deleted tuples until their pages are compacted, so the k nearest
+                // records may hold fewer than k live tuples. The search is widened until the k-th live tuple is no
+                // farther than the last record reported, nothing left in the tree can then be closer.
+                HashSet<String> scanned = new HashSet<>();
+                for (int fetch = k; ; fetch = (int) Math.min(Integer.MAX_VALUE, 2L * fetch)) {
+                    ArrayList<RTree.Neighbour> neighbours = rTree.searchNearest(objValue, fetch);
+                    int records = 0;
+                    for (RTree.Neighbour neighbour : neighbours)
+                        for (Ref ref : fillInRef(neighbour.record())) {
+                            records++;
+                            if (getPageIndex(ref.getPage()) != -1 && scanned.add(ref.getPage()))
+                                keepNearest(deserialize(ref.getPage()), position, objValue, k, nearest);
+                        }
+                    if (records < fetch || (nearest.size() == k
+                            && nearest.peek().getValue() <= neighbours.get(neighbours.size() - 1).distance()))
+                        break;
+                }
+            } else {
+                for (String pageName : pages)
+                    keepNearest(deserialize(pageName), position, objValue, k, nearest);
+            }
+
+            ArrayList<Tuple> result = new ArrayList<>(nearest.size());
+            while (!nearest.isEmpty())
+                result.add(nearest.poll().getKey());
+            Collections.reverse(result);
+            return result;
+        } finally {
+            getLock().readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Offers the live tuples of a page to the bounded heap of a nearest neighbour search.
+     *
+     * @param page the page to read the tuples from
+     * @param position the position of the polygon column in the tuples
+     * @param objValue the polygon to measure the distances to
+     * @param k the number of tuples wanted
+     * @param nearest the max-heap of the k nearest tuples seen so far, with their distances
+     */
+    private static void keepNearest(Page page,
+                                    int position,
+                                    CustomPolygon objValue,
+                                    int k,
+                                    PriorityQueue<Map.Entry<Tuple, Double>> nearest) {
+        for (Tuple tuple : page.getLiveTuples()) {
+            if (!(tuple.get(position) instanceof CustomPolygon polygon))
+                continue;
+            double distance = polygon.distance(objValue);
+            if (nearest.size() < k)
+                nearest.add(new AbstractMap.SimpleEntry<>(tuple, distance));
+            else if (distance < nearest.peek().getValue()) {
+                nearest.poll();
+                nearest.add(new AbstractMap.SimpleEntry<>(tuple, distance));
+            }
+        }
+    }
+
+
     /**
      * Checks if a tuple satisfies the specified SQL terms and operators recursively.
      *
@@ -479,7 +1290,7 @@ public class Table implements Serializable {
      * @return true if the tuple satisfies the conditions, false otherwise
      * @throws DBAppException if an error occurs during the operation
      */
-    private boolean tupleMetConditions(
+    boolean tupleMetConditions(
             SQLTerm[] arrSQLTerms,
             String[] arrOperators,
             ArrayList<Integer> integerArrayList,
@@ -528,13 +1339,12 @@ public class Table implements Serializable {
     public ArrayList<Tuple> differenceSets(ArrayList<Tuple> tupleArrayList1, ArrayList<Tuple> tupleArrayList2) {
         ArrayList<Tuple> result = new ArrayList<>();
 
-        HashSet<Tuple> hashsetOne = new HashSet<>(tupleArrayList1);
+        HashSet<Tuple> hashsetOne = new HashSet<>();
         HashSet<Tuple> hashsetTwo = new HashSet<>(tupleArrayList2);
 
         for (Tuple cur : tupleArrayList1) {
-            if (hashsetOne.contains(cur))
+            if (!hashsetOne.add(cur))
                 continue;
-            hashsetOne.add(cur);
             if (!hashsetTwo.contains(cur)) {
                 result.add(cur);
             }
@@ -592,19 +1402,548 @@ public class Table implements Serializable {
      * @return an ArrayList of tuples matching the search criteria
      * @throws DBAppException if an error occurs during the search operation
      */
-    private ArrayList<Tuple> getArrayOfTuples(
+    ArrayList<Tuple> getArrayOfTuples(
             String strColumnName,
             Object objValue,
             String strOperator,
             int position) throws DBAppException {
 
+        strOperator = searchOperator(strOperator, objValue);
+        return getArrayOfTuples(strColumnName, objValue, strOperator, position, accessPath(strColumnName, objValue, strOperator));
+    }
+
+
+    /**
+     * Retrieves the tuples matching a condition along an access path already chosen for it.
+     *
+     * @param strColumnName the name of the column to perform the search on
+     * @param value the value to search for
+     * @param strOperator the operator to search with, as searchOperator returns it
+     * @param position the position of the column in the table
+     * @param path the access path chosen for the condition
+     * @return an ArrayList of tuples matching the condition
+     * @throws DBAppException if an error occurs during the search operation
+     */
+    private ArrayList<Tuple> getArrayOfTuples(
+            String strColumnName,
+            Object value,
+            String strOperator,
+            int position,
+            AccessPath path) throws DBAppException {
+
+        // A dictionary encoded column is searched by the rank of the value, its index keys being codes too
+        Object objValue = (value instanceof String && dictionaries.containsKey(strColumnName))
+                ? indexKey(strColumnName, value) : value;
+
+        EngineEvents.Condition event = new EngineEvents.Condition();
+        event.begin();
+        long start = EngineMetrics.start();
+        // Polygons equal in region have equal areas, the area order of the column filters the candidates
+        boolean spatialEquals = strOperator.equals(SQLTerm.EQUALS);
+        ArrayList<Tuple> result = switch (path) {
+            case RTREE -> goWithRTree(strColumnName, (CustomPolygon) objValue, strOperator, position);
+            case INDEX -> goWithIndex(strColumnName, objValue, spatialEquals ? "=" : strOperator, position);
+            case BINARY -> goBinary(objValue, spatialEquals ? "=" : strOperator, position);
+            case LINEAR -> goLinear(objValue, strOperator, position);
+            case FULL_SCAN -> goFullScan(objValue, strOperator, position);
+        };
+        if (spatialEquals && (path == AccessPath.INDEX || path == AccessPath.BINARY))
+            result.removeIf(tuple -> !spatialMatch(tuple.get(position), objValue, SQLTerm.EQUALS));
+        EngineMetrics.record(path, start, result.size());
+        event.emit(tableName, strColumnName, strOperator, path, result.size());
+        return result;
+    }
+
+
+    /**
+     * Checks a condition of a select against the columns of the table.
+     *
+     * @param term the condition
+     * @param metaOfTable the metadata of the table, one row per column
+     * @return the position of the column of the condition in the tuples
+     * @throws DBAppException if the column does not exist, the operator is invalid, or a spatial operator has no polygon
+     */
+    private int checkTerm(SQLTerm term, Vector<String[]> metaOfTable) throws DBAppException {
+        int position = getColumnPositionInTuple(term.getStrColumnName(), metaOfTable);
+        if (position == -1)
+            throw new DBAppException("Column " + term.getStrColumnName() + " does not exist in " + tableName);
+        if (!validOperator(term.getStrOperator()))
+            throw new DBAppException("INVALID OPERATOR " + term.getStrOperator());
+        if (isSpatialOperator(term.getStrOperator()) && !(term.getObjValue() instanceof CustomPolygon))
+            throw new DBAppException("The operator " + term.getStrOperator() + " needs a polygon value");
+        return position;
+    }
+
+
+    /**
+     * Combines the result of the conditions so far with the result of the next condition.
+     *
+     * @param strOperator the logical operator between them, "AND", "OR" or "XOR"
+     * @param result the tuples matching the conditions so far
+     * @param current the tuples matching the next condition
+     * @return the combined tuples
+     * @throws DBAppException if the operator is invalid
+     */
+    private ArrayList<Tuple> combine(String strOperator, ArrayList<Tuple> result, ArrayList<Tuple> current) throws DBAppException {
+        return switch (strOperator.toLowerCase()) {
+            case "and" -> andSets(result, current);
+            case "or" -> orSets(result, current);
+            case "xor" -> xorSets(result, current);
+            default -> throw new DBAppException("INVALID OPERATOR " + strOperator);
+        };
+    }
+
+
+    /**
+     * Plans a select without running it, or runs it and measures every node of its plan.
+     * The plan takes the same access paths and combines the results in the same order as selectTuples.
+     *
+     * @param arrSQLTerms the conditions, all on this table
+     * @param arrOperators the logical operators between consecutive conditions
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param analyze true to run the select and record the cost of every node
+     * @return the plan of the select
+     * @throws DBAppException if a column, an operator or a value is invalid, or a page cannot be read
+     */
+    public QueryPlan explain(SQLTerm[] arrSQLTerms,
+                             String[] arrOperators,
+                             Vector<String[]> metaOfTable,
+                             boolean analyze) throws DBAppException {
+        getLock().readLock().lock();
+        try {
+            long tableRows = estimateTableRows();
+            QueryPlan plan = null;
+            ArrayList<Tuple> result = null;
+            for (int i = 0; i < arrSQLTerms.length; i++) {
+                SQLTerm term = arrSQLTerms[i];
+                int position = checkTerm(term, metaOfTable);
+                String strOperator = searchOperator(term.getStrOperator(), term.getObjValue());
+                AccessPath path = accessPath(term.getStrColumnName(), term.getObjValue(), strOperator);
+                QueryPlan leaf = new QueryPlan(term, path, estimateRows(term.getStrColumnName(), term.getObjValue(), strOperator, tableRows));
+                if (plan != null && !validLogicalOperator(arrOperators[i - 1]))
+                    throw new DBAppException("INVALID OPERATOR " + arrOperators[i - 1]);
+                QueryPlan node = (plan == null) ? leaf : new QueryPlan(arrOperators[i - 1], plan,
+                        leaf, estimateCombined(arrOperators[i - 1], plan.getEstimatedRows(), leaf.getEstimatedRows(), tableRows));
+                if (analyze) {
+                    ArrayList<Tuple> current = analyzed(leaf, () ->
+                            getArrayOfTuples(term.getStrColumnName(), term.getObjValue(), term.getStrOperator(), position));
+                    ArrayList<Tuple> sofar = result;
+                    String logical = (i == 0) ? null : arrOperators[i - 1];
+                    result = (sofar == null) ? current : analyzed(node, () -> combine(logical, sofar, current));
+                }
+                plan = node;
+            }
+            return plan;
+        } finally {
+            getLock().readLock().unlock();
+        }
+    }
+
+
+    /**
+     * A step of an analyzed plan.
+     */
+    private interface PlanStep {
+        ArrayList<Tuple> run() throws DBAppException;
+    }
+
+
+    /**
+     * Runs a step of an analyzed plan under its own trace and records its costs in its node.
+     *
+     * @param node the node of the step
+     * @param step the step
+     * @return the tuples the step returned
+     * @throws DBAppException if the step fails
+     */
+    private static ArrayList<Tuple> analyzed(QueryPlan node, PlanStep step) throws DBAppException {
+        QueryTrace trace = new QueryTrace();
+        QueryTrace previous = EngineMetrics.beginTrace(trace);
+        long start = System.nanoTime();
+        try {
+            ArrayList<Tuple> tuples = step.run();
+            node.analyzed(tuples.size(), trace, System.nanoTime() - start);
+            return tuples;
+        } finally {
+            EngineMetrics.endTrace(previous);
+        }
+    }
+
+
+    /**
+     * Checks if the given operator combines the results of two conditions.
+     *
+     * @param strOperator the operator to check
+     * @return true for "AND", "OR" and "XOR" in any case
+     */
+    static boolean validLogicalOperator(String strOperator) {
+        return strOperator != null && Set.of("and", "or", "xor").contains(strOperator.toLowerCase());
+    }
+
+
+    /**
+     * Estimates the rows of the table: the rows of its statistics scaled to the pages it has now,
+     * or without statistics from its pages, a page holding between fillFactor and all of maxRowsInPage.
+     *
+     * @return the rows the table is expected to hold
+     */
+    long estimateTableRows() {
+        TableStatistics current = statistics;
+        if (current != null && current.getPageCount() > 0)
+            return Math.round((double) current.getRowCount() * pages.size() / current.getPageCount());
+        return Math.round(pages.size() * maxRowsInPage * (1 + getFillFactor()) / 2);
+    }
+
+
+    /**
+     * Estimates the rows a condition returns from the statistics of its column.
+     * Without them, or for a spatial operator, the default selectivities of System R are taken:
+     * one tenth for an equality or a spatial operator, a third for a range and nine tenths for "!=".
+     *
+     * @param strColumnName the column of the condition
+     * @param objValue the value of the condition
+     * @param strOperator the operator, as getArrayOfTuples searches with it
+     * @param tableRows the estimated rows of the table
+     * @return the rows the condition is expected to return
+     */
+    long estimateRows(String strColumnName, Object objValue, String strOperator, long tableRows) {
+        TableStatistics current = statistics;
+        ColumnStatistics column = (current == null) ? null : current.getColumn(strColumnName);
+        if (column != null) {
+            double selectivity = column.selectivity(strOperator, indexKey(strColumnName, objValue));
+            if (selectivity >= 0)
+                return Math.round(tableRows * selectivity);
+        }
+        double selectivity = switch (strOperator) {
+            case "=", SQLTerm.EQUALS, SQLTerm.INTERSECTS, SQLTerm.CONTAINS, SQLTerm.WITHIN -> 0.1;
+            case "!=" -> 0.9;
+            default -> 1.0 / 3;
+        };
+        return Math.round(tableRows * selectivity);
+    }
+
+
+    /**
+     * Estimates the rows of a set operation, the two sides being taken as independent.
+     *
+     * @param strOperator the logical operator
+     * @param left the rows expected from the conditions before it
+     * @param right the rows expected from the condition after it
+     * @param tableRows the estimated rows of the table
+     * @return the rows the set operation is expected to return
+     */
+    private static long estimateCombined(String strOperator, long left, long right, long tableRows) {
+        double both = (tableRows == 0) ? 0 : (double) left * right / tableRows;
+        return switch (strOperator.toLowerCase()) {
+            case "and" -> Math.round(both);
+            case "or" -> Math.round(left + right - both);
+            default -> Math.round(left + right - 2 * both);
+        };
+    }
+
+
+    /**
+     * Turns the operator of a condition into the one it is searched with, "=" on a polygon meaning "equals".
+     * Polygons are equal when they cover the same region, not when their areas match.
+     *
+     * @param strOperator the operator of the condition
+     * @param objValue the value of the condition
+     * @return the operator getArrayOfTuples searches with
+     */
+    private static String searchOperator(String strOperator, Object objValue) {
+        return searchOperator(strOperator, objValue instanceof CustomPolygon);
+    }
+
+    static String searchOperator(String strOperator, boolean polygon) {
+        return (strOperator.equals("=") && polygon) ? SQLTerm.EQUALS : strOperator;
+    }
+
+
+    /**
+     * Describes a select for its flight recorder event, the conditions as written and the access path of each.
+     *
+     * @param event the event begun when the select started
+     * @param arrSQLTerms the conditions of the select
+     * @param arrOperators the logical operators between them
+     * @param rows the rows the select returned
+     */
+    private void emitSelect(EngineEvents.Select event, SQLTerm[] arrSQLTerms, String[] arrOperators, int rows) {
+        event.emit(tableName, describeConditions(arrSQLTerms, arrOperators), describeAccessPaths(arrSQLTerms), rows);
+    }
+
+
+    /**
+     * Writes the conditions of a select as they were given, joined by their logical operators.
+     *
+     * @param arrSQLTerms the conditions of the select
+     * @param arrOperators the logical operators between them
+     * @return the conditions, such as "id > 5 AND name = Ali"
+     */
+    static String describeConditions(SQLTerm[] arrSQLTerms, String[] arrOperators) {
+        StringBuilder conditions = new StringBuilder();
+        for (int i = 0; i < arrSQLTerms.length; i++) {
+            SQLTerm term = arrSQLTerms[i];
+            if (i > 0)
+                conditions.append(' ').append(arrOperators[i - 1]).append(' ');
+            conditions.append(term.getStrColumnName()).append(' ').append(term.getStrOperator()).append(' ').append(term.getObjValue());
+        }
+        return conditions.toString();
+    }
+
+
+    /**
+     * Names the access path every condition of a select is answered by, in the order of the conditions.
+     *
+     * @param arrSQLTerms the conditions of the select
+     * @return the access paths, such as "INDEX, FULL_SCAN"
+     */
+    String describeAccessPaths(SQLTerm[] arrSQLTerms) {
+        StringBuilder accessPaths = new StringBuilder();
+        for (int i = 0; i < arrSQLTerms.length; i++) {
+            SQLTerm term = arrSQLTerms[i];
+            if (i > 0)
+                accessPaths.append(", ");
+            accessPaths.append(accessPath(term.getStrColumnName(), term.getObjValue(),
+                    searchOperator(term.getStrOperator(), term.getObjValue())));
+        }
+        return accessPaths.toString();
+    }
+
+
+    /**
+     * Chooses how a condition is answered from its column, value and operator, and the indexes of the table.
+     * The operator is the one getArrayOfTuples searches with, "=" on polygons being already turned into "equals".
+     *
+     * @param strColumnName the name of the column of the condition
+     * @param objValue the value of the condition
+     * @param strOperator the operator of the condition
+     * @return the access path the condition takes
+     */
+    AccessPath accessPath(String strColumnName, Object objValue, String strOperator) {
+        return accessPath(strColumnName, objValue instanceof CustomPolygon, strOperator);
+    }
+
+
+    /**
+     * Chooses how a condition is answered knowing only whether its value is a polygon, as a prepared select does.
+     *
+     * @param strColumnName the name of the column of the condition
+     * @param polygon whether the value of the condition is a polygon
+     * @param strOperator the operator of the condition
+     * @return the access path the condition takes
+     */
+    AccessPath accessPath(String strColumnName, boolean polygon, String strOperator) {
+        TreeIndex index = treeIndexColumnName.get(strColumnName);
+        if (isSpatialOperator(strOperator)) {
+            if (index instanceof RTree)
+                return AccessPath.RTREE;
+            if (strOperator.equals(SQLTerm.EQUALS) && index != null)
+                return AccessPath.INDEX;
+            if (strOperator.equals(SQLTerm.EQUALS) && strColumnName.equals(clusteringKey))
+                return AccessPath.BINARY;
+            return AccessPath.FULL_SCAN;
+        }
+
         if (strOperator.equals("!="))
-            return goLinear(objValue, strOperator, position);
+            return polygon ? AccessPath.FULL_SCAN : AccessPath.LINEAR;
+
+        // An R-Tree groups polygons by position, comparisons of their areas gain nothing from it
+        if (index != null && !(index instanceof RTree))
+            return AccessPath.INDEX;
 
-        return (treeIndexColumnName.containsKey(strColumnName))
-                ? goWithIndex(strColumnName, objValue, strOperator, position)
-                : (strColumnName.equals(clusteringKey)) ? goBinary(objValue, strOperator, position)
-                : goLinear(objValue, strOperator, position);
+        return (strColumnName.equals(clusteringKey)) ? AccessPath.BINARY : AccessPath.FULL_SCAN;
+    }
+
+
+    /**
+     * Checks if the given operator compares the spatial relationship of polygons rather than their areas.
+     *
+     * @param strOperator the operator to check
+     * @return true for "equals", "intersects", "contains" and "within", false otherwise
+     */
+    static boolean isSpatialOperator(String strOperator) {
+        return strOperator.equals(SQLTerm.EQUALS) || strOperator.equals(SQLTerm.INTERSECTS) || strOperator.equals(SQLTerm.CONTAINS) || strOperator.equals(SQLTerm.WITHIN);
+    }
+
+
+    /**
+     * Checks the exact spatial relationship between a stored polygon and the polygon of a condition.
+     *
+     * @param value the polygon stored in the tuple, may be null
+     * @param objValue the polygon of the condition
+     * @param strOperator the spatial operator
+     * @return true if the stored polygon is in the relationship with the condition's polygon
+     */
+    private static boolean spatialMatch(Object value, Object objValue, String strOperator) {
+        if (!(value instanceof CustomPolygon stored))
+            return false;
+        CustomPolygon polygon = (CustomPolygon) objValue;
+        return switch (strOperator) {
+            case SQLTerm.EQUALS -> stored.spatiallyEquals(polygon);
+            case SQLTerm.INTERSECTS -> stored.intersects(polygon);
+            case SQLTerm.CONTAINS -> stored.contains(polygon);
+            case SQLTerm.WITHIN -> stored.within(polygon);
+            default -> false;
+        };
+    }
+
+
+    /**
+     * Answers a spatial condition with the R-Tree of the column in two phases.
+     * The filter phase asks the tree for the records whose bounding rectangle can match, the refine phase reads
+     * the pages of those records once each, in parallel, and checks their tuples against the exact polygons.
+     *
+     * @param strColumnName the name of the indexed polygon column
+     * @param objValue the polygon of the condition
+     * @param strOperator the spatial operator
+     * @param position the position of the column in the table
+     * @return an ArrayList of tuples matching the condition
+     * @throws DBAppException if the index or a page cannot be read
+     */
+    private ArrayList<Tuple> goWithRTree(
+            String strColumnName,
+            CustomPolygon objValue,
+            String strOperator,
+            int position) throws DBAppException {
+        RTree rTree = (RTree) treeIndexColumnName.get(strColumnName);
+        ArrayList<GeneralRef> candidates = switch (strOperator) {
+            case SQLTerm.EQUALS -> rTree.searchEquals(objValue);
+            case SQLTerm.INTERSECTS -> rTree.searchIntersects(objValue);
+            case SQLTerm.CONTAINS -> rTree.searchContains(objValue);
+            default -> rTree.searchWithin(objValue);
+        };
+
+        LinkedHashSet<String> pageNames = new LinkedHashSet<>();
+        for (GeneralRef candidate : candidates)
+            for (Ref ref : fillInRef(candidate))
+                if (getPageIndex(ref.getPage()) != -1)
+                    pageNames.add(ref.getPage());
+
+        return refinePages(pageNames, position, tuple -> spatialMatch(tuple.get(position), objValue, strOperator));
+    }
+
+
+    /**
+     * An exact check of a tuple against a condition, run by the refine phase.
+     */
+    private interface TupleCheck {
+        boolean matches(Tuple tuple) throws DBAppException;
+    }
+
+
+    /**
+     * Compiles a condition into the check of its operator alone, so a scan does not pick the comparison
+     * again for every tuple it reads. Tuples without a value in the column never match.
+     *
+     * @param strOperator the operator of the condition, as searchOperator returns it
+     * @param objValue the value of the condition
+     * @param position the position of the column in the tuples
+     * @return the check of the condition
+     * @throws DBAppException if the operator is invalid
+     */
+    private static TupleCheck compileCheck(String strOperator, Object objValue, int position) throws DBAppException {
+        boolean polygon = objValue instanceof CustomPolygon;
+        TupleCheck check = switch (strOperator) {
+            case "=" -> polygon ? tuple -> spatialMatch(tuple.get(position), objValue, SQLTerm.EQUALS)
+                    : tuple -> tuple.compareAt(position, objValue) == 0;
+            case "!=" -> polygon ? tuple -> !spatialMatch(tuple.get(position), objValue, SQLTerm.EQUALS)
+                    : tuple -> tuple.compareAt(position, objValue) != 0;
+            case ">" -> tuple -> tuple.compareAt(position, objValue) > 0;
+            case ">=" -> tuple -> tuple.compareAt(position, objValue) >= 0;
+            case "<" -> tuple -> tuple.compareAt(position, objValue) < 0;
+            case "<=" -> tuple -> tuple.compareAt(position, objValue) <= 0;
+            case SQLTerm.EQUALS, SQLTerm.INTERSECTS, SQLTerm.CONTAINS, SQLTerm.WITHIN ->
+                    tuple -> spatialMatch(tuple.get(position), objValue, strOperator);
+            default -> throw new DBAppException("INVALID OPERATOR " + strOperator);
+        };
+        return tuple -> !tuple.isNull(position) && check.matches(tuple);
+    }
+
+
+    /**
+     * Reads the given pages and keeps the tuples passing the check, in the order of the pages.
+     * From PARALLEL_REFINE_PAGES pages on, every page is read and checked by its own task of the common pool,
+     * the caller's lock on the table covers the tasks since it waits for all of them.
+     *
+     * @param pageNames the names of the pages to read
+     * @param position the position of the only column the check reads
+     * @param check the exact check every tuple has to pass
+     * @return the tuples passing the check
+     * @throws DBAppException if a page cannot be read
+     */
+    private ArrayList<Tuple> refinePages(Collection<String> pageNames, int position, TupleCheck check) throws DBAppException {
+        ArrayList<Tuple> result = new ArrayList<>();
+        if (pageNames.size() < PARALLEL_REFINE_PAGES) {
+            for (String pageName : pageNames)
+                result.addAll(refinePage(pageName, position, check));
+            return result;
+        }
+
+        ArrayList<ForkJoinTask<ArrayList<Tuple>>> tasks = new ArrayList<>(pageNames.size());
+        for (String pageName : pageNames)
+            tasks.add(ForkJoinPool.commonPool().submit(EngineMetrics.traced(() -> refinePage(pageName, position, check))));
+        for (ForkJoinTask<ArrayList<Tuple>> task : tasks) {
+            try {
+                result.addAll(task.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof DBAppException cause)
+                    throw cause;
+                throw new DBAppException("Refining a page failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DBAppException("Interrupted while refining pages");
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Reads one page and keeps the tuples passing the check.
+     * A columnar page is first read for the checked column alone, and read in full only if one of its tuples matches.
+     *
+     * @param pageName the name of the page
+     * @param position the position of the only column the check reads
+     * @param check the exact check every tuple has to pass
+     * @return the tuples passing the check, in page order
+     * @throws DBAppException if the page cannot be read
+     */
+    private ArrayList<Tuple> refinePage(String pageName, int position, TupleCheck check) throws DBAppException {
+        ArrayList<Tuple> matching = new ArrayList<>();
+        if (columnar && isColumnarPage(pageName)) {
+            Page projected = ColumnarPage.read(pageName, new int[]{position});
+            Page full = null;
+            for (int slot = 0; slot < projected.size(); slot++) {
+                if (projected.isDeleted(slot) || !check.matches(projected.getTuples().get(slot)))
+                    continue;
+                if (full == null)
+                    full = ColumnarPage.read(pageName);
+                matching.add(full.getTuples().get(slot));
+            }
+            return matching;
+        }
+        for (Tuple tuple : deserialize(pageName).getLiveTuples())
+            if (check.matches(tuple))
+                matching.add(tuple);
+        return matching;
+    }
+
+
+    /**
+     * Scans every page and checks each tuple against the condition, the access path of columns
+     * that are neither indexed nor the clustering key and whose values are therefore in no particular order.
+     *
+     * @param objValue the value of the condition
+     * @param strOperator the operator of the condition
+     * @param position the position of the column in the table
+     * @return an ArrayList of tuples matching the condition
+     * @throws DBAppException if a page cannot be read
+     */
+    private ArrayList<Tuple> goFullScan(
+            Object objValue,
+            String strOperator,
+            int position) throws DBAppException {
+        return refinePages(pages, position, compileCheck(strOperator, objValue, position));
     }
 
 
@@ -627,14 +1966,15 @@ public class Table implements Serializable {
 
     /**
      * Checks if the given string represents a valid comparison operator.
-     * Valid operators include "=", "!=", ">", ">=", "<", and "<=".
+     * Valid operators include "=", "!=", ">", ">=", "<", and "<=", and the spatial operators for polygon columns.
      *
      * @param strOperator the string representing the operator to check
      * @return true if the operator is valid, false otherwise
      */
-    private boolean validOperator(String strOperator) {
+    static boolean validOperator(String strOperator) {
         return strOperator.equals("=") || strOperator.equals("!=") || strOperator.equals(">")
-                || strOperator.equals(">=") || strOperator.equals("<") || strOperator.equals("<=");
+                || strOperator.equals(">=") || strOperator.equals("<") || strOperator.equals("<=")
+                || isSpatialOperator(strOperator);
     }
 
 
@@ -677,14 +2017,14 @@ public class Table implements Serializable {
         ArrayList<Tuple> result = new ArrayList<>();
         for (String s : pages) {
             Page page = deserialize(s);
-            for (int j = 0; j < page.getTuples().size(); j++) {
-                Comparable grantKey = (Comparable) page.getTuples().get(j).getAttributes().get(position);
+            for (int j = 0; j < page.getLiveTuples().size(); j++) {
+                Comparable grantKey = (Comparable) page.getLiveTuples().get(j).get(position);
                 Comparable obj = (Comparable) objValue;
-                if (grantKey.compareTo(obj) != 0) {
-                    result.add(page.getTuples().get(j));
+                if (page.getLiveTuples().get(j).compareAt(position, obj) != 0) {
+                    result.add(page.getLiveTuples().get(j));
                 }
                 else if ((grantKey instanceof CustomPolygon) && !grantKey.equals(obj)) {
-                    result.add(page.getTuples().get(j));
+                    result.add(page.getLiveTuples().get(j));
                 }
 
             }
@@ -708,12 +2048,12 @@ public class Table implements Serializable {
         ArrayList<Tuple> result = new ArrayList();
         for (String s : pages) {
             Page page = deserialize(s);
-            for (int j = 0; j < page.getTuples().size(); j++) {
-                Comparable grantKey = (Comparable) page.getTuples().get(j).getAttributes().get(position);
+            for (int j = 0; j < page.getLiveTuples().size(); j++) {
+                Comparable grantKey = (Comparable) page.getLiveTuples().get(j).get(position);
                 Comparable obj = (Comparable) objValue;
-                if (grantKey.compareTo(obj) == 0) {
+                if (page.getLiveTuples().get(j).compareAt(position, obj) == 0) {
                     if (!(grantKey instanceof CustomPolygon) || grantKey.equals(obj))
-                        result.add(page.getTuples().get(j));
+                        result.add(page.getLiveTuples().get(j));
                 }
             }
         }
@@ -738,19 +2078,22 @@ public class Table implements Serializable {
 
         ArrayList<Tuple> result = new ArrayList<>();
         for (int i = 0; i < pages.size(); i++) {
-            if (getMin(i).compareTo(objValue) > 0)
+            Comparable min = getMin(i);
+            if (min == null)
+                continue;
+            if (min.compareTo(objValue) > 0)
                 break;
-            if (getMin(i).compareTo(objValue) == 0 && strOperator.length() == 1)
+            if (min.compareTo(objValue) == 0 && strOperator.length() == 1)
                 break;
             Page page = deserialize(pages.get(i));
             int j = 0;
-            while (j < page.getTuples().size() && ((Comparable) page.getTuples().get(j).getAttributes().get(position))
-                    .compareTo(objValue) < 0)
-                result.add(page.getTuples().get(j++));
+            while (j < page.getLiveTuples().size() && page.getLiveTuples().get(j)
+                    .compareAt(position, objValue) < 0)
+                result.add(page.getLiveTuples().get(j++));
             if (strOperator.length() == 2) {
-                while (j < page.getTuples().size() && ((Comparable) page.getTuples().get(j).getAttributes().get(position))
-                        .compareTo(objValue) == 0)
-                    result.add(page.getTuples().get(j++));
+                while (j < page.getLiveTuples().size() && page.getLiveTuples().get(j)
+                    .compareAt(position, objValue) == 0)
+                    result.add(page.getLiveTuples().get(j++));
             }
 
         }
@@ -776,21 +2119,24 @@ public class Table implements Serializable {
 
         ArrayList<Tuple> result = new ArrayList<>();
         for (int i = pages.size() - 1; i >= 0; i--) {
-            if (getMax(i).compareTo(objValue) < 0)
+            Page page = deserialize(pages.get(i));
+            Comparable max = getMax(page);
+            if (max == null)
+                continue;
+            if (max.compareTo(objValue) < 0)
                 break;
-            if (getMax(i).compareTo(objValue) == 0 && strOperator.length() == 1)
+            if (max.compareTo(objValue) == 0 && strOperator.length() == 1)
                 break;
-            Page page = deserialize(pages.get(i));
-            int pageMaxSize = page.getTuples().size() - 1;
-            while (pageMaxSize >= 0 && ((Comparable) page.getTuples().get(pageMaxSize).getAttributes().get(position))
-                    .compareTo(objValue) > 0) {
-                result.add(0, page.getTuples().get(pageMaxSize));
+            int pageMaxSize = page.getLiveTuples().size() - 1;
+            while (pageMaxSize >= 0 && page.getLiveTuples().get(pageMaxSize)
+                    .compareAt(position, objValue) > 0) {
+                result.add(0, page.getLiveTuples().get(pageMaxSize));
                 pageMaxSize--;
             }
             if (strOperator.length() == 2) {
-                while (pageMaxSize >= 0 && ((Comparable) page.getTuples().get(pageMaxSize).getAttributes().get(position))
-                        .compareTo(objValue) == 0) {
-                    result.add(0, page.getTuples().get(pageMaxSize));
+                while (pageMaxSize >= 0 && page.getLiveTuples().get(pageMaxSize)
+                    .compareAt(position, objValue) == 0) {
+                    result.add(0, page.getLiveTuples().get(pageMaxSize));
                     pageMaxSize--;
                 }
             }
@@ -833,7 +2179,14 @@ public class Table implements Serializable {
      */
     private ArrayList<Tuple> equalsBinary(Object objValue, int position) throws DBAppException {
 
-        String[] searchResult = SearchInTable(tableName, objValue).split("#");
+        String found;
+        try {
+            found = SearchInTable(tableName, objValue);
+        } catch (DBAppException e) {
+            // SearchInTable reports a key held by no tuple as an exception, for a selection that is an empty result
+            return new ArrayList<>();
+        }
+        String[] searchResult = found.split("#");
         String startPage = searchResult[0];
         int startPageIndex = getPageIndex(startPage);
         int startTupleIndex = Integer.parseInt(searchResult[1]);
@@ -844,11 +2197,13 @@ public class Table implements Serializable {
                 break;
             Page currentPage = deserialize(pages.get(pageIndex));
             Comparable comparable;
-            while (tupleIndex < currentPage.getTuples().size()
-                    && (comparable = (Comparable) currentPage.getTuples().get(tupleIndex).getAttributes().get(position))
-                    .compareTo(objValue) == 0)
+            while (tupleIndex < currentPage.getLiveTuples().size()
+                    && (comparable = (Comparable) currentPage.getLiveTuples().get(tupleIndex).get(position))
+                    .compareTo(objValue) == 0) {
                 if (!(comparable instanceof CustomPolygon) || comparable.equals(objValue))
-                    tupleArrayList.add(currentPage.getTuples().get(tupleIndex++));
+                    tupleArrayList.add(currentPage.getLiveTuples().get(tupleIndex));
+                tupleIndex++;
+            }
         }
 
         return tupleArrayList;
@@ -913,9 +2268,7 @@ public class Table implements Serializable {
             return ltOrLtlLinear(objValue, strOperator, position);
 
         ArrayList<Tuple> result = new ArrayList<>();
-        String lastPage = pages.get(pages.size() - 1);
-        int lastPageMaxNum = Integer.parseInt(lastPage.substring(tableName.length()));
-        boolean[] visited = new boolean[lastPageMaxNum + 1];
+        HashSet<String> visited = new HashSet<>();
         TreeIndex treeIndex = treeIndexColumnName.get(strColumnName);
         LeafNode LeafNode = treeIndex.getLeftmostLeaf();
         while (LeafNode != null) {
@@ -929,16 +2282,15 @@ public class Table implements Serializable {
                 Set<Ref> ref = fillInRef(generalRef);
                 for (Ref r : ref) {
                     String pageName = r.getPage();
-                    int currentPageNo = Integer.parseInt(pageName.substring(tableName.length()));
-                    if (visited[currentPageNo])
+                    if (!visited.add(pageName))
                         continue;
                     addToResultSet(result, pageName, position, objValue, strOperator);
-                    visited[currentPageNo] = true;
                 }
 
             }
             if (i < LeafNode.getNumberOfKeys())
                 break;
+            LeafNode = (LeafNode instanceof BPTreeLeafNode) ? ((BPTreeLeafNode) LeafNode).getNextNode() : null;
         }
         return result;
     }
@@ -966,9 +2318,7 @@ public class Table implements Serializable {
             return mtOrMtlLinear(objValue, strOperator, position);
         else {
             ArrayList<Tuple> results = new ArrayList<>();
-            String lastPage = pages.get(pages.size() - 1);
-            int lastPageMaxNum = Integer.parseInt(lastPage.substring(tableName.length()));
-            boolean[] visited = new boolean[lastPageMaxNum + 1];
+            HashSet<String> visited = new HashSet<>();
             TreeIndex treeIndex = treeIndexColumnName.get(strColumnName);
             ArrayList referenceList = strOperator.equals(">") ? treeIndex.searchMT((Comparable) objValue)
                     : treeIndex.searchMTE((Comparable) objValue);
@@ -977,11 +2327,9 @@ public class Table implements Serializable {
                 ArrayList<Ref> currentRefsForOneKey = currentGR.getAllRef();
                 for (Ref currentReference : currentRefsForOneKey) {
                     String pageName = currentReference.getPage();
-                    int curPageNum = Integer.parseInt(pageName.substring(tableName.length()));
-                    if (visited[curPageNum])
+                    if (!visited.add(pageName))
                         continue;
                     addToResultSet(results, pageName, position, objValue, strOperator);
-                    visited[curPageNum] = true;
                 }
             }
             return results;
@@ -1031,9 +2379,7 @@ public class Table implements Serializable {
             String strOperator,
             int position) throws DBAppException {
         ArrayList<Tuple> result = new ArrayList<>();
-        String lastPage = pages.get(pages.size() - 1);
-        int lastPageMaxNum = Integer.parseInt(lastPage.substring(tableName.length()));
-        boolean[] visited = new boolean[lastPageMaxNum + 1];
+        HashSet<String> visited = new HashSet<>();
         TreeIndex treeIndex = treeIndexColumnName.get(strColumnName);
         GeneralRef resultReference = treeIndex.search((Comparable) objValue);
         if (resultReference == null)
@@ -1041,11 +2387,9 @@ public class Table implements Serializable {
         ArrayList<Ref> referenceList = resultReference.getAllRef();
         for (Ref currentReference : referenceList) {
             String pageName = currentReference.getPage();
-            int currentPageNo = Integer.parseInt(pageName.substring(tableName.length()));
-            if (visited[currentPageNo])
+            if (!visited.add(pageName))
                 continue;
             addToResultSet(result, pageName, position, objValue, strOperator);
-            visited[currentPageNo] = true;
         }
         return result;
     }
@@ -1095,9 +2439,9 @@ public class Table implements Serializable {
             Object objValue)
             throws DBAppException {
         Page page = deserialize(pageName);
-        for (int i = 0; i < page.getTuples().size(); i++) {
-            if (((Comparable) objValue).compareTo(page.getTuples().get(i).getAttributes().get(position)) > 0)
-                result.add(page.getTuples().get(i));
+        for (int i = 0; i < page.getLiveTuples().size(); i++) {
+            if (page.getLiveTuples().get(i).compareAt(position, objValue) < 0)
+                result.add(page.getLiveTuples().get(i));
         }
     }
 
@@ -1118,9 +2462,9 @@ public class Table implements Serializable {
             int position,
             Object objValue) throws DBAppException {
         Page page = deserialize(pageName);
-        for (int i = 0; i < page.getTuples().size(); i++) {
-            if (((Comparable) objValue).compareTo(page.getTuples().get(i).getAttributes().get(position)) >= 0)
-                result.add(page.getTuples().get(i));
+        for (int i = 0; i < page.getLiveTuples().size(); i++) {
+            if (page.getLiveTuples().get(i).compareAt(position, objValue) <= 0)
+                result.add(page.getLiveTuples().get(i));
         }
     }
 
@@ -1141,13 +2485,11 @@ public class Table implements Serializable {
             int position,
             Object objValue) throws DBAppException {
         Page page = deserialize(pageName);
-        for (int i = 0; i < page.getTuples().size(); i++) {
-            Comparable objectValue = (Comparable) objValue;
-            Tuple currentTuple = page.getTuples().get(i);
-            Comparable currentKey = (Comparable) currentTuple.getAttributes().get(position);
-            if (objectValue.compareTo(currentKey) == 0) {
-                if (!(objValue instanceof CustomPolygon) || objValue.equals(currentKey))
-                    result.add(page.getTuples().get(i));
+        for (int i = 0; i < page.getLiveTuples().size(); i++) {
+            Tuple currentTuple = page.getLiveTuples().get(i);
+            if (currentTuple.compareAt(position, objValue) == 0) {
+                if (!(objValue instanceof CustomPolygon) || objValue.equals(currentTuple.get(position)))
+                    result.add(page.getLiveTuples().get(i));
             }
         }
     }
@@ -1169,9 +2511,9 @@ public class Table implements Serializable {
             int pos,
             Object objValue) throws DBAppException {
         Page page = deserialize(pageName);
-        for (int i = 0; i < page.getTuples().size(); i++) {
-            if (((Comparable) objValue).compareTo(page.getTuples().get(i).getAttributes().get(pos)) < 0)
-                result.add(page.getTuples().get(i));
+        for (int i = 0; i < page.getLiveTuples().size(); i++) {
+            if (page.getLiveTuples().get(i).compareAt(pos, objValue) > 0)
+                result.add(page.getLiveTuples().get(i));
         }
     }
 
@@ -1192,9 +2534,9 @@ public class Table implements Serializable {
             int position,
             Object objValue) throws DBAppException {
         Page page = deserialize(pageName);
-        for (int i = 0; i < page.getTuples().size(); i++) {
-            if (((Comparable) objValue).compareTo(page.getTuples().get(i).getAttributes().get(position)) <= 0)
-                result.add(page.getTuples().get(i));
+        for (int i = 0; i < page.getLiveTuples().size(); i++) {
+            if (page.getLiveTuples().get(i).compareAt(position, objValue) >= 0)
+                result.add(page.getLiveTuples().get(i));
         }
     }
 
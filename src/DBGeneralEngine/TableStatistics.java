@@ -0,0 +1,271 @@
+package src.DBGeneralEngine;
+
+import java.io.Serializable;
+import java.util.*;
+
+
+/**
+ * TableStatistics holds what analyzeTable learned about a table: its rows and, for every column, the statistics
+ * the planner estimates the rows of a condition from.
+ * <p>
+ * A large table is not read in full: SAMPLE_PAGES pages are read, the first and the last always among them so the
+ * clustering key keeps its exact bounds, and the counts are scaled to every page. Distinct values are counted with
+ * a HyperLogLog over the rows read, polygons by their vertices, and scaled with the Duj1 estimator of Haas and Stokes when only a sample was read.
+ * The most common values and the histograms come from a uniform sample of at most SAMPLE_ROWS of the rows read.
+ */
+public class TableStatistics implements Serializable {
+
+    /**
+     * Attributes
+     * <p>
+     * SAMPLE_PAGES     ->  The number of pages read from a large table.
+     * SAMPLE_ROWS      ->  The size of the sample the most common values and the histograms are built from.
+     * MOST_COMMON      ->  The largest number of most common values kept per column.
+     * BUCKETS          ->  The number of buckets of every histogram.
+     * rowCount         ->  The estimated number of rows of the table.
+     * pagesRead        ->  The pages read to build the statistics.
+     * pageCount        ->  The pages of the table when it was analyzed.
+     * analyzedAt       ->  When the table was analyzed.
+     * columns          ->  The statistics of every column, by column name.
+     */
+    static final int SAMPLE_PAGES = 64;
+    static final int SAMPLE_ROWS = 30000;
+    static final int MOST_COMMON = 10;
+    static final int BUCKETS = 10;
+
+    private final long rowCount;
+    private final int pagesRead;
+    private final int pageCount;
+    private final Date analyzedAt;
+    private final Hashtable<String, ColumnStatistics> columns;
+
+
+    /**
+     * Constructor
+     *
+     * @param rowCount the estimated number of rows
+     * @param pagesRead the pages read to build the statistics
+     * @param pageCount the pages of the table
+     * @param columns the statistics of every column, by column name
+     */
+    public TableStatistics(long rowCount, int pagesRead, int pageCount, Hashtable<String, ColumnStatistics> columns) {
+        this.rowCount = rowCount;
+        this.pagesRead = pagesRead;
+        this.pageCount = pageCount;
+        this.analyzedAt = new Date();
+        this.columns = columns;
+    }
+
+
+    /**
+     * Getters
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getPagesRead() {
+        return pagesRead;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public Date getAnalyzedAt() {
+        return analyzedAt;
+    }
+
+    public Hashtable<String, ColumnStatistics> getColumns() {
+        return columns;
+    }
+
+    public ColumnStatistics getColumn(String columnName) {
+        return columns.get(columnName);
+    }
+
+
+    /**
+     * Reads the pages of a table, or a sample of them, and builds its statistics.
+     * The caller holds a lock on the table keeping its pages in place.
+     *
+     * @param pages the names of the pages of the table, in clustering key order
+     * @param metaOfTable the metadata of the table, one row per column
+     * @param random the source of the samples
+     * @return the statistics of the table
+     * @throws DBAppException if a page cannot be read
+     */
+    static TableStatistics collect(Vector<String> pages, Vector<String[]> metaOfTable, Random random) throws DBAppException {
+        int columnCount = metaOfTable.size();
+        HyperLogLog[] distinct = new HyperLogLog[columnCount];
+        long[] nulls = new long[columnCount];
+        Comparable[] min = new Comparable[columnCount];
+        Comparable[] max = new Comparable[columnCount];
+        for (int i = 0; i < columnCount; i++)
+            distinct[i] = new HyperLogLog();
+
+        int[] sampled = samplePages(pages.size(), random);
+        ArrayList<Tuple> sample = new ArrayList<>();
+        long rowsRead = 0;
+        for (int pageIndex : sampled) {
+            for (Tuple tuple : Table.deserialize(pages.get(pageIndex)).getLiveTuples()) {
+                rowsRead++;
+                for (int i = 0; i < columnCount; i++) {
+                    Object value = tuple.get(i);
+                    if (value == null) {
+                        nulls[i]++;
+                        continue;
+                    }
+                    distinct[i].addHash(ColumnStatistics.distinctHash(value));
+                    if (min[i] == null || compare(value, min[i]) < 0)
+                        min[i] = (Comparable) value;
+                    if (max[i] == null || compare(value, max[i]) > 0)
+                        max[i] = (Comparable) value;
+                }
+                // Reservoir sampling keeps every row read in the sample with the same chance
+                if (sample.size() < SAMPLE_ROWS)
+                    sample.add(tuple);
+                else {
+                    long slot = (long) (random.nextDouble() * rowsRead);
+                    if (slot < SAMPLE_ROWS)
+                        sample.set((int) slot, tuple);
+                }
+            }
+        }
+
+        boolean complete = sampled.length == pages.size();
+        long rowCount = complete ? rowsRead : Math.round((double) rowsRead * pages.size() / Math.max(1, sampled.length));
+        Hashtable<String, ColumnStatistics> columns = new Hashtable<>();
+        for (int i = 0; i < columnCount; i++) {
+            double nullFraction = (rowsRead == 0) ? 0 : (double) nulls[i] / rowsRead;
+            columns.put(metaOfTable.get(i)[1], column(metaOfTable.get(i)[1], i, sample, nullFraction,
+                    distinct[i].estimate(), rowsRead - nulls[i], Math.round(rowCount * (1 - nullFraction)), min[i], max[i]));
+        }
+        return new TableStatistics(rowCount, sampled.length, pages.size(), columns);
+    }
+
+
+    /**
+     * Picks the pages to read: every page of a small table, otherwise SAMPLE_PAGES pages at random,
+     * the first and the last among them, in the order of the pages.
+     */
+    private static int[] samplePages(int pageCount, Random random) {
+        if (pageCount <= SAMPLE_PAGES) {
+            int[] all = new int[pageCount];
+            for (int i = 0; i < pageCount; i++)
+                all[i] = i;
+            return all;
+        }
+        TreeSet<Integer> chosen = new TreeSet<>(List.of(0, pageCount - 1));
+        while (chosen.size() < SAMPLE_PAGES)
+            chosen.add(random.nextInt(pageCount));
+        return chosen.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+
+    /**
+     * Builds the statistics of one column from the rows read and their sample.
+     *
+     * @param columnName the name of the column
+     * @param position the position of the column in the tuples
+     * @param sample the sample of the rows read
+     * @param nullFraction the fraction of the rows read without a value
+     * @param distinctRead the distinct values among the rows read
+     * @param valuesRead the values among the rows read
+     * @param valuesInTable the estimated values in the whole table
+     * @param min the smallest value read
+     * @param max the largest value read
+     * @return the statistics of the column
+     */
+    private static ColumnStatistics column(String columnName, int position, ArrayList<Tuple> sample, double nullFraction,
+                                           long distinctRead, long valuesRead, long valuesInTable,
+                                           Comparable min, Comparable max) {
+        ArrayList<Comparable> values = new ArrayList<>(sample.size());
+        for (Tuple tuple : sample)
+            if (tuple.get(position) != null)
+                values.add((Comparable) tuple.get(position));
+        values.sort(ColumnStatistics::compareDistinct);
+
+        // Runs of equal values in the sorted sample give the frequency of every value
+        ArrayList<Comparable> runValues = new ArrayList<>();
+        ArrayList<Integer> runLengths = new ArrayList<>();
+        int singletons = 0;
+        for (int i = 0, j; i < values.size(); i = j) {
+            j = i + 1;
+            while (j < values.size() && ColumnStatistics.compareDistinct(values.get(i), values.get(j)) == 0)
+                j++;
+            runValues.add(values.get(i));
+            runLengths.add(j - i);
+            if (j - i == 1)
+                singletons++;
+        }
+
+        long distinctCount = Math.min(Math.max(distinctRead, runValues.size()), Math.max(valuesRead, 1));
+        if (valuesRead < valuesInTable && valuesRead > 0 && !values.isEmpty()) {
+            // Duj1: the values seen once are the ones more likely to have unseen neighbours in the unread pages
+            double n = valuesRead;
+            double f1 = n * singletons / values.size();
+            double scaled = n * distinctCount / (n - f1 + f1 * n / valuesInTable);
+            distinctCount = Math.max(distinctCount, Math.min(valuesInTable, Math.round(scaled)));
+        }
+
+        // A value is common when the sample holds it clearly more often than the average value,
+        // or when the sample holds few values, every one of them more than once
+        boolean allCommon = runValues.size() <= MOST_COMMON && singletons == 0;
+        double valueFraction = 1 - nullFraction;
+        double average = (double) values.size() / Math.max(1, distinctCount);
+        Integer[] byFrequency = new Integer[runValues.size()];
+        for (int i = 0; i < byFrequency.length; i++)
+            byFrequency[i] = i;
+        Arrays.sort(byFrequency, (a, b) -> runLengths.get(b) - runLengths.get(a));
+        Vector<Comparable> mostCommonValues = new Vector<>();
+        Vector<Double> mostCommonFrequencies = new Vector<>();
+        boolean[] common = new boolean[runValues.size()];
+        for (int i = 0; i < byFrequency.length && mostCommonValues.size() < MOST_COMMON; i++) {
+            int run = byFrequency[i];
+            if (!allCommon && (runLengths.get(run) < 2 || runLengths.get(run) <= 1.25 * average))
+                break;
+            common[run] = true;
+            mostCommonValues.add(runValues.get(run));
+            mostCommonFrequencies.add(valueFraction * runLengths.get(run) / values.size());
+        }
+
+        // The histogram splits the remaining values into buckets of equal depth
+        ArrayList<Comparable> rest = new ArrayList<>(values.size());
+        for (int run = 0; run < runValues.size(); run++)
+            if (!common[run])
+                for (int k = 0; k < runLengths.get(run); k++)
+                    rest.add(runValues.get(run));
+        Vector<Comparable> histogramBounds = new Vector<>();
+        if (rest.size() >= 2) {
+            int buckets = Math.min(BUCKETS, rest.size() - 1);
+            for (int b = 0; b <= buckets; b++)
+                histogramBounds.add(rest.get((int) ((long) b * (rest.size() - 1) / buckets)));
+        }
+
+        return new ColumnStatistics(columnName, nullFraction, distinctCount, min, max,
+                mostCommonValues, mostCommonFrequencies, histogramBounds);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object first, Object second) {
+        return ((Comparable) first).compareTo(second);
+    }
+
+
+    /**
+     * Prints the statistics, the table first and then one line per column.
+     *
+     * @return the statistics of the table
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("rows=").append(rowCount).append(", pages read=").append(pagesRead)
+                .append(" of ").append(pageCount).append(", analyzed at ").append(analyzedAt).append('\n');
+        for (ColumnStatistics column : new TreeMap<>(columns).values())
+            out.append("  ").append(column).append('\n');
+        return out.toString();
+    }
+
+}
@@ -0,0 +1,364 @@
+package src.DBGeneralEngine;
+
+import src.RTree.RTree;
+
+import java.awt.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the selects of the Table class.
+ * Every test builds its table from scratch in the working directory and fails with an exception on a wrong result.
+ */
+public class TableTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        batchedInsertKeepsOrder();
+        rangeOverTombstonedPages();
+        nearestSkipsDeletedRows();
+        spatialSelectsRefineCandidates();
+        topMatchesFullSort();
+
+        System.out.println("TableTest passed");
+    }
+
+
+    /**
+     * Creates an engine holding one table with an Integer clustering key id and a String name, filled with the given ids.
+     * The background compactor is stopped, so tombstones stay in place until the test drains them.
+     */
+    static DBApp table(String tableName, int rows) throws DBAppException, IOException {
+        DBAppTest.prepare(DBAppTest.metadata(tableName, "id",
+                "id", "java.lang.Integer", "name", "java.lang.String", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        dbApp.getCompactor().shutdown();
+        Table table = new Table();
+        table.setTableName(tableName);
+        dbApp.getTables().add(table);
+
+        List<Hashtable<String, Object>> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++)
+            batch.add(row(i));
+        dbApp.insertIntoTable(tableName, batch);
+        return dbApp;
+    }
+
+
+    static Hashtable<String, Object> row(int id) {
+        Hashtable<String, Object> row = new Hashtable<>();
+        row.put("id", id);
+        row.put("name", "n" + id);
+        return row;
+    }
+
+
+    static void delete(DBApp dbApp, String tableName, int from, int to) throws DBAppException, IOException {
+        for (int i = from; i < to; i++) {
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", i);
+            dbApp.deleteFromTable(tableName, row);
+        }
+    }
+
+
+    static TreeSet<Integer> ids(Iterator<Tuple> tuples) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        while (tuples.hasNext())
+            ids.add((Integer) tuples.next().get(0));
+        return ids;
+    }
+
+
+    static TreeSet<Integer> range(int from, int to) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (int i = from; i < to; i++)
+            ids.add(i);
+        return ids;
+    }
+
+
+    /**
+     * Shuffled batches land in clustering key order, in front of, between and after the rows already stored,
+     * and a batch holding one invalid row inserts nothing.
+     */
+    static void batchedInsertKeepsOrder() throws DBAppException, IOException {
+        DBApp dbApp = table("Batched", 0);
+        Table table = dbApp.getTables().get(0);
+        TreeSet<Integer> expected = new TreeSet<>();
+        ArrayList<Hashtable<String, Object>> batch = new ArrayList<>();
+        for (int i = 0; i < 400; i += 2) {
+            batch.add(row(i));
+            expected.add(i);
+        }
+        Collections.shuffle(batch, new Random(27));
+        dbApp.insertIntoTable("Batched", batch);
+        checkOrder(table, expected);
+
+        batch.clear();
+        for (int i : new int[]{-7, -1, 999, 1000}) {
+            batch.add(row(i));
+            expected.add(i);
+        }
+        for (int i = 1; i < 400; i += 2) {
+            batch.add(row(i));
+            expected.add(i);
+        }
+        Collections.shuffle(batch, new Random(28));
+        dbApp.insertIntoTable("Batched", batch);
+        checkOrder(table, expected);
+
+        batch.clear();
+        batch.add(row(2000));
+        Hashtable<String, Object> invalid = row(2001);
+        invalid.put("name", 2001);
+        batch.add(invalid);
+        try {
+            dbApp.insertIntoTable("Batched", batch);
+            check(false, "a batch with a row of the wrong type was inserted");
+        } catch (DBAppException e) {
+            checkOrder(table, expected);
+        }
+    }
+
+
+    /**
+     * Checks that the pages hold exactly the given ids in order and no page holds more than it may.
+     */
+    static void checkOrder(Table table, TreeSet<Integer> expected) throws DBAppException {
+        ArrayList<Integer> stored = new ArrayList<>();
+        for (String pageName : table.getPages()) {
+            Page page = Table.deserialize(pageName);
+            check(page.size() > 0 && page.size() <= table.getMaxRowsInPage(), pageName + " holds " + page.size() + " rows");
+            for (Tuple tuple : page.getLiveTuples())
+                stored.add((Integer) tuple.get(0));
+        }
+        check(stored.equals(new ArrayList<>(expected)), "the pages hold " + stored);
+    }
+
+
+    /**
+     * Range selects on the clustering key still work while the last pages hold nothing but tombstones.
+     */
+    static void rangeOverTombstonedPages() throws DBAppException, IOException {
+        DBApp dbApp = table("Ranges", 200);
+        delete(dbApp, "Ranges", 150, 200);
+        delete(dbApp, "Ranges", 0, 30);
+
+        TreeSet<Integer> greater = ids(dbApp.selectFromTable(
+                new SQLTerm[]{new SQLTerm("Ranges", "id", ">", 120)}, new String[]{}));
+        check(greater.equals(range(121, 150)), "id > 120 returned " + greater);
+        TreeSet<Integer> atLeast = ids(dbApp.selectFromTable(
+                new SQLTerm[]{new SQLTerm("Ranges", "id", ">=", 160)}, new String[]{}));
+        check(atLeast.isEmpty(), "id >= 160 returned " + atLeast);
+        TreeSet<Integer> less = ids(dbApp.selectFromTable(
+                new SQLTerm[]{new SQLTerm("Ranges", "id", "<", 40)}, new String[]{}));
+        check(less.equals(range(30, 40)), "id < 40 returned " + less);
+    }
+
+
+
+    /**
+     * A k nearest neighbour select through an R-Tree matches a brute force ranking of the live tuples
+     * while the nearest polygons are deleted but not compacted yet, their records still being in the tree.
+     */
+    static void nearestSkipsDeletedRows() throws DBAppException, IOException {
+        DBAppTest.prepare(DBAppTest.metadata("Shapes", "id",
+                "id", "java.lang.Integer", "shape", "java.awt.Polygon", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        dbApp.getCompactor().shutdown();
+        Table table = new Table();
+        table.setTableName("Shapes");
+        dbApp.getTables().add(table);
+
+        List<Hashtable<String, Object>> rows = new ArrayList<>();
+        Random random = new Random(34);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(1000), y = random.nextInt(1000);
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", i);
+            row.put("shape", new Polygon(new int[]{x, x + 4, x + 4, x}, new int[]{y, y, y + 3, y + 3}, 4));
+            rows.add(row);
+        }
+        dbApp.insertIntoTable("Shapes", rows);
+        dbApp.createRTreeIndex("Shapes", "shape");
+
+        Point query = new Point(500, 500);
+        CustomPolygon queryPolygon = new CustomPolygon(new Polygon(new int[]{query.x}, new int[]{query.y}, 1));
+        // Delete the 40 rows nearest the query, their records stay in the R-Tree until compaction
+        for (Tuple tuple : nearestByScan(table, queryPolygon, 40)) {
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", tuple.get(0));
+            dbApp.deleteFromTable("Shapes", row);
+        }
+
+        ArrayList<Tuple> expected = nearestByScan(table, queryPolygon, 10);
+        ArrayList<Tuple> nearest = new ArrayList<>();
+        dbApp.selectNearest("Shapes", "shape", query, 10).forEachRemaining(nearest::add);
+        check(nearest.size() == 10, "selectNearest returned " + nearest.size() + " tuples");
+        for (int i = 0; i < 10; i++)
+            check(((CustomPolygon) nearest.get(i).get(1)).distance(queryPolygon)
+                            == ((CustomPolygon) expected.get(i).get(1)).distance(queryPolygon),
+                    "neighbour " + i + " is " + nearest.get(i).get(0) + ", expected " + expected.get(i).get(0));
+    }
+
+
+    /**
+     * Ranks every live tuple of a table by the distance of its polygon to the query, the brute force answer.
+     */
+    static ArrayList<Tuple> nearestByScan(Table table, CustomPolygon query, int k) throws DBAppException {
+        ArrayList<Tuple> tuples = new ArrayList<>();
+        for (String pageName : table.getPages())
+            tuples.addAll(Table.deserialize(pageName).getLiveTuples());
+        tuples.sort(Comparator.comparingDouble(tuple -> ((CustomPolygon) tuple.get(1)).distance(query)));
+        return new ArrayList<>(tuples.subList(0, Math.min(k, tuples.size())));
+    }
+
+
+
+    /**
+     * Spatial selects on concave polygons return exactly the rows the exact predicates accept, with and without an
+     * R-Tree, although the tree hands out candidates that only match by their bounding boxes.
+     */
+    static void spatialSelectsRefineCandidates() throws DBAppException, IOException {
+        DBAppTest.prepare(DBAppTest.metadata("Refined", "id",
+                "id", "java.lang.Integer", "shape", "java.awt.Polygon", "TouchDate", "java.util.Date"));
+        DBApp dbApp = new DBApp();
+        dbApp.setMaximumRowsCountInPage(20);
+        dbApp.setNodeSize(5);
+        Table table = new Table();
+        table.setTableName("Refined");
+        dbApp.getTables().add(table);
+
+        // L shapes and triangles, both covering about half of their bounding boxes
+        List<Hashtable<String, Object>> rows = new ArrayList<>();
+        Random random = new Random(36);
+        for (int i = 0; i < 300; i++) {
+            int x = random.nextInt(500), y = random.nextInt(500), side = 6 + random.nextInt(40), bar = 1 + side / 4;
+            Polygon shape = (i % 2 == 0)
+                    ? new Polygon(new int[]{x, x + side, x + side, x + bar, x + bar, x},
+                    new int[]{y, y, y + bar, y + bar, y + side, y + side}, 6)
+                    : new Polygon(new int[]{x, x + side, x}, new int[]{y, y, y + side}, 3);
+            Hashtable<String, Object> row = new Hashtable<>();
+            row.put("id", i);
+            row.put("shape", shape);
+            rows.add(row);
+        }
+        dbApp.insertIntoTable("Refined", rows);
+
+        ArrayList<Polygon> queries = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            int x = random.nextInt(500), y = random.nextInt(500), side = (i % 3 == 0) ? 100 : 4 + random.nextInt(20);
+            queries.add(new Polygon(new int[]{x, x + side, x + side, x}, new int[]{y, y, y + side, y + side}, 4));
+        }
+        // Some queries are stored shapes, for the equality select
+        for (int i = 0; i < 5; i++)
+            queries.add((Polygon) rows.get(i * 7).get("shape"));
+
+        checkSpatialSelects(dbApp, table, queries);
+        dbApp.createRTreeIndex("Refined", "shape");
+        int candidates = 0, matches = 0;
+        for (Polygon query : queries) {
+            CustomPolygon polygon = new CustomPolygon(query);
+            candidates += ((RTree) table.getTreeIndexColumnName().get("shape")).searchIntersects(polygon).size();
+            for (Tuple tuple : liveTuples(table))
+                if (((CustomPolygon) tuple.get(1)).intersects(polygon))
+                    matches++;
+        }
+        check(candidates > matches, "the R-Tree returned no false candidate to refine");
+        checkSpatialSelects(dbApp, table, queries);
+    }
+
+
+    /**
+     * Runs every spatial operator with every query and compares the rows against the exact predicates on every live tuple.
+     */
+    static void checkSpatialSelects(DBApp dbApp, Table table, List<Polygon> queries) throws DBAppException {
+        ArrayList<Tuple> tuples = liveTuples(table);
+        for (Polygon query : queries) {
+            CustomPolygon polygon = new CustomPolygon(query);
+            for (String operator : new String[]{SQLTerm.INTERSECTS, SQLTerm.CONTAINS, SQLTerm.WITHIN, "="}) {
+                TreeSet<Integer> expected = new TreeSet<>();
+                for (Tuple tuple : tuples) {
+                    CustomPolygon stored = (CustomPolygon) tuple.get(1);
+                    boolean matches = switch (operator) {
+                        case SQLTerm.INTERSECTS -> stored.intersects(polygon);
+                        case SQLTerm.CONTAINS -> stored.contains(polygon);
+                        case SQLTerm.WITHIN -> stored.within(polygon);
+                        default -> stored.spatiallyEquals(polygon);
+                    };
+                    if (matches)
+                        expected.add((Integer) tuple.get(0));
+                }
+                TreeSet<Integer> selected = ids(dbApp.selectFromTable(
+                        new SQLTerm[]{new SQLTerm(table.getTableName(), "shape", operator, query)}, new String[]{}));
+                check(selected.equals(expected), "shape " + operator + " " + polygon + " returned " + selected + ", expected " + expected);
+            }
+        }
+    }
+
+
+
+    /**
+     * Ordered and limited selects return the first rows of a full sort of the matching rows, whichever plan they take,
+     * including conditions combined with XOR.
+     */
+    static void topMatchesFullSort() throws DBAppException, IOException {
+        DBApp dbApp = table("Ordered", 300);
+        delete(dbApp, "Ordered", 100, 120);
+        Table table = dbApp.getTables().get(0);
+        SQLTerm[] either = {new SQLTerm("Ordered", "id", ">", 50), new SQLTerm("Ordered", "id", "<", 250)};
+        String[] xor = {"XOR"};
+
+        TreeSet<Integer> outside = ids(dbApp.selectFromTable(either, xor));
+        TreeSet<Integer> expected = range(0, 51);
+        expected.addAll(range(250, 300));
+        check(outside.equals(expected), "id > 50 XOR id < 250 returned " + outside);
+
+        // Ordered by a column without an index, read through the bounded heap
+        checkTop(dbApp.selectFromTable(either, xor, "name", false, 7),
+                liveTuples(table), tuple -> !((Integer) tuple.get(0) > 50 && (Integer) tuple.get(0) < 250),
+                Comparator.comparing(tuple -> (String) tuple.get(1), Comparator.reverseOrder()), 7);
+        // Ordered by the clustering key, read in page order
+        SQLTerm[] names = {new SQLTerm("Ordered", "name", ">=", "n5")};
+        checkTop(dbApp.selectFromTable(names, new String[]{}, null, true, 5),
+                liveTuples(table), tuple -> ((String) tuple.get(1)).compareTo("n5") >= 0,
+                Comparator.comparing(tuple -> (Integer) tuple.get(0)), 5);
+        checkTop(dbApp.selectFromTable("Ordered", "id", false, 5),
+                liveTuples(table), tuple -> true,
+                Comparator.comparing(tuple -> (Integer) tuple.get(0), Comparator.reverseOrder()), 5);
+    }
+
+
+    static ArrayList<Tuple> liveTuples(Table table) throws DBAppException {
+        ArrayList<Tuple> tuples = new ArrayList<>();
+        for (String pageName : table.getPages())
+            tuples.addAll(Table.deserialize(pageName).getLiveTuples());
+        return tuples;
+    }
+
+
+    /**
+     * Checks a top-N select against filtering and fully sorting every live tuple.
+     */
+    static void checkTop(Iterator<Tuple> selected,
+                         ArrayList<Tuple> tuples,
+                         java.util.function.Predicate<Tuple> condition,
+                         Comparator<Tuple> order,
+                         int limit) {
+        ArrayList<Object> expected = new ArrayList<>();
+        tuples.stream().filter(condition).sorted(order).limit(limit).forEach(tuple -> expected.add(tuple.get(0)));
+        ArrayList<Object> actual = new ArrayList<>();
+        selected.forEachRemaining(tuple -> actual.add(tuple.get(0)));
+        check(actual.equals(expected), "top " + limit + " returned " + actual + ", a full sort gives " + expected);
+    }
+
+}
@@ -25,6 +25,28 @@ public interface TreeIndex<T extends Comparable> {
     void insert(T key, Ref recordReference) throws DBAppException;
 
 
+    /**
+     * Inserts a batch of data records into the index.
+     * The keys are expected in ascending order, which lets the index walk its nodes in a single direction.
+     *
+     * @param keys             the keys to insert, sorted in ascending order
+     * @param recordReferences the references to the data records, aligned with the keys
+     * @throws DBAppException if there is an error during the insertion process
+     */
+    void insertBatch(ArrayList<T> keys, ArrayList<Ref> recordReferences) throws DBAppException;
+
+
+    /**
+     * Deletes a batch of entries from the index, each one only for the page the record lived in.
+     * The keys are expected in ascending order, the same order insertBatch uses.
+     *
+     * @param keys      the keys to delete, sorted in ascending order
+     * @param pageNames the pages the deleted records lived in, aligned with the keys
+     * @throws DBAppException if there is an error during the deletion process
+     */
+    void deleteBatch(ArrayList<T> keys, ArrayList<String> pageNames) throws DBAppException;
+
+
     /**
      * Searches the index for the data record associated with the given key.
      * @param key the key to search for
@@ -1,6 +1,7 @@
 package src.DBGeneralEngine;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.Vector;
 
 
@@ -8,25 +9,57 @@ import java.util.Vector;
  * The Tuple class represents a data record in a database table.
  * A tuple is a collection of attributes or field values that describe a single row in the table.
  * The Tuple class is serializable, allowing it to be stored and retrieved from disk.
+ * The values are laid out by the RowSchema of the table: numbers, dates, dictionary codes and the row id are packed
+ * into a long[], the other values are kept in an Object[], and columns are read by position through get or the typed getters.
  */
 public class Tuple implements Serializable {
 
 
     /**
      *
-     * attributes   -> Vector that stores the individual attribute values of the tuple.
+     * schema       -> The compiled layout of the row, shared by every tuple of the table.
+     * packed       -> The null flags followed by the packed values of the integer, double and date columns.
+     * references   -> The values of the other columns.
      */
-    private Vector attributes;
+    private RowSchema schema;
+    private long[] packed;
+    private Object[] references;
 
 
     /**
      * Constructor
-     * Takes a Vector of attribute values and initializes the attributes field.
+     * Lays out the given values with the given schema.
+     *
+     * @param schema     the compiled layout of the row
+     * @param attributes a Vector containing the attribute values for the tuple, the row id being the last one
+     */
+    public Tuple(RowSchema schema, Vector attributes) {
+        this.schema = schema;
+        pack(attributes);
+    }
+
+
+    /**
+     * Constructor
+     * Takes a Vector of attribute values and lays them out with a schema inferred from their classes.
      *
      * @param attributes a Vector containing the attribute values for the tuple
      */
     public Tuple(Vector attributes) {
-        this.attributes = attributes;
+        this(RowSchema.infer(attributes), attributes);
+    }
+
+
+    /**
+     * Lays out the values, one column after the other, in the arrays of the schema.
+     */
+    private void pack(Vector attributes) {
+        if (attributes.size() != schema.size())
+            throw new IllegalArgumentException("Expected " + schema.size() + " values, got " + attributes.size());
+        packed = new long[schema.getPackedWidth()];
+        references = new Object[schema.getReferences()];
+        for (int i = 0; i < attributes.size(); i++)
+            set(i, attributes.get(i));
     }
 
 
@@ -34,11 +67,15 @@ public class Tuple implements Serializable {
      * Getters & Setters
      * <p>
      * The getAttributes() and setAttributes() methods allow both access and modification of the attributes field respectively.
+     * getAttributes() returns a copy, single columns are read without copying through get and the typed getters.
      *
      *
-     * @return the Vector of attribute values for the tuple
+     * @return a new Vector of the attribute values for the tuple
      */
     public Vector getAttributes() {
+        Vector<Object> attributes = new Vector<>(schema.size());
+        for (int i = 0; i < schema.size(); i++)
+            attributes.add(get(i));
         return attributes;
     }
 
@@ -47,44 +84,213 @@ public class Tuple implements Serializable {
      @param attributes the new Vector of attribute values to set for the tuple
      */
     public void setAttributes(Vector attributes) {
-        this.attributes = attributes;
+        if (attributes.size() != schema.size())
+            schema = RowSchema.infer(attributes);
+        pack(attributes);
+    }
+
+    public RowSchema getSchema() {
+        return schema;
+    }
+
+
+    /**
+     * Gets the number of columns of the tuple, the row id included.
+     *
+     * @return the number of values of the tuple
+     */
+    public int size() {
+        return schema.size();
+    }
+
+
+    /**
+     * Checks whether a column of the tuple holds no value.
+     *
+     * @param column the position of the column
+     * @return true if the column is null
+     */
+    public boolean isNull(int column) {
+        if (schema.getKind(column) == RowSchema.REFERENCE)
+            return references[schema.getSlot(column)] == null;
+        int bit = schema.nullBit(column);
+        return (packed[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+
+    /**
+     * Gets the value of a column, packed values are boxed on the way out.
+     *
+     * @param column the position of the column
+     * @return the value of the column, or null
+     */
+    public Object get(int column) {
+        if (schema.getKind(column) == RowSchema.REFERENCE)
+            return references[schema.getSlot(column)];
+        return isNull(column) ? null : schema.unpack(column, packed[schema.getSlot(column)]);
+    }
+
+
+    /**
+     * Gets the value of a non null integer column without boxing it.
+     *
+     * @param column the position of the integer column
+     * @return the value of the column
+     */
+    public int getInt(int column) {
+        return (int) packed[schema.getSlot(column)];
+    }
+
+
+    /**
+     * Gets the value of a non null double column without boxing it.
+     *
+     * @param column the position of the double column
+     * @return the value of the column
+     */
+    public double getDouble(int column) {
+        return Double.longBitsToDouble(packed[schema.getSlot(column)]);
+    }
+
+
+    /**
+     * Gets the value of a non null date column as milliseconds since the epoch, without creating a Date.
+     *
+     * @param column the position of the date column
+     * @return the time of the column
+     */
+    public long getTime(int column) {
+        return packed[schema.getSlot(column)];
+    }
+
+
+    /**
+     * Gets the code of a non null dictionary encoded column without decoding it.
+     *
+     * @param column the position of the dictionary encoded column
+     * @return the code of the value in the dictionary of the column
+     */
+    public int getCode(int column) {
+        return (int) packed[schema.getSlot(column)];
+    }
+
+
+    /**
+     * Gets the value of a column as an index key, a dictionary encoded column giving the key of its code.
+     *
+     * @param column the position of the column
+     * @return the key of the column, or null
+     */
+    public Comparable getKey(int column) {
+        if (schema.getKind(column) == RowSchema.CODE && !isNull(column))
+            return new DictionaryCode(schema.getDictionary(column), getCode(column));
+        return (Comparable) get(column);
+    }
+
+
+    /**
+     * Gets the row id, the last column of every tuple.
+     *
+     * @return the row id of the tuple
+     */
+    public int getId() {
+        return getInt(schema.size() - 1);
     }
 
 
     /**
-     * Compares two Tuple objects based on the value of the last attribute in the attributes Vector.
-     * Two Tuple objects are considered equal if the values of their last attributes are equal.
+     * Sets the value of a column.
+     *
+     * @param column the position of the column
+     * @param value  the new value, or null
+     */
+    public void set(int column, Object value) {
+        if (schema.getKind(column) == RowSchema.REFERENCE) {
+            references[schema.getSlot(column)] = value;
+            return;
+        }
+        int bit = schema.nullBit(column);
+        if (value == null) {
+            packed[bit >>> 6] |= 1L << bit;
+            packed[schema.getSlot(column)] = 0;
+        } else {
+            packed[bit >>> 6] &= ~(1L << bit);
+            packed[schema.getSlot(column)] = schema.pack(column, value);
+        }
+    }
+
+
+    /**
+     * Compares the value of a column with a value of the same type, packed columns are compared on their primitives.
+     * A dictionary encoded column compares the rank of its code with the rank of a String or of a DictionaryCode.
+     *
+     * @param column the position of the non null column
+     * @param value  the value to compare with
+     * @return a negative integer, zero, or a positive integer as the column is less than, equal to, or greater than the value
+     */
+    public int compareAt(int column, Object value) {
+        switch (schema.getKind(column)) {
+            case RowSchema.INT:
+                if (value instanceof Integer integer)
+                    return Integer.compare(getInt(column), integer);
+                break;
+            case RowSchema.DOUBLE:
+                if (value instanceof Double number)
+                    return Double.compare(getDouble(column), number);
+                break;
+            case RowSchema.DATE:
+                if (value instanceof Date date)
+                    return Long.compare(getTime(column), date.getTime());
+                break;
+            case RowSchema.CODE:
+                if (isNull(column))
+                    break;
+                StringDictionary dictionary = schema.getDictionary(column);
+                if (value instanceof DictionaryCode code)
+                    return Integer.compare(dictionary.order(getCode(column)), code.order());
+                if (value instanceof String string)
+                    return Integer.compare(dictionary.order(getCode(column)), dictionary.probe(string));
+                break;
+            default:
+                if (value instanceof DictionaryCode code)
+                    return code.compareValue((String) get(column));
+                break;
+        }
+        return ((Comparable) get(column)).compareTo(value);
+    }
+
+
+    /**
+     * Compares two Tuple objects based on their row id, the last attribute.
+     * Two Tuple objects are considered equal if their row ids are equal.
      *
      * @param obj the Object to compare with the current Tuple object
-     * @return true if the two Tuple objects have equal last attribute values, false otherwise
+     * @return true if the two Tuple objects have equal row ids, false otherwise
      */
     public boolean equals(Object obj) {
-        Tuple x = (Tuple) obj;
-        Tuple y = this;
-        Object compare1 = x.attributes.get(attributes.size() - 1);
-        Object compare2 = y.attributes.get(attributes.size() - 1);
-
-        return compare1.equals(compare2);
+        return obj instanceof Tuple tuple && tuple.getId() == getId();
     }
 
 
     /**
-     * Returns a hash code value for the Tuple object based on the value of the last attribute in the attributes Vector.
+     * Returns a hash code value for the Tuple object based on its row id.
      *
      * @return the hash code value for the Tuple object
      */
     public int hashCode() {
-        return (int) attributes.get(attributes.size() - 1);
+        return getId();
     }
 
 
     /**
-     * Adds a new attribute value to the end of the attributes Vector.
+     * Adds a new attribute value after the last one, the layout of the tuple is inferred again.
      *
      * @param obj   the new attribute value to add to the tuple.
      */
     public void addAttribute(Object obj) {
+        Vector attributes = getAttributes();
         attributes.add(obj);
+        setAttributes(attributes);
     }
 
 
@@ -97,11 +303,11 @@ public class Tuple implements Serializable {
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
 
-        for (int i = 0; i < attributes.size() - 1; i++) {
-            Object x = attributes.get(i);
+        for (int i = 0; i < schema.size() - 1; i++) {
+            Object x = get(i);
             stringBuilder.append((x != null) ? (x + "\t") : ("null\n"));
         }
         return stringBuilder.toString();
     }
 
-}
\ No newline at end of file
+}
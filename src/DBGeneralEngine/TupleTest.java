@@ -0,0 +1,127 @@
+package src.DBGeneralEngine;
+
+import java.io.*;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+
+/**
+ * This class is used to test the layout of tuples by their compiled row schema.
+ * It lays out rows with more packed columns than one null word holds, with nulls on both sides of the word boundary,
+ * and checks every value and comparison after a round trip through serialization and through a page file.
+ */
+public class TupleTest {
+
+    /**
+     * Attributes
+     *
+     * INTS -> The number of Integer columns, enough to need a second null word with the other packed columns
+     */
+    private static final int INTS = 70;
+
+
+    public static void main(String[] args) throws DBAppException, IOException, ClassNotFoundException {
+
+        DBAppTest.prepare();
+        Vector<String[]> meta = new Vector<>();
+        for (int i = 0; i < INTS; i++)
+            meta.add(new String[]{"Wide", "c" + i, "java.lang.Integer", i == 0 ? "True" : "False", "False"});
+        meta.add(new String[]{"Wide", "score", "java.lang.Double", "False", "False"});
+        meta.add(new String[]{"Wide", "born", "java.util.Date", "False", "False"});
+        meta.add(new String[]{"Wide", "city", "java.lang.String", "False", "False"});
+        meta.add(new String[]{"Wide", "name", "java.lang.String", "False", "False"});
+        int score = INTS, born = INTS + 1, city = INTS + 2, name = INTS + 3;
+
+        Hashtable<String, StringDictionary> dictionaries = new Hashtable<>();
+        StringDictionary cities = StringDictionary.of("Wide", "city");
+        dictionaries.put("city", cities);
+        RowSchema schema = RowSchema.of(meta, dictionaries);
+        check(schema.getKind(city) == RowSchema.CODE, "the encoded column is not packed as a code");
+        check(schema.getKind(name) == RowSchema.REFERENCE, "the plain String column is not a reference");
+
+        ArrayList<Vector<Object>> rows = new ArrayList<>();
+        String[] cityNames = {"Giza", "Alexandria", "Cairo", null};
+        for (int r = 0; r < 8; r++) {
+            Vector<Object> row = new Vector<>();
+            for (int i = 0; i < INTS; i++)
+                // Nulls in the first null word, on both sides of the word boundary, and in the second word
+                row.add((i > 0 && (i + r) % 7 == 0) || (i == 62 + r % 4) ? null : i * 1000 + r);
+            row.add(r % 3 == 0 ? null : r / 4.0 - 1);
+            row.add(r % 4 == 1 ? null : new Date(86_400_000L * (r - 4)));
+            String cityName = cityNames[r % cityNames.length];
+            row.add(cityName);
+            row.add(r % 5 == 4 ? null : "name" + r);
+            row.add(r);
+            rows.add(row);
+        }
+
+        Page page = new Page("TupleTestPage");
+        ArrayList<Tuple> tuples = new ArrayList<>();
+        for (Vector<Object> row : rows) {
+            Tuple tuple = new Tuple(schema, row);
+            tuples.add(tuple);
+            page.getTuples().add(tuple);
+            checkTuple(tuple, row, schema);
+        }
+
+        // Through Java serialization of the tuples themselves
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(tuples);
+        }
+        ArrayList<Tuple> read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (ArrayList<Tuple>) in.readObject();
+        }
+        for (int r = 0; r < rows.size(); r++)
+            checkTuple(read.get(r), rows.get(r), schema);
+
+        // Through a page file
+        Table.serializePage(page);
+        Page readPage = Table.deserialize("TupleTestPage");
+        check(readPage.size() == rows.size(), "the page read back holds " + readPage.size() + " tuples");
+        for (int r = 0; r < rows.size(); r++)
+            checkTuple(readPage.getTuples().get(r), rows.get(r), schema);
+
+        // Comparisons run on the packed values, with the same result as comparing the boxed ones
+        Tuple tuple = readPage.getTuples().get(2);
+        check(tuple.compareAt(1, 1002) == 0 && tuple.compareAt(1, 1003) < 0 && tuple.compareAt(1, 1001) > 0,
+                "compareAt on an Integer column is wrong");
+        check(tuple.compareAt(score, -0.5) == 0 && tuple.compareAt(score, 0.0) < 0, "compareAt on a Double column is wrong");
+        check(tuple.compareAt(born, new Date(-2 * 86_400_000L)) == 0 && tuple.compareAt(born, new Date(0)) < 0,
+                "compareAt on a Date column is wrong");
+        check(tuple.compareAt(city, "Cairo") == 0 && tuple.compareAt(city, "Alexandria") > 0
+                        && tuple.compareAt(city, "Dahab") < 0 && tuple.compareAt(city, cities.key("Giza")) < 0,
+                "compareAt on a dictionary encoded column is wrong");
+        check(tuple.compareAt(name, "name2") == 0 && tuple.compareAt(name, "name3") < 0, "compareAt on a String column is wrong");
+        check(tuple.getKey(city).equals(cities.key("Cairo")), "the index key of the encoded column is wrong");
+
+        // A tuple laid out without metadata infers its schema from its values
+        Vector<Object> values = new Vector<>(List.of(7, 2.5, "free", new Date(5)));
+        values.add(1, null);
+        values.add(9);
+        Tuple inferred = new Tuple(values);
+        for (int i = 0; i < values.size(); i++)
+            check(Objects.equals(inferred.get(i), values.get(i)), "inferred column " + i + " reads " + inferred.get(i));
+
+        System.out.println("TupleTest passed");
+    }
+
+
+    /**
+     * Checks every column of a tuple against the row it was laid out from.
+     */
+    private static void checkTuple(Tuple tuple, Vector<Object> row, RowSchema schema) {
+        check(tuple.size() == row.size(), "the tuple holds " + tuple.size() + " columns, expected " + row.size());
+        check(tuple.getSchema() == schema, "the tuple read back does not share the schema of its table");
+        for (int i = 0; i < row.size(); i++) {
+            Object expected = row.get(i);
+            check(tuple.isNull(i) == (row.get(i) == null), "column " + i + " of row " + tuple.getId() + " has the wrong null flag");
+            check(Objects.equals(tuple.get(i), expected), "column " + i + " of row " + tuple.getId() + " reads " + tuple.get(i)
+                    + ", expected " + expected);
+        }
+        check(tuple.getId() == (Integer) row.get(row.size() - 1), "the row id reads " + tuple.getId());
+    }
+
+}
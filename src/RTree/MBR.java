@@ -0,0 +1,223 @@
+package src.RTree;
+
+import src.DBGeneralEngine.CustomPolygon;
+
+import java.awt.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+
+/**
+ * The MBR class is a minimum bounding rectangle, the axis aligned box every R-Tree entry and node is summarised by.
+ * Instances are immutable, every operation that grows or combines rectangles returns a new one.
+ */
+public class MBR implements Serializable {
+
+    /**
+     * Attributes
+     * <p>
+     * minX, minY ->    the lower left corner of the rectangle.
+     * maxX, maxY ->    the upper right corner of the rectangle.
+     */
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+
+    /**
+     * Constructor
+     *
+     * @param minX the smallest x coordinate covered
+     * @param minY the smallest y coordinate covered
+     * @param maxX the largest x coordinate covered
+     * @param maxY the largest y coordinate covered
+     */
+    public MBR(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+
+    /**
+     * Builds the bounding rectangle of a polygon.
+     *
+     * @param polygon the polygon to bound
+     * @return the smallest rectangle covering every point of the polygon
+     */
+    public static MBR of(Polygon polygon) {
+        Rectangle bounds = polygon.getBounds();
+        return new MBR(bounds.x, bounds.y, bounds.x + (double) bounds.width, bounds.y + (double) bounds.height);
+    }
+
+    /**
+     * Builds the bounding rectangle of a polygon key.
+     *
+     * @param polygon the polygon key to bound
+     * @return the smallest rectangle covering every point of the polygon, cached by the key
+     */
+    public static MBR of(CustomPolygon polygon) {
+        return polygon.getMBR();
+    }
+
+    /**
+     * Builds the degenerate rectangle of a single point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return a rectangle with no width and no height at the point
+     */
+    public static MBR point(double x, double y) {
+        return new MBR(x, y, x, y);
+    }
+
+
+    /**
+     Getters
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public double getCenterX() {
+        return (minX + maxX) / 2;
+    }
+
+    public double getCenterY() {
+        return (minY + maxY) / 2;
+    }
+
+
+    /**
+     * Computes the area of the rectangle.
+     *
+     * @return the area covered by the rectangle
+     */
+    public double area() {
+        return (maxX - minX) * (maxY - minY);
+    }
+
+    /**
+     * Computes the margin of the rectangle, the sum of its edge lengths.
+     *
+     * @return the perimeter of the rectangle
+     */
+    public double margin() {
+        return 2 * ((maxX - minX) + (maxY - minY));
+    }
+
+    /**
+     * Computes the smallest rectangle covering this rectangle and another one.
+     *
+     * @param other the rectangle to cover as well, may be null
+     * @return the union of both rectangles
+     */
+    public MBR union(MBR other) {
+        if (other == null)
+            return this;
+        return new MBR(Math.min(minX, other.minX), Math.min(minY, other.minY),
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY));
+    }
+
+    /**
+     * Computes how much the area grows when this rectangle is extended to cover another one.
+     *
+     * @param other the rectangle to cover
+     * @return the area of the union minus the area of this rectangle
+     */
+    public double enlargement(MBR other) {
+        return union(other).area() - area();
+    }
+
+    /**
+     * Computes the area shared by this rectangle and another one.
+     *
+     * @param other the other rectangle
+     * @return the area of the intersection, 0 if the rectangles are disjoint
+     */
+    public double overlap(MBR other) {
+        double width = Math.min(maxX, other.maxX) - Math.max(minX, other.minX);
+        double height = Math.min(maxY, other.maxY) - Math.max(minY, other.minY);
+        return (width <= 0 || height <= 0) ? 0 : width * height;
+    }
+
+    /**
+     * Checks whether the rectangles share at least one point, touching edges included.
+     *
+     * @param other the other rectangle
+     * @return true if the rectangles intersect
+     */
+    public boolean intersects(MBR other) {
+        return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+    }
+
+    /**
+     * Checks whether another rectangle lies completely inside this one, shared edges included.
+     *
+     * @param other the other rectangle
+     * @return true if every point of the other rectangle is covered by this one
+     */
+    public boolean contains(MBR other) {
+        return minX <= other.minX && other.maxX <= maxX && minY <= other.minY && other.maxY <= maxY;
+    }
+
+    /**
+     * Computes the smallest euclidean distance between a point of this rectangle and a point of another one.
+     *
+     * @param other the other rectangle
+     * @return 0 if the rectangles intersect, the length of the gap between them otherwise
+     */
+    public double minDistance(MBR other) {
+        double dx = Math.max(0, Math.max(other.minX - maxX, minX - other.maxX));
+        double dy = Math.max(0, Math.max(other.minY - maxY, minY - other.maxY));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+
+    /**
+     * Checks if another object is a rectangle with the same corners.
+     *
+     * @param obj the object to compare with
+     * @return true if the object is a rectangle covering exactly the same points
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MBR other
+                && minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    /**
+     * Hashes the rectangle by its corners, consistently with equals.
+     *
+     * @return the hash of the corners
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(minX, minY, maxX, maxY);
+    }
+
+
+    /**
+     * Provides a string representation of the rectangle as its two corners.
+     *
+     * @return the corners of the rectangle
+     */
+    public String toString() {
+        return "[(" + minX + ", " + minY + "), (" + maxX + ", " + maxY + ")]";
+    }
+
+}
@@ -1,54 +1,52 @@
 package src.RTree;
 
 /**
- * PushUp class is used to push up keys to inner nodes when splitting an R-Tree
- *
- * @param <CustomPolygon> the type of the custom polygon objects stored in the R-Tree, which must implement the `Comparable` interface.
+ * PushUp class is used to push up the sibling created by a split to the parent node when splitting an R-Tree
  */
-public class PushUpRTree<CustomPolygon extends Comparable<CustomPolygon>> {
+public class PushUpRTree {
 
     /**
      * Attributes
      * <p>
      * newNode ->   an `RTreeNode` object containing the new node to be pushed up.
-     * key ->       a `Comparable` object representing the key to be pushed up.
+     * mbr ->       the bounding rectangle of the new node, stored as its entry in the parent.
      */
-    RTreeNode<CustomPolygon> newNode;
-    Comparable<CustomPolygon> key;
+    RTreeNode newNode;
+    MBR mbr;
 
 
 
     /**
      * Constructor
-     * Initializes the `newNode` and `key` attributes with the provided values.
+     * Initializes the `newNode` and `mbr` attributes with the provided values.
      *
      * @param newNode the new node to be pushed up.
-     * @param key the key to be pushed up.
+     * @param mbr the bounding rectangle of the new node.
      */
-    public PushUpRTree(RTreeNode<CustomPolygon> newNode, Comparable<CustomPolygon> key)
+    public PushUpRTree(RTreeNode newNode, MBR mbr)
     {
         this.newNode = newNode;
-        this.key = key;
+        this.mbr = mbr;
     }
 
 
     /**
      * Getters & Setters
      */
-    public RTreeNode<CustomPolygon> getNewNode() {
+    public RTreeNode getNewNode() {
         return newNode;
     }
 
-    public void setNewNode(RTreeNode<CustomPolygon> newNode) {
+    public void setNewNode(RTreeNode newNode) {
         this.newNode = newNode;
     }
 
-    public Comparable<CustomPolygon> getKey() {
-        return key;
+    public MBR getMbr() {
+        return mbr;
     }
 
-    public void setKey(Comparable<CustomPolygon> key) {
-        this.key = key;
+    public void setMbr(MBR mbr) {
+        this.mbr = mbr;
     }
 
 }
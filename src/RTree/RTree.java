@@ -1,5 +1,6 @@
 package src.RTree;
 
+import src.DBGeneralEngine.CustomPolygon;
 import src.DBGeneralEngine.DBAppException;
 import src.DBGeneralEngine.TreeIndex;
 import src.Ref.GeneralRef;
@@ -8,28 +9,33 @@ import src.Ref.Ref;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.locks.StampedLock;
 
 
 /**
  * The `RTree` class is an implementation of the R-Tree data structure, a spatial index that is used to efficiently
  * Store and query data objects with spatial properties, such as two-dimensional geometric shapes or regions.
- *
- * @param <CustomPolygon> the type of the custom polygon objects stored in the R-Tree, which must implement the `Comparable` interface.
+ * Inner nodes hold the minimum bounding rectangle of every child, so window queries only visit the subtrees
+ * whose rectangle can match and return candidate records that the caller refines against the exact polygons.
  */
-public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements Serializable, TreeIndex<CustomPolygon> {
+public class RTree implements Serializable, TreeIndex<CustomPolygon> {
 
 
     /**
      * Attributes
      * <p>
-     * order ->     the maximum number of keys (child nodes or data objects) that can be stored in each internal or leaf node of the R-Tree.
+     * order ->     the maximum number of entries (child nodes or data objects) that can be stored in each internal or leaf node of the R-Tree.
      * root ->      the root node of the R-Tree, which can be either an internal node or a leaf node.
+     * lock ->      guards the root and the node files, writers lock it while readers validate an optimistic stamp.
      */
 
     private final int order;
-    private RTreeNode<CustomPolygon> root;
+    private volatile RTreeNode root;
+    private final StampedLock lock = new StampedLock();
 
 
     /**
@@ -37,13 +43,15 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
      * Initializes an empty R tree with the given order
      * It creates a new `RTreeLeafNode` instance and sets it as the root of the tree. The root node is marked as the root of the tree.
      *
-     * @param order the maximum number of keys in the nodes that can be stored in each internal or leaf node of the R-Tree.
-     * @throws DBAppException if the provided order is less than 3 or not a positive integer.
+     * @param order the maximum number of entries in the nodes that can be stored in each internal or leaf node of the R-Tree.
+     * @throws DBAppException if the provided order is less than 2.
      */
     public RTree(int order) throws DBAppException
     {
+        if(order < 2)
+            throw new DBAppException("The order of an R-Tree must be at least 2");
         this.order = order;
-        root = new RTreeLeafNode<>(this.order);
+        root = new RTreeLeafNode(this.order);
         root.setRoot(true);
     }
 
@@ -55,31 +63,72 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
         return order;
     }
 
-    public RTreeNode<CustomPolygon> getRoot() {
+    public RTreeNode getRoot() {
         return root;
     }
 
-    public void setRoot(RTreeNode<CustomPolygon> root) {
+    public void setRoot(RTreeNode root) {
         this.root = root;
     }
 
 
     /**
-     * Retrieves the leftmost leaf node in the R-Tree.
-     * This method is useful for operations like range queries or iteration over the data objects in the R-Tree.
+     * A read over the tree that may observe a concurrent writer and therefore may have to be retried.
+     *
+     * @param <R> the type of the result produced by the read.
+     */
+    private interface OptimisticRead<R> {
+        R read() throws DBAppException;
+    }
+
+    /**
+     * Runs the given read without blocking writers.
+     * The read first runs on an optimistic stamp and is accepted if no writer locked the tree meanwhile,
+     * otherwise it runs once more under the read lock, so a reader overlapping writers retries at most once.
+     *
+     * @param read the read to run.
+     * @return the result of the read.
+     * @throws DBAppException if the read fails while no writer was active.
+     */
+    private <R> R readOptimistically(OptimisticRead<R> read) throws DBAppException {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = read.read();
+                if (lock.validate(stamp))
+                    return result;
+            } catch (DBAppException | RuntimeException e) {
+                // A torn node file or a half shifted key array is expected while a writer is active
+                if (lock.validate(stamp))
+                    throw e;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read.read();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /**
+     * Retrieves the leftmost leaf node in the R-Tree, the leaf reached by always following the first entry.
      *
      * @return the leftmost leaf node in the R-Tree.
-     * @throws DBAppException if an error occurs during the traversal, such as the R-Tree being empty.
+     * @throws DBAppException if an error occurs during the traversal.
      */
     public RTreeLeafNode getLeftmostLeaf() throws DBAppException {
-        RTreeNode<CustomPolygon> currentNode = root;
+        return readOptimistically(() -> {
+            RTreeNode currentNode = root;
 
-        while(!(currentNode instanceof RTreeLeafNode)) {
-            RTreeInnerNode rTreeInnerNode = (RTreeInnerNode) currentNode;
-            currentNode = rTreeInnerNode.getFirstChild();
-        }
+            while(!(currentNode instanceof RTreeLeafNode)) {
+                RTreeInnerNode rTreeInnerNode = (RTreeInnerNode) currentNode;
+                currentNode = rTreeInnerNode.getFirstChild();
+            }
 
-        return (RTreeLeafNode) currentNode;
+            return (RTreeLeafNode) currentNode;
+        });
     }
 
     /**
@@ -89,61 +138,228 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
      * @param newPage the new page reference to be associated with the data object.
      * @param key the data object (represented by a `CustomPolygon`) whose reference is to be updated.
      * @throws DBAppException if an error occurs during the update operation,
-     * Such as the data object not being found in the R-Tree or an error serializing the modified leaf node.
+     * Such as an error serializing the modified leaf node.
      */
     public void updateRef(String oldPage, String newPage, CustomPolygon key) throws DBAppException{
-
-        RTreeLeafNode leaf = searchForUpdateRef(key);
-        leaf.updateRef(oldPage,newPage,key);
-
-        leaf.serializeNode();
+        long stamp = lock.writeLock();
+        try {
+            RTreeLeafNode leaf = root.findLeaf(key, MBR.of(key));
+            if(leaf == null)
+                return;
+            leaf.updateRef(oldPage,newPage,key);
+
+            if(leaf == root)
+                return;
+            leaf.serializeNode();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
      * Searches the R-Tree for the leaf node containing the given data object.
      *
      * @param key the data object (CustomPolygon) to search for.
-     * @return the leaf node that contains the data object.
-     * @throws DBAppException if the data object is not found in the R-Tree.
+     * @return the leaf node that contains the data object, or null if it is not in the tree.
+     * @throws DBAppException if a node cannot be read.
      */
     public RTreeLeafNode searchForUpdateRef(CustomPolygon key) throws DBAppException{
-        return root.searchForUpdateRef(key);
+        return readOptimistically(() -> root.findLeaf(key, MBR.of(key)));
     }
 
     /**
-     * Searches the R-Tree for the appropriate leaf node to insert a new data object.
+     * Looks up the page of a record holding exactly the given polygon.
      *
-     * @param key         the data object (CustomPolygon) to insert.
-     * @param tableLength the maximum number of entries allowed in a leaf node.
-     * @return the reference to the appropriate leaf node where the new data object should be inserted.
+     * @param key         the data object (CustomPolygon) to search for.
+     * @param tableLength the number of pages of the table, used to pick a page from an overflow chain.
+     * @return the reference to the page holding the polygon, or null if no record holds it.
      * @throws DBAppException if an error occurs during the search.
      */
     public Ref searchForInsertion(CustomPolygon key,int tableLength) throws DBAppException {
-        return root.searchForInsertion(key, tableLength);
+        GeneralRef ref = search(key);
+        return ref == null ? null : RTreeLeafNode.refReference(ref, tableLength);
     }
 
     /**
-     * Performs a "Multi-Tuple Exact" search on the R-Tree.
+     * Collects the records whose key is greater than or equal to the given key in the area order of `CustomPolygon`.
+     * Entries are placed by position rather than by area, so every leaf is visited.
      *
-     * @param key the data object (CustomPolygon) to search for.
+     * @param key the data object (CustomPolygon) to compare with.
      * @return an `ArrayList<GeneralRef>` containing the references to the matching data objects.
      * @throws DBAppException if an error occurs during the search.
      */
     @Override
     public ArrayList<GeneralRef> searchMTE(CustomPolygon key) throws DBAppException {
-        return root.searchMTE(key);
+        return readOptimistically(() -> scanByArea(key, true));
     }
 
     /**
-     * Performs a "Multi-Tuple" search on the R-Tree.
+     * Collects the records whose key is strictly greater than the given key in the area order of `CustomPolygon`.
+     * Entries are placed by position rather than by area, so every leaf is visited.
      *
-     * @param key the data object (CustomPolygon) to search for.
+     * @param key the data object (CustomPolygon) to compare with.
      * @return an `ArrayList<GeneralRef>` containing the references to the matching data objects.
      * @throws DBAppException if an error occurs during the search.
      */
     @Override
     public ArrayList<GeneralRef> searchMT(CustomPolygon key) throws DBAppException {
-        return root.searchMT(key);
+        return readOptimistically(() -> scanByArea(key, false));
+    }
+
+    /**
+     * Visits every leaf and collects the records of the keys larger than the given one.
+     *
+     * @param key the key to compare with.
+     * @param inclusive whether keys comparing equal are collected as well.
+     * @return the references of the matching records.
+     * @throws DBAppException if a node cannot be read.
+     */
+    private ArrayList<GeneralRef> scanByArea(CustomPolygon key, boolean inclusive) throws DBAppException {
+        ArrayList<RTreeLeafNode> leaves = new ArrayList<>();
+        root.collectLeaves(leaves);
+
+        ArrayList<GeneralRef> result = new ArrayList<>();
+        for(RTreeLeafNode leaf : leaves)
+            for(int i = 0; i < leaf.getNumberOfKeys(); i++) {
+                int comparison = leaf.getKey(i).compareTo(key);
+                if(comparison > 0 || (inclusive && comparison == 0))
+                    result.add(leaf.getRecord(i));
+            }
+        return result;
+    }
+
+    /**
+     * Collects the candidate records of the polygons that may intersect the given polygon.
+     * Only subtrees whose bounding rectangle intersects the rectangle of the polygon are visited,
+     * the candidates still have to be checked against the exact polygons.
+     *
+     * @param polygon the polygon to intersect.
+     * @return the references of the candidate records.
+     * @throws DBAppException if a node cannot be read.
+     */
+    public ArrayList<GeneralRef> searchIntersects(CustomPolygon polygon) throws DBAppException {
+        MBR window = MBR.of(polygon);
+        return readOptimistically(() -> {
+            ArrayList<GeneralRef> result = new ArrayList<>();
+            root.searchIntersects(window, result);
+            return result;
+        });
+    }
+
+    /**
+     * Collects the candidate records of the polygons that may contain the given polygon.
+     * Only subtrees whose bounding rectangle covers the rectangle of the polygon are visited.
+     *
+     * @param polygon the polygon that has to be contained.
+     * @return the references of the candidate records.
+     * @throws DBAppException if a node cannot be read.
+     */
+    public ArrayList<GeneralRef> searchContains(CustomPolygon polygon) throws DBAppException {
+        MBR window = MBR.of(polygon);
+        return readOptimistically(() -> {
+            ArrayList<GeneralRef> result = new ArrayList<>();
+            root.searchContains(window, result);
+            return result;
+        });
+    }
+
+    /**
+     * Collects the candidate records of the polygons that may cover the same region as the given polygon.
+     * Only entries with exactly the bounding rectangle of the polygon are returned.
+     *
+     * @param polygon the polygon the records have to equal.
+     * @return the references of the candidate records.
+     * @throws DBAppException if a node cannot be read.
+     */
+    public ArrayList<GeneralRef> searchEquals(CustomPolygon polygon) throws DBAppException {
+        MBR window = MBR.of(polygon);
+        return readOptimistically(() -> {
+            ArrayList<GeneralRef> result = new ArrayList<>();
+            root.searchEquals(window, result);
+            return result;
+        });
+    }
+
+    /**
+     * Collects the candidate records of the polygons that may lie within the given polygon.
+     * Only subtrees whose bounding rectangle intersects the rectangle of the polygon are visited,
+     * and only entries whose rectangle lies inside it are returned.
+     *
+     * @param polygon the polygon that has to contain the records.
+     * @return the references of the candidate records.
+     * @throws DBAppException if a node cannot be read.
+     */
+    public ArrayList<GeneralRef> searchWithin(CustomPolygon polygon) throws DBAppException {
+        MBR window = MBR.of(polygon);
+        return readOptimistically(() -> {
+            ArrayList<GeneralRef> result = new ArrayList<>();
+            root.searchWithin(window, result);
+            return result;
+        });
+    }
+
+    /**
+     * Collects the records of the polygons nearest to the given polygon, closest first.
+     * The tree is traversed best-first: a priority queue holds subtrees and entries ordered by the distance of their
+     * bounding rectangle to the query, which never exceeds the distance of anything inside them. A leaf entry popped
+     * from the queue is pushed back with the exact distance of its polygon, and it is only reported once it is popped
+     * again with that exact distance, so no unvisited polygon can be closer. The traversal stops as soon as the
+     * reported entries hold k records, polygons stored in several records count once per record.
+     * Every polygon of the tree closer than the last neighbour reported is therefore among the neighbours.
+     *
+     * @param polygon the polygon to measure the distances to, a single vertex for a point.
+     * @param k       the number of records wanted.
+     * @return the nearest records with their distances, closest first, holding at least k records unless the tree has fewer.
+     * @throws DBAppException if a node or an overflow page cannot be read.
+     */
+    public ArrayList<Neighbour> searchNearest(CustomPolygon polygon, int k) throws DBAppException {
+        MBR query = MBR.of(polygon);
+        return readOptimistically(() -> {
+            ArrayList<Neighbour> result = new ArrayList<>();
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(Comparator.comparingDouble(candidate -> candidate.distance));
+            RTreeNode node = root;
+            int found = 0;
+            while (found < k) {
+                if (node != null) {
+                    for (int i = 0; i < node.getNumberOfKeys(); i++)
+                        queue.add(new Candidate(node.getEntry(i), node.getMBR(i).minDistance(query), false));
+                    node = null;
+                }
+                Candidate candidate = queue.poll();
+                if (candidate == null)
+                    break;
+
+                RTreeEntry entry = candidate.entry;
+                if (entry.childName != null)
+                    node = root.deserializeNode(entry.childName);
+                else if (!candidate.exact)
+                    queue.add(new Candidate(entry, entry.key.distance(polygon), true));
+                else {
+                    result.add(new Neighbour(entry.record, candidate.distance));
+                    found += (entry.record instanceof OverflowRef overflowRef) ? overflowRef.getTotalSize() : 1;
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * A polygon reported by a nearest neighbour search.
+     * <p>
+     * record   ->  the records of the polygon.
+     * distance ->  the exact distance of the polygon to the query.
+     */
+    public record Neighbour(GeneralRef record, double distance) {
+    }
+
+    /**
+     * An entry waiting in the queue of a nearest neighbour search.
+     * <p>
+     * entry    ->  the subtree or leaf entry.
+     * distance ->  the distance of its bounding rectangle to the query, or of its polygon once exact.
+     * exact    ->  whether the distance is the exact one of the polygon of a leaf entry.
+     */
+    private record Candidate(RTreeEntry entry, double distance, boolean exact) {
     }
 
     /**
@@ -155,22 +371,127 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
      */
     public void insert(CustomPolygon key, Ref ref) throws DBAppException
     {
-        PushUpRTree<CustomPolygon> pushUpRTree = root.insert(key, ref, null, -1);
-        if(pushUpRTree != null)
+        long stamp = lock.writeLock();
+        try {
+            insertKey(key, ref);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts a key and its record reference, the caller holds the write lock.
+     * A polygon already in the tree gets the record added to its entry instead of a second entry.
+     *
+     * @param key the key of the new data object to be inserted.
+     * @param ref the reference of the record associated with the key.
+     * @throws DBAppException if an error occurs during insertion.
+     */
+    private void insertKey(CustomPolygon key, Ref ref) throws DBAppException
+    {
+        MBR mbr = MBR.of(key);
+        RTreeLeafNode leaf = root.findLeaf(key, mbr);
+        if(leaf != null)
         {
-            RTreeInnerNode<CustomPolygon> newRoot = new RTreeInnerNode<>(order);
+            leaf.addReference(leaf.findIndex(key), ref);
+            if(leaf != root)
+                leaf.serializeNode();
+            return;
+        }
+        insertEntry(new RTreeEntry(key, mbr, ref));
+    }
 
-            newRoot.insertLeftAt(0, pushUpRTree.key, root);
-            newRoot.setChild(1, pushUpRTree.newNode);
-            root.setRoot(false);
-            root.serializeNode();
-            root = newRoot;
-            root.setRoot(true);
+    /**
+     * Places an entry, together with every entry a forced reinsertion removes on the way,
+     * growing the tree by one level whenever the root splits.
+     *
+     * @param entry the entry to place.
+     * @throws DBAppException if an error occurs during insertion.
+     */
+    private void insertEntry(RTreeEntry entry) throws DBAppException
+    {
+        RTreeInsertion insertion = new RTreeInsertion(entry);
+        RTreeEntry next;
+        while((next = insertion.next()) != null)
+        {
+            PushUpRTree pushUpRTree = root.insert(next, insertion);
+            if(pushUpRTree != null)
+            {
+                RTreeInnerNode newRoot = new RTreeInnerNode(order);
+                newRoot.setLevel(root.getLevel() + 1);
+
+                newRoot.addChild(root.getBoundingBox(), root);
+                newRoot.addChild(pushUpRTree.getMbr(), pushUpRTree.getNewNode());
+                root.setRoot(false);
+                root.serializeNode();
+                root = newRoot;
+                root.setRoot(true);
+            }
+        }
+    }
+
+    /**
+     * Inserts a batch of keys under a single hold of the write lock.
+     * The order of the keys does not matter to an R-Tree, placement follows their rectangles.
+     * An empty tree is bulk loaded with Sort-Tile-Recursive packing instead of inserting the keys one by one.
+     *
+     * @param keys the keys of the new data objects.
+     * @param refs the references of the records associated with the keys.
+     * @throws DBAppException if an error occurs during insertion.
+     */
+    public void insertBatch(ArrayList<CustomPolygon> keys, ArrayList<Ref> refs) throws DBAppException
+    {
+        if(keys.isEmpty())
+            return;
+        long stamp = lock.writeLock();
+        try {
+            if(isEmpty())
+            {
+                root = new RTreeBulkLoader(order, RTreeBulkLoader.Packing.STR).load(keys, refs);
+                return;
+            }
+            for(int i = 0; i < keys.size(); i++)
+                insertKey(keys.get(i), refs.get(i));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks whether the tree holds no entry.
+     *
+     * @return true if the root is an empty leaf, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        RTreeNode current = root;
+        return current instanceof RTreeLeafNode && current.getNumberOfKeys() == 0;
+    }
+
+    /**
+     * Builds the whole tree bottom-up from a complete set of keys, replacing the current (empty) root.
+     * The leaves and every inner level are packed full in the given order and each node is written exactly once,
+     * instead of once per key passing through it.
+     *
+     * @param keys the keys to be loaded, in any order.
+     * @param refs the references of the records associated with the keys.
+     * @param packing the order the entries are packed in.
+     * @throws DBAppException if the tree is not empty or a node cannot be written.
+     */
+    public void bulkLoad(ArrayList<CustomPolygon> keys, ArrayList<Ref> refs, RTreeBulkLoader.Packing packing) throws DBAppException
+    {
+        long stamp = lock.writeLock();
+        try {
+            if(!isEmpty())
+                throw new DBAppException("Only an empty R-Tree can be bulk loaded");
+            root = new RTreeBulkLoader(order, packing).load(keys, refs);
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
     /**
-     * Looks up for the record that is associated with the given key
+     * Looks up for the record that is associated with exactly the given polygon
      *
      * @param key the key (CustomPolygon) to search for its record
      * @return The `GeneralRef` object that corresponds to the given key, or null if the key is not found in the R-Tree.
@@ -178,7 +499,10 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
      */
     public GeneralRef search(CustomPolygon key) throws DBAppException
     {
-        return root.search(key);
+        return readOptimistically(() -> {
+            RTreeLeafNode leaf = root.findLeaf(key, MBR.of(key));
+            return leaf == null ? null : leaf.getRecord(leaf.findIndex(key));
+        });
     }
 
     /**
@@ -190,11 +514,12 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
      */
     public boolean delete(CustomPolygon key) throws DBAppException
     {
-        boolean done = root.delete(key, null, -1);
-
-        while(root instanceof RTreeInnerNode && !root.isRoot())
-            root = ((RTreeInnerNode<CustomPolygon>) root).getFirstChild();
-        return done;
+        long stamp = lock.writeLock();
+        try {
+            return deleteKey(key, null);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
@@ -206,13 +531,67 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
      * @throws DBAppException If an error occurs during the deletion operation.
      */
     public boolean delete(CustomPolygon key, String pageName) throws DBAppException{
-        boolean done = root.delete(key, null, -1,pageName);
+        long stamp = lock.writeLock();
+        try {
+            return deleteKey(key, pageName);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes the data object of the given key and page, the caller holds the write lock.
+     * Nodes left underfull are dissolved and their entries reinserted, and a root left with a single child is replaced by it.
+     *
+     * @param key the key to be deleted
+     * @param pageName The name of the page where the data object is stored, or null for every record of the key.
+     * @return `true` if the deletion was successful, `false` otherwise.
+     * @throws DBAppException If an error occurs during the deletion operation.
+     */
+    private boolean deleteKey(CustomPolygon key, String pageName) throws DBAppException
+    {
+        ArrayList<RTreeEntry> orphans = new ArrayList<>();
+        boolean done = root.delete(key, MBR.of(key), pageName, orphans);
+
+        while(root instanceof RTreeInnerNode && root.getNumberOfKeys() == 1)
+        {
+            RTreeNode child = ((RTreeInnerNode) root).getFirstChild();
+            root.deleteFile();
+            root = child;
+            root.setRoot(true);
+        }
+        if(root instanceof RTreeInnerNode && root.getNumberOfKeys() == 0)
+        {
+            root.deleteFile();
+            root = new RTreeLeafNode(order);
+            root.setRoot(true);
+        }
 
-        while(root instanceof RTreeInnerNode && !root.isRoot())
-            root = ((RTreeInnerNode<CustomPolygon>) root).getFirstChild();
+        for(RTreeEntry orphan : orphans)
+            insertEntry(orphan);
         return done;
     }
 
+    /**
+     * Deletes a batch of data objects under a single hold of the write lock.
+     *
+     * @param keys the keys to be deleted
+     * @param pageNames the pages the data objects were stored in, aligned with the keys
+     * @throws DBAppException If an error occurs during the deletion operation.
+     */
+    public void deleteBatch(ArrayList<CustomPolygon> keys, ArrayList<String> pageNames) throws DBAppException
+    {
+        if(keys.isEmpty())
+            return;
+        long stamp = lock.writeLock();
+        try {
+            for(int i = 0; i < keys.size(); i++)
+                deleteKey(keys.get(i), pageNames.get(i));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
     /**
      * Provides a string representation of the R-Tree data structure for debugging and visualization of the R-Tree data structure.
      * Where the output format is :-
@@ -246,7 +625,7 @@ public class RTree<CustomPolygon extends Comparable<CustomPolygon>> implements S
                     stringBuilder.append("{");
                     RTreeInnerNode parent = (RTreeInnerNode) curNode;
 
-                    for(int i = 0; i <= ((RTreeInnerNode<?>) parent).getNumberOfKeys(); ++i)
+                    for(int i = 0; i < parent.getNumberOfKeys(); ++i)
                     {
                         try {
                             stringBuilder.append(parent.getChild(i).getIndex()).append(",");
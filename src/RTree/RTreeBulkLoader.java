@@ -0,0 +1,239 @@
+package src.RTree;
+
+import src.DBGeneralEngine.CustomPolygon;
+import src.DBGeneralEngine.DBAppException;
+import src.DBGeneralEngine.OverflowPage;
+import src.Ref.GeneralRef;
+import src.Ref.OverflowRef;
+import src.Ref.Ref;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+
+/**
+ * RTreeBulkLoader builds a packed R-Tree bottom-up from a complete set of keys.
+ * The entries are ordered once, cut into full leaves, and every upper level is packed the same way over the
+ * rectangles of the level below, so each node is written exactly once and ends up as full and as compact as the order allows.
+ */
+public class RTreeBulkLoader {
+
+    /**
+     * The order the entries are packed in.
+     * <p>
+     * STR      ->  Sort-Tile-Recursive: the entries are sorted by the x of their centre, cut into vertical slices
+     *              of about sqrt(nodes) nodes each, and every slice is sorted by the y of the centres before being packed.
+     * HILBERT  ->  The entries are sorted by the position of their centre along a Hilbert curve over the bounds of the data.
+     */
+    public enum Packing {
+        STR,
+        HILBERT
+    }
+
+
+    /**
+     * Attributes
+     * <p>
+     * order    ->  The maximum number of entries of a node.
+     * packing  ->  The order the entries are packed in.
+     */
+    private final int order;
+    private final Packing packing;
+
+    private static final int HILBERT_SIDE = 1 << 16;
+
+
+    /**
+     * Constructor
+     *
+     * @param order   the maximum number of entries of a node
+     * @param packing the order the entries are packed in
+     */
+    RTreeBulkLoader(int order, Packing packing) {
+        this.order = order;
+        this.packing = packing;
+    }
+
+
+    /**
+     * Builds the tree and returns its root, every other node is already written to disk.
+     *
+     * @param keys the polygon keys, in any order
+     * @param refs the records of the keys, aligned with the keys
+     * @return the root of the packed tree, marked as root and not yet written
+     * @throws DBAppException if a node or an overflow page cannot be written
+     */
+    RTreeNode load(ArrayList<CustomPolygon> keys, ArrayList<Ref> refs) throws DBAppException {
+        ArrayList<RTreeEntry> entries = leafEntries(keys, refs);
+        int level = 0;
+        while (true) {
+            ArrayList<List<RTreeEntry>> groups = pack(entries);
+            if (groups.size() <= 1) {
+                RTreeNode root = build(groups.isEmpty() ? new ArrayList<>() : groups.get(0), level);
+                root.setRoot(true);
+                return root;
+            }
+
+            ArrayList<RTreeEntry> parents = new ArrayList<>(groups.size());
+            for (List<RTreeEntry> group : groups) {
+                RTreeNode node = build(group, level);
+                node.serializeNode();
+                parents.add(new RTreeEntry(node.getNodeName(), node.getBoundingBox(), level + 1));
+            }
+            entries = parents;
+            level++;
+        }
+    }
+
+
+    /**
+     * Turns the keys into leaf entries, exact duplicates of a polygon share one overflow reference.
+     */
+    private ArrayList<RTreeEntry> leafEntries(ArrayList<CustomPolygon> keys, ArrayList<Ref> refs) throws DBAppException {
+        HashMap<Integer, ArrayList<Integer>> byShape = new HashMap<>();
+        ArrayList<Integer> firsts = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> occurrences = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            ArrayList<Integer> candidates = byShape.computeIfAbsent(keys.get(i).getShapeHash(), hash -> new ArrayList<>());
+            int group = -1;
+            for (int candidate : candidates)
+                if (keys.get(firsts.get(candidate)).sameShape(keys.get(i)))
+                    group = candidate;
+            if (group == -1) {
+                group = firsts.size();
+                candidates.add(group);
+                firsts.add(i);
+                occurrences.add(new ArrayList<>());
+            }
+            occurrences.get(group).add(i);
+        }
+
+        ArrayList<RTreeEntry> entries = new ArrayList<>(firsts.size());
+        for (int group = 0; group < firsts.size(); group++) {
+            CustomPolygon key = keys.get(firsts.get(group));
+            ArrayList<Integer> same = occurrences.get(group);
+            GeneralRef record;
+            if (same.size() == 1)
+                record = refs.get(same.get(0));
+            else {
+                OverflowRef overflowRef = new OverflowRef();
+                overflowRef.setFirstPage(new OverflowPage(order));
+                for (int index : same)
+                    overflowRef.insert(refs.get(index));
+                record = overflowRef;
+            }
+            entries.add(new RTreeEntry(key, MBR.of(key), record));
+        }
+        return entries;
+    }
+
+
+    /**
+     * Orders the entries of one level and cuts them into the groups that become the nodes of that level.
+     */
+    private ArrayList<List<RTreeEntry>> pack(ArrayList<RTreeEntry> entries) {
+        ArrayList<List<RTreeEntry>> groups = new ArrayList<>();
+        if (entries.isEmpty())
+            return groups;
+
+        if (packing == Packing.HILBERT) {
+            sortByHilbert(entries);
+            cut(entries, groups);
+            return groups;
+        }
+
+        entries.sort(Comparator.comparingDouble(entry -> entry.mbr.getCenterX()));
+        int nodes = (entries.size() + order - 1) / order;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        for (List<RTreeEntry> slice : evenRuns(entries, slices)) {
+            ArrayList<RTreeEntry> sorted = new ArrayList<>(slice);
+            sorted.sort(Comparator.comparingDouble(entry -> entry.mbr.getCenterY()));
+            cut(sorted, groups);
+        }
+        return groups;
+    }
+
+
+    /**
+     * Cuts ordered entries into the fewest groups of at most order entries, the sizes differing by one at most
+     * so that no trailing node is left nearly empty.
+     */
+    private void cut(List<RTreeEntry> entries, ArrayList<List<RTreeEntry>> groups) {
+        groups.addAll(evenRuns(entries, (entries.size() + order - 1) / order));
+    }
+
+
+    /**
+     * Splits a list into the given number of consecutive runs whose sizes differ by one at most.
+     */
+    private static ArrayList<List<RTreeEntry>> evenRuns(List<RTreeEntry> entries, int runs) {
+        ArrayList<List<RTreeEntry>> result = new ArrayList<>(runs);
+        int size = entries.size();
+        runs = Math.max(1, Math.min(runs, size));
+        int start = 0;
+        for (int run = 0; run < runs; run++) {
+            int end = start + size / runs + (run < size % runs ? 1 : 0);
+            result.add(entries.subList(start, end));
+            start = end;
+        }
+        return result;
+    }
+
+
+    /**
+     * Sorts entries by the Hilbert value of their centre, on a grid of HILBERT_SIDE cells stretched over the bounds of the entries.
+     */
+    private static void sortByHilbert(ArrayList<RTreeEntry> entries) {
+        MBR bounds = entries.get(0).mbr;
+        for (RTreeEntry entry : entries)
+            bounds = bounds.union(entry.mbr);
+        double width = Math.max(bounds.getMaxX() - bounds.getMinX(), 1e-9);
+        double height = Math.max(bounds.getMaxY() - bounds.getMinY(), 1e-9);
+
+        HashMap<RTreeEntry, Long> values = new HashMap<>();
+        for (RTreeEntry entry : entries) {
+            int x = (int) Math.min(HILBERT_SIDE - 1, (entry.mbr.getCenterX() - bounds.getMinX()) / width * (HILBERT_SIDE - 1));
+            int y = (int) Math.min(HILBERT_SIDE - 1, (entry.mbr.getCenterY() - bounds.getMinY()) / height * (HILBERT_SIDE - 1));
+            values.put(entry, hilbertValue(x, y));
+        }
+        entries.sort(Comparator.comparingLong(values::get));
+    }
+
+
+    /**
+     * Computes the distance along the Hilbert curve of a cell of the HILBERT_SIDE by HILBERT_SIDE grid.
+     */
+    private static long hilbertValue(int x, int y) {
+        long distance = 0;
+        for (int side = HILBERT_SIDE / 2; side > 0; side /= 2) {
+            int rx = (x & side) > 0 ? 1 : 0;
+            int ry = (y & side) > 0 ? 1 : 0;
+            distance += (long) side * side * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_SIDE - 1 - x;
+                    y = HILBERT_SIDE - 1 - y;
+                }
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+        return distance;
+    }
+
+
+    /**
+     * Creates the node of a group, a leaf on level 0 and an inner node above.
+     */
+    private RTreeNode build(List<RTreeEntry> group, int level) throws DBAppException {
+        RTreeNode node = (level == 0) ? new RTreeLeafNode(order) : new RTreeInnerNode(order);
+        node.setLevel(level);
+        for (RTreeEntry entry : group)
+            node.addEntry(entry);
+        return node;
+    }
+
+}
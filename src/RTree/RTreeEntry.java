@@ -0,0 +1,60 @@
+package src.RTree;
+
+import src.DBGeneralEngine.CustomPolygon;
+import src.Ref.GeneralRef;
+
+
+/**
+ * An entry travelling through the R-Tree while it is placed, reinserted or moved out of a dissolved node.
+ * Leaf entries carry a polygon key and its record, inner entries the name of the child subtree they bound.
+ */
+class RTreeEntry {
+
+    /**
+     * Attributes
+     * <p>
+     * mbr          ->  The bounding rectangle of the key or of the child subtree.
+     * key          ->  The polygon key of a leaf entry, null for inner entries.
+     * record       ->  The record of a leaf entry, a single page or an overflow chain.
+     * childName    ->  The node name of the child of an inner entry, null for leaf entries.
+     * level        ->  The level of the node the entry belongs in, leaves are at level 0.
+     */
+    final MBR mbr;
+    final CustomPolygon key;
+    final GeneralRef record;
+    final String childName;
+    final int level;
+
+
+    /**
+     * Creates a leaf entry.
+     *
+     * @param key    the polygon key
+     * @param mbr    the bounding rectangle of the key
+     * @param record the record of the key
+     */
+    RTreeEntry(CustomPolygon key, MBR mbr, GeneralRef record) {
+        this.mbr = mbr;
+        this.key = key;
+        this.record = record;
+        this.childName = null;
+        this.level = 0;
+    }
+
+
+    /**
+     * Creates an inner entry.
+     *
+     * @param childName the node name of the child subtree
+     * @param mbr       the bounding rectangle of the child subtree
+     * @param level     the level of the node the entry belongs in
+     */
+    RTreeEntry(String childName, MBR mbr, int level) {
+        this.mbr = mbr;
+        this.key = null;
+        this.record = null;
+        this.childName = childName;
+        this.level = level;
+    }
+
+}
@@ -1,8 +1,8 @@
 package src.RTree;
 
+import src.DBGeneralEngine.CustomPolygon;
 import src.DBGeneralEngine.DBAppException;
 import src.Ref.GeneralRef;
-import src.Ref.Ref;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -12,30 +12,26 @@ import java.util.ArrayList;
  * It is responsible for managing the child nodes of the R-Tree.
  * Inner nodes store the minimum bounding rectangles (MBRs) of their child nodes and pointers to those child nodes.
  * They are used to guide the search process through the R-Tree hierarchy.
- *
- * @param <CustomPolygon> the type of custom polygon objects stored in the R-Tree
  */
-public class RTreeInnerNode<CustomPolygon extends Comparable<CustomPolygon>> extends RTreeNode<CustomPolygon> implements Serializable {
+public class RTreeInnerNode extends RTreeNode implements Serializable {
 
     /**
      * Attributes
      * <p>
-     * children     -> An array of child node indices, which acts as a lookup table to access them.
+     * children     -> An array of child node names, entry i of the node bounds the subtree of children[i].
      */
     private final String[] children;
 
 
     /**
      * Constructor
-     * Creates a new RTreeInnerNode with the specified maximum number of keys.
+     * Creates a new RTreeInnerNode with the specified maximum number of entries.
      *
-     * @param maxKeys the maximum number of keys (and child nodes) that can be stored in this inner node
+     * @param maxKeys the maximum number of child nodes that can be stored in this inner node
      * @throws DBAppException if there is an issue creating the inner node
      */
-    @SuppressWarnings("unchecked")
     public RTreeInnerNode(int maxKeys) throws DBAppException {
         super(maxKeys);
-        setKeys(new Comparable[maxKeys]);
         children = new String[maxKeys + 1];
     }
 
@@ -44,9 +40,9 @@ public class RTreeInnerNode<CustomPolygon extends Comparable<CustomPolygon>> ext
      * Getters & Setters
      * <p>
      * <p>
-     * Gets an array of child node indices stored in the RTreeInnerNode
+     * Gets an array of child node names stored in the RTreeInnerNode
      *
-     * @return array of child node indices
+     * @return array of child node names
      */
     public String[] getChildren() {
         return children;
@@ -59,7 +55,7 @@ public class RTreeInnerNode<CustomPolygon extends Comparable<CustomPolygon>> ext
      * @return child node at the given index, or null if not found
      * @throws DBAppException if there is an issue deserializing the child node
      */
-    public RTreeNode<CustomPolygon> getChild(int index) throws DBAppException {
+    public RTreeNode getChild(int index) throws DBAppException {
         return (children[index] == null) ? null : deserializeNode(children[index]);
     }
 
@@ -69,483 +65,293 @@ public class RTreeInnerNode<CustomPolygon extends Comparable<CustomPolygon>> ext
      * @return the first child node
      * @throws DBAppException if there is an issue deserializing the child node
      */
-    public RTreeNode<CustomPolygon> getFirstChild() throws DBAppException {
+    public RTreeNode getFirstChild() throws DBAppException {
         return deserializeNode(children[0]);
     }
 
-    /**
-     * Retrieves the last child node of this RTreeInnerNode.
-     *
-     * @return the last child node
-     * @throws DBAppException if there is an issue deserializing the child node
-     */
-    public RTreeNode<CustomPolygon> getLastChild() throws DBAppException {
-        return deserializeNode(children[getNumberOfKeys()]);
-    }
-
-    /**
-     * Sets the child node at the given index.
-     *
-     * @param index the index of the child node to set
-     * @param child the child node to set, or null to remove the child
-     */
-    public void setChild(int index, RTreeNode<CustomPolygon> child) {
-        children[index] = (child == null) ? null : child.getNodeName();
-    }
 
     /**
-     * Retrieves the minimum number of keys (child nodes) the RTreeInnerNode can have.
+     * Appends a child node as a new entry bounded by the given rectangle.
      *
-     * @return the minimum number of keys for this RTreeInnerNode
+     * @param mbr   the bounding rectangle of the child subtree
+     * @param child the child node
      */
-    public int getMinKeys() {
-        return this.isRoot() ? 1 : (getOrder() + 2) / 2 - 1;
+    public void addChild(MBR mbr, RTreeNode child) {
+        int index = getNumberOfKeys();
+        setMBR(index, mbr);
+        children[index] = child.getNodeName();
+        setNumberOfKeys(index + 1);
     }
 
 
     /**
-     * Finds ( using binary search ) the index where the given key should be inserted in this RTreeInnerNode.
+     * Gets the entry at the given index.
      *
-     * @param key the key to find the index for
-     * @return the index where the given key should be inserted
+     * @param index the index of the entry
+     * @return the entry pointing at the child
      */
-    public int findIndex(CustomPolygon key) {
-        for (int i = 0; i < getNumberOfKeys(); ++i) {
-            int cmp = getKey(i).compareTo(key);
-            if (cmp > 0)
-                return i;
-        }
-        // If no key is greater than the given key, return the index after the last key
-        return getNumberOfKeys();
+    RTreeEntry getEntry(int index) {
+        return new RTreeEntry(children[index], getMBR(index), getLevel());
     }
 
 
     /**
-     * Inserts a new key and reference into the R-Tree node.
+     * Appends an entry pointing at a child subtree.
      *
-     * @param key    key to be inserted
-     * @param ref    reference where this inserted key is located
-     * @param parent parent of this inserted node
-     * @param ptr    index of pointer in the parent node pointing to this node
-     * @return a PushUpRTree object containing the new key and node to be pushed up to the parent,
-     * or null if the insertion was successful without needing to push up
-     * @throws DBAppException if there is an issue deserializing or serializing the child nodes
+     * @param entry the entry to append
      */
-    public PushUpRTree<CustomPolygon> insert(CustomPolygon key, Ref ref, RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException {
-        int index = findIndex(key);
-
-        RTreeNode<CustomPolygon> rTreeNode = deserializeNode(children[index]);
-        PushUpRTree<CustomPolygon> pushUpRTree = rTreeNode.insert(key, ref, this, index);
-
-        if (pushUpRTree == null) {
-            rTreeNode.serializeNode();
-            return null;
-        }
-
-        if (this.isFull()) {
-            RTreeInnerNode<CustomPolygon> newNode = this.split(pushUpRTree);
-            Comparable<CustomPolygon> newKey = newNode.getFirstKey();
-            newNode.deleteAt(0, 0);
-            newNode.serializeNode();
-            rTreeNode.serializeNode();
-            return new PushUpRTree<CustomPolygon>(newNode, newKey);
-        } else {
-            index = 0;
-            while (index < getNumberOfKeys() && getKey(index).compareTo(key) < 0)
-                ++index;
-            this.insertRightAt(index, pushUpRTree.key, pushUpRTree.newNode);
-            rTreeNode.serializeNode();
-            return null;
-        }
-
+    void addEntry(RTreeEntry entry) {
+        int index = getNumberOfKeys();
+        setMBR(index, entry.mbr);
+        children[index] = entry.childName;
+        setNumberOfKeys(index + 1);
     }
 
 
     /**
-     * Inserts the given key at the specified index in this RTreeInnerNode.
-     * <p>
-     * This method shifts all keys and child pointers after the given index to
-     * make room for the new key. It then sets the new key at the specified
-     * index and increments the number of keys in the node.
+     * Picks the entry a new rectangle should descend into, the ChooseSubtree step of the R*-Tree.
+     * Above the leaves the entry whose rectangle grows the least is chosen, ties resolved by the smallest rectangle.
+     * Right above the leaves the entry whose growth adds the least overlap with its siblings is chosen instead,
+     * ties resolved by the least growth and then the smallest rectangle.
      *
-     * @param index the index at which to insert the key
-     * @param key   the key to be inserted
-     * @throws DBAppException if an error occurs during the insertion
+     * @param mbr the rectangle to place
+     * @return the index of the chosen entry
      */
-    private void insertAt(int index, Comparable<CustomPolygon> key) throws DBAppException {
-        // Shift all keys and child pointers after the given index to make room
-        for (int i = getNumberOfKeys(); i > index; --i) {
-            this.setKey(i, this.getKey(i - 1));
-            this.setChild(i + 1, this.getChild(i));
+    protected int chooseSubtree(MBR mbr) {
+        int best = 0;
+        double bestOverlap = Double.POSITIVE_INFINITY;
+        double bestEnlargement = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+        boolean leavesBelow = getLevel() == 1;
+        for (int i = 0; i < getNumberOfKeys(); i++) {
+            double overlap = leavesBelow ? overlapEnlargement(i, mbr) : 0;
+            double enlargement = getMBR(i).enlargement(mbr);
+            double area = getMBR(i).area();
+            if (overlap < bestOverlap
+                    || (overlap == bestOverlap && enlargement < bestEnlargement)
+                    || (overlap == bestOverlap && enlargement == bestEnlargement && area < bestArea)) {
+                best = i;
+                bestOverlap = overlap;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
         }
-
-        // Set the new key at the specified index
-        this.setKey(index, key);
-
-        // Increment the number of keys in the node
-        setNumberOfKeys(getNumberOfKeys() + 1);
+        return best;
     }
 
 
     /**
-     * Inserts the given key at the given index and adjusts the left child pointer.
-     * Where it sets the child pointer to the left of the inserted key to the given left child.
+     * Computes how much the overlap between an entry and its siblings grows when the entry is extended by a rectangle.
      *
-     * @param index     the index where the key is inserted
-     * @param key       the key to be inserted in that index
-     * @param leftChild the child node to be set as the left child of the inserted key
-     * @throws DBAppException if an error occurs during the insertion
+     * @param index the index of the entry to extend
+     * @param mbr   the rectangle to cover
+     * @return the overlap after the extension minus the overlap before it
      */
-    public void insertLeftAt(int index, Comparable<CustomPolygon> key, RTreeNode<CustomPolygon> leftChild) throws DBAppException {
-        insertAt(index, key);
-        this.setChild(index + 1, this.getChild(index));
-        this.setChild(index, leftChild);
+    private double overlapEnlargement(int index, MBR mbr) {
+        MBR current = getMBR(index);
+        MBR extended = current.union(mbr);
+        double growth = 0;
+        for (int j = 0; j < getNumberOfKeys(); j++)
+            if (j != index)
+                growth += extended.overlap(getMBR(j)) - current.overlap(getMBR(j));
+        return growth;
     }
 
 
     /**
-     * Inserts the given key at the given index and adjusts the right child pointer.
-     * Where it sets the child pointer to the right of the inserted key to the given right child.
+     * Places an entry in this node when it belongs on this level, otherwise in the subtree of the child chosen
+     * by chooseSubtree, whose rectangle is then tightened. The sibling of a split child is added as a new entry,
+     * and an overflow of this node is treated in turn.
      *
-     * @param index      the index where the key is inserted
-     * @param key        the key to be inserted in that index
-     * @param rightChild the child node to be set as the right child of the inserted key
-     * @throws DBAppException if an error occurs during the insertion
+     * @param entry     the entry to place
+     * @param insertion the state of the running insertion
+     * @return the new sibling node if this node was split, null otherwise
+     * @throws DBAppException if there is an issue inserting the entry
      */
-    public void insertRightAt(int index, Comparable<CustomPolygon> key, RTreeNode<CustomPolygon> rightChild) throws DBAppException {
-        insertAt(index, key);
-        this.setChild(index + 1, rightChild);
-    }
+    PushUpRTree insert(RTreeEntry entry, RTreeInsertion insertion) throws DBAppException {
+        if (entry.level == getLevel()) {
+            addEntry(entry);
+            return treatOverflow(insertion);
+        }
 
+        int index = chooseSubtree(entry.mbr);
+        RTreeNode child = getChild(index);
+        PushUpRTree pushUp = child.insert(entry, insertion);
 
-    /**
-     * Searches for the record reference of the given key.
-     *
-     * @param key the key to search for
-     * @return the record reference for the given key, if found
-     * @throws DBAppException if an error occurs during the search
-     */
-    @Override
-    public GeneralRef search(CustomPolygon key) throws DBAppException {
-        // Find the index of the child node that may contain the given key
-        RTreeNode<CustomPolygon> rTreeNode = deserializeNode(children[findIndex(key)]);
+        setMBR(index, child.getBoundingBox());
+        child.serializeNode();
 
-        // Search for the record reference in the child node
-        return rTreeNode.search(key);
+        if (pushUp != null)
+            addChild(pushUp.getMbr(), pushUp.getNewNode());
+        return treatOverflow(insertion);
     }
 
 
     /**
-     * Searches for all record references that intersect the given key.
-     * "MTE" in the method name stands for "Match Totally or Envelope".
-     * Indicating searching for record references that either
-     * Exactly match the given key or are enveloped by the given key.
+     * Searches the children whose rectangle covers the key for the leaf holding it.
      *
      * @param key the key to search for
-     * @return list of all record references that intersect the given key
-     * @throws DBAppException if an error occurs during the search
+     * @param mbr the bounding rectangle of the key
+     * @return the leaf holding the key, or null if the key is not in the subtree
+     * @throws DBAppException if there is an issue deserializing a child node
      */
-    public ArrayList<GeneralRef> searchMTE(CustomPolygon key) throws DBAppException {
-        // Find the index of the child node that may contain the given key
-        RTreeNode<CustomPolygon> b = deserializeNode(children[findIndex(key)]);
-
-        // Search for all matching record references in the child node
-        return b.searchMTE(key);
+    public RTreeLeafNode findLeaf(CustomPolygon key, MBR mbr) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).contains(mbr)) {
+                RTreeLeafNode leaf = getChild(i).findLeaf(key, mbr);
+                if (leaf != null)
+                    return leaf;
+            }
+        return null;
     }
 
 
     /**
-     * Searches for all record references that match the given key.
-     * "MT" in the method name stands for "Match Totally"
-     * Indicating searching for exact matches of the given key.
+     * Descends into every child whose rectangle intersects the window.
      *
-     * @param key the key to search for
-     * @return list of all record references that match the given key
-     * @throws DBAppException if an error occurs during the search
+     * @param window the rectangle to intersect
+     * @param result the list the matching records are added to
+     * @throws DBAppException if there is an issue deserializing a child node
      */
-    public ArrayList<GeneralRef> searchMT(CustomPolygon key) throws DBAppException {
-        RTreeNode<CustomPolygon> rTreeNode = deserializeNode(children[findIndex(key)]);
-        return rTreeNode.searchMT(key);
+    public void searchIntersects(MBR window, ArrayList<GeneralRef> result) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).intersects(window))
+                getChild(i).searchIntersects(window, result);
     }
 
 
     /**
-     * Searches for the leaf node that contains the record reference for the given key.
+     * Descends into every child whose rectangle covers the window, a child that does not cannot hold an entry that does.
      *
-     * @param key the key to search for
-     * @return the leaf node that contains the record reference for the given key
-     * @throws DBAppException if an error occurs during the search
+     * @param window the rectangle the entries have to cover
+     * @param result the list the matching records are added to
+     * @throws DBAppException if there is an issue deserializing a child node
      */
-    public RTreeLeafNode searchForUpdateRef(CustomPolygon key) throws DBAppException {
-        RTreeNode<CustomPolygon> rTreeNode = deserializeNode(children[findIndex(key)]);
-        return rTreeNode.searchForUpdateRef(key);
+    public void searchContains(MBR window, ArrayList<GeneralRef> result) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).contains(window))
+                getChild(i).searchContains(window, result);
     }
 
 
     /**
-     * Searches for the appropriate leaf node to insert the given key.
+     * Descends into every child whose rectangle covers the window, only those can hold an entry bounded by it.
      *
-     * @param key         the key to search for
-     * @param tableLength the length of the table
-     * @return the leaf node to insert the given key
-     * @throws DBAppException if an error occurs during the search
+     * @param window the rectangle the entries have to be bounded by
+     * @param result the list the matching records are added to
+     * @throws DBAppException if there is an issue deserializing a child node
      */
-    public Ref searchForInsertion(CustomPolygon key, int tableLength) throws DBAppException {
-        RTreeNode<CustomPolygon> rTreeNode = deserializeNode(children[findIndex(key)]);
-        return rTreeNode.searchForInsertion(key, tableLength);
+    public void searchEquals(MBR window, ArrayList<GeneralRef> result) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).contains(window))
+                getChild(i).searchEquals(window, result);
     }
 
 
     /**
-     * Splits the inner node by moving half of the keys and child pointers to a new node.
-     * <p>
-     * <p>
-     * This method is needed when an inner node becomes full ( number of keys reach the maximum order of the R-Tree ).
-     * It creates a new inner node and redistributes the keys and child pointers between the original node and the new node.
+     * Descends into every child whose rectangle intersects the window, only those can hold entries lying inside it.
      *
-     * @param pushUpRTree object containing both the key and the new child node to be pushed up to the parent node
-     * @return the new inner node created after the split
-     * @throws DBAppException if an error occurs during the split operation
+     * @param window the rectangle the entries have to lie in
+     * @param result the list the matching records are added to
+     * @throws DBAppException if there is an issue deserializing a child node
      */
-    @SuppressWarnings("unchecked")
-    public RTreeInnerNode<CustomPolygon> split(PushUpRTree<CustomPolygon> pushUpRTree) throws DBAppException {
-        int keyIndex = this.findIndex((CustomPolygon) pushUpRTree.key);
-        int midIndex = getNumberOfKeys() / 2 - 1;
-
-        // Split nodes
-        if (keyIndex > midIndex)
-            ++midIndex;
-
-        int totalKeys = getNumberOfKeys() + 1;
-
-        RTreeInnerNode<CustomPolygon> newNode = new RTreeInnerNode<>(getOrder());
-        for (int i = midIndex; i < totalKeys - 1; ++i) {
-            newNode.insertRightAt(i - midIndex, this.getKey(i), this.getChild(i + 1));
-            setNumberOfKeys(getNumberOfKeys() - 1);
-        }
-        newNode.setChild(0, this.getChild(midIndex));
-
-        // Add new key
-        if (keyIndex < totalKeys / 2)
-            this.insertRightAt(keyIndex, pushUpRTree.key, pushUpRTree.newNode);
-        else
-            newNode.insertRightAt(keyIndex - midIndex, pushUpRTree.key, pushUpRTree.newNode);
-
-        return newNode;
+    public void searchWithin(MBR window, ArrayList<GeneralRef> result) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).intersects(window))
+                getChild(i).searchWithin(window, result);
     }
 
 
     /**
-     * Borrows a key and child pointer either from left or right sibling node.
-     * <p>
-     * <p>
-     * This method is needed to balance the number of keys and child pointers between the current node and its left or right sibling.
-     * If one of the siblings has more keys than the minimum required,
-     * It will borrow a key and child pointer from that sibling and update the parent node accordingly.
+     * Collects the leaves of every child subtree.
      *
-     * @param parent the parent node of the current node
-     * @param ptr    the index of the pointer in the parent node that points to the current node
-     * @return true if a key and child pointer were successfully borrowed from either sibling, false otherwise
-     * @throws DBAppException if an error occurs during the borrowing operation
+     * @param leaves the list the leaves are added to
+     * @throws DBAppException if there is an issue deserializing a child node
      */
-    public boolean borrow(RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException {
-        //check left sibling
-        if (ptr > 0) {
-            RTreeInnerNode<CustomPolygon> leftSibling = (RTreeInnerNode<CustomPolygon>) parent.getChild(ptr - 1);
-            if (leftSibling.getNumberOfKeys() > leftSibling.getMinKeys()) {
-                RTreeNode<CustomPolygon> leftSiblingLastChild = leftSibling.getLastChild();
-                this.insertLeftAt(0, parent.getKey(ptr - 1), leftSiblingLastChild);
-                leftSiblingLastChild.serializeNode();
-                parent.deleteAt(ptr - 1);
-                parent.insertRightAt(ptr - 1, leftSibling.getLastKey(), this);
-                leftSibling.deleteAt(leftSibling.getNumberOfKeys() - 1);
-                leftSibling.serializeNode();
-                return true;
-            }
-        }
-
-        //check right sibling
-        if (ptr < parent.getNumberOfKeys()) {
-            RTreeInnerNode<CustomPolygon> rightSibling = (RTreeInnerNode<CustomPolygon>) parent.getChild(ptr + 1);
-            if (rightSibling.getNumberOfKeys() > rightSibling.getMinKeys()) {
-                RTreeNode<CustomPolygon> rightSiblingFirstChild = rightSibling.getFirstChild();
-                this.insertRightAt(this.getNumberOfKeys(), parent.getKey(ptr), rightSiblingFirstChild);
-                rightSiblingFirstChild.serializeNode();
-                parent.deleteAt(ptr);
-                parent.insertRightAt(ptr, rightSibling.getFirstKey(), rightSibling);
-                rightSibling.deleteAt(0, 0);
-                rightSibling.serializeNode();
-                return true;
-            }
-        }
-        return false;
+    public void collectLeaves(ArrayList<RTreeLeafNode> leaves) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            getChild(i).collectLeaves(leaves);
     }
 
 
     /**
-     * Merges the current node with either the left or right sibling node.
-     * <p>
-     * <p>
-     * This method is needed when the current node has fewer keys than the minimum required.
-     * It will either merge the current node with the left sibling or the right sibling,
-     * Depending on which one has the fewest keys.
+     * Deletes the key from the first child subtree holding it.
+     * A child left with fewer entries than its minimum is removed from this node and its entries are handed back
+     * for reinsertion, otherwise the rectangle of the child is tightened.
      *
-     * @param parent the parent node of the current node
-     * @param ptr    the index of the pointer in the parent node that points to the current node
-     * @throws DBAppException if an error occurs during the merging operation
+     * @param key      the key to be deleted
+     * @param mbr      the bounding rectangle of the key
+     * @param pageName the page the record lived in, or null to delete every reference of the key
+     * @param orphans  the list the leaf entries of removed nodes are added to
+     * @return true if the key was found and deleted, false otherwise
+     * @throws DBAppException if there is an issue deserializing or serializing a child node
      */
-    public void merge(RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException {
-        if (ptr > 0) {
-            //merge with left
-            RTreeInnerNode<CustomPolygon> leftSibling = (RTreeInnerNode<CustomPolygon>) parent.getChild(ptr - 1);
-            leftSibling.merge(parent.getKey(ptr - 1), this);
-            parent.deleteAt(ptr - 1);
-            leftSibling.serializeNode();
-        } else {
-            //merge with right
-            RTreeInnerNode<CustomPolygon> rightSibling = (RTreeInnerNode<CustomPolygon>) parent.getChild(ptr + 1);
-            this.merge(parent.getKey(ptr), rightSibling);
-            parent.deleteAt(ptr);
-            rightSibling.serializeNode();
+    boolean delete(CustomPolygon key, MBR mbr, String pageName, ArrayList<RTreeEntry> orphans) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++) {
+            if (!getMBR(i).contains(mbr))
+                continue;
+            RTreeNode child = getChild(i);
+            if (!child.delete(key, mbr, pageName, orphans))
+                continue;
+
+            if (child.getNumberOfKeys() < child.getMinKeys()) {
+                child.dissolve(orphans);
+                removeEntry(i);
+            } else {
+                setMBR(i, child.getBoundingBox());
+                child.serializeNode();
+            }
+            return true;
         }
+        return false;
     }
 
 
     /**
-     * Merges the current node with the given foreign node using a parent key.
-     * <p>
-     * This method is needed when the current node has fewer keys than the minimum required.
+     * Dissolves every child subtree and deletes the file of this node.
      *
-     * @param parentKey   the key pulled from the parent node
-     * @param foreignNode the node to be merged with the current node
-     * @throws DBAppException if an error occurs during the merging operation
+     * @param orphans the list the leaf entries are added to
+     * @throws DBAppException if there is an issue deserializing a child node
      */
-    public void merge(Comparable<CustomPolygon> parentKey, RTreeInnerNode<CustomPolygon> foreignNode) throws DBAppException {
-        this.insertRightAt(getNumberOfKeys(), parentKey, foreignNode.getFirstChild());
-        for (int i = 0; i < foreignNode.getNumberOfKeys(); ++i)
-            this.insertRightAt(getNumberOfKeys(), foreignNode.getKey(i), foreignNode.getChild(i + 1));
+    void dissolve(ArrayList<RTreeEntry> orphans) throws DBAppException {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            getChild(i).dissolve(orphans);
+        deleteFile();
     }
 
 
     /**
-     * Deletes the given key from the R-Tree node.
+     * Creates an empty inner node of the same order.
      *
-     * @param key    The 'CustomPolygon' key to be deleted.
-     * @param parent The parent 'RTreeInnerNode' of the current node.
-     * @param ptr    The index of the current node within the parent node.
-     * @return True if the key was successfully deleted, false otherwise.
-     * @throws DBAppException If an exception occurs during the deletion process.
+     * @return the new inner node
+     * @throws DBAppException if the node name cannot be generated
      */
-    public boolean delete(CustomPolygon key, RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException {
-        boolean done = false;
-
-        // Recursively traverse the tree to find the node containing the key
-        for (int i = 0; !done && i < getNumberOfKeys(); ++i)
-            if (getKeys()[i].compareTo(key) > 0) {
-                RTreeNode<CustomPolygon> b = deserializeNode(children[i]);
-                done = b.delete(key, this, i);
-                b.serializeNode();
-            }
-
-        // If the key was not found in the previous loop, search in the last child node
-        if (!done) {
-            RTreeNode<CustomPolygon> rTreeNode = deserializeNode(children[getNumberOfKeys()]);
-            done = rTreeNode.delete(key, this, getNumberOfKeys());
-            rTreeNode.serializeNode();
-        }
-
-        if (getNumberOfKeys() < this.getMinKeys()) {
-            if (isRoot()) {
-                this.getFirstChild().setRoot(true);
-                getFirstChild().serializeNode();
-                this.setRoot(false);
-                return done;
-            }
-            if (borrow(parent, ptr)) {
-                return done;
-            }
-            merge(parent, ptr);
-        }
-        return done;
+    protected RTreeNode newSibling() throws DBAppException {
+        return new RTreeInnerNode(getOrder());
     }
 
 
     /**
-     * Deletes the given key from the R-Tree node from a specific page's storage for the deletion.
-     * This is needed when deleting a value from a different page's storage, not just the current page.
+     * Copies the entry at the given index into a slot of another inner node.
      *
-     * @param key      The 'CustomPolygon' key to be deleted.
-     * @param parent   The parent 'RTreeInnerNode' of the current node.
-     * @param ptr      The index of the current node within the parent node.
-     * @param pageName The name of the page's storage used for deletion associated with the R-Tree node.
-     * @return True if the key was successfully deleted, false otherwise.
-     * @throws DBAppException If an exception occurs during the deletion process.
+     * @param from   the index of the entry to copy
+     * @param target the inner node receiving the entry
+     * @param to     the slot of the target the entry is written to
      */
-    public boolean delete(CustomPolygon key, RTreeInnerNode<CustomPolygon> parent, int ptr, String pageName) throws DBAppException {
-        boolean done = false;
-
-        for (int i = 0; !done && i < getNumberOfKeys(); ++i)
-            if (getKeys()[i].compareTo(key) > 0) {
-                RTreeNode<CustomPolygon> b = deserializeNode(children[i]);
-                done = b.delete(key, this, i, pageName);
-                b.serializeNode();
-            }
-
-        if (!done) {
-            RTreeNode<CustomPolygon> b = deserializeNode(children[getNumberOfKeys()]);
-            done = b.delete(key, this, getNumberOfKeys(), pageName);
-            b.serializeNode();
-        }
-
-        if (getNumberOfKeys() < this.getMinKeys()) {
-            if (this.isRoot()) {
-                RTreeNode<CustomPolygon> nd = this.getFirstChild();
-                nd.setRoot(true);
-                nd.serializeNode();
-                this.setRoot(false);
-                return done;
-
-            }
-
-            if (borrow(parent, ptr)) {
-                return done;
-            }
-            merge(parent, ptr);
-        }
-        return done;
+    protected void copyEntry(int from, RTreeNode target, int to) {
+        target.setMBR(to, getMBR(from));
+        ((RTreeInnerNode) target).children[to] = children[from];
     }
 
 
     /**
-     * Deletes the key at the given index and either the left or right pointer
+     * Clears the slot at the given index.
      *
-     * @param keyIndex the index whose key will be deleted
-     * @param childPtr either 0 for deleting the left pointer or 1 for deleting the right pointer
+     * @param index the slot to clear
      */
-    public void deleteAt(int keyIndex, int childPtr) {
-
-        // Shift the remaining keys and pointers to the left, effectively deleting the key at the given index
-        for (int i = keyIndex; i < getNumberOfKeys() - 1; ++i) {
-            setKeys(new Comparable[]{getKeys()[i + 1]});
-            children[i + childPtr] = children[i + childPtr + 1];
-        }
-
-        // If the child pointer to be deleted is the left pointer, move the rightmost pointer to the left
-        if (childPtr == 0)
-            children[getNumberOfKeys() - 1] = children[getNumberOfKeys()];
-        setNumberOfKeys(getNumberOfKeys() - 1);
-    }
-
-
-    /**
-     * Deletes the key at the given index.
-     *
-     * @param index The index of the key to be deleted.
-     */
-    public void deleteAt(int index) {
-
-        // Call the 'deleteAt' method with the child pointer set to 1 (right pointer)
-        deleteAt(index, 1);
+    protected void clearEntry(int index) {
+        setMBR(index, null);
+        children[index] = null;
     }
 
 }
@@ -0,0 +1,64 @@
+package src.RTree;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+
+
+/**
+ * The state of one insertion into an R*-Tree.
+ * The first node overflowing on a level reinserts part of its entries instead of splitting,
+ * later overflows on the same level split, so a single insertion cannot reinsert forever.
+ */
+class RTreeInsertion {
+
+    /**
+     * Attributes
+     * <p>
+     * treatedLevels    ->  The levels that already used their forced reinsertion during this insertion.
+     * pending          ->  The entries waiting to be placed, starting with the inserted entry.
+     */
+    private final HashSet<Integer> treatedLevels = new HashSet<>();
+    private final ArrayDeque<RTreeEntry> pending = new ArrayDeque<>();
+
+
+    /**
+     * Starts the insertion of an entry.
+     *
+     * @param entry the entry to insert
+     */
+    RTreeInsertion(RTreeEntry entry) {
+        pending.add(entry);
+    }
+
+
+    /**
+     * Claims the forced reinsertion of a level.
+     *
+     * @param level the level of the overflowing node
+     * @return true the first time the level overflows during this insertion, false afterwards
+     */
+    boolean firstOverflow(int level) {
+        return treatedLevels.add(level);
+    }
+
+
+    /**
+     * Queues an entry removed from an overflowing node.
+     *
+     * @param entry the entry to place again
+     */
+    void reinsert(RTreeEntry entry) {
+        pending.add(entry);
+    }
+
+
+    /**
+     * Takes the next entry to place.
+     *
+     * @return the next entry, or null once every entry is placed
+     */
+    RTreeEntry next() {
+        return pending.poll();
+    }
+
+}
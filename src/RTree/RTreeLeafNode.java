@@ -1,8 +1,9 @@
 package src.RTree;
 
+import src.DBGeneralEngine.CustomPolygon;
+import src.DBGeneralEngine.DBAppException;
 import src.DBGeneralEngine.LeafNode;
 import src.DBGeneralEngine.OverflowPage;
-import src.DBGeneralEngine.DBAppException;
 import src.Ref.GeneralRef;
 import src.Ref.OverflowRef;
 import src.Ref.Ref;
@@ -14,21 +15,19 @@ import java.util.ArrayList;
  * The RTreeLeafNode class represents a leaf node in an R-Tree data structure.
  * The class is designed to store and manage the leaf-level data in the R-Tree,
  * Including the references to the actual records in the database.
- *
- * @param <CustomPolygon> The type of the custom polygon objects stored in the leaf node.
- *                        This type must implement the Comparable interface.
+ * Every entry keeps its polygon key next to the key's bounding rectangle, so candidates can be refined exactly.
  */
-public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> extends RTreeNode<CustomPolygon> implements Serializable, LeafNode<CustomPolygon> {
+public class RTreeLeafNode extends RTreeNode implements Serializable, LeafNode<CustomPolygon> {
 
     /**
      * Attributes
      * <p>
+     * keys             -> Array of the polygon keys stored in the leaf node.
      * recordsReference -> Array of GeneralRef objects that store references to the records associated with the leaf node.
-     * nextNode         -> Name of the next leaf node in the linked list of leaf nodes.
      * pagesToPrint     -> Static ArrayList that stores references to any overflow pages that need to be printed.
      */
+    private final CustomPolygon[] keys;
     private final GeneralRef[] recordsReference;
-    private String nextNode;
     public static ArrayList<OverflowRef> pagesToPrint;
 
 
@@ -36,15 +35,13 @@ public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> exte
      * Constructor
      * Initializes the keys array and the recordsReference array with the specified size.
      *
-     * @param n the size of the keys and recordsReference arrays.
-     * @throws DBAppException if there is an error initializing the arrays.
+     * @param n the maximum number of entries of the leaf node.
+     * @throws DBAppException if there is an error initializing the node.
      */
-    @SuppressWarnings("unchecked")
     public RTreeLeafNode(int n) throws DBAppException {
         super(n);
-        setKeys(new Comparable[n]);
-        recordsReference = new GeneralRef[n];
-
+        keys = new CustomPolygon[n + 1];
+        recordsReference = new GeneralRef[n + 1];
     }
 
 
@@ -52,44 +49,23 @@ public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> exte
      * Getters & Setters
      * <p>
      * <p>
-     * Gets the name of the next leaf node in the linked list of leaf nodes.
-     *
-     * @return The name of the next leaf node
-     * @throws DBAppException if there is an error retrieving the next node name
-     */
-    public String getNextNodeName() throws DBAppException {
-        return nextNode;
-    }
-
-
-    /**
-     * Gets the minimum number of keys the current node should hold.
-     * Which is 1 for root nodes or (order+1)/2 for non-root nodes.
-     *
-     * @return the minimum number of keys the current node should hold
-     */
-    public int getMinKeys() {
-        return this.isRoot() ? 1 : (getOrder() + 1) / 2;
-    }
-
-
-    /**
-     * Sets the next leaf node in the linked list of leaf nodes.
+     * Leaves of an R-Tree are not chained, entries are ordered by space rather than by key.
      *
-     * @param node the next leaf node to set
+     * @return always null
      */
-    public void setNextNode(RTreeLeafNode<CustomPolygon> node) {
-        this.nextNode = (node != null) ? node.getNodeName() : null;
+    public String getNextNodeName() {
+        return null;
     }
 
 
     /**
-     * Sets the name of the next leaf node in the linked list of leaf nodes.
+     * Gets the key at the given index.
      *
-     * @param nodeName the name of the next leaf node to set
+     * @param index the index of the key to retrieve
+     * @return the key at the given index
      */
-    public void setNextNodeName(String nodeName) {
-        this.nextNode = nodeName;
+    public CustomPolygon getKey(int index) {
+        return keys[index];
     }
 
 
@@ -116,257 +92,212 @@ public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> exte
 
 
     /**
-     * Gets the record reference of the first record in the leaf node.
+     * Gets the entry at the given index.
      *
-     * @return the record reference of the first record
+     * @param index the index of the entry
+     * @return the entry holding the key and its record
      */
-    public GeneralRef getFirstRecord() {
-        return recordsReference[0];
+    RTreeEntry getEntry(int index) {
+        return new RTreeEntry(keys[index], getMBR(index), recordsReference[index]);
     }
 
 
     /**
-     * Gets the record reference of the last record in the leaf node.
+     * Appends an entry to the leaf.
      *
-     * @return the record reference of the last record
+     * @param entry the entry holding the key and its record
      */
-    public GeneralRef getLastRecord() {
-        return recordsReference[getNumberOfKeys() - 1];
+    void addEntry(RTreeEntry entry) {
+        int index = getNumberOfKeys();
+        keys[index] = entry.key;
+        setMBR(index, entry.mbr);
+        recordsReference[index] = entry.record;
+        setNumberOfKeys(index + 1);
     }
 
 
     /**
-     * Gets the next leaf node in the linked list of leaf nodes.
+     * Finds the entry holding exactly the given polygon.
      *
-     * @return the next leaf node, or null if there is no next leaf node
-     * @throws DBAppException if there is an error deserializing the next leaf node
+     * @param key the key to look for
+     * @return the index of the entry, or -1 if the leaf does not hold the key
      */
-    public RTreeLeafNode<CustomPolygon> getNextNode() throws DBAppException {
-        return (nextNode == null) ? null : ((RTreeLeafNode) deserializeNode(nextNode));
+    public int findIndex(CustomPolygon key) {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (keys[i].sameShape(key))
+                return i;
+        return -1;
     }
 
 
     /**
-     * Finds the index of the given key in the leaf node.
+     * Adds one more record to the entry at the given index, moving the entry to an overflow chain
+     * the first time a polygon is stored in more than one record.
      *
-     * @param key the key to search for its location
-     * @return the index where the key should be located, or the index of the first key greater than the given key
+     * @param index the index of the entry
+     * @param ref   the reference of the new record
+     * @throws DBAppException if the overflow page cannot be created or written
      */
-    public int findIndex(CustomPolygon key) {
-        for (int i = 0; i < getNumberOfKeys(); ++i) {
-            int compareKeys = getKey(i).compareTo(key);
-            if (compareKeys > 0)
-                return i;
+    public void addReference(int index, Ref ref) throws DBAppException {
+        GeneralRef current = recordsReference[index];
+        if (current.isOverflow()) {
+            ((OverflowRef) current).insert(ref);
+        } else {
+            OverflowRef overflowRef = new OverflowRef();
+            OverflowPage overflowPage = new OverflowPage(getOrder());
+
+            overflowRef.setFirstPage(overflowPage);
+            overflowRef.insert((Ref) current);
+            overflowRef.insert(ref);
+            recordsReference[index] = overflowRef;
         }
-        return getNumberOfKeys();
     }
 
 
     /**
-     * Inserts the given key associated with a given record reference in the R-tree.
+     * Inserts a new entry in the leaf and treats the overflow of the leaf when it exceeds its order.
      *
-     * @param key             the key to be inserted which is associated with the given record reference
-     * @param recordReference the record reference to associate with the key
-     * @param parent          the parent node of the current node
-     * @param ptr             the pointer to the current node
-     * @return PushUpRTree object containing the new node and key to be inserted into the parent node,
-     * or null if the insertion was successful without splitting
-     * @throws DBAppException if there is an error during the insertion
+     * @param entry     the entry to insert
+     * @param insertion the state of the running insertion
+     * @return the new sibling node if the leaf was split, null otherwise
+     * @throws DBAppException if there is an error during the split
      */
-    public PushUpRTree<CustomPolygon> insert(CustomPolygon key,
-                                             Ref recordReference,
-                                             RTreeInnerNode<CustomPolygon> parent,
-                                             int ptr) throws DBAppException {
-
-        int index = 0;
-        while (index < getNumberOfKeys() && getKey(index).compareTo(key) < 0)
-            ++index;
-
-        if (index < getNumberOfKeys() && getKey(index).compareTo(key) == 0) {
-            GeneralRef ref = recordsReference[index];
-            if (ref.isOverflow()) {
-                OverflowRef overflowRef = (OverflowRef) ref;
-                overflowRef.insert(recordReference);
-
-            } else {
-                OverflowRef overflowRef = new OverflowRef();
-                OverflowPage overflowPage = new OverflowPage(getOrder());
-
-                overflowRef.setFirstPage(overflowPage);
-                overflowRef.insert((Ref) ref);
-                overflowRef.insert(recordReference);
-                recordsReference[index] = overflowRef;
-            }
-
-            return null;
-        } else if (this.isFull()) {
-            RTreeNode<CustomPolygon> newNode = this.split(key, recordReference);
-            Comparable<CustomPolygon> newKey = newNode.getFirstKey();
-            newNode.serializeNode();
-
-            return new PushUpRTree<>(newNode, newKey);
-        } else {
-            this.insertAt(index, key, recordReference);
-            return null;
-        }
+    PushUpRTree insert(RTreeEntry entry, RTreeInsertion insertion) throws DBAppException {
+        addEntry(entry);
+        return treatOverflow(insertion);
     }
 
 
     /**
-     * Inserts the given key associated with its record reference at the given index in the leaf node.
+     * Checks whether this leaf holds the given polygon.
      *
-     * @param index     the index at which the key will be inserted
-     * @param key       the key to be inserted
-     * @param recordPtr the record reference pointer to associate with the key
+     * @param key the key to search for
+     * @param mbr the bounding rectangle of the key
+     * @return this leaf if it holds the key, null otherwise
      */
-    private void insertAt(int index, Comparable<CustomPolygon> key, GeneralRef recordPtr) {
-        for (int i = getNumberOfKeys() - 1; i >= index; --i) {
-            this.setKey(i + 1, getKey(i));
-            this.setRecord(i + 1, getRecord(i));
-        }
-
-        this.setKey(index, key);
-        this.setRecord(index, recordPtr);
-        setNumberOfKeys(getNumberOfKeys() + 1);
+    public RTreeLeafNode findLeaf(CustomPolygon key, MBR mbr) {
+        return findIndex(key) == -1 ? null : this;
     }
 
 
     /**
-     * Searches the leaf node for the given key and returns the associated record reference.
+     * Collects the records of the entries whose rectangle intersects the window.
      *
-     * @param key the key to search for
-     * @return the record reference associated with the given key, or null if the key does not exist
+     * @param window the rectangle to intersect
+     * @param result the list the matching records are added to
      */
-    @Override
-    public GeneralRef search(CustomPolygon key) {
-        for (int i = 0; i < getNumberOfKeys(); ++i)
-            if (this.getKey(i).compareTo(key) == 0)
-                return this.getRecord(i);
-        return null;
+    public void searchIntersects(MBR window, ArrayList<GeneralRef> result) {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).intersects(window))
+                result.add(recordsReference[i]);
     }
 
 
     /**
-     * Searches the leaf node for the insertion point of the given key and returns the appropriate record reference.
+     * Collects the records of the entries whose rectangle covers the window.
      *
-     * @param key         the key to search for an insertion point
-     * @param tableLength the length of the table
-     * @return the record reference to be used for insertion, or null if the key does not fit in the leaf node
-     * @throws DBAppException if an error occurs during the search
+     * @param window the rectangle the entries have to cover
+     * @param result the list the matching records are added to
      */
-    public Ref searchForInsertion(CustomPolygon key, int tableLength) throws DBAppException {
-        int i = 0;
-        for (; i < getNumberOfKeys(); i++) {
-            if (this.getKey(i).compareTo(key) >= 0)
-                return this.refReference((this.getRecord(i)), tableLength);
-        }
-        if (i > 0) {
-            return this.refReference(this.getRecord(i - 1), tableLength);
-        }
-        return null;
+    public void searchContains(MBR window, ArrayList<GeneralRef> result) {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).contains(window))
+                result.add(recordsReference[i]);
     }
 
 
     /**
-     * Searches the leaf node and all subsequent leaf nodes for all record references associated with keys less than or equal to the given key.
+     * Collects the records of the entries whose rectangle is the window itself.
      *
-     * @param key the key to search for
-     * @return ArrayList of all matching record references
-     * @throws DBAppException if an error occurs during the search
+     * @param window the rectangle the entries have to be bounded by
+     * @param result the list the matching records are added to
      */
-    public ArrayList<GeneralRef> searchMTE(CustomPolygon key) throws DBAppException {
-        ArrayList<GeneralRef> res = new ArrayList<GeneralRef>();
-        searchMTE(key, res);
-        return res;
+    public void searchEquals(MBR window, ArrayList<GeneralRef> result) {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (getMBR(i).equals(window))
+                result.add(recordsReference[i]);
     }
 
 
     /**
-     * Recursively searches the leaf node and all subsequent leaf nodes for all record references associated with keys less than or equal to the given key.
+     * Collects the records of the entries whose rectangle lies inside the window.
      *
-     * @param key the key to search for
-     * @param res the ArrayList to store the found record references
-     * @throws DBAppException if an error occurs during the search
+     * @param window the rectangle the entries have to lie in
+     * @param result the list the matching records are added to
      */
-    public void searchMTE(CustomPolygon key, ArrayList<GeneralRef> res) throws DBAppException {
-        int i = 0;
-        for (; i < getNumberOfKeys(); ++i) {
-            if (this.getKey(i).compareTo(key) >= 0)
-                res.add(this.getRecord(i));
-        }
-        if (nextNode != null) {
-            RTreeLeafNode nxt = (RTreeLeafNode) deserializeNode(nextNode);
-            nxt.searchMTE(key, res);
-        }
-
+    public void searchWithin(MBR window, ArrayList<GeneralRef> result) {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            if (window.contains(getMBR(i)))
+                result.add(recordsReference[i]);
     }
 
 
     /**
-     * Searches the leaf node and all subsequent leaf nodes for all record references associated with keys greater than the given key.
+     * Adds this leaf to the list of leaves.
      *
-     * @param key the key to search for
-     * @return ArrayList of all matching record references
-     * @throws DBAppException if an error occurs during the search
+     * @param leaves the list the leaves are added to
      */
-    public ArrayList<GeneralRef> searchMT(CustomPolygon key) throws DBAppException {
-        ArrayList<GeneralRef> res = new ArrayList<GeneralRef>();
-        searchMT(key, res);
-        return res;
+    public void collectLeaves(ArrayList<RTreeLeafNode> leaves) {
+        leaves.add(this);
     }
 
 
     /**
-     * Recursively searches the leaf node and all subsequent leaf nodes for all record references associated with keys greater than the given key.
+     * Deletes the entry of the given key, or only the reference to the given page if the key has several records.
      *
-     * @param key the key to search for
-     * @param res the ArrayList to store the found record references
-     * @throws DBAppException if an error occurs during the search
+     * @param key      the key to be deleted
+     * @param mbr      the bounding rectangle of the key
+     * @param pageName the page the record lived in, or null to delete every reference of the key
+     * @param orphans  unused by leaves, the parent decides whether this leaf is dissolved
+     * @return true if the key was found and deleted, false otherwise
+     * @throws DBAppException if an overflow page cannot be read or written
      */
-    public void searchMT(CustomPolygon key, ArrayList<GeneralRef> res) throws DBAppException {
-        for (int i = 0; i < getNumberOfKeys(); ++i)
-            if (this.getKey(i).compareTo(key) > 0)
-                res.add(this.getRecord(i));
-
-        if (nextNode != null) {
-            RTreeLeafNode<CustomPolygon> nextLeafNode = (RTreeLeafNode<CustomPolygon>) deserializeNode(nextNode);
-            nextLeafNode.searchMT(key, res);
+    boolean delete(CustomPolygon key, MBR mbr, String pageName, ArrayList<RTreeEntry> orphans) throws DBAppException {
+        int index = findIndex(key);
+        if (index == -1)
+            return false;
+
+        if (pageName == null || recordsReference[index] instanceof Ref) {
+            removeEntry(index);
+            return true;
+        }
+
+        OverflowRef overflowRef = (OverflowRef) recordsReference[index];
+        if (overflowRef.getTotalSize() <= 1) {
+            removeEntry(index);
+            return true;
         }
+        overflowRef.deleteRef(pageName);
+        if (overflowRef.getTotalSize() == 1)
+            recordsReference[index] = overflowRef.getAllRef().get(0);
+        return true;
     }
 
 
     /**
-     * Searches for the leaf node that contains the given key.
+     * Adds every entry of the leaf to the list of orphans and deletes the file of the leaf.
      *
-     * @param key the key to search for
-     * @return the leaf node that contains the given key
+     * @param orphans the list the entries are added to
      */
-    public RTreeLeafNode searchForUpdateRef(CustomPolygon key) {
-        return this;
+    void dissolve(ArrayList<RTreeEntry> orphans) {
+        for (int i = 0; i < getNumberOfKeys(); i++)
+            orphans.add(getEntry(i));
+        deleteFile();
     }
 
 
     /**
-     * Updates the reference of a record in this leaf node.
+     * Updates the reference of the given key from the old page to the new page.
      *
-     * @param oldPage the old page name of the record
-     * @param newPage the new page name of the record
-     * @param key     the key of the record to update
-     * @throws DBAppException if an error occurs during the update
+     * @param oldPage the old page name
+     * @param newPage the new page name
+     * @param key     the key whose reference is to be updated
+     * @throws DBAppException if an overflow page cannot be read or written
      */
     public void updateRef(String oldPage, String newPage, CustomPolygon key) throws DBAppException {
-        GeneralRef generalRef;
-
-        for (int i = 0; i < getNumberOfKeys(); ++i)
-            if (this.getKey(i).compareTo(key) == 0) {
-                generalRef = getRecord(i);
-                generalRef.updateRef(oldPage, newPage);
-
-                if (generalRef instanceof Ref) {
-                    this.serializeNode();
-                }
-                return;
-            }
+        int index = findIndex(key);
+        if (index != -1)
+            recordsReference[index].updateRef(oldPage, newPage);
     }
 
 
@@ -378,7 +309,7 @@ public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> exte
      * @return the Ref object
      * @throws DBAppException if an error occurs during the deserialization of the OverflowPage
      */
-    private Ref refReference(GeneralRef generalReference, int tableLength) throws DBAppException {
+    public static Ref refReference(GeneralRef generalReference, int tableLength) throws DBAppException {
         if (generalReference instanceof Ref) {
             return (Ref) generalReference;
         } else {
@@ -392,197 +323,40 @@ public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> exte
 
 
     /**
-     * Splits the current node into two nodes
-     * With the new key and its reference inserted into one of the new nodes.
+     * Creates an empty leaf of the same order.
      *
-     * @param key       the new key that caused the split
-     * @param newKeyRef the reference of the new key
-     * @return the new node that results from the split
-     * @throws DBAppException if an error occurs during the split operation
+     * @return the new leaf
+     * @throws DBAppException if the node name cannot be generated
      */
-    public RTreeNode<CustomPolygon> split(CustomPolygon key, GeneralRef newKeyRef) throws DBAppException {
-        int keyIndex = this.findIndex(key);
-
-        // split nodes
-        int midIndex = getNumberOfKeys() / 2;
-        if ((getNumberOfKeys() & 1) == 1 && keyIndex > midIndex)
-            ++midIndex;
-
-        int totalKeys = getNumberOfKeys() + 1;
-
-        // move keys to new node
-        RTreeLeafNode<CustomPolygon> newNode = new RTreeLeafNode<>(getOrder());
-        for (int i = midIndex; i < totalKeys - 1; ++i) {
-            newNode.insertAt(i - midIndex, this.getKey(i), this.getRecord(i));
-            setNumberOfKeys(getNumberOfKeys() - 1);
-        }
-
-        //insert new key
-        if (keyIndex < totalKeys / 2)
-            this.insertAt(keyIndex, key, newKeyRef);
-        else
-            newNode.insertAt(keyIndex - midIndex, key, newKeyRef);
-
-        newNode.setNextNodeName(this.getNextNodeName());
-        this.setNextNodeName(newNode.getNodeName());
-
-        return newNode;
-    }
-
-
-    /**
-     * Borrows a key from either the left or right sibling of the current node, and returns a boolean indicating if the borrow operation was successful.
-     *
-     * @param parent the parent of the current node
-     * @param ptr    the index of the parent pointer that points to this node
-     * @return true if the key is borrowed from either node, false otherwise
-     * @throws DBAppException if an error occurs during the borrowing operation
-     */
-    public boolean borrow(RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException {
-        // left sibling
-        if (ptr > 0) {
-            RTreeLeafNode<CustomPolygon> leftSibling = (RTreeLeafNode<CustomPolygon>) parent.getChild(ptr - 1);
-            if (leftSibling.getNumberOfKeys() > leftSibling.getMinKeys()) {
-                this.insertAt(0, leftSibling.getLastKey(), leftSibling.getLastRecord());
-                leftSibling.deleteAt(leftSibling.getNumberOfKeys() - 1);
-                parent.setKey(ptr - 1, getKeys()[0]);
-                leftSibling.serializeNode();
-                return true;
-            }
-        }
-
-        // right sibling
-        if (ptr < parent.getNumberOfKeys()) {
-            RTreeLeafNode<CustomPolygon> rightSibling = (RTreeLeafNode<CustomPolygon>) parent.getChild(ptr + 1);
-            if (rightSibling.getNumberOfKeys() > rightSibling.getMinKeys()) {
-                this.insertAt(getNumberOfKeys(), rightSibling.getFirstKey(), rightSibling.getFirstRecord());
-                rightSibling.deleteAt(0);
-                parent.setKey(ptr, rightSibling.getFirstKey());
-                rightSibling.serializeNode();
-                return true;
-            }
-        }
-        return false;
-    }
-
-
-    /**
-     * Merges the current node with either its left or right sibling.
-     *
-     * @param parent the parent of the current node
-     * @param ptr    the index of the parent pointer that points to this node
-     * @throws DBAppException if an error occurs during the merging operation
-     */
-    public void merge(RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException {
-        if (ptr > 0) {
-            //merge with left
-            RTreeLeafNode<CustomPolygon> leftSibling = (RTreeLeafNode<CustomPolygon>) parent.getChild(ptr - 1);
-            leftSibling.merge(this);
-            parent.deleteAt(ptr - 1);
-            leftSibling.serializeNode();
-        } else {
-            //merge with right
-            RTreeLeafNode<CustomPolygon> rightSibling = (RTreeLeafNode<CustomPolygon>) parent.getChild(ptr + 1);
-            this.merge(rightSibling);
-            parent.deleteAt(ptr);
-            rightSibling.serializeNode();
-        }
+    protected RTreeNode newSibling() throws DBAppException {
+        return new RTreeLeafNode(getOrder());
     }
 
 
     /**
-     * Merges the current node with the given foreign node.
+     * Copies the entry at the given index into a slot of another leaf.
      *
-     * @param foreignNode the node to be merged with the current node
-     * @throws DBAppException if an error occurs during the merging operation
+     * @param from   the index of the entry to copy
+     * @param target the leaf receiving the entry
+     * @param to     the slot of the target the entry is written to
      */
-    public void merge(RTreeLeafNode<CustomPolygon> foreignNode) throws DBAppException {
-        for (int i = 0; i < foreignNode.getNumberOfKeys(); ++i)
-            this.insertAt(getNumberOfKeys(), foreignNode.getKey(i), foreignNode.getRecord(i));
-
-        this.setNextNodeName(foreignNode.getNextNodeName());
+    protected void copyEntry(int from, RTreeNode target, int to) {
+        RTreeLeafNode leaf = (RTreeLeafNode) target;
+        leaf.setMBR(to, getMBR(from));
+        leaf.keys[to] = keys[from];
+        leaf.recordsReference[to] = recordsReference[from];
     }
 
 
     /**
-     * Deletes the given key from the R-tree.
+     * Clears the slot at the given index.
      *
-     * @param key    the key to be deleted
-     * @param parent the parent of the key to be deleted, which the pointer will point to
-     * @param ptr    the index of the parent pointer that points to this node
-     * @return true if the key was successfully deleted, false otherwise
-     * @throws DBAppException if an error occurs during the delete operation
+     * @param index the slot to clear
      */
-    public boolean delete(CustomPolygon key, RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException {
-        for (int i = 0; i < getNumberOfKeys(); ++i)
-            if (getKeys()[i].compareTo(key) == 0) {
-                this.deleteAt(i);
-                if (i == 0 && ptr > 0) {
-                    parent.setKey(ptr - 1, this.getFirstKey());
-                }
-                if (!this.isRoot() && getNumberOfKeys() < this.getMinKeys()) {
-                    if (borrow(parent, ptr))
-                        return true;
-                    merge(parent, ptr);
-                }
-                return true;
-            }
-        return false;
-    }
-
-
-    /**
-     * Deletes the given key from the R-tree, handling the case where the key is associated with an overflow reference.
-     *
-     * @param key      the key to be deleted
-     * @param parent   the parent of the key to be deleted, which the pointer will point to
-     * @param ptr      the index of the parent pointer that points to this node
-     * @param pageName the name of the page associated with the key
-     * @return true if the key was successfully deleted, false otherwise
-     * @throws DBAppException if an error occurs during the delete operation
-     */
-    public boolean delete(CustomPolygon key, RTreeInnerNode<CustomPolygon> parent, int ptr, String pageName) throws DBAppException {
-        for (int i = 0; i < getNumberOfKeys(); ++i)
-            if (getKeys()[i].compareTo(key) == 0) {
-                if (recordsReference[i] instanceof Ref)
-                    this.deleteAt(i);
-                else {
-                    OverflowRef overflowRef = (OverflowRef) recordsReference[i];
-                    overflowRef.deleteRef(pageName);
-                    if (overflowRef.getTotalSize() == 1) {
-                        OverflowPage firstPageName = overflowRef.deserializeOverflowPage(overflowRef.getFirstPageName());
-                        Ref ref = firstPageName.getRefs().firstElement();
-                        recordsReference[i] = ref;
-                    }
-                }
-
-                if (i == 0 && ptr > 0) {
-                    parent.setKey(ptr - 1, this.getFirstKey());
-                }
-                if (!this.isRoot() && getNumberOfKeys() < this.getMinKeys()) {
-                    if (borrow(parent, ptr)) {
-                        return true;
-                    }
-                    merge(parent, ptr);
-
-                }
-                return true;
-            }
-        return false;
-    }
-
-
-    /**
-     * Deletes the key from the node at the given index.
-     *
-     * @param index the index of the key to be deleted
-     */
-    public void deleteAt(int index) {
-        for (int i = index; i < getNumberOfKeys() - 1; ++i) {
-            setKeys(new Comparable[]{getKeys()[i + 1]});
-            recordsReference[i] = recordsReference[i + 1];
-        }
-        setNumberOfKeys(getNumberOfKeys() - 1);
+    protected void clearEntry(int index) {
+        setMBR(index, null);
+        keys[index] = null;
+        recordsReference[index] = null;
     }
 
 
@@ -598,7 +372,7 @@ public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> exte
         for (int i = 0; i < getOrder(); i++) {
             String key = " ";
             if (i < getNumberOfKeys()) {
-                key = getKeys()[i].toString();
+                key = keys[i].toString();
 
                 if (recordsReference[i] instanceof Ref) {
                     key += "," + recordsReference[i];
@@ -619,5 +393,4 @@ public class RTreeLeafNode<CustomPolygon extends Comparable<CustomPolygon>> exte
         return stringBuilder.toString();
     }
 
-
 }
@@ -1,69 +1,73 @@
 package src.RTree;
 
+import src.DBGeneralEngine.CustomPolygon;
 import src.DBGeneralEngine.DBAppException;
+import src.DBGeneralEngine.EngineEvents;
+import src.DBGeneralEngine.EngineMetrics;
 import src.Ref.GeneralRef;
-import src.Ref.Ref;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Vector;
 
 /**
  * Abstract class to collect the functionalities of both inner and leaf nodes in an R-Tree.
- * This class provides the common properties and behaviors for all R-Tree nodes.
- *
- * @param <CustomPolygon> The type of custom polygon objects stored in the R-Tree nodes.
- *                        This type must implement the Comparable interface.
+ * Every entry of a node is summarised by its minimum bounding rectangle, inner entries bound a whole child subtree
+ * and leaf entries bound a single polygon key, so searches only descend into entries whose rectangle can match.
+ * Overflowing nodes follow the R*-Tree: the first overflow of a level during an insertion reinserts the entries
+ * farthest from the node's centre, later ones split along the axis and index that minimise margin and overlap.
  */
-public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>> implements Serializable {
+public abstract class RTreeNode implements Serializable {
 
 
     /**
      * Attributes
      * <p>
      * <p>
-     * keys         ->  Array to hold the "CustomPolygon" keys in the node, hence should implement the Comparable interface.
+     * mbrs         ->  Array holding the bounding rectangle of every entry, one slot larger than the order
+     *                  so a node can hold its overflowing entry until it is split.
      * nextIndex    ->  Static field shared across all instances, which holds the next index to be assigned to a new node.
-     * numberOfKeys ->  The number of keys currently stored in the node.
-     * order        ->  The order of the R-Tree, indicating the maximum number of children each node can have.
+     * numberOfKeys ->  The number of entries currently stored in the node.
+     * order        ->  The order of the R-Tree, indicating the maximum number of entries each node can have.
      * index        ->  The unique index of this node.
      * isRoot       ->  Boolean indicating whether this node is the root of the tree.
      * nodeName     ->  The name of this node, used for serialization and identification.
+     * level        ->  The height of this node above the leaves, leaves are at level 0.
      */
 
-    private Comparable<CustomPolygon>[] keys;
+    private static final double REINSERT_FRACTION = 0.3;
+    private final MBR[] mbrs;
     private static int nextIndex = 0;
     private int numberOfKeys;
     private int order;
     private int index;
     private boolean isRoot;
     private String nodeName;
+    private int level;
 
 
     /**
-     * Getters & Setters
-     * <p>
-     * <p>
-     * <p>
-     * <p>
-     * Gets the array of keys stored in this node.
+     * Constructs a new RTreeNode with the given order.
+     * Initializes the node with an index, order, and a unique node name.
      *
-     * @return the array of keys.
+     * @param order The order of the R-Tree.
+     * @throws DBAppException if there is an error generating the node name.
      */
-    public Comparable<CustomPolygon>[] getKeys() {
-        return keys;
+    public RTreeNode(int order) throws DBAppException {
+        index = nextIndex++;
+        numberOfKeys = 0;
+        this.order = order;
+        mbrs = new MBR[order + 1];
+        nodeName = getFromMetaDataTree();
     }
 
-    /**
-     * Sets the array of keys for this node.
-     *
-     * @param keys the array of keys to set.
-     */
-    public void setKeys(Comparable<CustomPolygon>[] keys) {
-        this.keys = keys;
-    }
 
     /**
+     * Getters & Setters
+     * <p>
+     * <p>
      * Gets the order of the R-Tree.
      *
      * @return the order of the R-Tree.
@@ -138,18 +142,18 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
     }
 
     /**
-     * Gets the number of keys currently stored in this node.
+     * Gets the number of entries currently stored in this node.
      *
-     * @return the number of keys.
+     * @return the number of entries.
      */
     public int getNumberOfKeys() {
         return numberOfKeys;
     }
 
     /**
-     * Sets the number of keys for this node.
+     * Sets the number of entries for this node.
      *
-     * @param numberOfKeys the number of keys to set.
+     * @param numberOfKeys the number of entries to set.
      */
     public void setNumberOfKeys(int numberOfKeys) {
         this.numberOfKeys = numberOfKeys;
@@ -164,67 +168,66 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
         this.isRoot = isRoot;
     }
 
-
     /**
-     * Finds the key at the given index.
+     * Gets the height of this node above the leaves.
      *
-     * @param index the index at which the key is located.
-     * @return the key which is located at the given index.
+     * @return 0 for leaves, the level of the children plus one for inner nodes.
      */
-    public Comparable<CustomPolygon> getKey(int index) {
-        return keys[index];
+    public int getLevel() {
+        return level;
     }
 
     /**
-     * Sets the key at the given index.
+     * Sets the height of this node above the leaves.
      *
-     * @param index the index of the key to be set.
-     * @param key   the new value for the key.
+     * @param level the level to set.
      */
-    public void setKey(int index, Comparable<CustomPolygon> key) {
-        keys[index] = key;
+    public void setLevel(int level) {
+        this.level = level;
     }
 
     /**
-     * Gets the last key in this node.
+     * Gets the bounding rectangle of the entry at the given index.
      *
-     * @return the last key in this node.
+     * @param index the index of the entry.
+     * @return the bounding rectangle of the entry.
      */
-    public Comparable<CustomPolygon> getLastKey() {
-        return keys[numberOfKeys - 1];
+    public MBR getMBR(int index) {
+        return mbrs[index];
     }
 
-
     /**
-     * Gets the first key in this node.
+     * Sets the bounding rectangle of the entry at the given index.
      *
-     * @return the first key in this node.
+     * @param index the index of the entry.
+     * @param mbr   the new bounding rectangle of the entry.
      */
-    public Comparable<CustomPolygon> getFirstKey() {
-        return keys[0];
+    public void setMBR(int index, MBR mbr) {
+        mbrs[index] = mbr;
     }
 
 
     /**
-     * Gets the minimum number of keys this node should hold.
+     * Computes the bounding rectangle of the whole node, the union of the rectangles of its entries.
      *
-     * @return the minimum number of keys.
+     * @return the rectangle covering every entry, or null if the node is empty.
      */
-    public abstract int getMinKeys();
+    public MBR getBoundingBox() {
+        MBR box = null;
+        for (int i = 0; i < numberOfKeys; i++)
+            box = (box == null) ? mbrs[i] : box.union(mbrs[i]);
+        return box;
+    }
 
 
     /**
-     * Constructs a new RTreeNode with the given order.
-     * Initializes the node with an index, order, and a unique node name.
+     * Gets the minimum number of entries this node should hold.
+     * Which is 1 for the root or 40% of the order for the other nodes, the fill Guttman recommends for R-Trees.
      *
-     * @param order The order of the R-Tree.
-     * @throws DBAppException if there is an error generating the node name.
+     * @return the minimum number of entries.
      */
-    public RTreeNode(int order) throws DBAppException {
-        index = nextIndex++;
-        numberOfKeys = 0;
-        this.order = order;
-        nodeName = getFromMetaDataTree();
+    public int getMinKeys() {
+        return isRoot ? 1 : Math.max(1, order * 2 / 5);
     }
 
 
@@ -262,7 +265,7 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
     public String getFromMetaDataTree() throws DBAppException {
         try {
 
-            String path = "data/metadata.csv";
+            String path = "data/metaBPtree.csv";
             String lastIn = "";
             Vector meta;
             meta = readFile(path);
@@ -276,7 +279,7 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
                 break;
             }
 
-            String fileName = "data/genMetadata.csv";
+            String fileName = "data/metaBPtree.csv";
             FileWriter csvWriter;
             csvWriter = new FileWriter(fileName);
             for (Object obj : meta) {
@@ -305,105 +308,343 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
 
 
     /**
-     * Checks if this node is full ( has the maximum number of keys ).
+     * Checks if this node is full ( has the maximum number of entries ).
      *
      * @return true if this node is full, false otherwise.
      */
     public boolean isFull() {
-        return numberOfKeys == order;
+        return numberOfKeys >= order;
+    }
+
+
+    /**
+     * Checks if this node holds more entries than its order allows and has to be split.
+     *
+     * @return true if this node is overflowing, false otherwise.
+     */
+    public boolean isOverflowing() {
+        return numberOfKeys > order;
     }
 
 
     /**
-     * Inserts the given key with the given record reference.
+     * Places an entry in the node of its level within the subtree of this node.
      *
-     * @param key             the key to be inserted.
-     * @param recordReference a pointer to the record.
-     * @param parent          the parent of the current node.
-     * @param ptr             the index of the parent pointer that points to this node.
-     * @return a key and a new node in case of a node splitting and null otherwise.
+     * @param entry     the entry to place.
+     * @param insertion the state of the insertion the entry belongs to.
+     * @return the new sibling node in case this node was split and null otherwise.
      * @throws DBAppException if there is an error during insertion.
      */
-    public abstract PushUpRTree<CustomPolygon> insert(CustomPolygon key, Ref recordReference, RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException;
+    abstract PushUpRTree insert(RTreeEntry entry, RTreeInsertion insertion) throws DBAppException;
+
+
+    /**
+     * Gets the entry at the given index.
+     *
+     * @param index the index of the entry.
+     * @return the entry.
+     */
+    abstract RTreeEntry getEntry(int index);
+
+
+    /**
+     * Appends an entry to this node.
+     *
+     * @param entry the entry to append.
+     */
+    abstract void addEntry(RTreeEntry entry);
+
+
+    /**
+     * Treats an overflowing node after an entry was added to it, the OverflowTreatment of the R*-Tree.
+     * The first overflow of a level during an insertion removes the entries farthest from the centre of the node
+     * and queues them for reinsertion, which often finds them a better node than a split would,
+     * any other overflow splits the node.
+     *
+     * @param insertion the state of the running insertion.
+     * @return the new sibling node if the node was split, null otherwise.
+     * @throws DBAppException if the new node cannot be created or written.
+     */
+    protected PushUpRTree treatOverflow(RTreeInsertion insertion) throws DBAppException {
+        if (!isOverflowing())
+            return null;
+        if (!isRoot && insertion.firstOverflow(level)) {
+            for (RTreeEntry entry : removeFarthest())
+                insertion.reinsert(entry);
+            return null;
+        }
+        RTreeNode newNode = split();
+        return new PushUpRTree(newNode, newNode.getBoundingBox());
+    }
+
+
+    /**
+     * Removes the 30% of the entries whose centres lie farthest from the centre of the node.
+     *
+     * @return the removed entries, the closest one first as the close reinsert variant of the R*-Tree recommends.
+     */
+    private ArrayList<RTreeEntry> removeFarthest() {
+        MBR box = getBoundingBox();
+        int total = numberOfKeys;
+        int count = Math.max(1, (int) Math.round(total * REINSERT_FRACTION));
+
+        Integer[] byDistance = new Integer[total];
+        double[] distance = new double[total];
+        for (int i = 0; i < total; i++) {
+            byDistance[i] = i;
+            double dx = mbrs[i].getCenterX() - box.getCenterX();
+            double dy = mbrs[i].getCenterY() - box.getCenterY();
+            distance[i] = dx * dx + dy * dy;
+        }
+        Arrays.sort(byDistance, Comparator.comparingDouble(i -> distance[i]));
+
+        boolean[] removed = new boolean[total];
+        ArrayList<RTreeEntry> entries = new ArrayList<>(count);
+        for (int i = total - count; i < total; i++) {
+            removed[byDistance[i]] = true;
+            entries.add(getEntry(byDistance[i]));
+        }
+
+        int kept = 0;
+        for (int i = 0; i < total; i++)
+            if (!removed[i])
+                copyEntry(i, this, kept++);
+        numberOfKeys = kept;
+        for (int i = kept; i < total; i++)
+            clearEntry(i);
+        return entries;
+    }
 
 
     /**
-     * Searches for the given key in the node.
+     * Finds the leaf holding exactly the given polygon, descending only into entries whose rectangle covers it.
      *
      * @param key the key to search for.
-     * @return the reference to the record if found, null otherwise.
+     * @param mbr the bounding rectangle of the key.
+     * @return the leaf holding the key, or null if the key is not in the subtree.
      * @throws DBAppException if there is an error during the search.
      */
-    public abstract GeneralRef search(CustomPolygon key) throws DBAppException;
+    public abstract RTreeLeafNode findLeaf(CustomPolygon key, MBR mbr) throws DBAppException;
 
 
     /**
-     * Searches for all keys that match the given key in the node.
+     * Collects the records of every entry whose rectangle intersects the window.
      *
-     * @param key the key to search for.
-     * @return a list of references to the records that match the key.
+     * @param window the rectangle to intersect.
+     * @param result the list the matching records are added to.
      * @throws DBAppException if there is an error during the search.
      */
-    public abstract ArrayList<GeneralRef> searchMT(CustomPolygon key) throws DBAppException;
+    public abstract void searchIntersects(MBR window, ArrayList<GeneralRef> result) throws DBAppException;
 
 
     /**
-     * Searches for all keys that match or exceed the given key in the node.
+     * Collects the records of every entry whose rectangle covers the window.
      *
-     * @param key the key to search for.
-     * @return a list of references to the records that match or exceed the key.
+     * @param window the rectangle the entries have to cover.
+     * @param result the list the matching records are added to.
      * @throws DBAppException if there is an error during the search.
      */
-    public abstract ArrayList<GeneralRef> searchMTE(CustomPolygon key) throws DBAppException;
+    public abstract void searchContains(MBR window, ArrayList<GeneralRef> result) throws DBAppException;
 
 
     /**
-     * Searches for the appropriate position to insert the given key in the node.
+     * Collects the records of every entry whose rectangle is the window itself.
      *
-     * @param key         the key to search for.
-     * @param tableLength the length of the table where the key will be inserted.
-     * @return the reference to the position where the key can be inserted.
+     * @param window the rectangle the entries have to be bounded by.
+     * @param result the list the matching records are added to.
      * @throws DBAppException if there is an error during the search.
      */
-    public abstract Ref searchForInsertion(CustomPolygon key, int tableLength) throws DBAppException;
+    public abstract void searchEquals(MBR window, ArrayList<GeneralRef> result) throws DBAppException;
 
 
     /**
-     * Searches for the leaf node that should be updated with the given key.
+     * Collects the records of every entry whose rectangle lies inside the window.
      *
-     * @param key the key to search for.
-     * @return the leaf node that contains or should contain the key.
+     * @param window the rectangle the entries have to lie in.
+     * @param result the list the matching records are added to.
      * @throws DBAppException if there is an error during the search.
      */
-    public abstract RTreeLeafNode searchForUpdateRef(CustomPolygon key) throws DBAppException;
+    public abstract void searchWithin(MBR window, ArrayList<GeneralRef> result) throws DBAppException;
 
 
     /**
-     * Deletes the given key from the R-Tree.
-     * If the key is found in this node, it is removed.
-     * If the node becomes underflowed after deletion, it attempts to borrow from siblings or merge nodes.
+     * Collects every leaf of the subtree of this node.
      *
-     * @param key    the key to be deleted from the R-Tree.
-     * @param parent the parent of the current node.
-     * @param ptr    the index of the parent pointer that points to this node.
-     * @return true if the key was successfully deleted, false otherwise.
-     * @throws DBAppException if there is an error during deletion.
+     * @param leaves the list the leaves are added to.
+     * @throws DBAppException if a node cannot be read.
      */
-    public abstract boolean delete(CustomPolygon key, RTreeInnerNode<CustomPolygon> parent, int ptr) throws DBAppException;
+    public abstract void collectLeaves(ArrayList<RTreeLeafNode> leaves) throws DBAppException;
 
 
     /**
-     * Deletes the given key from the R-Tree, considering the specific page name.
-     * This method handles scenarios where keys are part of overflow pages.
+     * Deletes the entry of the given key, only the reference to the given page if the key has several.
+     * Children left with too few entries are removed and their entries handed back for reinsertion,
+     * the condense step of Guttman's delete.
      *
-     * @param key      the key to be deleted from the R-Tree.
-     * @param parent   the parent of the current node.
-     * @param ptr      the index of the parent pointer that points to this node.
-     * @param pageName the name of the page where the key is stored.
-     * @return true if the key was successfully deleted, false otherwise.
+     * @param key      the key to be deleted.
+     * @param mbr      the bounding rectangle of the key.
+     * @param pageName the page the record lived in, or null to delete every reference of the key.
+     * @param orphans  the list the leaf entries of removed nodes are added to.
+     * @return true if the key was found and deleted, false otherwise.
      * @throws DBAppException if there is an error during deletion.
      */
-    public abstract boolean delete(CustomPolygon key, RTreeInnerNode<CustomPolygon> parent, int ptr, String pageName) throws DBAppException;
+    abstract boolean delete(CustomPolygon key, MBR mbr, String pageName, ArrayList<RTreeEntry> orphans) throws DBAppException;
+
+
+    /**
+     * Adds every leaf entry of the subtree of this node to the given list and deletes the files of the subtree.
+     *
+     * @param orphans the list the leaf entries are added to.
+     * @throws DBAppException if a node cannot be read.
+     */
+    abstract void dissolve(ArrayList<RTreeEntry> orphans) throws DBAppException;
+
+
+    /**
+     * Creates an empty node of the same kind as this one, used as the target of a split.
+     *
+     * @return the new node.
+     * @throws DBAppException if the node name cannot be generated.
+     */
+    protected abstract RTreeNode newSibling() throws DBAppException;
+
+
+    /**
+     * Copies the entry at the given index into a slot of another node of the same kind, or of this node.
+     *
+     * @param from   the index of the entry to copy.
+     * @param target the node receiving the entry.
+     * @param to     the slot of the target the entry is written to.
+     */
+    protected abstract void copyEntry(int from, RTreeNode target, int to);
+
+
+    /**
+     * Clears the slot at the given index so the removed entry can be garbage collected.
+     *
+     * @param index the slot to clear.
+     */
+    protected abstract void clearEntry(int index);
+
+
+    /**
+     * Removes the entry at the given index and shifts the following entries one slot to the left.
+     *
+     * @param index the index of the entry to remove.
+     */
+    public void removeEntry(int index) {
+        for (int i = index; i < numberOfKeys - 1; i++)
+            copyEntry(i + 1, this, i);
+        numberOfKeys--;
+        clearEntry(numberOfKeys);
+    }
+
+
+    /**
+     * Splits an overflowing node in two with the R*-Tree split.
+     * The entries of the second group move to a new sibling which is written to disk, this node keeps the first group.
+     *
+     * @return the new sibling node.
+     * @throws DBAppException if the new node cannot be created or written.
+     */
+    public RTreeNode split() throws DBAppException {
+        boolean[] toSibling = chooseSplit();
+        RTreeNode sibling = newSibling();
+        sibling.setLevel(level);
+
+        int kept = 0;
+        int total = numberOfKeys;
+        for (int i = 0; i < total; i++) {
+            if (toSibling[i])
+                copyEntry(i, sibling, sibling.numberOfKeys++);
+            else
+                copyEntry(i, this, kept++);
+        }
+        numberOfKeys = kept;
+        for (int i = kept; i < total; i++)
+            clearEntry(i);
+
+        sibling.serializeNode();
+        return sibling;
+    }
+
+
+    /**
+     * Partitions the entries of the node in two groups, the split of the R*-Tree.
+     * ChooseSplitAxis sorts the entries along each axis by their lower and by their upper edge and keeps the axis whose
+     * distributions have the smallest total margin, ChooseSplitIndex then takes the distribution of that axis
+     * whose groups overlap the least, ties broken by the smallest total area.
+     *
+     * @return for every entry, true if it goes to the new sibling and false if it stays.
+     */
+    private boolean[] chooseSplit() {
+        int total = numberOfKeys;
+        int minFill = Math.max(1, order * 2 / 5);
+
+        Integer[][] sorts = new Integer[4][];
+        sorts[0] = sortedEntries(total, Comparator.comparingDouble((Integer i) -> mbrs[i].getMinX()).thenComparingDouble(i -> mbrs[i].getMaxX()));
+        sorts[1] = sortedEntries(total, Comparator.comparingDouble((Integer i) -> mbrs[i].getMaxX()).thenComparingDouble(i -> mbrs[i].getMinX()));
+        sorts[2] = sortedEntries(total, Comparator.comparingDouble((Integer i) -> mbrs[i].getMinY()).thenComparingDouble(i -> mbrs[i].getMaxY()));
+        sorts[3] = sortedEntries(total, Comparator.comparingDouble((Integer i) -> mbrs[i].getMaxY()).thenComparingDouble(i -> mbrs[i].getMinY()));
+
+        // ChooseSplitAxis
+        double marginX = 0, marginY = 0;
+        for (int sort = 0; sort < 4; sort++)
+            for (int k = minFill; k <= total - minFill; k++) {
+                double margin = groupBox(sorts[sort], 0, k).margin() + groupBox(sorts[sort], k, total).margin();
+                if (sort < 2)
+                    marginX += margin;
+                else
+                    marginY += margin;
+            }
+        int firstSort = (marginX <= marginY) ? 0 : 2;
+
+        // ChooseSplitIndex
+        Integer[] best = sorts[firstSort];
+        int bestK = minFill;
+        double bestOverlap = Double.POSITIVE_INFINITY, bestArea = Double.POSITIVE_INFINITY;
+        for (int sort = firstSort; sort < firstSort + 2; sort++)
+            for (int k = minFill; k <= total - minFill; k++) {
+                MBR first = groupBox(sorts[sort], 0, k);
+                MBR second = groupBox(sorts[sort], k, total);
+                double overlap = first.overlap(second);
+                double area = first.area() + second.area();
+                if (overlap < bestOverlap || (overlap == bestOverlap && area < bestArea)) {
+                    best = sorts[sort];
+                    bestK = k;
+                    bestOverlap = overlap;
+                    bestArea = area;
+                }
+            }
+
+        boolean[] toSibling = new boolean[total];
+        for (int i = bestK; i < total; i++)
+            toSibling[best[i]] = true;
+        return toSibling;
+    }
+
+
+    /**
+     * Sorts the indexes of the entries of the node.
+     */
+    private static Integer[] sortedEntries(int total, Comparator<Integer> order) {
+        Integer[] indexes = new Integer[total];
+        for (int i = 0; i < total; i++)
+            indexes[i] = i;
+        Arrays.sort(indexes, order);
+        return indexes;
+    }
+
+
+    /**
+     * Computes the bounding rectangle of a run of sorted entries.
+     */
+    private MBR groupBox(Integer[] sorted, int from, int to) {
+        MBR box = mbrs[sorted[from]];
+        for (int i = from + 1; i < to; i++)
+            box = box.union(mbrs[sorted[i]]);
+        return box;
+    }
 
 
     /**
@@ -413,7 +654,7 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
      * @return true if the file was successfully deleted, false otherwise.
      */
     public boolean deleteFile() {
-        File f = new File("data/" + nodeName + ".class");
+        File f = new File("data: " + nodeName);
         return f.delete();
     }
 
@@ -425,12 +666,18 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
      * @throws DBAppException if there is an error during serialization.
      */
     public void serializeNode() throws DBAppException {
+        EngineEvents.Flush event = new EngineEvents.Flush();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + this.nodeName;
         try {
-            FileOutputStream fileOutputStream = new FileOutputStream("data: " + this.nodeName);
+            FileOutputStream fileOutputStream = new FileOutputStream(fileName);
             ObjectOutputStream objectOutputStream = new ObjectOutputStream(fileOutputStream);
             objectOutputStream.writeObject(this);
             objectOutputStream.close();
             fileOutputStream.close();
+            EngineMetrics.record(EngineMetrics.Operation.RTREE_NODE_WRITE, start, fileName);
+            event.emit("R-Tree node", fileName);
         } catch (IOException e) {
             e.printStackTrace();
             throw new DBAppException("IO Exception writing: " + this.nodeName);
@@ -446,13 +693,19 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
      * @return the deserialized R-Tree node.
      * @throws DBAppException if there is an error during deserialization.
      */
-    public RTreeNode<CustomPolygon> deserializeNode(String name) throws DBAppException {
+    public RTreeNode deserializeNode(String name) throws DBAppException {
+        EngineEvents.IndexNodeRead event = new EngineEvents.IndexNodeRead();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + name;
         try {
-            FileInputStream fileInputStream = new FileInputStream("data: " + name);
+            FileInputStream fileInputStream = new FileInputStream(fileName);
             ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
-            RTreeNode<CustomPolygon> RTreeNode = (RTreeNode<CustomPolygon>) objectInputStream.readObject();
+            RTreeNode RTreeNode = (RTreeNode) objectInputStream.readObject();
             objectInputStream.close();
             fileInputStream.close();
+            EngineMetrics.record(EngineMetrics.Operation.RTREE_NODE_READ, start, fileName);
+            event.emit("R-Tree", name, fileName);
             return RTreeNode;
         } catch (IOException e) {
             throw new DBAppException("IO Exception loading node: " + name);
@@ -464,7 +717,7 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
 
     /**
      * Provides a string representation of this node.
-     * The string includes the node's index and its keys in order.
+     * The string includes the node's index and the rectangles of its entries in order.
      *
      * @return a string representation of the node.
      */
@@ -475,7 +728,7 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
         for (int i = 0; i < order; i++) {
             String key = " ";
             if (i < numberOfKeys)
-                key = keys[i].toString();
+                key = mbrs[i].toString();
 
             stringBuilder.append(key);
             if (i < order - 1)
@@ -484,5 +737,4 @@ public abstract class RTreeNode<CustomPolygon extends Comparable<CustomPolygon>>
         stringBuilder.append("]");
         return stringBuilder.toString();
     }
-
-}
\ No newline at end of file
+}
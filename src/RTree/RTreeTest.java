@@ -0,0 +1,193 @@
+package src.RTree;
+
+import src.DBGeneralEngine.CustomPolygon;
+import src.DBGeneralEngine.DBAppException;
+import src.DBGeneralEngine.DBAppTest;
+import src.Ref.GeneralRef;
+import src.Ref.Ref;
+
+import java.awt.Polygon;
+import java.io.IOException;
+import java.util.*;
+
+import static src.DBGeneralEngine.DBAppTest.check;
+
+/**
+ * This class is used to test the functionality of the RTree data structure.
+ * It fills a tree with random rectangles and triangles and checks every spatial search against the bounding rectangles
+ * of all the polygons, before and after half of them are deleted.
+ * After every change it also checks the shape the R*-tree splits and reinsertions must keep: all leaves at the same depth,
+ * every node but the root at least 40% full, and every entry of an inner node bounding its child exactly.
+ * Trees bulk loaded in both packing orders are checked the same way, and must keep working as later keys come and go.
+ */
+public class RTreeTest {
+
+    public static void main(String[] args) throws DBAppException, IOException {
+
+        DBAppTest.prepare();
+        Random random = new Random(31);
+        ArrayList<CustomPolygon> polygons = new ArrayList<>();
+        for (int i = 0; i < 600; i++)
+            polygons.add(polygon(random, i));
+
+        RTree rTree = new RTree(6);
+        for (int i = 0; i < polygons.size(); i++)
+            rTree.insert(polygons.get(i), new Ref("P" + i));
+        checkStructure(rTree, polygons);
+        checkSearches(rTree, polygons, random);
+
+        // Deleting half of the polygons leaves the searches finding exactly the others
+        for (int i = 0; i < polygons.size(); i += 2) {
+            check(rTree.delete(polygons.get(i)), "polygon " + i + " was not deleted");
+            polygons.set(i, null);
+        }
+        checkStructure(rTree, polygons);
+        checkSearches(rTree, polygons, random);
+
+        // Polygons inserted along a line keep sending new entries to the same corner of the tree, splitting and
+        // reinserting from the same nodes over and over
+        ArrayList<CustomPolygon> line = new ArrayList<>();
+        RTree lineTree = new RTree(6);
+        for (int i = 0; i < 400; i++) {
+            int x = (i % 200) * 5, y = (i / 200) * 5;
+            line.add(new CustomPolygon(new Polygon(new int[]{x, x + 3, x + 3, x}, new int[]{y, y, y + 3, y + 3}, 4)));
+            lineTree.insert(line.get(i), new Ref("P" + i));
+        }
+        checkStructure(lineTree, line);
+        checkSearches(lineTree, line, random);
+
+        // Bulk loads pack the leaves full, exact duplicates sharing one entry
+        for (RTreeBulkLoader.Packing packing : RTreeBulkLoader.Packing.values()) {
+            ArrayList<CustomPolygon> loaded = new ArrayList<>();
+            ArrayList<Ref> refs = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                loaded.add(i % 50 == 49 ? loaded.get(i - 1) : polygon(random, i));
+                refs.add(new Ref("P" + i));
+            }
+            RTree packed = new RTree(6);
+            packed.bulkLoad(loaded, refs, packing);
+            checkStructure(packed, loaded);
+            checkSearches(packed, loaded, random);
+            ArrayList<RTreeLeafNode> leaves = new ArrayList<>();
+            packed.getRoot().collectLeaves(leaves);
+            int entries = 600 - 12;
+            int fewest = (entries + 5) / 6;
+            check(packing == RTreeBulkLoader.Packing.HILBERT ? leaves.size() == fewest : leaves.size() <= fewest + Math.ceil(Math.sqrt(fewest)),
+                    packing + " packed " + entries + " entries into " + leaves.size() + " leaves");
+
+            // The packed tree splits, reinserts and condenses like any other
+            for (int i = 600; i < 700; i++) {
+                loaded.add(polygon(random, i));
+                packed.insert(loaded.get(i), new Ref("P" + i));
+            }
+            for (int i = 1; i < 700; i += 3) {
+                check(packed.delete(loaded.get(i), "P" + i), packing + " tree did not delete polygon " + i);
+                loaded.set(i, null);
+            }
+            checkStructure(packed, loaded);
+            checkSearches(packed, loaded, random);
+        }
+
+        System.out.println("RTreeTest passed");
+    }
+
+
+    /**
+     * Builds the i-th polygon: a rectangle or a triangle of random size somewhere in a 1000 by 1000 square.
+     */
+    private static CustomPolygon polygon(Random random, int i) {
+        int x = random.nextInt(1000), y = random.nextInt(1000);
+        int width = 1 + random.nextInt(30), height = 1 + random.nextInt(30);
+        if (i % 3 == 0)
+            return new CustomPolygon(new Polygon(new int[]{x, x + width, x}, new int[]{y, y, y + height}, 3));
+        return new CustomPolygon(new Polygon(new int[]{x, x + width, x + width, x}, new int[]{y, y, y + height, y + height}, 4));
+    }
+
+
+    /**
+     * Checks every stored polygon is found and every search window returns the polygons whose rectangles it
+     * intersects, contains or lies in, the deleted polygons being null.
+     */
+    static void checkSearches(RTree rTree, ArrayList<CustomPolygon> polygons, Random random) throws DBAppException {
+        for (int i = 0; i < polygons.size(); i++) {
+            if (polygons.get(i) == null)
+                continue;
+            GeneralRef ref = rTree.search(polygons.get(i));
+            check(ref != null && ids(List.of(ref)).contains(i), "polygon " + i + " is not found");
+        }
+
+        for (int query = 0; query < 50; query++) {
+            int x = random.nextInt(1000), y = random.nextInt(1000), side = 1 + random.nextInt(query % 5 == 0 ? 400 : 60);
+            CustomPolygon window = new CustomPolygon(new Polygon(new int[]{x, x + side, x + side, x},
+                    new int[]{y, y, y + side, y + side}, 4));
+            MBR windowMBR = MBR.of(window);
+            TreeSet<Integer> intersecting = new TreeSet<>(), containing = new TreeSet<>(), within = new TreeSet<>();
+            for (int i = 0; i < polygons.size(); i++) {
+                if (polygons.get(i) == null)
+                    continue;
+                MBR mbr = MBR.of(polygons.get(i));
+                if (mbr.intersects(windowMBR))
+                    intersecting.add(i);
+                if (mbr.contains(windowMBR))
+                    containing.add(i);
+                if (windowMBR.contains(mbr))
+                    within.add(i);
+            }
+            check(ids(rTree.searchIntersects(window)).equals(intersecting), "searchIntersects is wrong for window " + windowMBR);
+            check(ids(rTree.searchContains(window)).equals(containing), "searchContains is wrong for window " + windowMBR);
+            check(ids(rTree.searchWithin(window)).equals(within), "searchWithin is wrong for window " + windowMBR);
+        }
+    }
+
+
+    /**
+     * Checks the depth, the fill and the rectangles of every node, and that the leaves hold every stored polygon.
+     */
+    static void checkStructure(RTree rTree, ArrayList<CustomPolygon> polygons) throws DBAppException {
+        ArrayList<GeneralRef> records = new ArrayList<>();
+        int[] leafDepth = {-1};
+        checkNode(rTree.getRoot(), 0, leafDepth, records);
+        TreeSet<Integer> stored = new TreeSet<>();
+        for (int i = 0; i < polygons.size(); i++)
+            if (polygons.get(i) != null)
+                stored.add(i);
+        check(ids(records).equals(stored), "the leaves do not hold exactly the stored polygons");
+    }
+
+
+    private static void checkNode(RTreeNode node, int depth, int[] leafDepth, ArrayList<GeneralRef> records)
+            throws DBAppException {
+        check(node.getNumberOfKeys() <= node.getOrder(), node.getNodeName() + " holds more entries than its order");
+        check(node.isRoot() || node.getNumberOfKeys() >= node.getMinKeys(), node.getNodeName() + " is underfull");
+        if (node instanceof RTreeLeafNode leaf) {
+            if (leafDepth[0] == -1)
+                leafDepth[0] = depth;
+            check(leafDepth[0] == depth, "leaves are at depths " + leafDepth[0] + " and " + depth);
+            for (int i = 0; i < leaf.getNumberOfKeys(); i++) {
+                check(leaf.getMBR(i).equals(MBR.of(leaf.getKey(i))), "a leaf entry does not bound its polygon");
+                records.add(leaf.getRecord(i));
+            }
+            return;
+        }
+        RTreeInnerNode inner = (RTreeInnerNode) node;
+        for (int i = 0; i < inner.getNumberOfKeys(); i++) {
+            RTreeNode child = inner.getChild(i);
+            check(inner.getMBR(i).equals(child.getBoundingBox()),
+                    "the entry of " + child.getNodeName() + " in " + inner.getNodeName() + " does not bound it exactly");
+            checkNode(child, depth + 1, leafDepth, records);
+        }
+    }
+
+
+    /**
+     * Reads the polygon numbers back from the page names of the references.
+     */
+    static TreeSet<Integer> ids(List<GeneralRef> refs) throws DBAppException {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (GeneralRef ref : refs)
+            for (Ref target : ref.getAllRef())
+                check(ids.add(Integer.parseInt(target.getPage().substring(1))), target.getPage() + " was returned twice");
+        return ids;
+    }
+
+}
@@ -1,6 +1,8 @@
 package src.Ref;
 
 import src.DBGeneralEngine.DBAppException;
+import src.DBGeneralEngine.EngineEvents;
+import src.DBGeneralEngine.EngineMetrics;
 import src.DBGeneralEngine.OverflowPage;
 
 import java.io.*;
@@ -105,12 +107,18 @@ public class OverflowRef extends GeneralRef implements Serializable
      */
     public OverflowPage deserializeOverflowPage(String firstPageName) throws DBAppException {
 
+        EngineEvents.PageFetch event = new EngineEvents.PageFetch();
+        event.begin();
+        long start = EngineMetrics.start();
+        String fileName = "data: " + firstPageName + ".class";
         try {
-            FileInputStream fileInputStream = new FileInputStream("data: "+ firstPageName + ".class");
+            FileInputStream fileInputStream = new FileInputStream(fileName);
             ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
             OverflowPage overflowPage = (OverflowPage) objectInputStream.readObject();
             objectInputStream.close();
             fileInputStream.close();
+            EngineMetrics.record(EngineMetrics.Operation.OVERFLOW_PAGE_READ, start, fileName);
+            event.emit(firstPageName, "overflow", fileName, overflowPage.getRefs().size());
             return overflowPage;
         }
         catch(IOException e) {